@@ -0,0 +1,40 @@
+package com.securepm.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH, mas grava os
+ * resultados em JSON por padrão, para comparação com {@link CompareResults}.
+ *
+ * Uso: java -jar benchmarks/target/benchmarks.jar [opções do JMH] [regex dos benchmarks]
+ * Exemplos: "-p entries=1000 CredentialManager" ou "-rff base.json Crypto".
+ */
+public class BenchmarkMain {
+
+    // Arquivo de resultados, quando "-rff" não é informado.
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        if (cli.shouldList()) {
+            new Runner(cli).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cli.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
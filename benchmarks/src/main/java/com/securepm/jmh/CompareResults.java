@@ -0,0 +1,106 @@
+package com.securepm.jmh;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dois arquivos de resultados do JMH em JSON (uma execução de referência e a atual)
+ * e aponta as regressões: mais lento no modo de tempo médio ou menor vazão no modo de vazão,
+ * além da tolerância e da margem de erro somada das duas execuções.
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar com.securepm.jmh.CompareResults referencia.json atual.json [tolerância %]
+ * Termina com código 1 se houver alguma regressão, para uso em scripts de CI.
+ */
+public class CompareResults {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompareResults referencia.json atual.json [tolerância %]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+        Map<String, JsonObject> baseline = load(args[0]);
+        Map<String, JsonObject> current = load(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Referência", "Atual", "Variação");
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            JsonObject before = baseline.get(entry.getKey());
+            JsonObject after = entry.getValue();
+            JsonObject afterMetric = after.getAsJsonObject("primaryMetric");
+            String unit = afterMetric.get("scoreUnit").getAsString();
+            double afterScore = afterMetric.get("score").getAsDouble();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-", format(afterScore, unit), "novo");
+                continue;
+            }
+            JsonObject beforeMetric = before.getAsJsonObject("primaryMetric");
+            double beforeScore = beforeMetric.get("score").getAsDouble();
+            double change = (afterScore - beforeScore) / beforeScore * 100;
+
+            // No modo de vazão, mais é melhor; nos modos de tempo, menos é melhor.
+            boolean higherIsBetter = "thrpt".equals(after.get("mode").getAsString());
+            double worsening = higherIsBetter ? -change : change;
+            double noise = (error(beforeMetric) + error(afterMetric)) / beforeScore * 100;
+            boolean regression = worsening > tolerance && worsening > noise;
+            if (regression) regressions++;
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", entry.getKey(), format(beforeScore, unit),
+                    format(afterScore, unit), change, regression ? "  ❌ REGRESSÃO" : "");
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-70s %14s %14s %9s%n", name, "", "-", "ausente");
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%n❌ %d regressão(ões) acima de %.0f%%.%n", regressions, tolerance);
+            System.exit(1);
+        }
+        System.out.printf("%n✅ Nenhuma regressão acima de %.0f%%.%n", tolerance);
+    }
+
+    // Resultados indexados pelo nome do benchmark e pelos parâmetros (por exemplo, "getAll [entries=1000]").
+    private static Map<String, JsonObject> load(String file) throws IOException {
+        Map<String, JsonObject> results = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+                JsonObject result = element.getAsJsonObject();
+                String name = result.get("benchmark").getAsString().replace("com.securepm.", "");
+                Map<String, String> params = new LinkedHashMap<>();
+                if (result.has("params")) {
+                    result.getAsJsonObject("params").entrySet()
+                            .forEach(param -> params.put(param.getKey(), param.getValue().getAsString()));
+                }
+                results.put(params.isEmpty() ? name : name + " " + params, result);
+            }
+        }
+        return results;
+    }
+
+    // Margem de erro (intervalo de 99,9%); NaN quando houve uma única iteração.
+    private static double error(JsonObject metric) {
+        JsonElement error = metric.get("scoreError");
+        if (error == null || !error.isJsonPrimitive() || !error.getAsJsonPrimitive().isNumber()) {
+            return 0;
+        }
+        double value = error.getAsDouble();
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format("%.3f %s", score, unit);
+    }
+}
@@ -0,0 +1,166 @@
+package com.securepm.jmh;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.repository.CredentialManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistência do cofre em blocos pelo {@link CredentialManager}: leitura completa, inclusão
+ * e remoção (acrescentadas ao diário do cofre) com 1k, 100k e 1M credenciais.
+ *
+ * Cada chamada de "add" e "removeById" parte do mesmo cofre: antes de cada uma, fora do
+ * tempo medido, os arquivos do cofre voltam ao estado do início da medição. Sem isso, o
+ * diário, os registros de exclusão e o registro de alterações das impressões digitais
+ * cresceriam a cada chamada, e as últimas medições pagariam pelas anteriores. A credencial
+ * incluída por "add" é removida depois da chamada, e a removida por "removeById" é incluída
+ * antes, para que o índice de impressões digitais em memória também volte ao estado inicial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CredentialManagerBenchmark {
+
+    /**
+     * Cofre sintético num diretório temporário, criado uma vez por tamanho.
+     */
+    @State(Scope.Benchmark)
+    public static class Vault {
+
+        @Param({"1000", "100000", "1000000"})
+        public int entries;
+
+        Path dir;
+        CredentialManager manager;
+
+        // Tamanho e data de modificação de cada arquivo do cofre no início da medição
+        // (null para os que não existiam), com a cópia guardada em 'dir/inicial'.
+        private final Map<Path, long[]> snapshot = new LinkedHashMap<>();
+
+        @Setup(Level.Trial)
+        public void create() throws Exception {
+            dir = Files.createTempDirectory("securepm-jmh");
+            manager = new CredentialManager(dir.resolve("credentials.dat").toString());
+            manager.unlock(Fixtures.VAULT_KEY);
+            manager.saveAll(Fixtures.credentials(entries));
+            // Constrói o índice de impressões digitais antes da medição, como depois do primeiro uso.
+            manager.getFingerprintIndex();
+
+            Path copies = Files.createDirectory(dir.resolve("inicial"));
+            List<String> files = new ArrayList<>(manager.getDataFiles());
+            files.addAll(manager.getDerivedFiles());
+            for (String file : files) {
+                Path path = Paths.get(file);
+                if (Files.exists(path)) {
+                    Files.copy(path, copies.resolve(path.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+                    snapshot.put(path, version(path));
+                } else {
+                    snapshot.put(path, null);
+                }
+            }
+        }
+
+        /**
+         * Devolve os arquivos do cofre ao estado do início da medição: os alterados são
+         * copiados de volta e os criados depois (diário, registros de alterações) são
+         * apagados. Como uma alteração só acrescenta ao diário, normalmente nenhum arquivo
+         * grande precisa ser copiado.
+         */
+        void reset() throws Exception {
+            for (Map.Entry<Path, long[]> entry : snapshot.entrySet()) {
+                Path path = entry.getKey();
+                if (entry.getValue() == null) {
+                    Files.deleteIfExists(path);
+                } else if (!Files.exists(path) || !Arrays.equals(version(path), entry.getValue())) {
+                    Files.copy(dir.resolve("inicial").resolve(path.getFileName()), path,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+
+        private static long[] version(Path path) throws Exception {
+            return new long[]{Files.size(path), Files.getLastModifiedTime(path).toMillis()};
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws Exception {
+            Fixtures.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Credencial a incluir num cofre recém-restaurado; removida depois de cada chamada.
+     */
+    @State(Scope.Thread)
+    public static class PendingAddition {
+        AccessCredential credential;
+        private int next;
+
+        @Setup(Level.Invocation)
+        public void create(Vault vault) throws Exception {
+            vault.reset();
+            credential = Fixtures.credential(-1 - next++);
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove(Vault vault) throws Exception {
+            vault.manager.removeById(credential.getId());
+        }
+    }
+
+    /**
+     * Credencial a remover; incluída antes de cada chamada, no cofre recém-restaurado.
+     */
+    @State(Scope.Thread)
+    public static class PendingRemoval {
+        String id;
+        private int next;
+
+        @Setup(Level.Invocation)
+        public void add(Vault vault) throws Exception {
+            vault.reset();
+            AccessCredential credential = Fixtures.credential(-1 - next++);
+            vault.manager.add(credential);
+            id = credential.getId();
+        }
+    }
+
+    @Benchmark
+    public List<AccessCredential> getAll(Vault vault) throws Exception {
+        return vault.manager.getAll();
+    }
+
+    @Benchmark
+    public void add(Vault vault, PendingAddition added) throws Exception {
+        vault.manager.add(added.credential);
+    }
+
+    @Benchmark
+    public boolean removeById(Vault vault, PendingRemoval existing) throws Exception {
+        return vault.manager.removeById(existing.id);
+    }
+}
@@ -0,0 +1,51 @@
+package com.securepm.jmh;
+
+import com.securepm.util.AESCryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cifragem e decifragem AES-CBC de um campo pelo {@link AESCryptoUtil}, com um campo curto
+ * (senha, nome de serviço) e um longo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({"16", "1024"})
+    public int length;
+
+    private String plainText;
+    private byte[] encrypted;
+
+    @Setup
+    public void prepare() throws Exception {
+        plainText = "x".repeat(length);
+        encrypted = AESCryptoUtil.encrypt(plainText, Fixtures.VAULT_KEY);
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        return AESCryptoUtil.encrypt(plainText, Fixtures.VAULT_KEY);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return AESCryptoUtil.decrypt(encrypted, Fixtures.VAULT_KEY);
+    }
+}
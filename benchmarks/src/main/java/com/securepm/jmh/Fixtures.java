@@ -0,0 +1,54 @@
+package com.securepm.jmh;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.util.AESCryptoUtil;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Dados sintéticos compartilhados pelos benchmarks. A chave do cofre é fixa (e não derivada
+ * da senha mestra), para que nenhum benchmark grave o salt.dat no diretório de trabalho.
+ */
+final class Fixtures {
+
+    static final SecretKey VAULT_KEY = new SecretKeySpec(new byte[32], "AES");
+
+    private Fixtures() {
+    }
+
+    // Credencial com serviço, usuário e senha cifrados, como as gravadas pelo VaultService.
+    static AccessCredential credential(int i) {
+        try {
+            byte[] password = AESCryptoUtil.encrypt("senha-" + Integer.toHexString(i * 0x9E3779B9) + "-Xy!", VAULT_KEY);
+            byte[] fingerprint = new byte[32];
+            Arrays.fill(fingerprint, (byte) i);
+            return new AccessCredential(UUID.randomUUID().toString(), AESCryptoUtil.encrypt("Servico" + i, VAULT_KEY),
+                    AESCryptoUtil.encrypt("usuario" + i + "@exemplo.com", VAULT_KEY), password, Arrays.copyOf(password, 16),
+                    fingerprint);
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha ao gerar a credencial sintética.", e);
+        }
+    }
+
+    // Credenciais sintéticas, cifradas em paralelo (1M entradas levam alguns segundos por núcleo).
+    static List<AccessCredential> credentials(int count) {
+        return IntStream.range(0, count).parallel().mapToObj(Fixtures::credential).collect(Collectors.toList());
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.securepm.jmh;
+
+import com.securepm.util.RandomPasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração de senhas aleatórias pelo {@link RandomPasswordUtil}: uma por chamada e em lote
+ * (o tempo do lote é dividido pela quantidade, para comparar o custo por senha).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomPasswordBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"16", "64"})
+    public int length;
+
+    @Benchmark
+    public String generate() {
+        return RandomPasswordUtil.generate(length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public char[][] generateBatch() {
+        return RandomPasswordUtil.generate(length, BATCH);
+    }
+}
@@ -0,0 +1,72 @@
+package com.securepm.jmh;
+
+import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
+import com.securepm.util.TwoFactorCodeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verificação de códigos TOTP e conversão Base32 do segredo pelo {@link TwoFactorCodeUtils}.
+ * Um código válido confere na primeira janela; um inválido percorre as três.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotpBenchmark {
+
+    private String secret;
+    private byte[] rawSecret;
+    private String validCode;
+    private String invalidCode;
+
+    @Setup(Level.Trial)
+    public void createSecret() throws Exception {
+        secret = TwoFactorCodeUtils.generateBase32Secret();
+        rawSecret = TwoFactorCodeUtils.Base32Encoder.decode(secret);
+    }
+
+    // O código muda a cada 30 s; é recalculado a cada iteração para continuar na janela atual.
+    @Setup(Level.Iteration)
+    public void currentCode() throws Exception {
+        int code = new TimeBasedOneTimePasswordGenerator()
+                .generateOneTimePassword(new SecretKeySpec(rawSecret, "HmacSHA1"), Instant.now());
+        validCode = String.format("%06d", code);
+        invalidCode = String.format("%06d", (code + 500_000) % 1_000_000);
+    }
+
+    @Benchmark
+    public boolean verifyValidCode() throws Exception {
+        return TwoFactorCodeUtils.verifyTOTPCode(secret, validCode);
+    }
+
+    @Benchmark
+    public boolean verifyInvalidCode() throws Exception {
+        return TwoFactorCodeUtils.verifyTOTPCode(secret, invalidCode);
+    }
+
+    @Benchmark
+    public String base32Encode() {
+        return TwoFactorCodeUtils.Base32Encoder.encode(rawSecret);
+    }
+
+    @Benchmark
+    public byte[] base32Decode() {
+        return TwoFactorCodeUtils.Base32Encoder.decode(secret);
+    }
+}
@@ -0,0 +1,70 @@
+package com.securepm.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura da resposta da API Pwned Passwords pelo {@link PasswordBreachChecker}, sobre uma
+ * resposta sintética do tamanho típico de um prefixo (cerca de 900 linhas "SUFIXO:CONTAGEM").
+ * Fica no pacote do utilitário para chamar o método de leitura sem acesso à rede.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreachResponseParsingBenchmark {
+
+    private static final int LINES = 900;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private byte[] body;
+    private byte[] presentSuffix;
+    private byte[] absentSuffix;
+
+    @Setup
+    public void createResponse() {
+        Random random = new Random(42);
+        StringBuilder response = new StringBuilder();
+        String middle = null;
+        for (int i = 0; i < LINES; i++) {
+            String suffix = randomSuffix(random);
+            if (i == LINES / 2) middle = suffix;
+            response.append(suffix).append(':').append(1 + random.nextInt(100_000)).append("\r\n");
+        }
+        body = response.toString().getBytes(StandardCharsets.US_ASCII);
+        presentSuffix = middle.getBytes(StandardCharsets.US_ASCII);
+        absentSuffix = randomSuffix(new Random(7)).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String randomSuffix(Random random) {
+        char[] suffix = new char[35];
+        for (int i = 0; i < suffix.length; i++) suffix[i] = HEX[random.nextInt(16)];
+        return new String(suffix);
+    }
+
+    // Sufixo na metade da resposta.
+    @Benchmark
+    public int findPresentSuffix() {
+        return PasswordBreachChecker.findCount(body, presentSuffix);
+    }
+
+    // Sufixo ausente: percorre a resposta inteira.
+    @Benchmark
+    public int findAbsentSuffix() {
+        return PasswordBreachChecker.findCount(body, absentSuffix);
+    }
+}
@@ -1,24 +1,71 @@
 package com.securepm;
 
 // Importa os serviços que contêm a lógica de negócio da aplicação.
+import com.securepm.agent.AgentClient;
+import com.securepm.agent.VaultAgent;
+import com.securepm.audit.AuditJournal;
+import com.securepm.batch.BatchRunner;
+import com.securepm.metrics.Metrics;
+import com.securepm.server.VaultHttpServer;
+import com.securepm.transfer.CredentialFileReader;
+import com.securepm.transfer.CredentialFileWriter;
+import com.securepm.service.AuthenticationException;
+import com.securepm.service.BackupService;
 import com.securepm.service.CredentialAuthService;
+import com.securepm.service.MultiUserVaultService;
+import com.securepm.service.SyncService;
 import com.securepm.service.UserAuthService;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
 import com.securepm.util.RandomPasswordUtil; // Importa o utilitário de geração de senha.
 
-import javax.crypto.SecretKey;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Console;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Ponto de entrada e orquestrador principal da aplicação SecurePM.
  * Esta classe gerencia o fluxo de interação com o usuário, desde o registro
- * e autenticação até a gestão das credenciais.
+ * e autenticação até a gestão das credenciais. Os menus são um cliente fino do
+ * {@link VaultService}, que concentra a lógica de negócio.
  */
 public class App {
     public static void main(String[] args) {
+        // Com SECUREPM_METRICS_FILE definida, as métricas da execução são gravadas no arquivo ao sair.
+        Metrics.writeOnExitIfConfigured();
+
+        // Com argumentos, o SecurePM funciona como linha de comando: inicia o agente ou consulta o agente em execução.
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
+        Metrics.enableJmx();
+
         // Inicializa o Scanner para ler as entradas do console e os serviços da aplicação.
         Scanner scanner = new Scanner(System.in);
-        UserAuthService authService = new UserAuthService();
-        CredentialAuthService credentialAuthService = new CredentialAuthService();
+        VaultService vaultService = new VaultService();
+        UserAuthService authService = new UserAuthService(vaultService);
+        CredentialAuthService credentialAuthService = new CredentialAuthService(vaultService);
+        BackupService backupService = new BackupService();
+        SyncService syncService = new SyncService();
 
         System.out.println("--- BEM-VINDO AO SECURE PASSWORD MANAGER (SecurePM) ---");
 
@@ -38,9 +85,9 @@ public class App {
 
         // --- ETAPA 2: LOOP DE AUTENTICAÇÃO ---
         // Esta seção persiste até que o usuário faça o login com sucesso.
-        // A chave 'aesKey' é nula até que o login seja validado.
-        SecretKey aesKey = null;
-        while (aesKey == null) {
+        // A sessão é nula até que o login seja validado.
+        VaultSession session = null;
+        while (session == null) {
             System.out.println("\n=== PORTAL DE AUTENTICAÇÃO ===");
             System.out.println("1) Fazer Login");
             System.out.println("2) Reiniciar Perfil (apaga todos os dados)");
@@ -50,9 +97,9 @@ public class App {
 
             switch (opt) {
                 case "1":
-                    // Tenta realizar o login e obter a chave de sessão AES.
-                    aesKey = authService.login(scanner);
-                    if (aesKey != null) {
+                    // Tenta realizar o login e abrir a sessão do cofre.
+                    session = authService.login(scanner);
+                    if (session != null) {
                         System.out.println("\n✅ Acesso concedido! Bem-vindo(a) ao seu cofre.");
                     }
                     break;
@@ -86,6 +133,9 @@ public class App {
             }
         }
 
+        // Carrega o cofre e o índice de busca em memória assim que a chave é conhecida.
+        credentialAuthService.loadVault(session);
+
         // --- ETAPA 3: LOOP DO MENU PRINCIPAL ---
         // Acessível apenas após a autenticação bem-sucedida.
         while (true) {
@@ -94,20 +144,29 @@ public class App {
             System.out.println("2) Listar todas as credenciais");
             System.out.println("3) Remover uma credencial");
             System.out.println("4) Gerador de Senha Segura");
-            System.out.println("5) Sair");
-            System.out.print("Digite a opção desejada (1-5): ");
+            System.out.println("5) Políticas de senha por serviço");
+            System.out.println("6) Relatório de senhas reutilizadas");
+            System.out.println("7) Buscar credenciais");
+            System.out.println("8) Busca rápida (prefixo e aproximada)");
+            System.out.println("9) Trocar a senha de uma credencial");
+            System.out.println("10) Histórico de senhas de uma credencial");
+            System.out.println("11) Verificar integridade do cofre");
+            System.out.println("12) Backups do cofre");
+            System.out.println("13) Sincronizar com outra réplica");
+            System.out.println("14) Sair");
+            System.out.print("Digite a opção desejada (1-14): ");
 
             String opt = scanner.nextLine().trim();
 
             switch (opt) {
                 case "1":
-                    credentialAuthService.addCredential(aesKey, scanner);
+                    credentialAuthService.addCredential(session, scanner);
                     break;
                 case "2":
-                    credentialAuthService.listCredentials(aesKey);
+                    credentialAuthService.listCredentials(session);
                     break;
                 case "3":
-                    credentialAuthService.removeCredential(scanner);
+                    credentialAuthService.removeCredential(session, scanner);
                     break;
                 case "4":
                     System.out.print("Digite o comprimento para a nova senha (mínimo recomendado: 12): ");
@@ -126,12 +185,369 @@ public class App {
                     }
                     break;
                 case "5":
+                    credentialAuthService.configurePolicy(scanner);
+                    break;
+                case "6":
+                    credentialAuthService.reportReusedPasswords(session);
+                    break;
+                case "7":
+                    credentialAuthService.searchCredentials(session, scanner);
+                    break;
+                case "8":
+                    credentialAuthService.quickSearch(session, scanner);
+                    break;
+                case "9":
+                    credentialAuthService.updatePassword(session, scanner);
+                    break;
+                case "10":
+                    credentialAuthService.showPasswordHistory(session, scanner);
+                    break;
+                case "11":
+                    credentialAuthService.verifyVault(session, scanner);
+                    break;
+                case "12":
+                    if (backupService.manageBackups(scanner)) {
+                        System.out.println("Encerrando sessão para aplicar o backup restaurado... 👋");
+                        System.exit(0);
+                    }
+                    break;
+                case "13":
+                    if (syncService.manageSync(session, scanner)) {
+                        // Recarrega o cofre e o índice de busca com as credenciais recebidas.
+                        credentialAuthService.loadVault(session);
+                    }
+                    break;
+                case "14":
                     System.out.println("Encerrando sessão... Obrigado por usar o SecurePM! 👋");
                     System.exit(0);
                     break;
                 default:
-                    System.out.println("❌ Opção inválida. Por favor, escolha um número de 1 a 5.");
+                    System.out.println("❌ Opção inválida. Por favor, escolha um número de 1 a 14.");
+            }
+        }
+    }
+
+    /**
+     * Executa o SecurePM em modo de linha de comando.
+     *
+     * - "agent [minutos]": faz o login uma vez e mantém o cofre desbloqueado em um agente;
+     * - "status", "list", "search <termo>", "get <ID ou serviço>", "metrics" e "stop": consultam o agente
+     *   ("metrics" devolve as métricas do agente no formato texto do Prometheus);
+     * - "server [--multi] [porta]": inicia a API HTTP local, com login por token ("--multi" atende
+     *   vários usuários, cada um com o próprio cofre, com o cadastro em users/ e os cofres em vaults/);
+     * - "batch [arquivo]": executa comandos NDJSON lidos do arquivo ou da entrada padrão;
+     * - "import <arquivo>" e "export <arquivo>": importam ou exportam credenciais em CSV ou JSON;
+     * - "audit": verifica a integridade do diário de auditoria.
+     *
+     * @param args Os argumentos da linha de comando.
+     * @return O código de saída do processo.
+     */
+    private static int runCommand(String[] args) {
+        switch (args[0]) {
+            case "agent":
+                return startAgent(args);
+            case "server":
+                return startServer(args);
+            case "batch":
+                return runBatch(args);
+            case "import":
+                return runImport(args);
+            case "export":
+                return runExport(args);
+            case "audit":
+                return verifyAudit();
+            case "status":
+            case "list":
+            case "search":
+            case "get":
+            case "stop":
+            case "metrics":
+                return new AgentClient().run(args);
+            default:
+                System.err.println("Uso: securepm [agent [minutos sem uso] | status | list | search <termo> | get <ID ou serviço> | metrics | stop | server [--multi] [porta] | batch [arquivo] | import <arquivo> | export <arquivo> | audit]");
+                System.err.println("Sem argumentos, o SecurePM abre o menu interativo.");
+                return 2;
+        }
+    }
+
+    // Verifica o diário de auditoria do diretório de trabalho: o encadeamento e, com o login, o
+    // selo da chave do cofre, sem o qual uma cadeia refeita por inteiro passaria na verificação.
+    private static int verifyAudit() {
+        Path dir = Paths.get(VaultService.AUDIT_DIR);
+        if (!Files.isDirectory(dir)) {
+            System.err.println("❌ Nenhum diário de auditoria encontrado em '" + dir.toAbsolutePath() + "'.");
+            return 1;
+        }
+        try (VaultService vaultService = new VaultService()) {
+            if (!VaultService.await(vaultService.isRegistered())) {
+                System.err.println("❌ Nenhum usuário mestre encontrado. Abra o SecurePM sem argumentos para criar um perfil.");
+                return 1;
+            }
+            VaultSession session = scriptLogin(vaultService);
+            if (session == null) {
+                return 1;
+            }
+            AuditJournal.Report report;
+            try (session) {
+                report = VaultService.await(vaultService.verifyAudit(session));
+            }
+            System.out.printf("Diário de auditoria: %d entrada(s) em %d arquivo(s), da %d à %d.%n", report.getEntries(),
+                    report.getFiles(), report.getFirstSequence(), report.getLastSequence());
+            if (report.isPartial()) {
+                System.out.println("ℹ️ As entradas anteriores à " + report.getFirstSequence() + " foram descartadas pela rotação.");
+            }
+            if (report.isIntact()) {
+                System.out.println("✅ A cadeia de hashes está íntegra e selada com a chave do cofre até a entrada "
+                        + report.getSealedSequence() + ".");
+                if (report.getUnsealedEntries() > 0) {
+                    System.out.println("ℹ️ " + report.getUnsealedEntries()
+                            + " entrada(s) posterior(es) ao selo, gravada(s) por outro processo ainda aberto.");
+                }
+                return 0;
+            }
+            for (String problem : report.getProblems()) {
+                System.out.println("❌ " + problem);
+            }
+            return 1;
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita ao verificar o diário de auditoria: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado ao verificar o diário de auditoria: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Faz o login (senha mestra e TOTP) e mantém o agente em execução até ser encerrado.
+    private static int startAgent(String[] args) {
+        int idleMinutes = VaultAgent.DEFAULT_IDLE_MINUTES;
+        if (args.length > 1) {
+            try {
+                idleMinutes = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                idleMinutes = -1;
+            }
+            if (idleMinutes < 1) {
+                System.err.println("❌ Informe o tempo sem uso em minutos (um número inteiro positivo).");
+                return 2;
+            }
+        }
+        try (VaultService vaultService = new VaultService()) {
+            UserAuthService authService = new UserAuthService(vaultService);
+            if (!authService.isUserRegistered()) {
+                System.err.println("❌ Nenhum usuário mestre encontrado. Abra o SecurePM sem argumentos para criar um perfil.");
+                return 1;
+            }
+            VaultSession session = authService.login(new Scanner(System.in));
+            if (session == null) {
+                return 1;
+            }
+            Metrics.enableJmx();
+            new VaultAgent(vaultService, session, idleMinutes).run();
+            return 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível iniciar o agente. " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado no agente: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Inicia a API HTTP na interface local e a mantém em execução até o processo ser interrompido.
+    private static int startServer(String[] args) {
+        boolean multiUser = args.length > 1 && "--multi".equals(args[1]);
+        int portArg = multiUser ? 2 : 1;
+        int port = VaultHttpServer.DEFAULT_PORT;
+        if (args.length > portArg) {
+            try {
+                port = Integer.parseInt(args[portArg]);
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if (port < 0 || port > 65535) {
+                System.err.println("❌ Informe uma porta válida (0 a 65535).");
+                return 2;
+            }
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        if (multiUser) {
+            try (MultiUserVaultService users = new MultiUserVaultService(Paths.get(""))) {
+                return serve(new VaultHttpServer(users, address, VaultHttpServer.DEFAULT_SESSION_MINUTES));
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("❌ Erro de Leitura/Escrita: Não foi possível iniciar o servidor. " + e.getMessage());
+            } catch (Exception e) {
+                System.err.println("❌ Erro inesperado no servidor: " + e.getMessage());
+            }
+            return 1;
+        }
+        try (VaultService vaultService = new VaultService()) {
+            if (!VaultService.await(vaultService.isRegistered())) {
+                System.err.println("❌ Nenhum usuário mestre encontrado. Abra o SecurePM sem argumentos para criar um perfil.");
+                return 1;
+            }
+            return serve(new VaultHttpServer(vaultService, address, VaultHttpServer.DEFAULT_SESSION_MINUTES));
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível iniciar o servidor. " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado no servidor: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Mantém o servidor em execução até o processo ser interrompido. O gancho de encerramento só
+    // libera a thread principal e espera (por pouco tempo) que ela feche o servidor no try.
+    private static int serve(VaultHttpServer created) throws IOException, InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        try {
+            try (VaultHttpServer server = created) {
+                server.start();
+                Metrics.enableJmx();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    stopped.countDown();
+                    try {
+                        closed.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+                System.out.printf("🌐 API do SecurePM em http://%s:%d/api/ (tokens expiram após %d min sem uso). Ctrl+C para encerrar.%n",
+                        InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), VaultHttpServer.DEFAULT_SESSION_MINUTES);
+                stopped.await();
+            }
+        } finally {
+            closed.countDown();
+        }
+        return 0;
+    }
+
+    // Executa comandos em lote (NDJSON) do arquivo informado ou da entrada padrão, com resultados na saída padrão.
+    private static int runBatch(String[] args) {
+        try (VaultService vaultService = new VaultService()) {
+            if (!VaultService.await(vaultService.isRegistered())) {
+                System.err.println("❌ Nenhum usuário mestre encontrado. Abra o SecurePM sem argumentos para criar um perfil.");
+                return 1;
+            }
+            VaultSession session = scriptLogin(vaultService);
+            if (session == null) {
+                return 1;
+            }
+            long start = System.nanoTime();
+            BatchRunner.Summary summary;
+            try (InputStream input = args.length > 1 ? new FileInputStream(args[1]) : System.in) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                summary = new BatchRunner(vaultService, session, BatchRunner.DEFAULT_BATCH_SIZE).run(in, out);
+            } finally {
+                session.close();
+            }
+            System.err.printf("✅ %d comando(s) em %d ms: %d erro(s), %d gravação(ões) do cofre.%n", summary.getCommands(),
+                    (System.nanoTime() - start) / 1_000_000, summary.getErrors(), summary.getCommits());
+            return summary.getErrors() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita no modo em lote: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado no modo em lote: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Login dos comandos para scripts: as credenciais vêm do terminal (quando houver) ou das
+    // variáveis SECUREPM_USER, SECUREPM_PASSWORD e SECUREPM_TOTP, já que a entrada padrão pode trazer dados.
+    private static VaultSession scriptLogin(VaultService vaultService) throws Exception {
+        String username = System.getenv("SECUREPM_USER");
+        String password = System.getenv("SECUREPM_PASSWORD");
+        String totp = System.getenv("SECUREPM_TOTP");
+        Console console = System.console();
+        if (console != null) {
+            if (username == null) username = console.readLine("Usuário: ");
+            if (password == null) password = new String(console.readPassword("Senha Mestra: "));
+            if (totp == null) totp = console.readLine("Código 2FA: ");
+        }
+        if (username == null || password == null || totp == null) {
+            System.err.println("❌ Sem terminal para o login: defina SECUREPM_USER, SECUREPM_PASSWORD e SECUREPM_TOTP.");
+            return null;
+        }
+        try {
+            return VaultService.await(vaultService.authenticate(username.trim(), password, totp.trim()));
+        } catch (AuthenticationException e) {
+            System.err.println("❌ " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Importa as credenciais de um arquivo CSV ou JSON com uma única gravação do cofre.
+    private static int runImport(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: securepm import <arquivo.csv | arquivo.json>");
+            return 2;
+        }
+        Path file = Paths.get(args[1]);
+        try (VaultService vaultService = new VaultService()) {
+            CredentialFileReader.Format.of(file);
+            if (!Files.isReadable(file)) {
+                System.err.println("❌ Arquivo não encontrado: " + file);
+                return 1;
+            }
+            VaultSession session = scriptLogin(vaultService);
+            if (session == null) {
+                return 1;
+            }
+            long start = System.nanoTime();
+            try (session; CredentialFileReader reader = CredentialFileReader.open(file)) {
+                int imported = VaultService.await(vaultService.importCredentials(session, reader));
+                System.err.printf("✅ %d credencial(is) importada(s) em %d ms (%d registro(s) sem senha ignorado(s)).%n",
+                        imported, (System.nanoTime() - start) / 1_000_000, reader.getSkipped());
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage() + " Nada foi importado.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita na importação: " + e.getMessage() + " Nada foi importado.");
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado na importação: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Exporta as credenciais (com as senhas em texto claro) para um arquivo novo, legível apenas pelo dono.
+    private static int runExport(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: securepm export <arquivo.csv | arquivo.json>");
+            return 2;
+        }
+        Path file = Paths.get(args[1]);
+        try (VaultService vaultService = new VaultService()) {
+            CredentialFileReader.Format format = CredentialFileReader.Format.of(file);
+            if (Files.exists(file)) {
+                System.err.println("❌ O arquivo já existe; escolha outro nome para não sobrescrevê-lo: " + file);
+                return 1;
+            }
+            VaultSession session = scriptLogin(vaultService);
+            if (session == null) {
+                return 1;
+            }
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+            long start = System.nanoTime();
+            try (session; CredentialFileWriter writer = new CredentialFileWriter(
+                    Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE), format)) {
+                int exported = VaultService.await(vaultService.exportCredentials(session,
+                        (cred, password) -> writer.write(cred.getServiceName(), cred.getUsername(), password)));
+                System.err.printf("✅ %d credencial(is) exportada(s) em %d ms para '%s'.%n", exported,
+                        (System.nanoTime() - start) / 1_000_000, file);
             }
+            System.err.println("⚠️ O arquivo contém as senhas em texto claro. Apague-o assim que não for mais necessário.");
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita na exportação: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro inesperado na exportação: " + e.getMessage());
         }
+        return 1;
     }
-}
\ No newline at end of file
+}
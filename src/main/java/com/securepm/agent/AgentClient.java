@@ -0,0 +1,118 @@
+package com.securepm.agent;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cliente de linha de comando do {@link VaultAgent}: envia um único comando pelo socket de
+ * domínio Unix e imprime a resposta. Não lê nenhum arquivo do cofre nem pede a senha mestra.
+ */
+public class AgentClient {
+
+    /**
+     * Resposta do agente: o estado e as linhas de texto.
+     */
+    public static final class Response {
+        private final boolean ok;
+        private final List<String> lines;
+
+        Response(boolean ok, List<String> lines) {
+            this.ok = ok;
+            this.lines = lines;
+        }
+
+        public boolean isOk() {
+            return ok;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+    }
+
+    private final Path socketPath;
+
+    public AgentClient() {
+        this(VaultAgent.defaultSocketPath());
+    }
+
+    public AgentClient(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * Envia um comando ao agente e aguarda a resposta.
+     *
+     * @param command O comando ("status", "list", "search", "get", "metrics" ou "stop").
+     * @param args    Os argumentos do comando.
+     * @return A resposta do agente.
+     * @throws IOException Se o agente não estiver em execução ou a conexão falhar.
+     */
+    public Response send(String command, String... args) throws IOException {
+        if (args.length > 255) {
+            throw new IllegalArgumentException("Argumentos demais para o agente.");
+        }
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeUTF(command);
+            out.writeByte(args.length);
+            for (String arg : args) out.writeUTF(arg);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            boolean ok = in.readByte() == VaultAgent.STATUS_OK;
+            int count = in.readInt();
+            List<String> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) lines.add(in.readUTF());
+            return new Response(ok, lines);
+        } catch (EOFException e) {
+            throw new IOException("O agente encerrou a conexão sem responder (o processo pertence a outro usuário?).", e);
+        }
+    }
+
+    /**
+     * Indica se há um agente respondendo no socket informado.
+     */
+    public static boolean isRunning(Path socketPath) {
+        if (!Files.exists(socketPath)) return false;
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Executa um comando da linha de comando e imprime o resultado.
+     *
+     * @param args O comando seguido dos seus argumentos.
+     * @return O código de saída do processo (0 em caso de sucesso).
+     */
+    public int run(String[] args) {
+        String[] commandArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, commandArgs, 0, commandArgs.length);
+        try {
+            Response response = send(args[0], commandArgs);
+            for (String line : response.getLines()) {
+                (response.isOk() ? System.out : System.err).println(line);
+            }
+            return response.isOk() ? 0 : 1;
+        } catch (IOException e) {
+            if (!Files.exists(socketPath)) {
+                System.err.println("❌ O agente não está em execução. Inicie-o com: securepm agent [minutos sem uso]");
+            } else {
+                System.err.println("❌ Erro de comunicação com o agente: " + e.getMessage());
+            }
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.securepm.agent;
+
+import com.securepm.metrics.Metrics;
+import com.securepm.model.CredentialSummary;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Agente em segundo plano (no estilo do ssh-agent) que mantém a chave do cofre e as
+ * credenciais descriptografadas em memória depois de um único login. Chamadas curtas da
+ * linha de comando ({@link AgentClient}) conversam com ele por um socket de domínio Unix,
+ * sem repetir o BCrypt, o TOTP e a leitura do cofre a cada execução.
+ *
+ * O socket fica em um diretório acessível apenas ao dono, e cada conexão é recusada se o
+ * processo do outro lado não pertencer ao mesmo usuário do sistema. Depois de um período
+ * sem uso o agente se encerra sozinho e descarta o cofre da memória.
+ *
+ * Protocolo (uma requisição por conexão): o cliente envia o comando e os argumentos com
+ * {@link DataOutputStream#writeUTF(String)}; o agente responde com um byte de estado
+ * ({@link #STATUS_OK} ou {@link #STATUS_ERROR}) seguido das linhas de texto a exibir.
+ */
+public class VaultAgent {
+
+    // Diretório (privado) e nome do socket, relativos ao diretório de trabalho, como os demais arquivos do cofre.
+    public static final String SOCKET_DIRECTORY = "securepm-agent";
+    public static final String SOCKET_FILE = "agent.sock";
+
+    // Tempo sem uso, em minutos, após o qual o agente se encerra.
+    public static final int DEFAULT_IDLE_MINUTES = 15;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+
+    // Comandos aceitos.
+    static final String CMD_STATUS = "status";
+    static final String CMD_LIST = "list";
+    static final String CMD_SEARCH = "search";
+    static final String CMD_GET = "get";
+    static final String CMD_STOP = "stop";
+    static final String CMD_METRICS = "metrics";
+
+    // Intervalo de verificação do tempo sem uso.
+    private static final long TICK_MS = 1_000;
+
+    // Quantidade máxima de resultados da busca.
+    private static final int SEARCH_LIMIT = 20;
+
+    private final VaultService vaultService;
+    private final Path socketPath;
+    private final Duration idleTimeout;
+
+    // Sessão autenticada no login; encerrada junto com o agente.
+    private final VaultSession session;
+
+    private final Instant startedAt = Instant.now();
+    private volatile long lastUsedNanos = System.nanoTime();
+    private volatile boolean running = true;
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Cria o agente para o cofre do diretório de trabalho.
+     *
+     * @param vaultService O serviço do cofre.
+     * @param session      A sessão aberta no login.
+     * @param idleMinutes  Minutos sem uso até o encerramento automático.
+     */
+    public VaultAgent(VaultService vaultService, VaultSession session, int idleMinutes) {
+        this.vaultService = vaultService;
+        this.session = session;
+        this.socketPath = defaultSocketPath();
+        this.idleTimeout = Duration.ofMinutes(idleMinutes);
+    }
+
+    // Caminho do socket do agente.
+    public static Path defaultSocketPath() {
+        return Paths.get(SOCKET_DIRECTORY, SOCKET_FILE);
+    }
+
+    /**
+     * Carrega o cofre, publica o socket e atende às requisições até o comando "stop" ou
+     * até o tempo sem uso se esgotar.
+     *
+     * @throws Exception Se o socket não puder ser criado ou o cofre não puder ser lido.
+     */
+    public void run() throws Exception {
+        // 1. Carrega o cofre antes de aceitar conexões.
+        int count = VaultService.await(vaultService.load(session));
+
+        // 2. Cria o diretório privado e remove um socket abandonado por um agente anterior.
+        prepareSocket();
+        UserPrincipal owner = FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             Selector selector = Selector.open()) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            restrictToOwner(socketPath, "rw-------");
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            System.out.printf("🔐 Agente pronto: %d credencial(is) em memória, socket '%s', encerramento após %d min sem uso.%n",
+                    count, socketPath, idleTimeout.toMinutes());
+
+            // 3. Aceita conexões; cada requisição é atendida em sua própria thread virtual.
+            while (running) {
+                selector.select(TICK_MS);
+                selector.selectedKeys().clear();
+                SocketChannel client;
+                while ((client = server.accept()) != null) {
+                    client.configureBlocking(true);
+                    SocketChannel connection = client;
+                    Thread.ofVirtual().name("vault-agent-request").start(() -> handle(connection, owner));
+                }
+                if (System.nanoTime() - lastUsedNanos > idleTimeout.toNanos()) {
+                    System.out.println("⏳ Tempo sem uso esgotado. Encerrando o agente.");
+                    running = false;
+                }
+            }
+        } finally {
+            running = false;
+            session.close();
+            Files.deleteIfExists(socketPath);
+        }
+        System.out.println("🔒 Agente encerrado; o cofre foi descartado da memória.");
+    }
+
+    // Atende a uma conexão: confere o dono do processo cliente, lê o comando e responde.
+    private void handle(SocketChannel channel, UserPrincipal owner) {
+        try (channel) {
+            UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            if (!peer.user().equals(owner)) {
+                return;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            String command = in.readUTF();
+            int argc = in.readUnsignedByte();
+            String[] args = new String[argc];
+            for (int i = 0; i < argc; i++) args[i] = in.readUTF();
+
+            List<String> lines = new ArrayList<>();
+            byte status;
+            try {
+                status = execute(command, args, lines);
+            } catch (Exception e) {
+                lines.clear();
+                lines.add("❌ Erro no agente: " + e.getMessage());
+                status = STATUS_ERROR;
+            }
+            out.writeByte(status);
+            out.writeInt(lines.size());
+            for (String line : lines) out.writeUTF(line);
+            out.flush();
+        } catch (IOException e) {
+            // Cliente desconectado no meio da requisição; nada a responder.
+        }
+    }
+
+    // Executa um comando e preenche as linhas da resposta.
+    private byte execute(String command, String[] args, List<String> lines) throws Exception {
+        if (!running) {
+            lines.add("❌ O agente está sendo encerrado.");
+            return STATUS_ERROR;
+        }
+        lastUsedNanos = System.nanoTime();
+        long served = requests.incrementAndGet();
+
+        switch (command) {
+            case CMD_STATUS:
+                lines.add(String.format("Agente ativo há %d min: %d credencial(is), %d requisição(ões), encerra após %d min sem uso.",
+                        Duration.between(startedAt, Instant.now()).toMinutes(), VaultService.await(vaultService.count(session)),
+                        served, idleTimeout.toMinutes()));
+                return STATUS_OK;
+            case CMD_LIST:
+                for (CredentialSummary cred : VaultService.await(vaultService.list(session))) {
+                    lines.add(describe(cred));
+                }
+                return STATUS_OK;
+            case CMD_SEARCH:
+                if (args.length == 0) {
+                    lines.add("❌ Informe o termo de busca.");
+                    return STATUS_ERROR;
+                }
+                for (VaultService.SearchResult result : VaultService.await(vaultService.search(session, String.join(" ", args), SEARCH_LIMIT))) {
+                    lines.add(describe(result.getCredential()));
+                }
+                return STATUS_OK;
+            case CMD_GET:
+                return get(args, lines);
+            case CMD_METRICS:
+                lines.addAll(Metrics.toPrometheusText().lines().collect(Collectors.toList()));
+                return STATUS_OK;
+            case CMD_STOP:
+                running = false;
+                lines.add("🔒 Agente encerrado.");
+                return STATUS_OK;
+            default:
+                lines.add("❌ Comando desconhecido: " + command);
+                return STATUS_ERROR;
+        }
+    }
+
+    // Devolve a senha de uma credencial, identificada pelo ID ou pelo nome exato do serviço.
+    private byte get(String[] args, List<String> lines) throws Exception {
+        if (args.length == 0) {
+            lines.add("❌ Informe o ID ou o nome do serviço.");
+            return STATUS_ERROR;
+        }
+        String term = String.join(" ", args);
+        String password = VaultService.await(vaultService.revealPassword(session, term));
+        if (password == null) {
+            List<CredentialSummary> matches = VaultService.await(vaultService.findByService(session, term));
+            if (matches.isEmpty()) {
+                lines.add("❌ Nenhuma credencial com esse ID ou serviço.");
+                return STATUS_ERROR;
+            }
+            if (matches.size() > 1) {
+                lines.add("❌ Mais de uma credencial para esse serviço; informe o ID:");
+                for (CredentialSummary match : matches) lines.add(describe(match));
+                return STATUS_ERROR;
+            }
+            password = VaultService.await(vaultService.revealPassword(session, matches.get(0).getId()));
+        }
+        lines.add(password);
+        return STATUS_OK;
+    }
+
+    // Linha de resultado: ID, serviço e usuário separados por tabulação.
+    private static String describe(CredentialSummary cred) {
+        return cred.getId() + "\t" + cred.getServiceName() + "\t" + cred.getUsername();
+    }
+
+    private void prepareSocket() throws IOException {
+        Path directory = socketPath.getParent();
+        Files.createDirectories(directory);
+        restrictToOwner(directory, "rwx------");
+        if (Files.exists(socketPath)) {
+            if (AgentClient.isRunning(socketPath)) {
+                throw new IOException("Já existe um agente em execução em '" + socketPath + "'.");
+            }
+            Files.delete(socketPath);
+        }
+    }
+
+    // Restringe as permissões ao dono, quando o sistema de arquivos usa permissões POSIX.
+    private static void restrictToOwner(Path path, String permissions) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+        }
+    }
+}
@@ -0,0 +1,906 @@
+package com.securepm.audit;
+
+import com.securepm.metrics.Counter;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+import com.securepm.util.KeyedHashUtil;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Diário de auditoria apenas por acréscimo (append-only): registra quem fez o quê no cofre
+ * (login, inclusão, listagem, remoção, senha revelada, ...), sem nunca gravar serviços,
+ * usuários das credenciais ou senhas — só o ID da credencial afetada.
+ *
+ * Registrar uma entrada custa apenas a inserção numa {@link AuditRingBuffer}; uma thread
+ * própria retira as entradas em lotes, encadeia-as e as grava no arquivo, com fsync
+ * periódico (no máximo a cada {@link #DEFAULT_SYNC_MILLIS} ms com o padrão) e no fechamento.
+ * Se a fila encher (disco lento ou parado), quem registra espera: o diário não descarta
+ * entradas enquanto estiver aberto, e o fechamento só termina depois de gravar todas as
+ * posições já reservadas na fila.
+ *
+ * Formato: uma linha de texto por entrada, com os campos separados por tabulação:
+ * sequência, data (UTC), usuário mestre, sessão, ação, alvo, resultado, hash anterior e hash.
+ * O hash é o SHA-256 da linha até o hash anterior, inclusive; assim, alterar, remover ou
+ * reordenar qualquer entrada quebra a cadeia a partir dela, o que {@link #verify(Path)}
+ * detecta. O arquivo "audit.head" guarda a última entrada sincronizada, para detectar
+ * também a remoção de entradas do fim.
+ *
+ * Selos: quem pode gravar os arquivos pode refazer uma cadeia de SHA-256 inteira. Por isso,
+ * a cada sincronização, o fim da cadeia é selado com um HMAC sob uma subchave derivada da
+ * chave de cada cofre ligado ao diário ({@link #attachVault(SecretKey)}), no arquivo
+ * "audit-&lt;id&gt;.seal" desse cofre. Como cada hash cobre todos os anteriores, a cadeia até a
+ * entrada selada não pode ser refeita sem a chave, o que {@link #verify(Path, SecretKey)}
+ * confere. A cadeia em si não usa a chave porque o diário registra também o que acontece
+ * antes do login (registros e logins recusados), quando ainda não há chave; essas entradas
+ * ficam cobertas pelo selo seguinte.
+ *
+ * Vários processos (ou vários diários do mesmo processo) podem gravar no mesmo diretório:
+ * cada gravação e cada sincronização acontece sob uma trava exclusiva do diretório (um
+ * FileLock sobre "audit.lock"), e quem obtém a trava retoma a cadeia do ponto em que outro
+ * gravador a deixou, em vez de continuar com uma sequência e um hash desatualizados.
+ *
+ * Rotação: quando o arquivo ativo ("audit.log") passa do tamanho máximo, ele é renomeado
+ * para "audit-<primeira sequência>.log" e a cadeia continua no arquivo novo. Só os
+ * arquivos mais recentes são mantidos; a verificação começa no mais antigo que restar.
+ */
+public final class AuditJournal implements AutoCloseable {
+
+    /**
+     * Ações registradas no diário.
+     */
+    public enum Action {
+        REGISTER("registro"),
+        LOGIN("login"),
+        LOGIN_FAILED("login-recusado"),
+        OPEN_SESSION("sessao-aberta"),
+        RESET_USER("perfil-apagado"),
+        LIST("listagem"),
+        FIND("consulta"),
+        SEARCH("busca"),
+        REVEAL_PASSWORD("senha-revelada"),
+        HISTORY("historico"),
+        ADD("inclusao"),
+        UPDATE_PASSWORD("troca-de-senha"),
+        REMOVE("remocao"),
+        BATCH("lote"),
+        IMPORT("importacao"),
+        EXPORT("exportacao"),
+        VERIFY("verificacao"),
+        REPAIR("reparo"),
+        SHARE("compartilhamento"),
+        SHARE_REVEAL("compartilhada-revelada"),
+        SHARE_ADD("destinatarios-incluidos"),
+        SHARE_REVOKE("revogacao");
+
+        private final String label;
+
+        Action(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final String ACTIVE_FILE = "audit.log";
+    public static final String HEAD_FILE = "audit.head";
+    public static final String LOCK_FILE = "audit.lock";
+
+    // Finalidade da subchave dos selos, derivada da chave do cofre.
+    public static final String SEAL_PURPOSE = "securepm/audit-seal/v1";
+
+    // Valores padrão da fila, do fsync e da rotação.
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long DEFAULT_SYNC_MILLIS = 1000;
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L << 20;
+    public static final int DEFAULT_MAX_FILES = 20;
+
+    // Prazo máximo de espera de sync().
+    public static final long SYNC_TIMEOUT_MILLIS = 10_000;
+
+    // Entradas retiradas da fila por gravação.
+    private static final int BATCH_SIZE = 1024;
+
+    // Hash anterior da primeira entrada da cadeia.
+    private static final String GENESIS = "0".repeat(64);
+    private static final int FIELDS = 9;
+
+    // Texto cujo HMAC identifica o arquivo de selo de um cofre, sem revelar a chave.
+    private static final String SEAL_ID_LABEL = "securepm/audit-seal-id";
+
+    // Travas dos diretórios de diário abertos neste processo.
+    private static final Map<Path, DirectoryLock> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
+
+    private static final Counter ENTRIES = Metrics.counter("audit_entries", "Entradas gravadas no diário de auditoria.");
+    private static final Counter BACKPRESSURE = Metrics.counter("audit_backpressure", "Esperas por espaço na fila do diário de auditoria.");
+    private static final Counter ERRORS = Metrics.counter("audit_errors", "Falhas de gravação no diário de auditoria.");
+    private static final LatencyHistogram SYNC_LATENCY = Metrics.histogram("audit_fsync", "fsync do diário de auditoria.");
+
+    /**
+     * Trava exclusiva de um diretório do diário: entre processos, um FileLock sobre
+     * {@link #LOCK_FILE}; dentro do processo, uma ReentrantLock, já que o FileLock pertence ao
+     * processo inteiro. O canal do arquivo fica aberto enquanto o processo existir, porque
+     * fechar qualquer canal do arquivo liberaria as travas do processo sobre ele.
+     */
+    private static final class DirectoryLock {
+        private final ReentrantLock local = new ReentrantLock();
+        private final Path file;
+        private FileChannel channel;
+        private FileLock held;
+
+        DirectoryLock(Path file) {
+            this.file = file;
+        }
+
+        void lock() throws IOException {
+            local.lock();
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                }
+                held = channel.lock();
+            } catch (IOException | RuntimeException e) {
+                local.unlock();
+                throw e;
+            }
+        }
+
+        void unlock() {
+            try {
+                held.release();
+            } catch (IOException e) {
+                // Fechar o canal também libera a trava; ele é reaberto na próxima vez.
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nada mais a fazer: o processo continua sem o canal.
+                }
+                channel = null;
+            } finally {
+                held = null;
+                local.unlock();
+            }
+        }
+    }
+
+    /**
+     * Uma entrada ainda não gravada.
+     */
+    private static final class Entry {
+        final long time = System.currentTimeMillis();
+        final String actor;
+        final String session;
+        final Action action;
+        final String target;
+        final String outcome;
+
+        Entry(String actor, String session, Action action, String target, String outcome) {
+            this.actor = actor;
+            this.session = session;
+            this.action = action;
+            this.target = target;
+            this.outcome = outcome;
+        }
+    }
+
+    private final Path dir;
+    private final long syncNanos;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final AuditRingBuffer<Entry> buffer;
+    private final DirectoryLock directoryLock;
+    private final Thread writer;
+    private final Thread shutdownHook;
+
+    // Subchaves de selo dos cofres ligados ao diário, pelo identificador do arquivo de selo.
+    private final Map<String, SecretKey> sealKeys = new ConcurrentHashMap<>();
+
+    // Threads dentro de record(): o fechamento espera que todas publiquem a posição reservada.
+    private final AtomicInteger recording = new AtomicInteger();
+
+    // Estado da cadeia e do arquivo ativo; só a thread de gravação os altera depois da abertura.
+    // 'activeKey' e 'writtenLength' identificam o arquivo ativo e o tamanho deixado pela última
+    // gravação deste diário, para perceber gravações e rotações de outros processos.
+    private FileChannel channel;
+    private Object activeKey;
+    private long writtenLength;
+    private long firstSequence;
+    private long lastSequence;
+    private String lastHash;
+    private long syncedSequence;
+    private long lastSync = System.nanoTime();
+
+    // Posições da fila já gravadas, sincronizadas e seladas, para sync().
+    private volatile long syncedPosition;
+
+    // 'idle' indica que a thread de gravação está (ou vai ficar) parada esperando entradas.
+    private volatile boolean idle;
+    private volatile boolean closed;
+    private volatile boolean syncRequested;
+    private volatile boolean sealsPending;
+
+    /**
+     * Abre o diário no diretório informado, com os valores padrão.
+     */
+    public static AuditJournal open(Path dir) throws IOException {
+        return new AuditJournal(dir, DEFAULT_CAPACITY, DEFAULT_SYNC_MILLIS, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * Abre (ou cria) o diário e continua a cadeia a partir da última entrada gravada. Uma linha
+     * incompleta no fim do arquivo (queda durante a gravação) é descartada. Outros processos
+     * podem manter o mesmo diretório aberto ao mesmo tempo.
+     *
+     * @param dir          O diretório dos arquivos do diário.
+     * @param capacity     A capacidade da fila de entradas.
+     * @param syncMillis   O intervalo máximo entre dois fsync, em milissegundos.
+     * @param maxFileBytes O tamanho a partir do qual o arquivo ativo é rotacionado.
+     * @param maxFiles     A quantidade de arquivos rotacionados mantidos.
+     */
+    public AuditJournal(Path dir, int capacity, long syncMillis, long maxFileBytes, int maxFiles) throws IOException {
+        this.dir = dir;
+        this.syncNanos = syncMillis * 1_000_000;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.buffer = new AuditRingBuffer<>(capacity);
+
+        // 1. Abre o arquivo ativo e continua a cadeia, sob a trava do diretório.
+        Files.createDirectories(dir);
+        this.directoryLock = directoryLock(dir);
+        directoryLock.lock();
+        try {
+            resume();
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) channel.close();
+            throw e;
+        } finally {
+            directoryLock.unlock();
+        }
+        syncedSequence = lastSequence;
+
+        // 2. Inicia a thread de gravação e garante a gravação das entradas pendentes ao sair.
+        writer = Thread.ofPlatform().name("securepm-audit").daemon().start(this::writeLoop);
+        shutdownHook = new Thread(this::close);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Registra uma entrada. Não faz E/S: a entrada é apenas enfileirada. Entradas registradas
+     * depois do fechamento são descartadas.
+     *
+     * @param actor   O usuário mestre, ou null quando a sessão foi aberta diretamente com a chave.
+     * @param session O ID da sessão, ou null fora de uma sessão (registro, login).
+     * @param action  A ação.
+     * @param target  O alvo (por exemplo, o ID da credencial ou a quantidade de itens), ou null.
+     * @param outcome O resultado: "ok" ou a falha.
+     */
+    public void record(String actor, String session, Action action, String target, String outcome) {
+        Entry entry = new Entry(actor, session, action, target, outcome);
+        // Contada antes de olhar 'closed': o fechamento espera até que nenhuma thread esteja
+        // entre a reserva da posição e a publicação da entrada.
+        recording.incrementAndGet();
+        try {
+            while (!closed) {
+                if (buffer.offer(entry)) {
+                    if (idle) LockSupport.unpark(writer);
+                    return;
+                }
+                // Fila cheia: acorda a gravação e espera um pouco.
+                BACKPRESSURE.increment();
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(100_000);
+            }
+        } finally {
+            recording.decrementAndGet();
+        }
+    }
+
+    /**
+     * Liga a chave de um cofre ao diário: a partir da próxima sincronização, o fim da cadeia é
+     * selado também com uma subchave derivada dela. Pode ser chamado a cada sessão aberta;
+     * chamadas repetidas com a mesma chave não têm efeito.
+     *
+     * @param vaultKey A chave do cofre obtida no login.
+     */
+    public void attachVault(SecretKey vaultKey) {
+        SecretKey sealKey = sealKey(vaultKey);
+        if (sealKeys.putIfAbsent(sealId(sealKey), sealKey) == null) {
+            sealsPending = true;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Sela as entradas já registradas com a chave do cofre e a desliga do diário (por exemplo,
+     * quando o último usuário do cofre sai).
+     *
+     * @param vaultKey A chave informada em {@link #attachVault(SecretKey)}.
+     */
+    public void detachVault(SecretKey vaultKey) {
+        String id = sealId(sealKey(vaultKey));
+        if (sealKeys.containsKey(id)) {
+            sync();
+            sealKeys.remove(id);
+        }
+    }
+
+    /**
+     * Espera que as entradas registradas até agora sejam gravadas, sincronizadas e seladas com
+     * as chaves dos cofres ligados ao diário.
+     *
+     * @return 'false' se o diário foi fechado antes disso ou se o prazo de
+     *         {@link #SYNC_TIMEOUT_MILLIS} ms venceu (por exemplo, com o disco parado).
+     */
+    public boolean sync() {
+        long target = buffer.claimed();
+        long deadline = System.nanoTime() + SYNC_TIMEOUT_MILLIS * 1_000_000;
+        while (syncedPosition < target || sealsPending) {
+            if (!writer.isAlive() || System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            syncRequested = true;
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    /**
+     * O diretório dos arquivos do diário.
+     */
+    public Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Grava as entradas pendentes (inclusive as de threads que já reservaram uma posição na
+     * fila), sincroniza e sela o arquivo e encerra a thread de gravação.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // O processo já está encerrando (fechamento pelo próprio gancho).
+        }
+    }
+
+    // --- Gravação ---
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            if (buffer.drainTo(batch, BATCH_SIZE) == 0) {
+                if (closed) {
+                    // Só encerra quando nenhuma thread está registrando e todas as posições
+                    // reservadas foram retiradas; uma reserva pode ainda não ter sido publicada.
+                    if (recording.get() == 0 && buffer.isDrained()) break;
+                    LockSupport.parkNanos(100_000);
+                    continue;
+                }
+                boolean requested = syncRequested;
+                syncRequested = false;
+                syncIfDue(requested);
+                idle = true;
+                if (buffer.isEmpty() && !closed && !syncRequested) {
+                    LockSupport.parkNanos(this, syncNanos);
+                }
+                idle = false;
+                continue;
+            }
+            // Uma falha de disco não descarta o lote: ele é regravado até dar certo (a fila segura as
+            // demais). Só no fechamento, para não travar a saída do processo, as entradas são abandonadas.
+            while (true) {
+                try {
+                    append(batch);
+                    break;
+                } catch (IOException e) {
+                    ERRORS.increment();
+                    System.err.println("❌ Erro ao gravar o diário de auditoria: " + e.getMessage());
+                    if (closed) {
+                        System.err.println("❌ " + batch.size() + " entrada(s) do diário de auditoria não foram gravadas.");
+                        return;
+                    }
+                    LockSupport.parkNanos(syncNanos);
+                }
+            }
+            batch.clear();
+            syncIfDue(false);
+        }
+        syncIfDue(true);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("❌ Erro ao fechar o diário de auditoria: " + e.getMessage());
+        }
+    }
+
+    // Encadeia e grava um lote sob a trava do diretório, depois de retomar a cadeia de onde
+    // outro gravador a deixou; o estado da cadeia só avança se a gravação der certo.
+    private void append(List<Entry> batch) throws IOException {
+        directoryLock.lock();
+        try {
+            resume();
+            StringBuilder text = new StringBuilder(batch.size() * 192);
+            long sequence = lastSequence;
+            String hash = lastHash;
+            MessageDigest sha256 = sha256();
+            for (Entry entry : batch) {
+                sequence++;
+                String body = sequence + "\t" + Instant.ofEpochMilli(entry.time) + "\t" + field(entry.actor) + "\t"
+                        + field(entry.session) + "\t" + entry.action.getLabel() + "\t" + field(entry.target) + "\t"
+                        + field(entry.outcome) + "\t" + hash;
+                hash = HexFormat.of().formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8)));
+                text.append(body).append('\t').append(hash).append('\n');
+            }
+
+            long size = channel.size();
+            try {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } catch (IOException e) {
+                // Desfaz uma gravação parcial, para a nova tentativa não deixar linhas quebradas.
+                channel.truncate(size);
+                channel.position(size);
+                throw e;
+            }
+            writtenLength = channel.position();
+            lastSequence = sequence;
+            lastHash = hash;
+            ENTRIES.add(batch.size());
+
+            if (writtenLength >= maxFileBytes) {
+                rotate();
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    // Sincroniza o arquivo, o "audit.head" e os selos quando o intervalo venceu (ou sempre, se
+    // 'force'). Com tudo já sincronizado, só registra as posições da fila já cobertas.
+    private void syncIfDue(boolean force) {
+        long consumed = buffer.consumed();
+        if (lastSequence == syncedSequence && !sealsPending) {
+            syncedPosition = consumed;
+            return;
+        }
+        if (!force && System.nanoTime() - lastSync < syncNanos) {
+            return;
+        }
+        try {
+            directoryLock.lock();
+            try {
+                resume();
+                long start = System.nanoTime();
+                channel.force(false);
+                writeHead();
+                sealsPending = false;
+                writeSeals();
+                SYNC_LATENCY.recordSince(start);
+            } finally {
+                directoryLock.unlock();
+            }
+            syncedSequence = lastSequence;
+            syncedPosition = consumed;
+            lastSync = System.nanoTime();
+        } catch (IOException e) {
+            sealsPending = !sealKeys.isEmpty();
+            ERRORS.increment();
+            System.err.println("❌ Erro ao sincronizar o diário de auditoria: " + e.getMessage());
+        }
+    }
+
+    private void writeHead() throws IOException {
+        writeAtomically(dir.resolve(HEAD_FILE), lastSequence + "\t" + lastHash + "\n");
+    }
+
+    // Sela a última entrada com a subchave de cada cofre ligado ao diário.
+    private void writeSeals() throws IOException {
+        for (Map.Entry<String, SecretKey> seal : sealKeys.entrySet()) {
+            String sealed = lastSequence + "\t" + lastHash;
+            writeAtomically(dir.resolve(sealName(seal.getKey())), sealed + "\t" + sealMac(seal.getValue(), sealed) + "\n");
+        }
+    }
+
+    private static void writeAtomically(Path target, String content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Abre (ou reabre) o arquivo ativo e retoma a cadeia da última entrada gravada, se outro
+    // gravador tiver acrescentado entradas ou rotacionado o arquivo desde a última gravação
+    // deste diário. Uma linha incompleta no fim (queda durante a gravação) é descartada.
+    // Chamado sempre com a trava do diretório.
+    private void resume() throws IOException {
+        Path active = dir.resolve(ACTIVE_FILE);
+        if (channel == null || !Files.exists(active) || !Objects.equals(fileKey(active), activeKey)) {
+            if (channel != null) channel.close();
+            channel = FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            activeKey = fileKey(active);
+        } else if (channel.size() == writtenLength) {
+            return;
+        }
+        channel.truncate(completeLength(channel));
+        writtenLength = channel.size();
+        channel.position(writtenLength);
+
+        // Continua a cadeia da última entrada (do arquivo ativo ou do último rotacionado).
+        String[] last = lastEntry(active);
+        if (last == null) {
+            List<Path> rotated = rotatedFiles(dir);
+            last = rotated.isEmpty() ? null : lastEntry(rotated.get(rotated.size() - 1));
+        }
+        lastSequence = last == null ? 0 : Long.parseLong(last[0]);
+        lastHash = last == null ? GENESIS : last[FIELDS - 1];
+        firstSequence = writtenLength > 0 ? firstSequence(active) : lastSequence + 1;
+    }
+
+    // Fecha o arquivo ativo com o nome da sua primeira sequência, abre um novo e apaga os mais antigos.
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        Path active = dir.resolve(ACTIVE_FILE);
+        Files.move(active, dir.resolve(rotatedName(firstSequence)), StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(active, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeKey = fileKey(active);
+        writtenLength = 0;
+        firstSequence = lastSequence + 1;
+        writeHead();
+        writeSeals();
+        syncedSequence = lastSequence;
+        lastSync = System.nanoTime();
+
+        List<Path> rotated = rotatedFiles(dir);
+        for (int i = 0; i < rotated.size() - maxFiles; i++) {
+            Files.deleteIfExists(rotated.get(i));
+        }
+    }
+
+    // --- Verificação ---
+
+    /**
+     * Resultado da verificação do diário.
+     */
+    public static final class Report {
+        private final List<String> problems = new ArrayList<>();
+        private int files;
+        private long entries;
+        private long firstSequence;
+        private long lastSequence;
+        private long sealedSequence;
+        private boolean partial;
+
+        public boolean isIntact() {
+            return problems.isEmpty();
+        }
+
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getFirstSequence() {
+            return firstSequence;
+        }
+
+        public long getLastSequence() {
+            return lastSequence;
+        }
+
+        // Indica que a cadeia começa depois da sequência 1 (arquivos antigos removidos pela rotação).
+        public boolean isPartial() {
+            return partial;
+        }
+
+        // Última entrada autenticada pelo selo da chave informada na verificação (0 se nenhuma).
+        public long getSealedSequence() {
+            return sealedSequence;
+        }
+
+        // Entradas da cadeia disponível que o selo não cobre (todas, sem chave ou sem selo).
+        public long getUnsealedEntries() {
+            return entries == 0 ? 0 : lastSequence - Math.max(sealedSequence, firstSequence - 1);
+        }
+    }
+
+    /**
+     * Verifica o diário de um diretório: o formato de cada linha, a sequência, o hash de cada
+     * entrada e o encadeamento entre entradas e entre arquivos, além da última entrada
+     * sincronizada registrada no "audit.head". Pode ser executado com o diário aberto por
+     * outro processo: a leitura acontece sob a trava do diretório, e entradas ainda não
+     * sincronizadas podem faltar, o que não é um problema.
+     *
+     * Sem a chave de um cofre, não detecta uma cadeia refeita por inteiro; para isso, veja
+     * {@link #verify(Path, SecretKey)}.
+     */
+    public static Report verify(Path dir) throws IOException {
+        return verify(dir, null);
+    }
+
+    /**
+     * Verifica o diário como {@link #verify(Path)} e, com a chave de um cofre, confere também o
+     * selo desse cofre: o HMAC do selo e a entrada selada, que precisa existir com o mesmo
+     * hash. Um selo ausente ou inválido, ou uma entrada selada diferente, indica que a cadeia
+     * foi refeita; as entradas posteriores ao selo aparecem em {@link Report#getUnsealedEntries()}.
+     *
+     * @param vaultKey A chave do cofre, ou null para verificar só o encadeamento.
+     */
+    public static Report verify(Path dir, SecretKey vaultKey) throws IOException {
+        Report report = new Report();
+        if (!Files.isDirectory(dir)) {
+            if (vaultKey != null) report.problems.add("Nenhum diário de auditoria em " + dir + ".");
+            return report;
+        }
+        DirectoryLock directoryLock = directoryLock(dir);
+        directoryLock.lock();
+        try {
+            verify(dir, vaultKey, report);
+        } finally {
+            directoryLock.unlock();
+        }
+        return report;
+    }
+
+    private static void verify(Path dir, SecretKey vaultKey, Report report) throws IOException {
+        // 1. Selo do cofre, se houver chave: "sequência, hash e HMAC" da última entrada selada.
+        String[] seal = null;
+        if (vaultKey != null) {
+            SecretKey sealKey = sealKey(vaultKey);
+            Path sealFile = dir.resolve(sealName(sealId(sealKey)));
+            if (!Files.exists(sealFile)) {
+                report.problems.add("Não há selo deste cofre (" + sealFile.getFileName()
+                        + "): a cadeia não pode ser autenticada com a chave.");
+            } else {
+                String[] fields = Files.readString(sealFile, StandardCharsets.UTF_8).trim().split("\t", -1);
+                if (fields.length != 3 || !MessageDigest.isEqual(fields[2].getBytes(StandardCharsets.US_ASCII),
+                        sealMac(sealKey, fields[0] + "\t" + fields[1]).getBytes(StandardCharsets.US_ASCII))) {
+                    report.problems.add("O selo " + sealFile.getFileName() + " não confere (selo alterado).");
+                } else {
+                    seal = fields;
+                }
+            }
+        }
+        long sealedSequence = seal == null ? -1 : Long.parseLong(seal[0]);
+        boolean sealReached = false;
+
+        // 2. Encadeamento das entradas, do arquivo rotacionado mais antigo ao ativo.
+        List<Path> files = rotatedFiles(dir);
+        Path active = dir.resolve(ACTIVE_FILE);
+        if (Files.exists(active)) files.add(active);
+        report.files = files.size();
+
+        MessageDigest sha256 = sha256();
+        String previousHash = null;
+        long previousSequence = 0;
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    String where = file.getFileName() + ":" + lineNumber;
+                    String[] fields = line.split("\t", -1);
+                    long sequence;
+                    try {
+                        sequence = fields.length == FIELDS ? Long.parseLong(fields[0]) : -1;
+                    } catch (NumberFormatException e) {
+                        sequence = -1;
+                    }
+                    if (sequence < 1) {
+                        report.problems.add(where + ": linha malformada.");
+                        return;
+                    }
+                    String body = line.substring(0, line.lastIndexOf('\t'));
+                    String hash = HexFormat.of().formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8)));
+                    if (!hash.equals(fields[FIELDS - 1])) {
+                        report.problems.add(where + ": o hash da entrada " + sequence + " não confere (entrada alterada).");
+                    }
+                    if (previousHash == null) {
+                        // Início da cadeia disponível: a partir da sequência 1, ou de um ponto posterior após a rotação.
+                        report.firstSequence = sequence;
+                        report.partial = sequence != 1;
+                        if (sequence == 1 && !GENESIS.equals(fields[FIELDS - 2])) {
+                            report.problems.add(where + ": a primeira entrada não inicia a cadeia.");
+                        }
+                    } else {
+                        if (sequence != previousSequence + 1) {
+                            report.problems.add(where + ": esperada a entrada " + (previousSequence + 1)
+                                    + ", encontrada a " + sequence + " (entradas removidas ou reordenadas).");
+                        }
+                        if (!previousHash.equals(fields[FIELDS - 2])) {
+                            report.problems.add(where + ": a entrada " + sequence + " não se liga à anterior.");
+                        }
+                    }
+                    if (sequence == sealedSequence) {
+                        sealReached = true;
+                        if (seal[1].equals(fields[FIELDS - 1])) {
+                            report.sealedSequence = sequence;
+                        } else {
+                            report.problems.add(where + ": a entrada " + sequence
+                                    + " não é a que foi selada com a chave do cofre (cadeia refeita).");
+                        }
+                    }
+                    previousHash = fields[FIELDS - 1];
+                    previousSequence = sequence;
+                    report.entries++;
+                }
+            }
+        }
+        report.lastSequence = previousSequence;
+
+        // 3. A entrada selada precisa existir (a menos que a rotação já a tenha descartado).
+        if (sealedSequence > 0 && !sealReached && sealedSequence > previousSequence) {
+            report.problems.add("O diário termina na entrada " + previousSequence + ", mas a entrada " + sealedSequence
+                    + " já tinha sido selada (entradas removidas do fim).");
+        }
+
+        // 4. A última entrada sincronizada precisa existir, com o mesmo hash.
+        Path head = dir.resolve(HEAD_FILE);
+        if (Files.exists(head)) {
+            String[] fields = Files.readString(head, StandardCharsets.UTF_8).trim().split("\t");
+            long syncedSequence = Long.parseLong(fields[0]);
+            if (syncedSequence > previousSequence) {
+                report.problems.add("O diário termina na entrada " + previousSequence + ", mas a entrada " + syncedSequence
+                        + " já tinha sido sincronizada (entradas removidas do fim).");
+            } else if (syncedSequence == previousSequence && !fields[1].equals(previousHash)) {
+                report.problems.add("A última entrada não é a que foi sincronizada.");
+            }
+        }
+    }
+
+    // --- Auxiliares ---
+
+    // Campo sem tabulações nem quebras de linha; "-" quando ausente.
+    private static String field(String value) {
+        if (value == null || value.isEmpty()) return "-";
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static DirectoryLock directoryLock(Path dir) {
+        Path normalized = dir.toAbsolutePath().normalize();
+        return DIRECTORY_LOCKS.computeIfAbsent(normalized, key -> new DirectoryLock(key.resolve(LOCK_FILE)));
+    }
+
+    // Identifica o arquivo, para perceber que outro processo o rotacionou (null se o sistema não informar).
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    // Subchave dos selos de um cofre.
+    private static SecretKey sealKey(SecretKey vaultKey) {
+        try {
+            return KeyedHashUtil.deriveKey(vaultKey, SEAL_PURPOSE);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 indisponível.", e);
+        }
+    }
+
+    // Identificador do arquivo de selo de um cofre: o início de um HMAC com a subchave dos selos.
+    private static String sealId(SecretKey sealKey) {
+        return sealMac(sealKey, SEAL_ID_LABEL).substring(0, 16);
+    }
+
+    private static String sealMac(SecretKey sealKey, String text) {
+        try {
+            return HexFormat.of().formatHex(KeyedHashUtil.hmac(sealKey, text));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 indisponível.", e);
+        }
+    }
+
+    private static String sealName(String id) {
+        return "audit-" + id + ".seal";
+    }
+
+    private static String rotatedName(long firstSequence) {
+        return String.format("audit-%012d.log", firstSequence);
+    }
+
+    // Arquivos rotacionados, do mais antigo ao mais recente.
+    private static List<Path> rotatedFiles(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            return new ArrayList<>(paths
+                    .filter(path -> path.getFileName().toString().matches("audit-\\d{12}\\.log"))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    // Comprimento do arquivo até a última quebra de linha.
+    private static long completeLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer one = ByteBuffer.allocate(1);
+        for (long position = size - 1; position >= 0; position--) {
+            one.clear();
+            channel.read(one, position);
+            if (one.get(0) == '\n') return position + 1;
+        }
+        return 0;
+    }
+
+    // Sequência da primeira entrada de um arquivo não vazio.
+    private static long firstSequence(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return Long.parseLong(line.substring(0, line.indexOf('\t')));
+        }
+    }
+
+    // Campos da última linha de um arquivo, ou null se ele estiver vazio.
+    private static String[] lastEntry(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long end = raf.length() - 1;
+            if (end < 0) return null;
+            long start = end;
+            while (start > 0) {
+                raf.seek(start - 1);
+                if (raf.read() == '\n') break;
+                start--;
+            }
+            byte[] line = new byte[(int) (end - start)];
+            raf.seek(start);
+            raf.readFully(line);
+            String[] fields = new String(line, StandardCharsets.UTF_8).split("\t", -1);
+            if (fields.length != FIELDS) {
+                throw new IOException("Última entrada do diário de auditoria malformada em " + file);
+            }
+            return fields;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível.", e);
+        }
+    }
+}
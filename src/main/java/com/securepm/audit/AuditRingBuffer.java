@@ -0,0 +1,141 @@
+package com.securepm.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fila circular de capacidade fixa, sem travas, para vários produtores e um único
+ * consumidor. Cada posição tem um número de sequência que indica se ela está livre para a
+ * volta atual dos produtores ou preenchida para o consumidor; os produtores disputam a
+ * próxima posição com um único compareAndSet, e o consumidor avança sem operações atômicas
+ * de leitura e escrita.
+ *
+ * Inserir numa fila cheia não bloqueia: {@link #offer(Object)} retorna 'false' e quem chama
+ * decide se espera ou descarta.
+ *
+ * @param <E> O tipo dos elementos.
+ */
+public class AuditRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    // Próxima posição a ser reservada pelos produtores.
+    private final AtomicLong tail = new AtomicLong();
+
+    // Próxima posição a ser lida; só o consumidor a altera.
+    private long head;
+
+    /**
+     * @param capacity A capacidade, arredondada para a potência de dois seguinte.
+     */
+    public AuditRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidade inválida: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Insere um elemento, de qualquer thread.
+     *
+     * @return 'false' se a fila estiver cheia.
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // Posição livre nesta volta: reserva-a e só então publica o elemento.
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                // Outro produtor reservou a posição; tenta a seguinte.
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Retira o próximo elemento. Deve ser chamado sempre pela mesma thread (o consumidor).
+     *
+     * @return O elemento, ou null se a fila estiver vazia.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        // Libera a posição para a próxima volta dos produtores.
+        sequences.lazySet(index, head + slots.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Retira até 'max' elementos para a lista, pelo consumidor.
+     *
+     * @return A quantidade retirada.
+     */
+    public int drainTo(List<E> target, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Indica, para o consumidor, se a fila está vazia (um produtor pode inserir logo em seguida).
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Indica, para o consumidor, se já retirou todas as posições reservadas pelos produtores.
+     * Ao contrário de {@link #isEmpty()}, conta também as posições reservadas cujo elemento
+     * ainda não foi publicado.
+     */
+    public boolean isDrained() {
+        return head == tail.get();
+    }
+
+    /**
+     * Quantidade de posições já reservadas pelos produtores desde a criação da fila.
+     */
+    public long claimed() {
+        return tail.get();
+    }
+
+    /**
+     * Quantidade de elementos já retirados pelo consumidor; só o consumidor deve chamá-lo.
+     */
+    public long consumed() {
+        return head;
+    }
+}
@@ -0,0 +1,355 @@
+package com.securepm.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.securepm.model.CredentialSummary;
+import com.securepm.model.NewCredential;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Modo em lote para scripts: lê comandos em JSON, um por linha (NDJSON), e escreve um
+ * resultado em JSON por linha, na mesma ordem.
+ *
+ * <pre>
+ * {"op":"add","service":"GitHub","username":"ana","password":"..."}   (sem "password": gera com a política; "length" opcional)
+ * {"op":"remove","id":"..."}
+ * {"op":"list"}                                                          ("q" opcional: busca rápida)
+ * {"op":"generate","service":"GitHub","length":20}                       (ambos opcionais)
+ * </pre>
+ * Um campo "ref" opcional é devolvido no resultado, para que o script associe as respostas.
+ *
+ * A execução é um pipeline de três etapas em threads diferentes: leitura e análise das
+ * linhas, execução e escrita dos resultados. As linhas são agrupadas em lotes; dentro de um
+ * lote, inclusões e remoções consecutivas são gravadas no cofre de uma só vez
+ * ({@link VaultService#applyBatch}), e uma listagem grava antes as alterações pendentes.
+ * Os resultados de cada lote são escritos assim que ele termina.
+ */
+public class BatchRunner {
+
+    // Quantidade máxima de linhas por lote.
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Lotes aguardando entre as etapas do pipeline.
+    private static final int PIPELINE_DEPTH = 2;
+
+    /**
+     * Totais de uma execução.
+     */
+    public static final class Summary {
+        private long commands;
+        private long errors;
+        private long commits;
+
+        public long getCommands() {
+            return commands;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        // Quantidade de gravações do cofre.
+        public long getCommits() {
+            return commits;
+        }
+    }
+
+    // Uma linha de entrada já analisada.
+    private static final class Command {
+        private final long line;
+        private final JsonObject json;
+        private final String op;
+        private final String parseError;
+
+        Command(long line, JsonObject json, String op, String parseError) {
+            this.line = line;
+            this.json = json;
+            this.op = op;
+            this.parseError = parseError;
+        }
+    }
+
+    private final VaultService vaultService;
+    private final VaultSession session;
+    private final int batchSize;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    public BatchRunner(VaultService vaultService, VaultSession session, int batchSize) {
+        this.vaultService = vaultService;
+        this.session = session;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Executa todos os comandos da entrada e escreve os resultados.
+     *
+     * @param in  Os comandos, um objeto JSON por linha.
+     * @param out O destino dos resultados, um objeto JSON por linha.
+     * @return Os totais da execução.
+     * @throws Exception Se a entrada ou a saída falharem, ou se o cofre não puder ser gravado.
+     */
+    public Summary run(BufferedReader in, Writer out) throws Exception {
+        Summary summary = new Summary();
+        BlockingQueue<List<Command>> commands = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        BlockingQueue<List<JsonObject>> results = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        // 1. Leitura: agrupa as linhas em lotes (um lote parcial sai quando a entrada pausa).
+        Thread reader = Thread.ofVirtual().name("batch-reader").start(() -> {
+            try {
+                List<Command> batch = new ArrayList<>(batchSize);
+                long lineNumber = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (!line.isBlank()) batch.add(parse(lineNumber, line));
+                    if (batch.size() >= batchSize || (!batch.isEmpty() && !in.ready())) {
+                        commands.put(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) commands.put(batch);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                putQuietly(commands, List.of());
+            }
+        });
+
+        // 3. Escrita: serializa e descarrega os resultados de cada lote assim que ficam prontos.
+        //    Após uma falha na saída, os lotes seguintes são descartados até o fim da execução.
+        Thread writer = Thread.ofVirtual().name("batch-writer").start(() -> {
+            try {
+                List<JsonObject> batch;
+                while (!(batch = results.take()).isEmpty()) {
+                    if (failure.get() != null) continue;
+                    try {
+                        for (JsonObject result : batch) {
+                            out.write(gson.toJson(result));
+                            out.write('\n');
+                        }
+                        out.flush();
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // 2. Execução, na thread de quem chamou.
+        try {
+            List<Command> batch;
+            while (!(batch = commands.take()).isEmpty() && failure.get() == null) {
+                List<JsonObject> batchResults = execute(batch, summary);
+                for (JsonObject result : batchResults) {
+                    summary.commands++;
+                    if (!result.get("ok").getAsBoolean()) summary.errors++;
+                }
+                results.put(batchResults);
+            }
+        } finally {
+            results.put(List.of());
+            writer.join();
+            reader.interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return summary;
+    }
+
+    // Executa um lote, agrupando as inclusões e remoções consecutivas em uma única gravação.
+    private List<JsonObject> execute(List<Command> batch, Summary summary) throws Exception {
+        List<JsonObject> results = new ArrayList<>(batch.size());
+        List<Integer> pendingAdds = new ArrayList<>();
+        List<NewCredential> additions = new ArrayList<>();
+        List<Integer> pendingRemoves = new ArrayList<>();
+        List<String> removals = new ArrayList<>();
+
+        // Senhas geradas em paralelo antes da gravação.
+        List<CompletableFuture<String>> generated = new ArrayList<>(batch.size());
+        for (Command command : batch) {
+            boolean needsPassword = command.parseError == null
+                    && ("generate".equals(command.op) || ("add".equals(command.op) && !has(command.json, "password")));
+            if (!needsPassword) {
+                generated.add(null);
+                continue;
+            }
+            try {
+                generated.add(vaultService.generatePassword(string(command.json, "service"), integer(command.json, "length")));
+            } catch (IllegalArgumentException e) {
+                generated.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            JsonObject result = new JsonObject();
+            result.addProperty("line", command.line);
+            if (command.json != null && has(command.json, "ref")) result.add("ref", command.json.get("ref"));
+            if (command.op != null) result.addProperty("op", command.op);
+            results.add(result);
+            try {
+                if (command.parseError != null) {
+                    throw new IllegalArgumentException(command.parseError);
+                }
+                switch (command.op) {
+                    case "add": {
+                        String service = required(command.json, "service");
+                        String username = required(command.json, "username");
+                        String password = generated.get(i) != null ? VaultService.await(generated.get(i))
+                                : required(command.json, "password");
+                        if (generated.get(i) != null) result.addProperty("password", password);
+                        additions.add(new NewCredential(service, username, password));
+                        pendingAdds.add(i);
+                        break;
+                    }
+                    case "remove":
+                        removals.add(required(command.json, "id"));
+                        pendingRemoves.add(i);
+                        break;
+                    case "list": {
+                        flush(results, pendingAdds, additions, pendingRemoves, removals, summary);
+                        JsonArray list = new JsonArray();
+                        String term = string(command.json, "q");
+                        if (term == null || term.isBlank()) {
+                            for (CredentialSummary cred : VaultService.await(vaultService.list(session))) list.add(toJson(cred));
+                        } else {
+                            for (VaultService.SearchResult hit : VaultService.await(vaultService.search(session, term, Integer.MAX_VALUE))) {
+                                list.add(toJson(hit.getCredential()));
+                            }
+                        }
+                        result.addProperty("ok", true);
+                        result.add("credentials", list);
+                        break;
+                    }
+                    case "generate":
+                        result.addProperty("ok", true);
+                        result.addProperty("password", VaultService.await(generated.get(i)));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Operação desconhecida: " + command.op);
+                }
+            } catch (IllegalArgumentException e) {
+                result.addProperty("ok", false);
+                result.addProperty("error", e.getMessage());
+            }
+        }
+        flush(results, pendingAdds, additions, pendingRemoves, removals, summary);
+        return results;
+    }
+
+    // Grava as inclusões e remoções pendentes de uma só vez e completa os seus resultados.
+    private void flush(List<JsonObject> results, List<Integer> pendingAdds, List<NewCredential> additions,
+                       List<Integer> pendingRemoves, List<String> removals, Summary summary) throws Exception {
+        if (additions.isEmpty() && removals.isEmpty()) return;
+        VaultService.BatchResult batch = VaultService.await(vaultService.applyBatch(session, additions, removals));
+        summary.commits++;
+        for (int i = 0; i < pendingAdds.size(); i++) {
+            JsonObject result = results.get(pendingAdds.get(i));
+            CredentialSummary cred = batch.getAdded().get(i);
+            result.addProperty("ok", true);
+            result.addProperty("id", cred.getId());
+            result.addProperty("service", cred.getServiceName());
+            result.addProperty("username", cred.getUsername());
+        }
+        for (int i = 0; i < pendingRemoves.size(); i++) {
+            JsonObject result = results.get(pendingRemoves.get(i));
+            boolean removed = batch.getRemoved().get(i);
+            result.addProperty("ok", removed);
+            result.addProperty("id", removals.get(i));
+            if (!removed) result.addProperty("error", "Nenhuma credencial com esse ID.");
+        }
+        pendingAdds.clear();
+        additions.clear();
+        pendingRemoves.clear();
+        removals.clear();
+    }
+
+    // Analisa uma linha; erros de formato viram o resultado de erro dessa linha.
+    private static Command parse(long line, String text) {
+        try {
+            JsonElement element = JsonParser.parseString(text);
+            if (!element.isJsonObject()) {
+                return new Command(line, null, null, "A linha deve ser um objeto JSON.");
+            }
+            JsonObject json = element.getAsJsonObject();
+            String op = string(json, "op");
+            if (op == null) {
+                return new Command(line, json, null, "Campo obrigatório ausente: op");
+            }
+            return new Command(line, json, op, null);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            return new Command(line, null, null, "JSON inválido.");
+        }
+    }
+
+    private static boolean has(JsonObject json, String field) {
+        return json.has(field) && !json.get(field).isJsonNull();
+    }
+
+    private static String string(JsonObject json, String field) {
+        if (!has(json, field)) {
+            return null;
+        }
+        JsonElement value = json.get(field);
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Campo '" + field + "' deve ser um texto.");
+        }
+        return value.getAsString();
+    }
+
+    private static String required(JsonObject json, String field) {
+        String value = string(json, field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Campo obrigatório ausente: " + field);
+        }
+        return value;
+    }
+
+    private static int integer(JsonObject json, String field) {
+        if (!has(json, field)) {
+            return 0;
+        }
+        JsonElement value = json.get(field);
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Campo '" + field + "' deve ser um número inteiro.");
+        }
+        return value.getAsInt();
+    }
+
+    private static JsonObject toJson(CredentialSummary cred) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", cred.getId());
+        json.addProperty("service", cred.getServiceName());
+        json.addProperty("username", cred.getUsername());
+        json.addProperty("version", cred.getVersion());
+        return json;
+    }
+
+    private static <T> void putQuietly(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
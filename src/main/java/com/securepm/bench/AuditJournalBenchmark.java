@@ -0,0 +1,192 @@
+package com.securepm.bench;
+
+import com.securepm.audit.AuditJournal;
+import com.securepm.metrics.LatencyHistogram;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Mede o custo do diário de auditoria para quem registra (apenas o enfileiramento na fila
+ * circular) com várias threads registrando ao mesmo tempo, a vazão da thread de gravação
+ * (com rotação dos arquivos) e o tempo da verificação da cadeia. Depois, confere que:
+ * o fechamento grava todas as entradas registradas; alterar uma entrada ou remover as
+ * últimas é detectado; uma cadeia refeita por inteiro passa na verificação sem chave, mas
+ * não na verificação com o selo do cofre; e dois processos gravando no mesmo diretório
+ * produzem uma única cadeia íntegra.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.AuditJournalBenchmark [entradas] [threads]
+ * (o modo "--escritor &lt;diretório&gt; &lt;entradas&gt;" é usado pelo próprio benchmark para gravar
+ * a partir de outro processo)
+ */
+public class AuditJournalBenchmark {
+
+    // Tamanho de rotação dos arquivos no teste com dois processos, para que ambos rotacionem.
+    private static final long SMALL_FILE_BYTES = 256 << 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--escritor")) {
+            write(Paths.get(args[1]), Integer.parseInt(args[2]), "filho");
+            return;
+        }
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Path dir = Files.createTempDirectory("securepm-audit");
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKey vaultKey = new SecretKeySpec(keyBytes, "AES");
+
+        System.out.println("== BENCHMARK DO DIÁRIO DE AUDITORIA ==");
+        System.out.println("Entradas: " + entries + " | threads: " + threads + " | núcleos: "
+                + Runtime.getRuntime().availableProcessors());
+
+        // 1. Registro concorrente; cada thread mede o próprio custo de enfileirar.
+        LatencyHistogram enqueue = new LatencyHistogram();
+        long start = System.nanoTime();
+        try (AuditJournal journal = new AuditJournal(dir, AuditJournal.DEFAULT_CAPACITY, AuditJournal.DEFAULT_SYNC_MILLIS,
+                4L << 20, 1000)) {
+            journal.attachVault(vaultKey);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(Thread.ofPlatform().start(() -> {
+                    String session = "sessao-" + thread;
+                    for (int i = thread; i < entries; i += threads) {
+                        long before = System.nanoTime();
+                        journal.record("ana", session, AuditJournal.Action.REVEAL_PASSWORD, "credencial-" + i, "ok");
+                        enqueue.recordSince(before);
+                    }
+                }));
+            }
+            for (Thread worker : workers) worker.join();
+            long produced = System.nanoTime() - start;
+            System.out.printf("Registro: %,d entradas em %,d ms (%,.0f entradas/s)%n", entries, produced / 1_000_000,
+                    entries / (produced / 1e9));
+            LatencyHistogram.Snapshot snapshot = enqueue.snapshot();
+            System.out.printf("Custo por registro: p50 %.2f µs, p99 %.2f µs, máx %.2f µs%n", snapshot.quantileNanos(0.50) / 1e3,
+                    snapshot.quantileNanos(0.99) / 1e3, snapshot.getMaxNanos() / 1e3);
+        }
+        long written = System.nanoTime() - start;
+        System.out.printf("Gravação concluída (com fsync final): %,d ms (%,.0f entradas/s), %d arquivo(s), %,d KB%n",
+                written / 1_000_000, entries / (written / 1e9), files(dir).size(), size(dir) / 1024);
+
+        // 2. Verificação da cadeia completa e do selo. O fechamento, logo depois das threads
+        //    terminarem de registrar, precisa ter gravado e selado todas as entradas.
+        start = System.nanoTime();
+        AuditJournal.Report report = AuditJournal.verify(dir, vaultKey);
+        System.out.printf("Verificação: %,d entradas em %,d ms, íntegra: %s, selada até a %,d%n", report.getEntries(),
+                (System.nanoTime() - start) / 1_000_000, report.isIntact() ? "sim" : "não " + report.getProblems(),
+                report.getSealedSequence());
+        check(report.isIntact() && report.getEntries() == entries, "O diário não contém todas as entradas íntegras.");
+        check(report.getUnsealedEntries() == 0, "O fechamento não selou todas as entradas.");
+
+        // 3. Adulterações: uma entrada alterada no meio e entradas removidas do fim.
+        Path first = files(dir).get(0);
+        List<String> lines = new ArrayList<>(Files.readAllLines(first, StandardCharsets.UTF_8));
+        lines.set(lines.size() / 2, lines.get(lines.size() / 2).replace("\tana\t", "\tbeto\t"));
+        Files.write(first, lines, StandardCharsets.UTF_8);
+        Path active = dir.resolve(AuditJournal.ACTIVE_FILE);
+        List<String> tail = Files.readAllLines(active, StandardCharsets.UTF_8);
+        Files.write(active, tail.subList(0, Math.max(0, tail.size() - 3)), StandardCharsets.UTF_8);
+        report = AuditJournal.verify(dir);
+        System.out.println("Após adulterar o diário: " + report.getProblems().size() + " problema(s) detectado(s)");
+        for (String problem : report.getProblems()) {
+            System.out.println("  - " + problem);
+        }
+        check(!report.isIntact(), "A verificação não detectou as adulterações.");
+
+        // 4. Cadeia refeita por inteiro (hashes e "audit.head"), como faria quem pode gravar os
+        //    arquivos: passa na verificação sem chave, mas não na do selo.
+        rebuildChain(dir);
+        check(AuditJournal.verify(dir).isIntact(), "A cadeia refeita deveria passar na verificação sem chave.");
+        report = AuditJournal.verify(dir, vaultKey);
+        System.out.println("Após refazer a cadeia: " + report.getProblems());
+        check(!report.isIntact(), "A verificação com a chave não detectou a cadeia refeita.");
+        delete(dir);
+
+        // 5. Dois processos gravando no mesmo diretório ao mesmo tempo, com rotações.
+        int perProcess = Math.min(entries, 200_000);
+        Path shared = Files.createTempDirectory("securepm-audit");
+        start = System.nanoTime();
+        Process child = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"), "-cp",
+                System.getProperty("java.class.path"), AuditJournalBenchmark.class.getName(), "--escritor",
+                shared.toString(), String.valueOf(perProcess)).inheritIO().start();
+        write(shared, perProcess, "pai");
+        check(child.waitFor() == 0, "O processo filho falhou.");
+        report = AuditJournal.verify(shared);
+        System.out.printf("Dois processos: %,d entradas em %,d ms, %d arquivo(s), íntegra: %s%n", report.getEntries(),
+                (System.nanoTime() - start) / 1_000_000, report.getFiles(),
+                report.isIntact() ? "sim" : "não " + report.getProblems());
+        check(report.isIntact() && report.getEntries() == 2L * perProcess,
+                "Os dois processos deveriam ter produzido uma única cadeia com todas as entradas.");
+        delete(shared);
+    }
+
+    // Registra entradas em um diário aberto no diretório, com rotação de arquivos pequenos.
+    private static void write(Path dir, int entries, String actor) throws Exception {
+        try (AuditJournal journal = new AuditJournal(dir, AuditJournal.DEFAULT_CAPACITY, 50, SMALL_FILE_BYTES, 100_000)) {
+            for (int i = 0; i < entries; i++) {
+                journal.record(actor, null, AuditJournal.Action.LIST, "itens=" + i, "ok");
+            }
+        }
+    }
+
+    // Recalcula os hashes de todas as linhas e o "audit.head", sem a chave do cofre.
+    private static void rebuildChain(Path dir) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        String hash = "0".repeat(64);
+        long sequence = 0;
+        List<Path> ordered = new ArrayList<>(files(dir).stream()
+                .filter(path -> !path.getFileName().toString().equals(AuditJournal.ACTIVE_FILE)).toList());
+        ordered.add(dir.resolve(AuditJournal.ACTIVE_FILE));
+        for (Path file : ordered) {
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", -1);
+                sequence++;
+                fields[0] = String.valueOf(sequence);
+                fields[7] = hash;
+                String body = String.join("\t", List.of(fields).subList(0, 8));
+                hash = HexFormat.of().formatHex(sha256.digest(body.getBytes(StandardCharsets.UTF_8)));
+                lines.add(body + "\t" + hash);
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        }
+        Files.writeString(dir.resolve(AuditJournal.HEAD_FILE), sequence + "\t" + hash + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static List<Path> files(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static long size(Path dir) throws Exception {
+        long total = 0;
+        for (Path file : files(dir)) total += Files.size(file);
+        return total;
+    }
+}
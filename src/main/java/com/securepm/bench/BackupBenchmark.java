@@ -0,0 +1,101 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.BackupSnapshot;
+import com.securepm.repository.BackupManager;
+import com.securepm.repository.BlockVaultFile;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Mede os backups incrementais: o primeiro backup de um cofre grande, um novo backup após
+ * a troca de uma única senha e a restauração do primeiro snapshot.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.BackupBenchmark [quantidade]
+ */
+public class BackupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("securepm-backup");
+        Path data = Files.createDirectories(dir.resolve("data"));
+        Path vaultPath = data.resolve("credentials.vault");
+
+        System.out.println("== BENCHMARK DE BACKUP INCREMENTAL ==");
+        System.out.println("Entradas: " + count);
+
+        List<AccessCredential> credentials = generate(count);
+        SecretKey key = BlockVaultFile.deriveBlockKey(new SecretKeySpec(new byte[32], "AES"));
+        BlockVaultFile vault = new BlockVaultFile(vaultPath.toString());
+        vault.writeAll(credentials, key);
+        BackupManager backups = new BackupManager(data.toString(), dir.resolve("backups").toString(),
+                List.of("credentials.vault"), List.of());
+
+        // 1. Primeiro backup: todos os pedaços são novos.
+        long start = System.nanoTime();
+        BackupSnapshot first = backups.createSnapshot();
+        report("Backup completo  ", first, start);
+        byte[] original = Files.readAllBytes(vaultPath);
+
+        // 2. Troca de uma senha e novo backup: só os pedaços alterados são gravados.
+        Random random = new Random(5);
+        for (int round = 0; round < 3; round++) {
+            credentials.get(random.nextInt(count)).replacePassword(randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+            vault.writeAll(credentials, key);
+            start = System.nanoTime();
+            report("Após 1 alteração ", backups.createSnapshot(), start);
+        }
+
+        // 3. Restauração do primeiro snapshot.
+        start = System.nanoTime();
+        backups.restore(first.getId());
+        System.out.printf("Restauração      : %d ms, idêntico ao original: %s%n",
+                (System.nanoTime() - start) / 1_000_000, Arrays.equals(original, Files.readAllBytes(vaultPath)));
+        System.out.printf("Repositório      : %.1f MB para %d snapshots de %.1f MB%n",
+                size(dir.resolve("backups")) / 1048576.0, backups.listSnapshots().size(), original.length / 1048576.0);
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void report(String label, BackupSnapshot snapshot, long start) {
+        System.out.printf("%s: %d ms, %.1f MB no cofre, %.1f KB novos (%d pedaços)%n", label,
+                (System.nanoTime() - start) / 1_000_000, snapshot.getTotalBytes() / 1048576.0,
+                snapshot.getNewBytes() / 1024.0, snapshot.getNewChunks());
+    }
+
+    private static long size(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    // Credenciais no formato atual: serviço, usuário e senha cifrados (tamanhos do AES-CBC com IV).
+    private static List<AccessCredential> generate(int count) {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] password = randomBytes(random, 48);
+            list.add(new AccessCredential(UUID.randomUUID().toString(), randomBytes(random, 32), randomBytes(random, 48),
+                    password, Arrays.copyOf(password, 16), randomBytes(random, 32)));
+        }
+        return list;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
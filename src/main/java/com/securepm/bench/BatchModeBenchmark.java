@@ -0,0 +1,85 @@
+package com.securepm.bench;
+
+import com.securepm.batch.BatchRunner;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compara o modo em lote com o caminho interativo ao incluir muitas credenciais: no caminho
+ * interativo cada inclusão é uma operação do serviço com sua própria gravação do cofre (como
+ * a opção 1 do menu); no modo em lote os comandos NDJSON são agrupados em poucas gravações.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.BatchModeBenchmark [inclusões] [inclusões no caminho interativo]
+ */
+public class BatchModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int interactiveCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        Path dir = Files.createTempDirectory("securepm-batch");
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== BENCHMARK DO MODO EM LOTE (NDJSON) ==");
+        System.out.println("Inclusões: " + count + " | no caminho interativo: " + interactiveCount);
+
+        // 1. Caminho interativo: uma gravação do cofre por inclusão.
+        try (VaultService service = service(dir.resolve("interativo"))) {
+            VaultSession session = VaultService.await(service.openSession(key));
+            long start = System.nanoTime();
+            for (int i = 0; i < interactiveCount; i++) {
+                VaultService.await(service.addCredential(session, "Servico" + i, "usuario" + i, "senha-" + i + "-Xy!"));
+            }
+            report("Interativo (1 gravação/inclusão)", interactiveCount, System.nanoTime() - start, interactiveCount);
+        }
+
+        // 2. Modo em lote, com a mesma quantidade e com a quantidade total.
+        for (int n : new int[]{interactiveCount, count}) {
+            try (VaultService service = service(dir.resolve("lote-" + n))) {
+                VaultSession session = VaultService.await(service.openSession(key));
+                StringBuilder input = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    input.append("{\"op\":\"add\",\"service\":\"Servico").append(i).append("\",\"username\":\"usuario")
+                            .append(i).append("\",\"password\":\"senha-").append(i).append("-Xy!\"}\n");
+                }
+                Writer out = new StringWriter();
+                long start = System.nanoTime();
+                BatchRunner.Summary summary = new BatchRunner(service, session, BatchRunner.DEFAULT_BATCH_SIZE)
+                        .run(new BufferedReader(new StringReader(input.toString())), out);
+                report("Lote (NDJSON)", n, System.nanoTime() - start, summary.getCommits());
+                if (summary.getErrors() != 0 || VaultService.await(service.count(session)) != n) {
+                    throw new IllegalStateException("O modo em lote não gravou todas as credenciais.");
+                }
+            }
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static VaultService service(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        return new VaultService(new UserManager(dir.resolve("users.dat").toString()),
+                new CredentialManager(dir.resolve("credentials.dat").toString()),
+                new PasswordPolicyManager(dir.resolve("policies.dat").toString()));
+    }
+
+    private static void report(String label, int operations, long elapsedNanos, long commits) {
+        System.out.printf("%-34s %,7d inclusões em %7d ms (%,9.0f inclusões/s), %,d gravação(ões) do cofre%n",
+                label, operations, elapsedNanos / 1_000_000, operations / (elapsedNanos / 1e9), commits);
+    }
+}
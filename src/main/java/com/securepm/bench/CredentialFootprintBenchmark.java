@@ -0,0 +1,136 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.repository.CompactCredentialTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compara o heap ocupado por entrada entre uma List<AccessCredential> e a
+ * CompactCredentialTable, em dois cenários: credenciais atuais (serviço e usuário
+ * cifrados) e credenciais antigas (serviço e usuário em texto claro). Ao final, remove
+ * metade das entradas uma a uma e confere o tamanho, as buscas e a ordem das linhas.
+ *
+ * Uso: java -Xmx3g -cp target/classes com.securepm.bench.CredentialFootprintBenchmark [quantidade]
+ */
+public class CredentialFootprintBenchmark {
+
+    private static final String[] SERVICES = {
+            "GitHub", "GitLab", "Google", "Amazon", "Netflix", "Spotify", "Nubank", "Itaú", "Bradesco",
+            "Mercado Livre", "Steam", "Discord", "Slack", "Dropbox", "LinkedIn", "Twitter", "Facebook"
+    };
+
+    // Mantém a estrutura medida alcançável até a segunda leitura do heap.
+    private static Object retained;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("== BENCHMARK DE MEMÓRIA POR CREDENCIAL ==");
+        System.out.println("Entradas: " + count);
+
+        for (boolean encrypted : new boolean[]{true, false}) {
+            System.out.println(encrypted ? "\n-- Serviço e usuário cifrados --" : "\n-- Serviço e usuário em texto claro (cofres antigos) --");
+
+            long before = usedHeap();
+            List<AccessCredential> list = generate(count, encrypted);
+            retained = list;
+            long listBytes = usedHeap() - before;
+            System.out.printf("List<AccessCredential>  : %7.1f MB | %6.1f bytes/entrada%n",
+                    listBytes / 1048576.0, listBytes / (double) count);
+
+            // A tabela é construída a partir da lista, que é descartada antes da medição.
+            long start = System.nanoTime();
+            CompactCredentialTable table = CompactCredentialTable.of(list);
+            long buildMs = (System.nanoTime() - start) / 1_000_000;
+            list = null;
+            retained = table;
+            long tableBytes = usedHeap() - before;
+            System.out.printf("CompactCredentialTable  : %7.1f MB | %6.1f bytes/entrada (arrays: %.1f bytes/entrada, construção %d ms)%n",
+                    tableBytes / 1048576.0, tableBytes / (double) count,
+                    table.estimateMemoryBytes() / (double) count, buildMs);
+            System.out.printf("Redução                 : %.1fx%n", listBytes / (double) Math.max(1, tableBytes));
+
+            // Acesso sob demanda: cria as visões de 100 mil credenciais aleatórias.
+            Random random = new Random(7);
+            start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < 100_000; i++) {
+                checksum += table.get(random.nextInt(table.size())).getEncryptedPassword().length;
+            }
+            System.out.printf("100k visões sob demanda : %d ms (checksum %d)%n",
+                    (System.nanoTime() - start) / 1_000_000, checksum);
+
+            // Remoções avulsas de metade das entradas: lápides, compactadas em poucas passadas.
+            List<String> ids = new ArrayList<>(count);
+            for (int row = 0; row < table.rowCount(); row++) {
+                ids.add(table.idOf(row));
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < count; i += 2) {
+                check(table.remove(ids.get(i)), "A credencial " + ids.get(i) + " deveria existir.");
+            }
+            System.out.printf("%,d remoções avulsas : %d ms%n", (count + 1) / 2, (System.nanoTime() - start) / 1_000_000);
+            check(table.size() == count / 2, "A tabela deveria ficar com " + count / 2 + " credenciais.");
+            for (int i = 0; i < count; i++) {
+                check((table.find(ids.get(i)) == null) == (i % 2 == 0), "Resultado incorreto para a credencial " + i + ".");
+            }
+            int live = 0;
+            for (int row = 0; row < table.rowCount(); row++) {
+                if (!table.isRemoved(row)) check(table.idOf(row).equals(ids.get(2 * live++ + 1)), "A ordem das linhas mudou.");
+            }
+            check(live == count / 2, "A varredura deveria encontrar " + count / 2 + " linhas ativas.");
+            retained = null;
+        }
+    }
+
+    // Gera credenciais com os mesmos tamanhos de campo produzidos pelo AESCryptoUtil (IV + blocos de 16 bytes).
+    private static List<AccessCredential> generate(int count, boolean encrypted) {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = UUID.randomUUID().toString();
+            String service = SERVICES[random.nextInt(SERVICES.length)];
+            String user = "usuario" + i + "@gmail.com";
+            byte[] password = randomBytes(random, 16 + 32);
+            byte[] iv = Arrays.copyOf(password, 16);
+            byte[] fingerprint = randomBytes(random, 32);
+            if (encrypted) {
+                list.add(new AccessCredential(id, randomBytes(random, 16 + cipherLength(service)),
+                        randomBytes(random, 16 + cipherLength(user)), password, iv, fingerprint));
+            } else {
+                // Strings distintas por entrada, como ocorre após desserializar o arquivo.
+                list.add(new AccessCredential(id, new String(service), user, password, iv, fingerprint));
+            }
+        }
+        return list;
+    }
+
+    private static int cipherLength(String plain) {
+        return (plain.getBytes(StandardCharsets.UTF_8).length / 16 + 1) * 16;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
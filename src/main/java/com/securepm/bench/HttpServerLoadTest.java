@@ -0,0 +1,212 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.CredentialSummary;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.server.VaultHttpServer;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.securepm.util.AESCryptoUtil;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Teste de carga local da API HTTP: sobe o {@link VaultHttpServer} sobre um cofre sintético,
+ * abre uma sessão e dispara requisições de vários clientes simultâneos (cada um em sua
+ * thread virtual) durante alguns segundos, relatando requisições por segundo e as
+ * latências p50, p99 e máxima por tipo de requisição.
+ *
+ * O token é emitido diretamente para a sessão aberta, sem o login (BCrypt e TOTP), que é
+ * pago uma única vez por cliente real.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.HttpServerLoadTest [credenciais] [clientes] [segundos]
+ */
+public class HttpServerLoadTest {
+
+    // Tipos de requisição da mistura: busca por ID, leitura da senha, busca rápida e geração de senha.
+    private static final String[] KINDS = {"GET /credentials/{id}", "GET /credentials/{id}/password",
+            "GET /credentials?q=", "GET /password"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Path dir = Files.createTempDirectory("securepm-http");
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== TESTE DE CARGA DA API HTTP ==");
+        System.out.println("Credenciais: " + count + " | clientes: " + clients + " | duração: " + seconds + " s");
+
+        CredentialManager repository = new CredentialManager(dir.resolve("credentials.dat").toString());
+        repository.unlock(key);
+        repository.saveAll(generate(count, key));
+
+        try (VaultService service = new VaultService(new UserManager(dir.resolve("users.dat").toString()), repository,
+                new PasswordPolicyManager(dir.resolve("policies.dat").toString()));
+             VaultHttpServer server = new VaultHttpServer(service,
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), VaultHttpServer.DEFAULT_SESSION_MINUTES)) {
+            VaultSession session = VaultService.await(service.openSession(key));
+            List<String> ids = new ArrayList<>();
+            for (CredentialSummary cred : VaultService.await(service.list(session))) ids.add(cred.getId());
+            server.start();
+            String token = server.openToken(session);
+            String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/api";
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            // 1. Aquecimento (JIT e conexões), sem registrar as latências.
+            run(http, base, token, ids, clients, Math.min(3, seconds));
+
+            // 2. Medição.
+            long start = System.nanoTime();
+            Result result = run(http, base, token, ids, clients, seconds);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Requisições: %,d em %.1f s (%,.0f req/s), erros: %d%n",
+                    result.total(), elapsed, result.total() / elapsed, result.errors.get());
+            System.out.printf("%-32s %10s %10s %10s %10s%n", "Requisição", "qtde", "p50 (ms)", "p99 (ms)", "máx (ms)");
+            long[] all = new long[0];
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                long[] latencies = result.latencies(kind);
+                print(KINDS[kind], latencies);
+                all = concat(all, latencies);
+            }
+            print("Todas", all);
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Latências registradas pelos clientes, por tipo de requisição.
+    private static final class Result {
+        private final List<long[][]> perClient = new ArrayList<>();
+        private final List<int[]> counts = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        long total() {
+            long total = 0;
+            for (int[] c : counts) for (int n : c) total += n;
+            return total;
+        }
+
+        long[] latencies(int kind) {
+            long[] merged = new long[0];
+            for (int i = 0; i < perClient.size(); i++) {
+                merged = concat(merged, Arrays.copyOf(perClient.get(i)[kind], counts.get(i)[kind]));
+            }
+            return merged;
+        }
+    }
+
+    // Executa os clientes até o fim do prazo; cada cliente sorteia requisições da mistura.
+    private static Result run(HttpClient http, String base, String token, List<String> ids, int clients, int seconds)
+            throws InterruptedException {
+        Result result = new Result();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            long[][] latencies = new long[KINDS.length][1024];
+            int[] counts = new int[KINDS.length];
+            result.perClient.add(latencies);
+            result.counts.add(counts);
+            Random random = new Random(c);
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    int draw = random.nextInt(100);
+                    int kind = draw < 45 ? 0 : draw < 85 ? 1 : draw < 95 ? 2 : 3;
+                    String id = ids.get(random.nextInt(ids.size()));
+                    String path;
+                    switch (kind) {
+                        case 0:
+                            path = "/credentials/" + id;
+                            break;
+                        case 1:
+                            path = "/credentials/" + id + "/password";
+                            break;
+                        case 2:
+                            path = "/credentials?q=servico" + random.nextInt(ids.size() / 10 + 1) + "&limit=10";
+                            break;
+                        default:
+                            path = "/password?length=20";
+                    }
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                            .header("Authorization", "Bearer " + token).GET().build();
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200) result.errors.incrementAndGet();
+                    } catch (Exception e) {
+                        result.errors.incrementAndGet();
+                        continue;
+                    }
+                    long elapsed = System.nanoTime() - begin;
+                    if (counts[kind] == latencies[kind].length) {
+                        latencies[kind] = Arrays.copyOf(latencies[kind], counts[kind] * 2);
+                    }
+                    latencies[kind][counts[kind]++] = elapsed;
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        return result;
+    }
+
+    private static void print(String label, long[] latencies) {
+        if (latencies.length == 0) {
+            System.out.printf("%-32s %,10d%n", label, 0);
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-32s %,10d %10.2f %10.2f %10.2f%n", label, latencies.length,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    // Credenciais com serviço, usuário e senha cifrados com a chave do cofre.
+    private static List<AccessCredential> generate(int count, SecretKey key) throws Exception {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] password = AESCryptoUtil.encrypt("senha-" + random.nextLong(), key);
+            list.add(new AccessCredential(UUID.randomUUID().toString(), AESCryptoUtil.encrypt("Servico" + i, key),
+                    AESCryptoUtil.encrypt("usuario" + i + "@exemplo.com", key), password, Arrays.copyOf(password, 16),
+                    randomBytes(random, 32)));
+        }
+        return list;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
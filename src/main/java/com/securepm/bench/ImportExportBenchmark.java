@@ -0,0 +1,149 @@
+package com.securepm.bench;
+
+import com.securepm.model.NewCredential;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.securepm.transfer.CredentialFileReader;
+import com.securepm.transfer.CredentialFileWriter;
+import com.securepm.util.BlindIndexUtil;
+import com.securepm.util.KeyedHashUtil;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Mede a importação e a exportação em massa: gera um CSV sintético no estilo dos arquivos
+ * exportados por navegadores, importa-o num cofre vazio (cifragem em paralelo e uma única
+ * gravação do cofre), exporta o cofre em CSV e em JSON e reimporta o JSON para conferir
+ * a quantidade de credenciais. Por fim, confere que uma importação interrompida no meio não
+ * inclui nada nem deixa tokens no índice cego.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.ImportExportBenchmark [linhas]
+ */
+public class ImportExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Path dir = Files.createTempDirectory("securepm-transfer");
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== BENCHMARK DE IMPORTAÇÃO E EXPORTAÇÃO ==");
+        System.out.println("Linhas: " + rows + " | núcleos: " + Runtime.getRuntime().availableProcessors());
+
+        // 1. Arquivo de entrada, gerado em fluxo.
+        Path input = dir.resolve("entrada.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            out.write("name,url,username,password\n");
+            for (int i = 0; i < rows; i++) {
+                out.write("Servico" + i + ",https://servico" + i + ".exemplo.com/login,usuario" + i
+                        + "@exemplo.com,\"senha," + Long.toHexString(i * 0x9E3779B97F4A7C15L) + "\"\n");
+            }
+        }
+        System.out.printf("Arquivo de entrada: %,d KB%n", Files.size(input) / 1024);
+
+        try (VaultService service = service(dir.resolve("cofre"))) {
+            VaultSession session = VaultService.await(service.openSession(key));
+
+            // 2. Importação.
+            long start = System.nanoTime();
+            int imported;
+            try (CredentialFileReader reader = CredentialFileReader.open(input)) {
+                imported = VaultService.await(service.importCredentials(session, reader));
+            }
+            report("Importação (CSV)", imported, System.nanoTime() - start);
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf("Heap em uso após a importação: %,d MB%n", (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+            // 3. Exportação nos dois formatos.
+            for (CredentialFileReader.Format format : CredentialFileReader.Format.values()) {
+                Path output = dir.resolve("saida." + format.name().toLowerCase());
+                start = System.nanoTime();
+                int exported;
+                try (CredentialFileWriter writer = new CredentialFileWriter(
+                        Files.newBufferedWriter(output, StandardCharsets.UTF_8), format)) {
+                    exported = VaultService.await(service.exportCredentials(session,
+                            (cred, password) -> writer.write(cred.getServiceName(), cred.getUsername(), password)));
+                }
+                report("Exportação (" + format + ")", exported, System.nanoTime() - start);
+                if (exported != rows) {
+                    throw new IllegalStateException("A exportação não trouxe todas as credenciais.");
+                }
+            }
+        }
+
+        // 4. Reimportação do JSON exportado num cofre novo.
+        try (VaultService service = service(dir.resolve("copia"));
+             CredentialFileReader reader = CredentialFileReader.open(dir.resolve("saida.json"))) {
+            VaultSession session = VaultService.await(service.openSession(key));
+            long start = System.nanoTime();
+            int imported = VaultService.await(service.importCredentials(session, reader));
+            report("Reimportação (JSON)", imported, System.nanoTime() - start);
+            if (imported != rows || VaultService.await(service.count(session)) != rows) {
+                throw new IllegalStateException("A reimportação não trouxe todas as credenciais.");
+            }
+        }
+
+        // 5. Importação cuja fonte falha depois de alguns blocos já cifrados e indexados.
+        CredentialManager repository = new CredentialManager(dir.resolve("falha").resolve("credentials.dat").toString());
+        try (VaultService service = service(dir.resolve("falha"), repository)) {
+            VaultSession session = VaultService.await(service.openSession(key));
+            int failAt = Math.min(rows, 10_000);
+            Iterator<NewCredential> failing = new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public NewCredential next() {
+                    if (next == failAt) throw new IllegalStateException("Falha simulada na leitura da fonte.");
+                    next++;
+                    return new NewCredential("Falha" + next, "falha" + next + "@exemplo.com", "senha-" + next);
+                }
+            };
+            boolean failed = false;
+            try {
+                VaultService.await(service.importCredentials(session, failing));
+            } catch (IllegalStateException e) {
+                failed = true;
+            }
+            byte[] token = BlindIndexUtil.exactToken(KeyedHashUtil.deriveKey(key, BlindIndexUtil.BLIND_INDEX_PURPOSE),
+                    BlindIndexUtil.FIELD_USERNAME, "falha1@exemplo.com");
+            if (!failed || VaultService.await(service.count(session)) != 0 || !repository.getBlindIndex().lookup(token).isEmpty()) {
+                throw new IllegalStateException("A importação interrompida deixou credenciais ou tokens para trás.");
+            }
+            System.out.println("Importação interrompida: nada incluído e nenhum token no índice cego.");
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static VaultService service(Path dir) throws Exception {
+        return service(dir, new CredentialManager(dir.resolve("credentials.dat").toString()));
+    }
+
+    private static VaultService service(Path dir, CredentialManager repository) throws Exception {
+        Files.createDirectories(dir);
+        return new VaultService(new UserManager(dir.resolve("users.dat").toString()), repository,
+                new PasswordPolicyManager(dir.resolve("policies.dat").toString()));
+    }
+
+    private static void report(String label, int rows, long elapsedNanos) {
+        System.out.printf("%-22s %,9d linhas em %,8d ms (%,9.0f linhas/s)%n",
+                label, rows, elapsedNanos / 1_000_000, rows / (elapsedNanos / 1e9));
+    }
+}
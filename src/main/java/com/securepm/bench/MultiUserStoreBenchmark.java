@@ -0,0 +1,162 @@
+package com.securepm.bench;
+
+import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.model.SystemUser;
+import com.securepm.repository.UserStore;
+import com.securepm.service.MultiUserVaultService;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.securepm.util.KeyFactoryUtil;
+import com.securepm.util.TwoFactorCodeUtils;
+import org.mindrot.jbcrypt.BCrypt;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Mede o cadastro com vários usuários ({@link UserStore} e {@link MultiUserVaultService})
+ * conforme a quantidade de usuários cresce até o total informado: a cada patamar, mede a
+ * busca de usuários existentes, a criação de perfis no cadastro e o registro e o login
+ * completos (com BCrypt, TOTP, PBKDF2 e abertura do cofre). Os usuários de preenchimento são
+ * gravados direto no cadastro com um único hash BCrypt pré-calculado, para não gastar um
+ * BCrypt por usuário.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.MultiUserStoreBenchmark [usuários] [buscas por patamar]
+ */
+public class MultiUserStoreBenchmark {
+
+    // Registros e logins completos por patamar (cada um custa um BCrypt).
+    private static final int FULL_SAMPLES = 3;
+
+    // Perfis criados direto no cadastro, por patamar.
+    private static final int CREATE_SAMPLES = 500;
+
+    private static final String PASSWORD = "senha-do-benchmark";
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Path dir = Files.createTempDirectory("securepm-users");
+
+        System.out.println("== BENCHMARK DO CADASTRO COM VÁRIOS USUÁRIOS ==");
+        System.out.println("Usuários: " + total + " | buscas por patamar: " + lookups + " | diretório: " + dir);
+        System.out.printf("%10s | %-22s | %-22s | %12s | %12s%n", "usuários", "busca p50/p99 (µs)",
+                "criação p50/p99 (µs)", "registro (ms)", "login (ms)");
+
+        String sharedHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(12));
+        Random random = new Random(7);
+        List<Double> findP50 = new ArrayList<>();
+        try (MultiUserVaultService users = new MultiUserVaultService(dir)) {
+            UserStore store = users.getUserStore();
+            int seeded = 0;
+            int created = 0;
+            long seedNanos = 0;
+            for (int level : levels(total)) {
+                // 1. Completa o cadastro até o patamar.
+                long start = System.nanoTime();
+                for (; seeded < level; seeded++) {
+                    SystemUser user = new SystemUser(seedName(seeded), sharedHash, TwoFactorCodeUtils.generateBase32Secret());
+                    user.assignVault(UUID.randomUUID().toString(), KeyFactoryUtil.generateSalt());
+                    store.create(user);
+                }
+                seedNanos += System.nanoTime() - start;
+
+                // 2. Busca de usuários existentes, sorteados entre os já cadastrados.
+                LatencyHistogram find = new LatencyHistogram();
+                for (int i = 0; i < lookups; i++) {
+                    String name = seedName(random.nextInt(seeded));
+                    long before = System.nanoTime();
+                    if (store.find(name).isEmpty()) {
+                        throw new IllegalStateException("Usuário cadastrado não encontrado: " + name);
+                    }
+                    find.recordSince(before);
+                }
+
+                // 3. Criação de perfis novos direto no cadastro (sem o BCrypt).
+                LatencyHistogram create = new LatencyHistogram();
+                for (int i = 0; i < CREATE_SAMPLES; i++) {
+                    SystemUser user = new SystemUser("novo-" + created++, sharedHash, TwoFactorCodeUtils.generateBase32Secret());
+                    user.assignVault(UUID.randomUUID().toString(), KeyFactoryUtil.generateSalt());
+                    long before = System.nanoTime();
+                    if (!store.create(user)) {
+                        throw new IllegalStateException("Nome de usuário novo recusado: " + user.getUsername());
+                    }
+                    create.recordSince(before);
+                }
+
+                // 4. Registro e login completos pelo serviço, com logout em seguida.
+                long register = 0;
+                long login = 0;
+                for (int i = 0; i < FULL_SAMPLES; i++) {
+                    String name = "completo-" + level + "-" + i;
+                    long before = System.nanoTime();
+                    VaultService.await(users.register(name, PASSWORD));
+                    register += System.nanoTime() - before;
+
+                    String code = currentCode(store.find(name).orElseThrow().getTwoFASecret());
+                    before = System.nanoTime();
+                    VaultSession session = VaultService.await(users.authenticate(name, PASSWORD, code));
+                    login += System.nanoTime() - before;
+                    VaultService.await(users.vaultFor(session).count(session));
+                    users.logout(session);
+                }
+
+                LatencyHistogram.Snapshot finds = find.snapshot();
+                LatencyHistogram.Snapshot creates = create.snapshot();
+                findP50.add(finds.quantileNanos(0.50) / 1e3);
+                System.out.printf("%,10d | %9.1f / %-10.1f | %9.1f / %-10.1f | %12.1f | %12.1f%n", seeded,
+                        finds.quantileNanos(0.50) / 1e3, finds.quantileNanos(0.99) / 1e3,
+                        creates.quantileNanos(0.50) / 1e3, creates.quantileNanos(0.99) / 1e3,
+                        register / 1e6 / FULL_SAMPLES, login / 1e6 / FULL_SAMPLES);
+            }
+            System.out.printf("Preenchimento: %,d usuários em %,d ms (%,.0f usuários/s)%n", seeded, seedNanos / 1_000_000,
+                    seeded / (seedNanos / 1e9));
+            System.out.printf("Busca p50 no maior patamar / no menor: %.2fx%n",
+                    findP50.get(findP50.size() - 1) / findP50.get(0));
+
+            // 5. Confere o total percorrendo o cadastro (operação O(n), fora do registro e do login).
+            long start = System.nanoTime();
+            int counted = store.count();
+            System.out.printf("Contagem completa do cadastro: %,d perfis em %,d ms; cofres abertos após os logouts: %d%n",
+                    counted, (System.nanoTime() - start) / 1_000_000, users.openVaults());
+            int expected = seeded + created + FULL_SAMPLES * levels(total).size();
+            if (counted != expected) {
+                throw new IllegalStateException("Esperados " + expected + " perfis, encontrados " + counted + ".");
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Patamares de 10 em 10 vezes a partir de mil, terminando no total.
+    private static List<Integer> levels(int total) {
+        List<Integer> levels = new ArrayList<>();
+        for (int level = 1_000; level < total; level *= 10) {
+            levels.add(level);
+        }
+        levels.add(total);
+        return levels;
+    }
+
+    private static String seedName(int index) {
+        return String.format("usuario-%06d@empresa.com.br", index);
+    }
+
+    // Código TOTP atual do segredo, como um app autenticador o mostraria.
+    private static String currentCode(String base32Secret) throws Exception {
+        TimeBasedOneTimePasswordGenerator totp = new TimeBasedOneTimePasswordGenerator();
+        SecretKeySpec key = new SecretKeySpec(TwoFactorCodeUtils.Base32Encoder.decode(base32Secret), "HmacSHA1");
+        return String.format("%06d", totp.generateOneTimePassword(key, Instant.now()));
+    }
+}
@@ -0,0 +1,146 @@
+package com.securepm.bench;
+
+import com.securepm.model.PasswordPolicy;
+import com.securepm.util.RandomPasswordUtil;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark simples (sem dependências externas) que compara a taxa de geração de senhas,
+ * em senhas por segundo, entre a implementação original (um nextInt por caractere e
+ * embaralhamento via List&lt;Character&gt;) e a geração em lote de RandomPasswordUtil.
+ * Antes da medição, confere que frases-senha nunca usam um separador proibido pela política.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.PasswordGenerationBenchmark [tamanho] [quantidade]
+ */
+public class PasswordGenerationBenchmark {
+
+    // Conjuntos de caracteres idênticos aos da implementação original, usados como referência.
+    private static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
+    private static final String NUMERIC_CHARS = "0123456789";
+    private static final String SYMBOL_CHARS = "!@#$%^&*()-_=+<>?";
+    private static final String ALL_CHARS_ALLOWED = UPPERCASE_CHARS + LOWERCASE_CHARS + NUMERIC_CHARS + SYMBOL_CHARS;
+
+    private static final SecureRandom randomGenerator = new SecureRandom();
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        System.out.println("== BENCHMARK DE GERAÇÃO DE SENHAS ==");
+        System.out.println("Tamanho: " + length + " | Quantidade por rodada: " + count);
+        checkPassphraseSeparator();
+
+        // Rodadas de aquecimento para que o JIT compile os dois caminhos antes da medição.
+        for (int i = 0; i < 3; i++) {
+            runLegacy(length, count / 10);
+            runSingle(length, count / 10);
+            runBulk(length, count / 10);
+        }
+
+        report("Original (nextInt + List<Character>)", count, runLegacy(length, count));
+        report("RandomPasswordUtil.generate(length)", count, runSingle(length, count));
+        report("RandomPasswordUtil.generate(length, count)", count, runBulk(length, count));
+    }
+
+    private static long runLegacy(int length, int count) {
+        long start = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < count; i++) {
+            sink += legacyGenerate(length).charAt(0);
+        }
+        consume(sink);
+        return System.nanoTime() - start;
+    }
+
+    private static long runSingle(int length, int count) {
+        long start = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < count; i++) {
+            sink += RandomPasswordUtil.generate(length).charAt(0);
+        }
+        consume(sink);
+        return System.nanoTime() - start;
+    }
+
+    private static long runBulk(int length, int count) {
+        long start = System.nanoTime();
+        char[][] passwords = RandomPasswordUtil.generate(length, count);
+        consume(passwords[passwords.length - 1][0]);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Um separador com caracteres excluídos (ou fora dos símbolos permitidos) precisa fazer a
+     * política ser recusada, em vez de aparecer nas frases-senha geradas.
+     */
+    private static void checkPassphraseSeparator() {
+        PasswordPolicy.Builder base = new PasswordPolicy.Builder().mode(PasswordPolicy.Mode.PASSPHRASE).minSymbols(0);
+        String allowed = new String(RandomPasswordUtil.generate(base.build()));
+        check(allowed.contains("-"), "A frase-senha padrão deveria usar o separador '-'.");
+        check(rejected(base.excludedChars("-").build()), "Separador excluído foi aceito pela política.");
+        check(rejected(base.excludedChars("").symbols("!@#").build()), "Separador fora dos símbolos permitidos foi aceito.");
+        check(rejected(base.symbols(PasswordPolicy.DEFAULT_SYMBOLS).separator(" ").build()), "Separador de espaço foi aceito.");
+        String dotted = new String(RandomPasswordUtil.generate(base.separator(".").symbols(".").build()));
+        check(dotted.contains("."), "A frase-senha deveria usar o separador '.' permitido.");
+        System.out.println("✅ Separadores proibidos são recusados na compilação da política.");
+    }
+
+    private static boolean rejected(PasswordPolicy policy) {
+        try {
+            RandomPasswordUtil.generate(policy);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static void report(String label, int count, long elapsedNanos) {
+        double perSecond = count / (elapsedNanos / 1_000_000_000.0);
+        System.out.printf("%-45s %,12.0f senhas/s (%,d ms)%n", label, perSecond, elapsedNanos / 1_000_000);
+    }
+
+    // Impede que o JIT elimine o trabalho medido como código morto.
+    private static volatile int blackhole;
+
+    private static void consume(int value) {
+        blackhole ^= value;
+    }
+
+    /**
+     * Cópia fiel do algoritmo original de RandomPasswordUtil.generate, mantida aqui apenas
+     * como linha de base para a comparação.
+     */
+    private static String legacyGenerate(int length) {
+        StringBuilder passwordBuilder = new StringBuilder(length);
+        passwordBuilder.append(UPPERCASE_CHARS.charAt(randomGenerator.nextInt(UPPERCASE_CHARS.length())));
+        passwordBuilder.append(LOWERCASE_CHARS.charAt(randomGenerator.nextInt(LOWERCASE_CHARS.length())));
+        passwordBuilder.append(NUMERIC_CHARS.charAt(randomGenerator.nextInt(NUMERIC_CHARS.length())));
+        passwordBuilder.append(SYMBOL_CHARS.charAt(randomGenerator.nextInt(SYMBOL_CHARS.length())));
+        for (int i = 4; i < length; i++) {
+            passwordBuilder.append(ALL_CHARS_ALLOWED.charAt(randomGenerator.nextInt(ALL_CHARS_ALLOWED.length())));
+        }
+
+        List<Character> characters = new ArrayList<>();
+        for (char c : passwordBuilder.toString().toCharArray()) {
+            characters.add(c);
+        }
+        Collections.shuffle(characters, randomGenerator);
+
+        StringBuilder shuffled = new StringBuilder(characters.size());
+        for (char c : characters) {
+            shuffled.append(c);
+        }
+        return shuffled.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.securepm.bench;
+
+import com.securepm.util.SearchIndex;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mede a construção, o consumo de memória e a latência de consultas do SearchIndex
+ * em um cofre sintético (por padrão, 1 milhão de credenciais), e confere que remoções e
+ * substituições não deixam postings nem termos vazios para trás.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.SearchIndexBenchmark [quantidade]
+ */
+public class SearchIndexBenchmark {
+
+    // Serviços e domínios de e-mail usados para compor o cofre sintético.
+    private static final String[] SERVICES = {
+            "GitHub", "GitLab", "Google", "Amazon", "Netflix", "Spotify", "Nubank", "Itaú", "Bradesco",
+            "Mercado Livre", "Steam", "Discord", "Slack", "Dropbox", "LinkedIn", "Twitter", "Facebook",
+            "Instagram", "Microsoft", "Apple", "PayPal", "Uber", "iFood", "Banco do Brasil", "Caixa"
+    };
+    private static final String[] DOMAINS = {"gmail.com", "outlook.com", "empresa.com.br", "yahoo.com.br"};
+
+    // Consultas exatas, por prefixo e com erros de digitação.
+    private static final String[] QUERIES = {"github", "git", "netflx", "mercado", "gihtub", "user4242", "bradesc", "x"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+
+        System.out.println("== BENCHMARK DO ÍNDICE DE BUSCA EM MEMÓRIA ==");
+        System.out.println("Entradas: " + count);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        long start = System.nanoTime();
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < count; i++) {
+            // Cada serviço ganha um sufixo numérico para produzir muitos termos distintos.
+            String service = SERVICES[random.nextInt(SERVICES.length)] + (i % 3 == 0 ? "" : " " + (i % 5000));
+            String user = "user" + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            index.add(i, service, user);
+        }
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("Construção: %d ms | Memória estimada: %.1f MB | Heap medido: %.1f MB%n",
+                buildMs, index.estimateMemoryBytes() / 1048576.0, (heapAfter - heapBefore) / 1048576.0);
+
+        // Atualizações incrementais: remove e reinsere algumas entradas.
+        start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            index.remove(i);
+            index.add(i, "Serviço Novo " + i, "novo" + i + "@gmail.com");
+        }
+        System.out.printf("1000 remoções + inclusões: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        // Rotatividade: nomes sempre novos para as mesmas entradas. Os postings removidos e os
+        // termos que ficam vazios não podem se acumular nem voltar nas buscas.
+        long memoryBefore = index.estimateMemoryBytes();
+        int churn = Math.min(count, 50_000);
+        start = System.nanoTime();
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < churn; i++) {
+                index.add(i, "Rotativo" + round + " " + i, "rot" + round + "x" + i + "@gmail.com");
+            }
+        }
+        System.out.printf("%d substituições com nomes novos: %d ms | memória estimada: %.1f MB -> %.1f MB%n",
+                churn * 4, (System.nanoTime() - start) / 1_000_000, memoryBefore / 1048576.0,
+                index.estimateMemoryBytes() / 1048576.0);
+        check(index.size() == count, "O índice deveria continuar com " + count + " documentos.");
+        // Só podem restar correspondências aproximadas ("rotativo0" fica a 2 edições de "rotativo1 0").
+        check(index.search("rotativo0", churn).stream().allMatch(hit -> hit.getMatchType() == SearchIndex.MatchType.FUZZY),
+                "Documentos substituídos voltaram na busca por prefixo.");
+        check(index.search("rotativo3", churn).size() == churn, "A busca por prefixo não encontrou todas as entradas novas.");
+        check(index.estimateMemoryBytes() < memoryBefore * 3 / 2, "A memória do índice cresceu com a rotatividade.");
+
+        // Renumeração (como na compactação das linhas da tabela): os documentos pares saem e os
+        // ímpares passam a ocupar as posições seguidas.
+        int[] remap = new int[count];
+        for (int i = 0; i < count; i++) {
+            remap[i] = i % 2 == 0 ? -1 : i / 2;
+        }
+        start = System.nanoTime();
+        index.renumber(remap);
+        System.out.printf("Renumeração de %d documentos: %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+        check(index.size() == count / 2, "A renumeração deveria manter só os documentos ímpares.");
+        check(index.search("rotativo3", churn).stream().allMatch(hit -> hit.getDoc() < churn / 2),
+                "A renumeração não atualizou os postings.");
+        check(index.docsWithTerm("rot3x1@gmail.com", SearchIndex.FIELD_USERNAME).length == 1
+                && index.docsWithTerm("rot3x1@gmail.com", SearchIndex.FIELD_USERNAME)[0] == 0,
+                "O documento 1 deveria ter passado a ser o 0.");
+
+        // Aquecimento das consultas.
+        for (int round = 0; round < 5; round++) {
+            for (String query : QUERIES) {
+                index.search(query, 20);
+            }
+        }
+
+        for (String query : QUERIES) {
+            int repetitions = 20;
+            start = System.nanoTime();
+            List<SearchIndex.Hit> hits = null;
+            for (int r = 0; r < repetitions; r++) {
+                hits = index.search(query, 20);
+            }
+            double perQueryMs = (System.nanoTime() - start) / 1e6 / repetitions;
+            String top = hits.isEmpty() ? "-" : hits.get(0).getMatchType() + " (doc " + hits.get(0).getDoc() + ")";
+            System.out.printf("%-10s %8.2f ms  %2d resultado(s)  melhor: %s%n", query, perQueryMs, hits.size(), top);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.securepm.bench;
+
+import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
+import com.securepm.model.NewCredential;
+import com.securepm.model.SystemUser;
+import com.securepm.repository.UserStore;
+import com.securepm.service.MultiUserVaultService;
+import com.securepm.service.SharingService;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.securepm.util.KeyFactoryUtil;
+import com.securepm.util.ShareCryptoUtil;
+import com.securepm.util.TwoFactorCodeUtils;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Mede o compartilhamento de uma credencial com um grupo grande ({@link SharingService}):
+ * o embrulho da chave de conteúdo para todos os membros (em sequência e com um par efêmero por
+ * membro, como referência, e em paralelo com um único par efêmero, como o serviço faz), a
+ * abertura por um membro, a revogação de um membro (nova chave de conteúdo, embrulhada de novo
+ * só para os demais) e a inclusão de um membro. Ao final, confere que o membro revogado perdeu
+ * o acesso e que os demais continuam abrindo a credencial.
+ *
+ * O dono e um dos membros fazem o registro e o login completos; os demais membros são
+ * gravados direto no cadastro, apenas com a chave pública.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.SharedCredentialBenchmark [membros]
+ */
+public class SharedCredentialBenchmark {
+
+    private static final String PASSWORD = "senha-do-benchmark";
+
+    public static void main(String[] args) throws Exception {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        Path dir = Files.createTempDirectory("securepm-shared");
+
+        System.out.println("== BENCHMARK DO COMPARTILHAMENTO DE CREDENCIAIS ==");
+        System.out.println("Membros: " + members + " | núcleos: " + Runtime.getRuntime().availableProcessors());
+
+        try (MultiUserVaultService users = new MultiUserVaultService(dir)) {
+            SharingService sharing = users.getSharing();
+            UserStore store = users.getUserStore();
+
+            // 1. Dono e um membro com registro e login; os demais membros só com a chave pública.
+            VaultSession owner = registerAndLogin(users, "dono");
+            VaultSession member = registerAndLogin(users, "membro-0");
+            List<String> group = new ArrayList<>();
+            group.add("membro-0");
+            long start = System.nanoTime();
+            for (int i = 1; i < members; i++) {
+                String name = "membro-" + i;
+                SystemUser user = new SystemUser(name, "-", TwoFactorCodeUtils.generateBase32Secret());
+                user.assignVault(UUID.randomUUID().toString(), KeyFactoryUtil.generateSalt());
+                KeyPair pair = ShareCryptoUtil.generateKeyPair();
+                user.assignShareKeys(pair.getPublic().getEncoded(), new byte[0]);
+                store.create(user);
+                group.add(name);
+            }
+            System.out.printf("Cadastro dos membros: %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            // 2. Referência: embrulho em sequência para todos os membros, com um par efêmero por membro.
+            List<PublicKey> publicKeys = new ArrayList<>();
+            for (String name : group) {
+                publicKeys.add(ShareCryptoUtil.decodePublicKey(store.find(name).orElseThrow().getSharePublicKey()));
+            }
+            SecretKey contentKey = ShareCryptoUtil.generateContentKey();
+            byte[] aad = "referencia".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < Math.min(200, publicKeys.size()); i++) {
+                ShareCryptoUtil.wrap(contentKey, publicKeys.get(i), aad);
+            }
+            start = System.nanoTime();
+            for (PublicKey publicKey : publicKeys) {
+                ShareCryptoUtil.wrap(contentKey, publicKey, aad);
+            }
+            long sequential = System.nanoTime() - start;
+            System.out.printf("Embrulho em sequência: %,d ms (%.1f µs por membro)%n", sequential / 1_000_000,
+                    sequential / 1e3 / publicKeys.size());
+
+            // 3. Compartilhamento completo (perfis, embrulho em paralelo e gravação).
+            start = System.nanoTime();
+            String id = VaultService.await(sharing.share(owner, "GitHub", "equipe@empresa.com.br", "s3nha-da-equipe!", group));
+            long shared = System.nanoTime() - start;
+            System.out.printf("Compartilhamento com %,d membros: %,d ms (%.2fx a referência)%n", members + 1,
+                    shared / 1_000_000, (double) sequential / shared);
+
+            // 4. Abertura por um membro.
+            start = System.nanoTime();
+            NewCredential revealed = VaultService.await(sharing.reveal(member, id));
+            System.out.printf("Abertura pelo membro: %.2f ms -> %s / %s%n", (System.nanoTime() - start) / 1e6,
+                    revealed.getServiceName(), revealed.getUsername());
+            check("s3nha-da-equipe!".equals(revealed.getPassword()), "O membro não abriu a senha compartilhada.");
+
+            // 5. Revogação do membro: nova chave de conteúdo, embrulhada só para os demais.
+            start = System.nanoTime();
+            check(VaultService.await(sharing.revoke(owner, id, "membro-0")), "O membro não estava no compartilhamento.");
+            System.out.printf("Revogação de um membro (embrulho para %,d): %,d ms%n", members,
+                    (System.nanoTime() - start) / 1_000_000);
+            check(VaultService.await(sharing.reveal(member, id)) == null, "O membro revogado ainda abre a credencial.");
+            check(VaultService.await(sharing.inbox(member)).isEmpty(), "O compartilhamento continua na caixa do membro revogado.");
+            check("s3nha-da-equipe!".equals(VaultService.await(sharing.reveal(owner, id)).getPassword()),
+                    "O dono não abre a credencial após a revogação.");
+
+            // 6. Inclusão do membro de volta: só um embrulho, sem cifrar o conteúdo de novo.
+            start = System.nanoTime();
+            int added = VaultService.await(sharing.addRecipients(owner, id, List.of("membro-0")));
+            System.out.printf("Inclusão de %d membro: %.2f ms%n", added, (System.nanoTime() - start) / 1e6);
+            check("s3nha-da-equipe!".equals(VaultService.await(sharing.reveal(member, id)).getPassword()),
+                    "O membro incluído de novo não abre a credencial.");
+
+            users.logout(owner);
+            users.logout(member);
+            System.out.println("✅ Verificações concluídas.");
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static VaultSession registerAndLogin(MultiUserVaultService users, String name) throws Exception {
+        String uri = VaultService.await(users.register(name, PASSWORD));
+        String secret = uri.replaceAll(".*[?&]secret=([A-Z2-7]+).*", "$1");
+        TimeBasedOneTimePasswordGenerator totp = new TimeBasedOneTimePasswordGenerator();
+        String code = String.format("%06d", totp.generateOneTimePassword(
+                new SecretKeySpec(TwoFactorCodeUtils.Base32Encoder.decode(secret), "HmacSHA1"), Instant.now()));
+        return VaultService.await(users.authenticate(name, PASSWORD, code));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.securepm.bench;
+
+import com.securepm.util.PasswordStrengthEstimator;
+import com.securepm.util.RandomPasswordUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mede o tempo para pontuar um cofre inteiro com o PasswordStrengthEstimator,
+ * misturando senhas aleatórias fortes com senhas humanas típicas (palavras, datas e teclado).
+ *
+ * Uso: java -cp target/classes com.securepm.bench.StrengthScoringBenchmark [quantidade]
+ */
+public class StrengthScoringBenchmark {
+
+    // Senhas "humanas" usadas para compor a parte fraca do cofre sintético.
+    private static final String[] HUMAN_PASSWORDS = {
+            "Flamengo2019", "qwerty123", "P@ssw0rd!", "12/05/1990", "abcabcabc", "Senha@123",
+            "dragonfly77", "asdfghjkl", "Correct-Horse-Battery", "amorzinho", "1qaz2wsx3edc", "Maria1985"
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // Metade aleatória, metade humana, para exercitar todos os detectores de padrão.
+        List<String> vault = new ArrayList<>(count);
+        char[][] random = RandomPasswordUtil.generate(16, count / 2);
+        for (char[] password : random) {
+            vault.add(new String(password));
+        }
+        for (int i = vault.size(); i < count; i++) {
+            vault.add(HUMAN_PASSWORDS[i % HUMAN_PASSWORDS.length] + (i % 7 == 0 ? "" : i % 100));
+        }
+
+        System.out.println("== BENCHMARK DO ESTIMADOR DE FORÇA ==");
+        System.out.println("Entradas: " + count + " | Núcleos: " + Runtime.getRuntime().availableProcessors());
+
+        // Aquecimento (carrega a trie e compila os caminhos quentes).
+        for (int i = 0; i < 3; i++) {
+            PasswordStrengthEstimator.scoreAll(vault);
+        }
+
+        long start = System.nanoTime();
+        int[] scores = PasswordStrengthEstimator.scoreAll(vault);
+        long elapsed = System.nanoTime() - start;
+
+        int[] histogram = new int[5];
+        for (int score : scores) {
+            histogram[score]++;
+        }
+        System.out.printf("Tempo total: %,d ms (%,.0f senhas/s)%n", elapsed / 1_000_000, count / (elapsed / 1e9));
+        for (int s = 0; s < histogram.length; s++) {
+            System.out.printf("Nota %d: %,d%n", s, histogram[s]);
+        }
+
+        for (String sample : HUMAN_PASSWORDS) {
+            PasswordStrengthEstimator.Strength strength = PasswordStrengthEstimator.estimate(sample);
+            System.out.printf("%-22s %s %s%n", sample, strength, strength.getWarning());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.NewCredential;
+import com.securepm.repository.CredentialManager;
+import com.securepm.service.VaultService;
+import com.securepm.util.AESCryptoUtil;
+import com.securepm.util.KeyFactoryUtil;
+import com.securepm.util.KeyedHashUtil;
+import com.securepm.util.RandomPasswordUtil;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Gera cofres sintéticos de qualquer tamanho, com distribuições parecidas com as de um cofre
+ * real, e os grava pela API do repositório ({@link CredentialManager}) com as senhas
+ * realmente cifradas:
+ *
+ * - serviços: cerca de dois terços vêm de uma lista de serviços populares, sorteados por uma
+ *   distribuição de Zipf (poucos serviços concentram muitas contas); o restante é uma cauda
+ *   longa de domínios pouco repetidos;
+ * - usuários: a maioria das contas usa um dos e-mails de um grupo de pessoas (também por
+ *   Zipf); as demais usam apelidos ou números de telefone;
+ * - senhas: geradas aleatoriamente, "humanas" (palavra, ano e símbolo) ou reaproveitadas de
+ *   um pequeno conjunto, o que exercita o índice de impressões digitais (senhas repetidas).
+ *
+ * Com a mesma semente, os serviços e usuários gerados são os mesmos (as senhas aleatórias, não).
+ *
+ * Uso (grava um cofre utilizável no diretório de trabalho, como o SecurePM):
+ * java -cp target/classes com.securepm.bench.SyntheticVaultGenerator quantidade usuário senha-mestra [semente]
+ */
+public class SyntheticVaultGenerator {
+
+    // Serviços populares, do mais ao menos frequente.
+    private static final String[] POPULAR_SERVICES = {"Google", "Facebook", "Instagram", "WhatsApp Web", "Amazon",
+            "Mercado Livre", "Netflix", "Nubank", "Itaú", "Bradesco", "Banco do Brasil", "Caixa", "gov.br", "Microsoft",
+            "Apple ID", "LinkedIn", "GitHub", "Spotify", "Magazine Luiza", "Americanas", "Shopee", "iFood", "Uber", "99",
+            "Twitter", "TikTok", "YouTube", "Dropbox", "Steam", "PlayStation Network", "Xbox", "Disney+", "Globoplay",
+            "Santander", "Inter", "C6 Bank", "PicPay", "PayPal", "OLX", "Booking", "Airbnb", "Decolar", "LATAM", "GOL",
+            "Azul", "Claro", "Vivo", "TIM", "Sky", "Enel", "Sabesp", "Receita Federal", "Detran", "Serasa", "Zoom",
+            "Slack", "Trello", "Notion", "Canva", "Outlook"};
+
+    // Sílabas dos domínios da cauda longa.
+    private static final String[] SYLLABLES = {"ca", "sa", "lo", "ja", "mer", "to", "ri", "bra", "vi", "na", "pe",
+            "do", "ma", "tec", "net", "shop", "flex", "pay", "go", "max"};
+    private static final String[] DOMAIN_SUFFIXES = {".com.br", ".com", ".net", ".app", ".io", ".org.br"};
+
+    private static final String[] FIRST_NAMES = {"ana", "joao", "maria", "pedro", "lucas", "juliana", "carlos",
+            "fernanda", "rafael", "beatriz", "gabriel", "camila", "bruno", "larissa", "thiago", "amanda", "felipe",
+            "patricia", "rodrigo", "mariana"};
+    private static final String[] LAST_NAMES = {"silva", "santos", "oliveira", "souza", "lima", "pereira", "ferreira",
+            "costa", "rodrigues", "almeida", "nascimento", "carvalho", "gomes", "martins", "araujo"};
+    private static final String[] EMAIL_DOMAINS = {"gmail.com", "hotmail.com", "outlook.com", "yahoo.com.br",
+            "empresa.com.br", "uol.com.br"};
+
+    // Palavras das senhas "humanas".
+    private static final String[] WORDS = {"Palmeiras", "Flamengo", "Corinthians", "Brasil", "Amor", "Familia",
+            "Futebol", "Jesus", "Deus", "Saudade", "Praia", "Cachorro", "Estrela", "Mudar", "Senha", "Verao"};
+    private static final String[] SYMBOLS = {"", "!", "@", "#", "*", "!!", "123"};
+
+    // Pessoas do grupo (donas dos e-mails) e senhas do conjunto reaproveitado.
+    private static final int PEOPLE = 200;
+    private static final int REUSED_PASSWORDS = 20;
+
+    // Parcelas de cada tipo de serviço, usuário e senha.
+    private static final double POPULAR_SERVICE_SHARE = 0.65;
+    private static final double EMAIL_SHARE = 0.70;
+    private static final double HANDLE_SHARE = 0.20;
+    private static final double RANDOM_PASSWORD_SHARE = 0.55;
+    private static final double HUMAN_PASSWORD_SHARE = 0.30;
+
+    private final Random random;
+    private final double[] serviceWeights = zipf(POPULAR_SERVICES.length, 1.0);
+    private final double[] peopleWeights = zipf(PEOPLE, 1.1);
+    private final double[] reusedWeights = zipf(REUSED_PASSWORDS, 1.0);
+    private final String[] people;
+    private final String[] reused;
+
+    public SyntheticVaultGenerator(long seed) {
+        this.random = new Random(seed);
+        this.people = new String[PEOPLE];
+        for (int i = 0; i < PEOPLE; i++) {
+            people[i] = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + "." + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        }
+        this.reused = new String[REUSED_PASSWORDS];
+        for (int i = 0; i < REUSED_PASSWORDS; i++) {
+            reused[i] = humanPassword();
+        }
+    }
+
+    /**
+     * Gera a próxima credencial (em texto claro).
+     */
+    public NewCredential next() {
+        return new NewCredential(service(), username(), password());
+    }
+
+    private String service() {
+        if (random.nextDouble() < POPULAR_SERVICE_SHARE) {
+            return POPULAR_SERVICES[sample(serviceWeights)];
+        }
+        StringBuilder domain = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            domain.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return domain.append(DOMAIN_SUFFIXES[random.nextInt(DOMAIN_SUFFIXES.length)]).toString();
+    }
+
+    private String username() {
+        double draw = random.nextDouble();
+        String person = people[sample(peopleWeights)];
+        if (draw < EMAIL_SHARE) {
+            // Cada pessoa usa poucos e-mails: o domínio é escolhido pela própria pessoa, com uma variação ocasional.
+            int domain = Math.floorMod(person.hashCode() + (random.nextInt(4) == 0 ? 1 : 0), EMAIL_DOMAINS.length);
+            return person + "@" + EMAIL_DOMAINS[domain];
+        }
+        if (draw < EMAIL_SHARE + HANDLE_SHARE) {
+            return person.replace('.', '_') + (random.nextBoolean() ? "" : String.valueOf(random.nextInt(100)));
+        }
+        return String.format("(%02d) 9%04d-%04d", 11 + random.nextInt(89), random.nextInt(10_000), random.nextInt(10_000));
+    }
+
+    private String password() {
+        double draw = random.nextDouble();
+        if (draw < RANDOM_PASSWORD_SHARE) {
+            return RandomPasswordUtil.generate(12 + random.nextInt(13));
+        }
+        if (draw < RANDOM_PASSWORD_SHARE + HUMAN_PASSWORD_SHARE) {
+            return humanPassword();
+        }
+        return reused[sample(reusedWeights)];
+    }
+
+    private String humanPassword() {
+        return WORDS[random.nextInt(WORDS.length)] + (1970 + random.nextInt(56)) + SYMBOLS[random.nextInt(SYMBOLS.length)];
+    }
+
+    // Pesos acumulados de uma distribuição de Zipf com expoente s sobre n posições.
+    private static double[] zipf(int n, double s) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1 / Math.pow(rank, s);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < n; i++) cumulative[i] /= total;
+        return cumulative;
+    }
+
+    private int sample(double[] cumulative) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * Cifra as credenciais como o {@link VaultService} faz (serviço, usuário e senha com AES e a
+     * impressão digital da senha com HMAC), em paralelo.
+     */
+    public static List<AccessCredential> encrypt(List<NewCredential> rows, SecretKey key) throws Exception {
+        SecretKey fingerprintKey = KeyedHashUtil.deriveKey(key, KeyedHashUtil.PASSWORD_FINGERPRINT_PURPOSE);
+        AccessCredential[] encrypted = new AccessCredential[rows.size()];
+        IntStream.range(0, rows.size()).parallel().forEach(i -> {
+            NewCredential row = rows.get(i);
+            try {
+                byte[] password = AESCryptoUtil.encrypt(row.getPassword(), key);
+                encrypted[i] = new AccessCredential(UUID.randomUUID().toString(), AESCryptoUtil.encrypt(row.getServiceName(), key),
+                        AESCryptoUtil.encrypt(row.getUsername(), key), password, Arrays.copyOf(password, 16),
+                        KeyedHashUtil.hmac(fingerprintKey, row.getPassword()));
+            } catch (Exception e) {
+                throw new IllegalStateException("Falha ao cifrar a credencial sintética.", e);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(encrypted));
+    }
+
+    /**
+     * Gera um cofre com a quantidade informada e o grava de uma vez pelo repositório (já
+     * desbloqueado com a chave), construindo também o índice de impressões digitais. O índice
+     * cego de busca é criado pelo serviço no primeiro uso, como num cofre migrado.
+     */
+    public static void generateInto(CredentialManager repository, SecretKey key, int count, long seed) throws Exception {
+        SyntheticVaultGenerator generator = new SyntheticVaultGenerator(seed);
+        List<NewCredential> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) rows.add(generator.next());
+        repository.saveAll(encrypt(rows, key));
+        repository.getFingerprintIndex();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Uso: SyntheticVaultGenerator quantidade usuário senha-mestra [semente]");
+            System.exit(2);
+        }
+        int count = Integer.parseInt(args[0]);
+        String username = args[1];
+        String password = args[2];
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        // 1. Recusa sobrescrever um perfil ou cofre existente no diretório de trabalho.
+        CredentialManager repository = new CredentialManager();
+        if (repository.exists() || new File("users.dat").exists()) {
+            System.err.println("❌ Já existe um perfil ou cofre neste diretório; use um diretório vazio.");
+            System.exit(1);
+        }
+
+        // 2. Registra o usuário mestre e deriva a chave do cofre como no login.
+        String otpAuthUri;
+        try (VaultService service = new VaultService()) {
+            otpAuthUri = VaultService.await(service.register(username, password));
+        }
+        SecretKey key = KeyFactoryUtil.deriveAESKeyFromPassword(password);
+
+        // 3. Gera e grava as credenciais.
+        long start = System.nanoTime();
+        repository.unlock(key);
+        generateInto(repository, key, count, seed);
+        System.out.printf("✅ Cofre sintético com %,d credencial(is) gerado em %,d ms.%n", count,
+                (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Configure o 2FA com esta URI para fazer o login: " + otpAuthUri);
+    }
+}
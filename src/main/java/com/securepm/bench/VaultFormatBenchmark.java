@@ -0,0 +1,203 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.repository.BlockVaultFile;
+import com.securepm.util.SerializationUtil;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compara o arquivo serializado anterior ('credentials.dat') com o arquivo em blocos
+ * comprimidos e cifrados (BlockVaultFile): tamanho em disco, leitura completa e leitura
+ * de uma única credencial. Também mede as alterações gravadas no diário do cofre (com uma
+ * entrada incompleta, uma entrada danificada e a regravação quando o diário fica grande), a
+ * verificação de integridade e simula um byte corrompido.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.VaultFormatBenchmark [quantidade]
+ */
+public class VaultFormatBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("securepm-bench");
+        Path legacyFile = dir.resolve("credentials.dat");
+        Path vaultPath = dir.resolve("credentials.vault");
+
+        System.out.println("== BENCHMARK DO FORMATO DO COFRE ==");
+        System.out.println("Entradas: " + count + " | Núcleos: " + Runtime.getRuntime().availableProcessors());
+
+        List<AccessCredential> credentials = generate(count);
+        SecretKey key = BlockVaultFile.deriveBlockKey(new SecretKeySpec(new byte[32], "AES"));
+        BlockVaultFile vault = new BlockVaultFile(vaultPath.toString());
+        BlockVaultFile.IntegrityReport report;
+
+        // Escrita.
+        long start = System.nanoTime();
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(legacyFile.toFile())))) {
+            oos.writeObject(credentials);
+        }
+        long legacyWriteMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        vault.writeAll(credentials, key);
+        long vaultWriteMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Tamanho em disco : serializado %.1f MB | blocos %.1f MB%n",
+                Files.size(legacyFile) / 1048576.0, Files.size(vaultPath) / 1048576.0);
+        System.out.printf("Escrita          : serializado %d ms | blocos %d ms%n", legacyWriteMs, vaultWriteMs);
+
+        // Leitura completa (melhor de 3 rodadas, após aquecimento).
+        long legacyScan = Long.MAX_VALUE;
+        long vaultScan = Long.MAX_VALUE;
+        for (int round = 0; round < 4; round++) {
+            start = System.nanoTime();
+            List<AccessCredential> legacy;
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(legacyFile.toFile())))) {
+                legacy = SerializationUtil.toList(ois.readObject(), AccessCredential.class);
+            }
+            if (round > 0) legacyScan = Math.min(legacyScan, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<AccessCredential> blocks = vault.readAll(key);
+            if (round > 0) vaultScan = Math.min(vaultScan, System.nanoTime() - start);
+            if (legacy.size() != blocks.size()) throw new IllegalStateException("Quantidades diferentes após a leitura.");
+        }
+        System.out.printf("Leitura completa : serializado %d ms | blocos %d ms%n", legacyScan / 1_000_000, vaultScan / 1_000_000);
+
+        // Leitura de uma única credencial: o formato anterior precisa desserializar tudo.
+        Random random = new Random(3);
+        start = System.nanoTime();
+        int lookups = 200;
+        for (int i = 0; i < lookups; i++) {
+            String id = credentials.get(random.nextInt(count)).getId();
+            if (vault.find(id, key) == null) throw new IllegalStateException("Credencial não encontrada: " + id);
+        }
+        System.out.printf("Uma credencial   : serializado %d ms (leitura completa) | blocos %.2f ms%n",
+                legacyScan / 1_000_000, (System.nanoTime() - start) / 1e6 / lookups);
+
+        // Regravação após a troca de uma senha: só o bloco alterado é recifrado.
+        credentials.get(count / 2).replacePassword(randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+        start = System.nanoTime();
+        vault.writeAll(credentials, key);
+        System.out.printf("Troca de 1 senha : regravação em %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        // Diário de alterações: cada troca grava só a credencial alterada.
+        int changes = 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            AccessCredential changed = credentials.get(random.nextInt(count));
+            changed.replacePassword(randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+            vault.appendChanges(List.of(changed), List.of(), key);
+        }
+        Path journalPath = Path.of(vault.getJournalPath());
+        System.out.printf("Diário           : %.2f ms por troca de senha | diário com %.1f KB%n",
+                (System.nanoTime() - start) / 1e6 / changes, Files.size(journalPath) / 1024.0);
+        AccessCredential added = generate(1).get(0);
+        vault.appendChanges(List.of(added), List.of(credentials.get(0).getId()), key);
+        credentials.remove(0);
+        credentials.add(added);
+        check(passwordsById(vault.readAll(key)).equals(passwordsById(credentials)), "O diário não reproduz as alterações.");
+        check(vault.find(credentials.get(0).getId(), key) != null && vault.find(added.getId(), key) != null,
+                "A busca por ID não considera o diário.");
+
+        // Queda durante a gravação: a entrada incompleta no fim é ignorada e substituída pela próxima.
+        Files.write(journalPath, new byte[]{0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+        check(vault.readAll(key).size() == credentials.size(), "A entrada incompleta do diário não foi ignorada.");
+        AccessCredential last = credentials.get(count / 3);
+        last.replacePassword(randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+        vault.appendChanges(List.of(last), List.of(), key);
+        check(Arrays.equals(vault.find(last.getId(), key).getEncryptedPassword(), last.getEncryptedPassword()),
+                "A alteração gravada depois da entrada incompleta se perdeu.");
+
+        // Entrada danificada: a verificação a aponta e a leitura tolerante mantém as anteriores.
+        byte[] journal = Files.readAllBytes(journalPath);
+        journal[journal.length - 20] ^= 0x5A;
+        Files.write(journalPath, journal);
+        report = vault.verify(key);
+        check(!report.isHealthy() && report.getDamagedJournalEntries() == 1, "A entrada danificada do diário não foi detectada.");
+        check(vault.readHealthy(report, key).size() == credentials.size(), "A leitura tolerante descartou alterações íntegras.");
+        System.out.printf("Diário danificado: %d entrada(s) descartada(s) pela verificação%n", report.getDamagedJournalEntries());
+
+        // Alterações maiores que o limite do diário regravam o cofre, que passa a incluí-las.
+        vault.writeAll(credentials, key);
+        List<AccessCredential> batch = generate(count / 2);
+        start = System.nanoTime();
+        vault.appendChanges(batch, List.of(), key);
+        credentials.addAll(batch);
+        check(!Files.exists(journalPath) && vault.readAll(key).size() == credentials.size(),
+                "O lote grande deveria ter regravado o cofre.");
+        System.out.printf("Lote de %d   : regravação em %d ms (sem diário)%n", batch.size(), (System.nanoTime() - start) / 1_000_000);
+
+        // Verificação de integridade (checksums dos blocos sobre o arquivo mapeado em memória).
+        long verifyNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 4; round++) {
+            report = vault.verify(key);
+            if (round > 0) verifyNanos = Math.min(verifyNanos, report.getElapsedNanos());
+        }
+        System.out.printf("Verificação      : %.1f ms (%.0f MB/s), íntegro: %s%n", verifyNanos / 1e6,
+                report.getBytesVerified() / 1048576.0 / (verifyNanos / 1e9), report.isHealthy());
+
+        // Corrupção simulada: um byte alterado no meio do arquivo.
+        try (RandomAccessFile file = new RandomAccessFile(vaultPath.toFile(), "rw")) {
+            long position = file.length() / 2;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0x5A);
+        }
+        report = vault.verify(key);
+        System.out.printf("Byte corrompido  : blocos danificados %s | IDs danificados %d | ilegíveis %d%n",
+                report.getDamagedBlocks(), report.getDamagedIds().size(), report.getUnreadableRecords());
+        System.out.printf("Leitura tolerante: %d de %d credenciais íntegras%n",
+                vault.readHealthy(report, key).size(), credentials.size());
+
+        Files.delete(legacyFile);
+        vault.delete();
+        Files.delete(dir);
+    }
+
+    // Credenciais no formato atual: serviço, usuário e senha cifrados (tamanhos do AES-CBC com IV).
+    private static List<AccessCredential> generate(int count) {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] password = randomBytes(random, 48);
+            list.add(new AccessCredential(UUID.randomUUID().toString(), randomBytes(random, 32), randomBytes(random, 48),
+                    password, Arrays.copyOf(password, 16), randomBytes(random, 32)));
+        }
+        return list;
+    }
+
+    // Senha cifrada de cada credencial, pelo ID.
+    private static Map<String, String> passwordsById(List<AccessCredential> credentials) {
+        Map<String, String> passwords = new HashMap<>();
+        for (AccessCredential credential : credentials) {
+            passwords.put(credential.getId(), Base64.getEncoder().encodeToString(credential.getEncryptedPassword()));
+        }
+        return passwords;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,304 @@
+package com.securepm.bench;
+
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.model.CredentialSummary;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Teste de carga em escala: para cada tamanho de cofre, gera um cofre sintético com o
+ * {@link SyntheticVaultGenerator}, abre-o pelo {@link VaultService} e dispara uma carga mista
+ * de leituras e gravações com vários clientes simultâneos (cada um em sua thread virtual)
+ * durante alguns segundos. Ao final, mostra como vazão, latências e heap evoluem com o
+ * tamanho do cofre, em tabela e em gráfico de barras no terminal, e pode gravar os números
+ * num CSV para gerar gráficos em outra ferramenta.
+ *
+ * Mistura de operações:
+ * - leituras: revelar senha, busca rápida, busca por serviço e busca por ID;
+ * - gravações: inclusão, troca de senha e remoção (cada cliente remove só o que incluiu, para
+ *   o tamanho do cofre ficar estável durante a medição).
+ *
+ * Uso: java -cp target/classes com.securepm.bench.VaultScalingLoadTest [tamanhos, ex.: 1000,10000,100000]
+ *      [clientes] [segundos] [% de leituras] [arquivo CSV]
+ */
+public class VaultScalingLoadTest {
+
+    private static final String[] KINDS = {"revelar senha", "busca rápida", "busca por serviço", "busca por ID",
+            "inclusão", "troca de senha", "remoção"};
+    private static final int READ_KINDS = 4;
+
+    // Posições extras no vetor de histogramas: todas as operações e só as gravações.
+    private static final int ALL = KINDS.length;
+    private static final int WRITES = KINDS.length + 1;
+
+    // Termos das buscas: serviços populares e pedaços de nomes e e-mails.
+    private static final String[] TERMS = {"google", "nubank", "mercado", "git", "itau", "gov", "silva", "gmail",
+            "ana", "shop", "pay", "netflix"};
+    private static final String[] SERVICES = {"Google", "Nubank", "Mercado Livre", "GitHub", "Itaú", "gov.br", "Netflix",
+            "Amazon", "Spotify", "Steam"};
+
+    public static void main(String[] args) throws Exception {
+        String[] sizeArgs = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int readPercent = args.length > 3 ? Integer.parseInt(args[3]) : 90;
+        Path csv = args.length > 4 ? Paths.get(args[4]) : null;
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== TESTE DE CARGA EM ESCALA DO COFRE ==");
+        System.out.println("Tamanhos: " + String.join(", ", sizeArgs) + " | clientes: " + clients + " | duração: "
+                + seconds + " s | leituras: " + readPercent + "% | núcleos: " + Runtime.getRuntime().availableProcessors());
+
+        List<Row> rows = new ArrayList<>();
+        for (String sizeArg : sizeArgs) {
+            int size = Integer.parseInt(sizeArg.trim());
+            Path dir = Files.createTempDirectory("securepm-scaling");
+            try {
+                rows.add(measure(dir, key, size, clients, seconds, readPercent));
+            } finally {
+                try (Stream<Path> paths = Files.walk(dir)) {
+                    paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+
+        // Resumo da evolução com o tamanho do cofre.
+        System.out.println();
+        System.out.println("== EVOLUÇÃO COM O TAMANHO DO COFRE ==");
+        System.out.printf("%12s %12s %10s %12s %12s %12s %12s %11s %11s%n", "credenciais", "geração (ms)",
+                "carga (ms)", "ops/s", "p50 (ms)", "p99 (ms)", "p99 grav.", "heap (MB)", "pico (MB)");
+        for (Row row : rows) {
+            System.out.printf("%,12d %,12d %,10d %,12.0f %12.3f %12.3f %12.3f %,11d %,11d%n", row.size, row.generationMillis,
+                    row.loadMillis, row.throughput, row.all.quantileNanos(0.50) / 1e6, row.all.quantileNanos(0.99) / 1e6,
+                    row.writes.quantileNanos(0.99) / 1e6, row.retainedHeap >> 20, row.peakHeap >> 20);
+        }
+        chart("Vazão (ops/s)", rows, row -> row.throughput);
+        chart("Latência p99 de todas as operações (ms)", rows, row -> row.all.quantileNanos(0.99) / 1e6);
+        chart("Heap retido após o GC (MB)", rows, row -> row.retainedHeap / (double) (1 << 20));
+
+        if (csv != null) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+                out.println("credenciais,operacao,quantidade,ops_por_s,p50_ms,p90_ms,p99_ms,max_ms,geracao_ms,carga_ms,"
+                        + "heap_retido_mb,heap_pico_mb");
+                for (Row row : rows) {
+                    for (int kind = 0; kind < KINDS.length; kind++) {
+                        csvLine(out, row, KINDS[kind], row.perKind[kind]);
+                    }
+                    csvLine(out, row, "todas", row.all);
+                }
+            }
+            System.out.println("📄 Resultados gravados em " + csv.toAbsolutePath());
+        }
+    }
+
+    // Resultado de um tamanho de cofre.
+    private static final class Row {
+        int size;
+        long generationMillis;
+        long loadMillis;
+        double elapsedSeconds;
+        double throughput;
+        long retainedHeap;
+        long peakHeap;
+        LatencyHistogram.Snapshot[] perKind = new LatencyHistogram.Snapshot[KINDS.length];
+        LatencyHistogram.Snapshot all;
+        LatencyHistogram.Snapshot writes;
+    }
+
+    private interface Metric {
+        double of(Row row);
+    }
+
+    private static Row measure(Path dir, SecretKey key, int size, int clients, int seconds, int readPercent)
+            throws Exception {
+        Row row = new Row();
+        row.size = size;
+        System.out.println();
+        System.out.printf("-- Cofre com %,d credenciais --%n", size);
+
+        // 1. Geração do cofre sintético pela API do repositório (fora deste método, para o
+        //    repositório da geração não contar no heap retido).
+        row.generationMillis = generate(dir, key, size);
+
+        // 2. Abertura do cofre gerado por um repositório novo, como num login.
+        System.gc();
+        long start;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        try (VaultService service = new VaultService(new UserManager(dir.resolve("users.dat").toString()),
+                new CredentialManager(dir.resolve("credentials.dat").toString()),
+                new PasswordPolicyManager(dir.resolve("policies.dat").toString()))) {
+            start = System.nanoTime();
+            VaultSession session = VaultService.await(service.openSession(key));
+            row.loadMillis = (System.nanoTime() - start) / 1_000_000;
+            List<String> ids = new ArrayList<>();
+            for (CredentialSummary cred : VaultService.await(service.list(session))) ids.add(cred.getId());
+            System.gc();
+            row.retainedHeap = Math.max(0, memory.getHeapMemoryUsage().getUsed() - heapBefore);
+
+            // 3. Aquecimento (JIT), sem registrar as latências.
+            run(service, session, ids, clients, Math.min(2, seconds), readPercent, null);
+
+            // 4. Medição, com uma thread amostrando o pico do heap.
+            LatencyHistogram[] histograms = new LatencyHistogram[KINDS.length + 2];
+            for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+            AtomicLong peak = new AtomicLong();
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            start = System.nanoTime();
+            long errors = run(service, session, ids, clients, seconds, readPercent, histograms);
+            row.elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            sampler.interrupt();
+            sampler.join();
+            row.peakHeap = peak.get();
+
+            // 5. Relatório do tamanho.
+            System.out.printf("Geração: %,d ms | carga do cofre: %,d ms | heap retido: %,d MB%n",
+                    row.generationMillis, row.loadMillis, row.retainedHeap >> 20);
+            System.out.printf("%-20s %10s %10s %10s %10s %10s%n", "Operação", "qtde", "p50 (ms)", "p90 (ms)", "p99 (ms)",
+                    "máx (ms)");
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                row.perKind[kind] = histograms[kind].snapshot();
+                print(KINDS[kind], row.perKind[kind]);
+            }
+            row.all = histograms[ALL].snapshot();
+            row.writes = histograms[WRITES].snapshot();
+            print("Todas", row.all);
+            row.throughput = row.all.getCount() / row.elapsedSeconds;
+            System.out.printf("Operações: %,d em %.1f s (%,.0f ops/s), erros: %d, pico do heap: %,d MB%n",
+                    row.all.getCount(), row.elapsedSeconds, row.throughput, errors, row.peakHeap >> 20);
+        }
+        return row;
+    }
+
+    // Gera o cofre e retorna o tempo gasto, em milissegundos.
+    private static long generate(Path dir, SecretKey key, int size) throws Exception {
+        long start = System.nanoTime();
+        CredentialManager repository = new CredentialManager(dir.resolve("credentials.dat").toString());
+        repository.unlock(key);
+        SyntheticVaultGenerator.generateInto(repository, key, size, size);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    // Executa os clientes até o fim do prazo e retorna a quantidade de erros.
+    private static long run(VaultService service, VaultSession session, List<String> ids, int clients, int seconds,
+                            int readPercent, LatencyHistogram[] histograms) throws InterruptedException {
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            int client = c;
+            threads.add(Thread.ofVirtual().start(() -> {
+                List<String> own = new ArrayList<>();
+                long sequence = 0;
+                while (System.nanoTime() < deadline) {
+                    int kind = pick(random, readPercent, !own.isEmpty());
+                    String id = ids.get(random.nextInt(ids.size()));
+                    long start = System.nanoTime();
+                    try {
+                        switch (kind) {
+                            case 0:
+                                VaultService.await(service.revealPassword(session, id));
+                                break;
+                            case 1:
+                                VaultService.await(service.search(session, TERMS[random.nextInt(TERMS.length)], 10));
+                                break;
+                            case 2:
+                                VaultService.await(service.findByService(session,
+                                        SERVICES[random.nextInt(SERVICES.length)]));
+                                break;
+                            case 3:
+                                VaultService.await(service.find(session, id));
+                                break;
+                            case 4:
+                                own.add(VaultService.await(service.addCredential(session, "carga" + client + ".exemplo.com",
+                                        "cliente" + client + "-" + sequence++, "Carga!" + random.nextLong())).getId());
+                                break;
+                            case 5:
+                                VaultService.await(service.updatePassword(session, own.get(random.nextInt(own.size())),
+                                        "Troca!" + random.nextLong()));
+                                break;
+                            default:
+                                VaultService.await(service.remove(session, own.remove(own.size() - 1)));
+                                break;
+                        }
+                        if (histograms != null) {
+                            long elapsed = System.nanoTime() - start;
+                            histograms[kind].record(elapsed);
+                            histograms[ALL].record(elapsed);
+                            if (kind >= READ_KINDS) histograms[WRITES].record(elapsed);
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        return errors.get();
+    }
+
+    // Sorteia a operação: leituras em partes iguais e, nas gravações, metade inclusões e o resto trocas e remoções.
+    private static int pick(Random random, int readPercent, boolean hasOwn) {
+        if (random.nextInt(100) < readPercent) {
+            return random.nextInt(READ_KINDS);
+        }
+        int draw = random.nextInt(4);
+        if (!hasOwn || draw < 2) return 4;
+        return draw == 2 ? 5 : 6;
+    }
+
+    private static void print(String label, LatencyHistogram.Snapshot snapshot) {
+        System.out.printf("%-20s %,10d %10.3f %10.3f %10.3f %10.3f%n", label, snapshot.getCount(),
+                snapshot.quantileNanos(0.50) / 1e6, snapshot.quantileNanos(0.90) / 1e6,
+                snapshot.quantileNanos(0.99) / 1e6, snapshot.getMaxNanos() / 1e6);
+    }
+
+    // Gráfico de barras horizontal, proporcional ao maior valor.
+    private static void chart(String title, List<Row> rows, Metric metric) {
+        System.out.println();
+        System.out.println(title);
+        double max = rows.stream().mapToDouble(metric::of).max().orElse(0);
+        for (Row row : rows) {
+            double value = metric.of(row);
+            int width = max <= 0 ? 0 : (int) Math.round(40 * value / max);
+            System.out.printf("%,12d | %-40s %,.2f%n", row.size, "█".repeat(width), value);
+        }
+    }
+
+    private static void csvLine(PrintWriter out, Row row, String kind, LatencyHistogram.Snapshot snapshot) {
+        out.printf(Locale.ROOT, "%d,%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d%n", row.size, kind,
+                snapshot.getCount(), snapshot.getCount() / row.elapsedSeconds, snapshot.quantileNanos(0.50) / 1e6,
+                snapshot.quantileNanos(0.90) / 1e6, snapshot.quantileNanos(0.99) / 1e6, snapshot.getMaxNanos() / 1e6,
+                row.generationMillis, row.loadMillis, row.retainedHeap >> 20, row.peakHeap >> 20);
+    }
+}
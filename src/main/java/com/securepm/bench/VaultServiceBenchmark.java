@@ -0,0 +1,187 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.CredentialSummary;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.securepm.util.AESCryptoUtil;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Mede o {@link VaultService} com muitas sessões simultâneas na mesma JVM: cada sessão faz
+ * uma sequência de consultas (busca por ID e leitura de senha, com uma busca rápida a cada
+ * dez) e, em seguida, algumas sessões incluem credenciais ao mesmo tempo e fazem buscas cegas.
+ * Também mede o heap retido pela cópia em memória do serviço, por credencial, e confere as
+ * buscas depois de remoções que compactam as linhas da tabela (e renumeram o índice de busca).
+ *
+ * Uso: java -cp target/classes com.securepm.bench.VaultServiceBenchmark [credenciais] [consultas por sessão]
+ */
+public class VaultServiceBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int opsPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        Path dir = Files.createTempDirectory("securepm-service");
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== BENCHMARK DO SERVIÇO DO COFRE (SESSÕES SIMULTÂNEAS) ==");
+        System.out.println("Credenciais: " + count + " | consultas por sessão: " + opsPerSession);
+
+        CredentialManager repository = new CredentialManager(dir.resolve("credentials.dat").toString());
+        repository.unlock(key);
+        repository.saveAll(generate(count, key));
+
+        try (VaultService service = new VaultService(new UserManager(dir.resolve("users.dat").toString()), repository,
+                new PasswordPolicyManager(dir.resolve("policies.dat").toString()))) {
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            VaultSession first = VaultService.await(service.openSession(key));
+            System.out.printf("Carga do cofre: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("Heap retido pela cópia em memória: %.1f MB (%.0f bytes/credencial)%n",
+                    (usedHeap() - heapBefore) / 1048576.0, (usedHeap() - heapBefore) / (double) count);
+            List<String> ids = new ArrayList<>();
+            for (CredentialSummary cred : VaultService.await(service.list(first))) ids.add(cred.getId());
+
+            // 1. Consultas: cada sessão em sua própria thread virtual, todas ao mesmo tempo
+            //    (a primeira rodada apenas aquece a JVM).
+            for (int sessions : new int[]{100, 1, 100, 1_000, 10_000}) {
+                List<VaultSession> open = new ArrayList<>(sessions);
+                for (int s = 0; s < sessions; s++) open.add(VaultService.await(service.openSession(key)));
+                start = System.nanoTime();
+                List<CompletableFuture<Void>> runs = new ArrayList<>(sessions);
+                for (int s = 0; s < sessions; s++) {
+                    VaultSession session = open.get(s);
+                    Random random = new Random(s);
+                    runs.add(CompletableFuture.runAsync(() -> query(service, session, ids, random, opsPerSession),
+                            command -> Thread.ofVirtual().start(command)));
+                }
+                CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+                long elapsed = System.nanoTime() - start;
+                long ops = (long) sessions * opsPerSession;
+                System.out.printf("%,6d sessão(ões): %,9d consultas em %6d ms (%,.0f consultas/s)%n",
+                        sessions, ops, elapsed / 1_000_000, ops / (elapsed / 1e9));
+                open.forEach(VaultSession::close);
+            }
+
+            // 2. Inclusões simultâneas: serializadas pela trava de escrita, sem perder nenhuma.
+            int writers = 20;
+            start = System.nanoTime();
+            List<CompletableFuture<CredentialSummary>> adds = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                adds.add(service.addCredential(VaultService.await(service.openSession(key)), "Novo" + w, "user" + w, "senha-" + w));
+            }
+            CompletableFuture.allOf(adds.toArray(new CompletableFuture<?>[0])).join();
+            System.out.printf("%d inclusões simultâneas em %d ms; credenciais no cofre: %d (esperado %d)%n", writers,
+                    (System.nanoTime() - start) / 1_000_000, VaultService.await(service.count(first)), count + writers);
+
+            // 3. Busca cega: a primeira cria o índice; as seguintes correm em paralelo sob a trava de leitura.
+            start = System.nanoTime();
+            List<CredentialSummary> exact = VaultService.await(service.blindSearch(first, "servico1", false, true, false));
+            System.out.printf("Criação do índice cego + 1ª busca: %d ms (%d resultado(s), esperado 1)%n",
+                    (System.nanoTime() - start) / 1_000_000, exact.size());
+            int searches = 1_000;
+            start = System.nanoTime();
+            List<CompletableFuture<List<CredentialSummary>>> blind = new ArrayList<>(searches);
+            for (int s = 0; s < searches; s++) {
+                blind.add(service.blindSearch(first, "usuario" + (s % count) + "@exemplo.com", false, false, true));
+            }
+            CompletableFuture.allOf(blind.toArray(new CompletableFuture<?>[0])).join();
+            long found = blind.stream().filter(f -> f.join().size() == 1).count();
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%,d buscas cegas simultâneas em %d ms (%,.0f buscas/s); com resultado único: %d%n",
+                    searches, elapsed / 1_000_000, searches / (elapsed / 1e9), found);
+
+            // 4. Remove quatro de cada cinco credenciais (o que compacta as linhas da tabela) e
+            //    confere que as buscas continuam apontando para as credenciais certas.
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (i % 5 != 0) check(VaultService.await(service.remove(first, ids.get(i))), "Remoção falhou: " + i);
+            }
+            int removed = count - (count + 4) / 5;
+            System.out.printf("%,d remoções em %d ms%n", removed, (System.nanoTime() - start) / 1_000_000);
+            check(repository.getDeletions().size() == removed, "Os registros de exclusão deveriam ter " + removed + " entradas.");
+            for (int i = 0; i < Math.min(count, 500); i++) {
+                boolean kept = i % 5 == 0;
+                List<CredentialSummary> byService = VaultService.await(service.findByService(first, "servico" + i));
+                check(byService.size() == (kept ? 1 : 0) && (!kept || byService.get(0).getId().equals(ids.get(i))),
+                        "Busca por serviço incorreta após as remoções: " + i);
+                List<VaultService.SearchResult> hits = VaultService.await(service.search(first, "servico" + i, 1));
+                check(!kept || hits.get(0).getCredential().getId().equals(ids.get(i)),
+                        "Busca rápida incorreta após as remoções: " + i);
+                List<CredentialSummary> blindHits = VaultService.await(
+                        service.blindSearch(first, "usuario" + i + "@exemplo.com", false, false, true));
+                check(blindHits.size() == (kept ? 1 : 0) && (!kept || blindHits.get(0).getUsername().equals("usuario" + i + "@exemplo.com")),
+                        "Busca cega incorreta após as remoções: " + i);
+            }
+            System.out.println("Buscas conferidas após as remoções.");
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Sequência de consultas de uma sessão: busca por ID e leitura da senha, com uma busca rápida a cada dez.
+    private static void query(VaultService service, VaultSession session, List<String> ids, Random random, int ops) {
+        try {
+            for (int i = 0; i < ops; i++) {
+                String id = ids.get(random.nextInt(ids.size()));
+                if (i % 10 == 0) {
+                    VaultService.await(service.search(session, "servico" + random.nextInt(ids.size()), 10));
+                } else if (i % 2 == 0) {
+                    VaultService.await(service.find(session, id));
+                } else {
+                    VaultService.await(service.revealPassword(session, id));
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Credenciais com serviço, usuário e senha cifrados com a chave do cofre.
+    private static List<AccessCredential> generate(int count, SecretKey key) throws Exception {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] password = AESCryptoUtil.encrypt("senha-" + random.nextLong(), key);
+            list.add(new AccessCredential(UUID.randomUUID().toString(), AESCryptoUtil.encrypt("Servico" + i, key),
+                    AESCryptoUtil.encrypt("usuario" + i + "@exemplo.com", key), password, Arrays.copyOf(password, 16),
+                    randomBytes(random, 32)));
+        }
+        return list;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,159 @@
+package com.securepm.bench;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.SyncReport;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.VaultSyncManager;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Mede a sincronização entre duas réplicas de um cofre grande: a primeira cópia para uma
+ * réplica vazia e rodadas com poucas alterações (senhas trocadas e credenciais excluídas)
+ * em cada lado, comparando o tráfego com o tamanho do cofre e conferindo a convergência.
+ * Por fim, confere cópias iniciais cujas mensagens passam de 64 MiB, nos dois sentidos.
+ *
+ * Uso: java -cp target/classes com.securepm.bench.VaultSyncBenchmark [quantidade]
+ */
+public class VaultSyncBenchmark {
+
+    // Cofre da cópia grande: a resposta da busca e a mensagem de aplicação passam de 64 MiB.
+    private static final int LARGE_COUNT = 30_000;
+    private static final int LARGE_PASSWORD_BYTES = 2_400;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("securepm-sync");
+        SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+        System.out.println("== BENCHMARK DE SINCRONIZAÇÃO ENTRE RÉPLICAS ==");
+        System.out.println("Entradas: " + count);
+
+        CredentialManager left = replica(dir.resolve("a"), key);
+        CredentialManager right = replica(dir.resolve("b"), key);
+        left.saveAll(generate(count));
+        long vaultBytes = size(dir.resolve("a"));
+        VaultSyncManager sync = new VaultSyncManager(left, key);
+
+        // 1. Primeira cópia: a outra réplica está vazia.
+        report("Cópia inicial   ", sync.syncWith(right, VaultSyncManager.ConflictPolicy.REPORT), vaultBytes, left, right);
+
+        // 2. Réplicas idênticas: só a raiz é comparada.
+        report("Sem alterações  ", sync.syncWith(right, VaultSyncManager.ConflictPolicy.REPORT), vaultBytes, left, right);
+
+        // 3. Alterações nos dois lados, incluindo exclusões e uma credencial alterada em ambos.
+        Random random = new Random(7);
+        for (int changes : new int[]{1, 10, 100}) {
+            List<AccessCredential> current = left.getAll();
+            for (int i = 0; i < changes; i++) {
+                String id = current.get(random.nextInt(current.size())).getId();
+                CredentialManager side = i % 2 == 0 ? left : right;
+                if (i % 5 == 4) {
+                    side.removeById(id);
+                } else {
+                    side.updatePassword(id, randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+                }
+            }
+            String both = current.get(random.nextInt(current.size())).getId();
+            left.updatePassword(both, randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+            right.updatePassword(both, randomBytes(random, 48), new byte[16], randomBytes(random, 32));
+            report(String.format("%3d alteração(ões)", changes),
+                    sync.syncWith(right, VaultSyncManager.ConflictPolicy.LAST_WRITER_WINS), vaultBytes, left, right);
+        }
+
+        // 4. Cópias iniciais maiores que 64 MiB em uma única mensagem: recebidas (busca) e enviadas (aplicação).
+        CredentialManager large = replica(dir.resolve("c"), key);
+        large.saveAll(generate(LARGE_COUNT, LARGE_PASSWORD_BYTES));
+        long largeBytes = size(dir.resolve("c"));
+        CredentialManager fetched = replica(dir.resolve("d"), key);
+        SyncReport fetch = new VaultSyncManager(fetched, key).syncWith(large, VaultSyncManager.ConflictPolicy.REPORT);
+        report("Cópia grande (busca)    ", fetch, largeBytes, fetched, large);
+        CredentialManager pushed = replica(dir.resolve("e"), key);
+        SyncReport push = new VaultSyncManager(large, key).syncWith(pushed, VaultSyncManager.ConflictPolicy.REPORT);
+        report("Cópia grande (aplicação)", push, largeBytes, large, pushed);
+        check(fetch.getBytesReceived() > 64L << 20 && push.getBytesSent() > 64L << 20,
+                "As cópias grandes deveriam transferir mais de 64 MiB em uma mensagem.");
+        check(sameContent(fetched, large) && sameContent(pushed, large), "As cópias grandes não convergiram.");
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static CredentialManager replica(Path dir, SecretKey key) throws Exception {
+        Files.createDirectories(dir);
+        CredentialManager manager = new CredentialManager(dir.resolve("credentials.dat").toString());
+        manager.unlock(key);
+        return manager;
+    }
+
+    private static void report(String label, SyncReport report, long vaultBytes,
+                               CredentialManager left, CredentialManager right) throws Exception {
+        long traffic = report.getBytesSent() + report.getBytesReceived();
+        System.out.printf("%s: %d ms, %.1f KB trafegados (%.2f%% do cofre), %d nó(s), %d balde(s), %d conflito(s), convergiu: %s%n",
+                label, report.getElapsedNanos() / 1_000_000, traffic / 1024.0, 100.0 * traffic / vaultBytes,
+                report.getNodesCompared(), report.getBucketsCompared(), report.getConflicts().size(),
+                sameContent(left, right));
+    }
+
+    // Compara as duas réplicas pelo ID, versão e senha de cada credencial.
+    private static boolean sameContent(CredentialManager left, CredentialManager right) throws Exception {
+        List<AccessCredential> a = new ArrayList<>(left.getAll());
+        List<AccessCredential> b = new ArrayList<>(right.getAll());
+        if (a.size() != b.size()) return false;
+        a.sort(Comparator.comparing(AccessCredential::getId));
+        b.sort(Comparator.comparing(AccessCredential::getId));
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getId().equals(b.get(i).getId())
+                    || a.get(i).getVersion() != b.get(i).getVersion()
+                    || !Arrays.equals(a.get(i).getEncryptedPassword(), b.get(i).getEncryptedPassword())) {
+                return false;
+            }
+        }
+        return left.getDeletions().keySet().equals(right.getDeletions().keySet());
+    }
+
+    private static long size(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    // Credenciais no formato atual: serviço, usuário e senha cifrados (tamanhos do AES-CBC com IV).
+    private static List<AccessCredential> generate(int count) {
+        return generate(count, 48);
+    }
+
+    private static List<AccessCredential> generate(int count, int passwordBytes) {
+        Random random = new Random(42);
+        List<AccessCredential> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] password = randomBytes(random, passwordBytes);
+            list.add(new AccessCredential(UUID.randomUUID().toString(), randomBytes(random, 32), randomBytes(random, 48),
+                    password, Arrays.copyOf(password, 16), randomBytes(random, 32)));
+        }
+        return list;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,30 @@
+package com.securepm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Chamada à API Pwned Passwords, do envio até a resposta. O prefixo do hash consultado
+ * não é registrado.
+ */
+@Name("com.securepm.BreachCheck")
+@Label("Consulta ao HIBP")
+@Category({"SecurePM", "Rede"})
+@Description("Chamada à API Pwned Passwords (k-anonymity).")
+@StackTrace(false)
+public class BreachCheckEvent extends jdk.jfr.Event {
+
+    @Label("Código de Resposta")
+    public int statusCode;
+
+    @Label("Tamanho da Resposta")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Erro")
+    public String error;
+}
@@ -0,0 +1,30 @@
+package com.securepm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Cifragem ou decifragem AES de muitos campos de uma vez (carga do cofre, importação e
+ * exportação). As chamadas individuais não geram eventos, para não inundar a gravação.
+ * Na exportação, o evento inclui também a entrega de cada senha ao destino.
+ */
+@Name("com.securepm.CryptoBatch")
+@Label("Lote de Criptografia")
+@Category({"SecurePM", "Criptografia"})
+@Description("Cifragem ou decifragem AES de um lote de campos.")
+@StackTrace(false)
+public class CryptoBatchEvent extends jdk.jfr.Event {
+
+    public static final String DECRYPT_NAMES = "decifrar nomes";
+    public static final String ENCRYPT_IMPORT = "cifrar importação";
+    public static final String DECRYPT_EXPORT = "decifrar exportação";
+
+    @Label("Operação")
+    public String operation;
+
+    @Label("Credenciais")
+    public int credentials;
+}
@@ -0,0 +1,31 @@
+package com.securepm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma etapa do login: verificação BCrypt da senha mestra, código TOTP, derivação PBKDF2 da
+ * chave ou abertura do cofre (leitura e decifragem dos nomes). Numa gravação do JFR, as
+ * etapas de um login aparecem em sequência na mesma thread.
+ */
+@Name("com.securepm.LoginPhase")
+@Label("Etapa do Login")
+@Category({"SecurePM", "Autenticação"})
+@Description("Etapa do login do usuário mestre.")
+@StackTrace(false)
+public class LoginPhaseEvent extends jdk.jfr.Event {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String TOTP = "totp";
+    public static final String PBKDF2 = "pbkdf2";
+    public static final String OPEN_VAULT = "abertura do cofre";
+
+    @Label("Etapa")
+    public String phase;
+
+    @Label("Sucesso")
+    public boolean success;
+}
@@ -0,0 +1,39 @@
+package com.securepm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Leitura de um bloco do cofre, separando o tempo de disco do tempo de decodificação
+ * (decifragem, descompressão e desserialização dos registros).
+ */
+@Name("com.securepm.VaultBlock")
+@Label("Bloco do Cofre")
+@Category({"SecurePM", "Cofre"})
+@Description("Leitura e decodificação de um bloco do arquivo do cofre.")
+@StackTrace(false)
+public class VaultBlockEvent extends jdk.jfr.Event {
+
+    @Label("Bloco")
+    public int block;
+
+    @Label("Bytes Lidos")
+    @DataAmount
+    public long bytes;
+
+    @Label("Registros")
+    public int records;
+
+    @Label("Tempo de Disco")
+    @Timespan(Timespan.NANOSECONDS)
+    public long diskTime;
+
+    @Label("Tempo de Decodificação")
+    @Timespan(Timespan.NANOSECONDS)
+    public long decodeTime;
+}
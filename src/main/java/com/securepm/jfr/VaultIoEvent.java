@@ -0,0 +1,37 @@
+package com.securepm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Leitura ou gravação do arquivo do cofre pelo CredentialManager, com a quantidade de
+ * registros e o tamanho do arquivo. A decifragem e a desserialização de cada bloco
+ * aparecem dentro dela como {@link VaultBlockEvent}.
+ */
+@Name("com.securepm.VaultIo")
+@Label("E/S do Cofre")
+@Category({"SecurePM", "Cofre"})
+@Description("Leitura completa, busca por ID, gravação do arquivo do cofre ou acréscimo ao seu diário de alterações.")
+public class VaultIoEvent extends jdk.jfr.Event {
+
+    public static final String READ = "leitura";
+    public static final String FIND = "busca";
+    public static final String WRITE = "gravação";
+    public static final String APPEND = "acréscimo";
+
+    @Label("Operação")
+    public String operation;
+
+    @Label("Arquivo")
+    public String path;
+
+    @Label("Registros")
+    public int records;
+
+    @Label("Tamanho do Arquivo")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,44 @@
+package com.securepm.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador monotônico sem bloqueios: cada thread incrementa sua própria célula do
+ * {@link LongAdder}, então chamadas concorrentes não disputam a mesma variável.
+ */
+public class Counter implements CounterMXBean {
+
+    private final String name;
+    private final String help;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Formato texto do Prometheus: o contador com o sufixo "_total".
+    void writePrometheus(StringBuilder out) {
+        String metric = Metrics.PREFIX + name + "_total";
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" counter\n");
+        out.append(metric).append(' ').append(getCount()).append('\n');
+    }
+}
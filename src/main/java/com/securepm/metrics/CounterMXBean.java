@@ -0,0 +1,9 @@
+package com.securepm.metrics;
+
+/**
+ * Visão JMX de um {@link Counter}.
+ */
+public interface CounterMXBean {
+
+    long getCount();
+}
@@ -0,0 +1,215 @@
+package com.securepm.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em nanossegundos, no estilo do HdrHistogram: os valores caem em
+ * faixas log-lineares (64 faixas por potência de dois, erro relativo de no máximo 1/64) que
+ * cobrem de 1 ns a centenas de anos em 3.712 contadores fixos. Registrar uma medição é um
+ * incremento atômico, sem bloqueios nem alocação; os quantis são calculados na leitura.
+ *
+ * Uso típico:
+ * <pre>
+ *     long start = System.nanoTime();
+ *     ...
+ *     LATENCY.recordSince(start);
+ * </pre>
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    // Bits da mantissa: 2^6 = 64 faixas por potência de dois.
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Valores abaixo de 2 * SUB_BUCKETS têm uma faixa por nanossegundo.
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final String help;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Histograma avulso, fora do registro (por exemplo, para um teste de carga que mede cada
+     * rodada separadamente). Não aparece no JMX nem no texto do Prometheus.
+     */
+    public LatencyHistogram() {
+        this(null, null);
+    }
+
+    LatencyHistogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Registra a duração decorrida desde o instante informado (obtido com System.nanoTime()).
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Registra uma duração em nanossegundos.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(indexOf(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Outra thread registrou um máximo no meio; tenta de novo com o valor atual.
+        }
+    }
+
+    // Faixa do valor: linear até LINEAR_LIMIT e, acima, SUB_BUCKETS faixas por potência de dois.
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + subBucket - SUB_BUCKETS;
+    }
+
+    // Maior valor que cai na faixa informada.
+    static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Fotografia do histograma para cálculo de quantis.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Contagens de um instante; as medições registradas depois não a alteram.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sumNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) sumNanos / count;
+        }
+
+        /**
+         * Valor do quantil (0 a 1) em nanossegundos: o limite superior da faixa que o contém,
+         * limitado ao máximo observado.
+         */
+        public long quantileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return snapshot().getCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return snapshot().getMeanNanos() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return snapshot().quantileNanos(0.50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return snapshot().quantileNanos(0.90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return snapshot().quantileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return snapshot().quantileNanos(0.999) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return max.get() / 1e6;
+    }
+
+    // Formato texto do Prometheus: um "summary" em segundos, com quantis desde o início do processo.
+    void writePrometheus(StringBuilder out) {
+        Snapshot snapshot = snapshot();
+        String metric = Metrics.PREFIX + name + "_seconds";
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" summary\n");
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            out.append(metric).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(snapshot.quantileNanos(quantile))).append('\n');
+        }
+        out.append(metric).append("_sum ").append(seconds(snapshot.getSumNanos())).append('\n');
+        out.append(metric).append("_count ").append(snapshot.getCount()).append('\n');
+        String maxMetric = Metrics.PREFIX + name + "_max_seconds";
+        out.append("# TYPE ").append(maxMetric).append(" gauge\n");
+        out.append(maxMetric).append(' ').append(seconds(snapshot.getMaxNanos())).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
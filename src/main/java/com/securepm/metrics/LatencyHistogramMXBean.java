@@ -0,0 +1,21 @@
+package com.securepm.metrics;
+
+/**
+ * Visão JMX de um {@link LatencyHistogram}: quantidade de medições e latências em milissegundos.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
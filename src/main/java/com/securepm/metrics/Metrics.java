@@ -0,0 +1,142 @@
+package com.securepm.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registro central das métricas do processo: contadores e histogramas de latência dos
+ * caminhos críticos (leitura e gravação do cofre, BCrypt, PBKDF2, AES, HIBP e TOTP).
+ *
+ * Cada classe instrumentada guarda suas métricas em constantes estáticas, então o custo
+ * por medição é apenas o System.nanoTime() e um incremento atômico. As métricas podem ser
+ * lidas de três formas:
+ *
+ * - JMX: depois de {@link #enableJmx()}, cada métrica vira um MXBean no domínio "com.securepm"
+ *   (visível no JConsole ou no VisualVM);
+ * - texto do Prometheus: {@link #toPrometheusText()}, servido em GET /metrics pela API HTTP e
+ *   pelo comando "securepm metrics" (consulta o agente em execução);
+ * - arquivo: com a variável de ambiente SECUREPM_METRICS_FILE, o texto é gravado ao fim do
+ *   processo (útil para medir execuções curtas, como "batch" e "import").
+ */
+public final class Metrics {
+
+    // Prefixo dos nomes no formato do Prometheus.
+    static final String PREFIX = "securepm_";
+
+    // Domínio dos MXBeans.
+    private static final String JMX_DOMAIN = "com.securepm";
+
+    // Variável de ambiente com o arquivo que recebe as métricas ao fim do processo.
+    public static final String FILE_ENV = "SECUREPM_METRICS_FILE";
+
+    // Métricas ordenadas pelo nome, para uma saída estável.
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    private static MBeanServer mbeanServer;
+
+    private Metrics() {
+    }
+
+    /**
+     * Obtém (ou cria) o contador com o nome informado (letras minúsculas e '_', sem o prefixo).
+     * As classes instrumentadas guardam o resultado numa constante; a busca não fica no caminho crítico.
+     */
+    public static synchronized Counter counter(String name, String help) {
+        Counter counter = COUNTERS.get(name);
+        if (counter == null) {
+            counter = register(new Counter(name, help), "Counter", name);
+            COUNTERS.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * Obtém (ou cria) o histograma de latência com o nome informado (letras minúsculas e '_', sem o prefixo).
+     */
+    public static synchronized LatencyHistogram histogram(String name, String help) {
+        LatencyHistogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            histogram = register(new LatencyHistogram(name, help), "Latency", name);
+            HISTOGRAMS.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Publica as métricas no servidor de MBeans da plataforma, inclusive as criadas depois.
+     * Chamado pelos modos de longa duração (menu, agente e servidor), para que os comandos
+     * curtos não paguem a inicialização do JMX.
+     */
+    public static synchronized void enableJmx() {
+        if (mbeanServer != null) {
+            return;
+        }
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        COUNTERS.values().forEach(counter -> register(counter, "Counter", counter.getName()));
+        HISTOGRAMS.values().forEach(histogram -> register(histogram, "Latency", histogram.getName()));
+    }
+
+    // Registra o MXBean, se o JMX estiver habilitado; falhas não afetam a medição.
+    private static <T> T register(T metric, String type, String name) {
+        MBeanServer server = mbeanServer;
+        if (server != null) {
+            try {
+                ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name);
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(metric, objectName);
+                }
+            } catch (JMException e) {
+                System.err.println("⚠️ Não foi possível publicar a métrica '" + name + "' no JMX: " + e.getMessage());
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * Todas as métricas no formato texto de exposição do Prometheus (versão 0.0.4).
+     */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        COUNTERS.values().forEach(counter -> counter.writePrometheus(out));
+        HISTOGRAMS.values().forEach(histogram -> histogram.writePrometheus(out));
+        return out.toString();
+    }
+
+    /**
+     * Grava as métricas no arquivo, substituindo-o de forma atômica.
+     */
+    public static void writePrometheusFile(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, toPrometheusText(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Se a variável SECUREPM_METRICS_FILE estiver definida, grava as métricas nesse arquivo
+     * ao fim do processo.
+     */
+    public static void writeOnExitIfConfigured() {
+        String file = System.getenv(FILE_ENV);
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writePrometheusFile(Paths.get(file));
+            } catch (IOException e) {
+                System.err.println("❌ Erro ao gravar as métricas em '" + file + "': " + e.getMessage());
+            }
+        }));
+    }
+}
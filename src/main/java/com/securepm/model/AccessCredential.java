@@ -16,11 +16,19 @@ public class AccessCredential implements Serializable {
     private String id;
 
     // O nome do serviço ou plataforma ao qual a credencial se refere (ex: "Google", "GitHub").
+    // Nulo quando o campo está armazenado de forma criptografada.
     private String serviceName;
 
     // O login ou nome de usuário utilizado para a autenticação no serviço.
+    // Nulo quando o campo está armazenado de forma criptografada.
     private String username;
 
+    // Nome do serviço criptografado (IV + texto cifrado), usado no lugar de 'serviceName'.
+    private byte[] encryptedServiceName;
+
+    // Nome de usuário criptografado (IV + texto cifrado), usado no lugar de 'username'.
+    private byte[] encryptedUsername;
+
     // A senha após a aplicação do algoritmo de criptografia, armazenada em bytes.
     private byte[] encryptedPassword;
 
@@ -30,6 +38,16 @@ public class AccessCredential implements Serializable {
     // Registro de data e hora da criação desta entrada de credencial.
     private Instant createdAt;
 
+    // Impressão digital (HMAC com chave derivada do cofre) da senha em texto claro.
+    // Permite detectar senhas reutilizadas sem descriptografar; nula em credenciais antigas.
+    private byte[] passwordFingerprint;
+
+    // Versão atual da senha (0 em credenciais antigas, tratada como versão 1).
+    private int version;
+
+    // Momento da última troca de senha; nulo enquanto a senha original estiver em uso.
+    private Instant updatedAt;
+
     /**
      * Constrói uma nova instância de AccessCredential.
      * A data de criação é definida automaticamente para o momento da instanciação.
@@ -55,21 +73,122 @@ public class AccessCredential implements Serializable {
         this.createdAt = Instant.now(); // Define o timestamp de criação.
     }
 
+    /**
+     * Constrói uma nova instância de AccessCredential com a impressão digital da senha.
+     *
+     * @param id Identificador único.
+     * @param serviceName Nome do serviço.
+     * @param username Nome de usuário.
+     * @param encryptedPassword Senha já criptografada.
+     * @param iv Vetor de inicialização usado na criptografia.
+     * @param passwordFingerprint HMAC da senha em texto claro, calculado com a chave do cofre.
+     */
+    public AccessCredential(
+            String id,
+            String serviceName,
+            String username,
+            byte[] encryptedPassword,
+            byte[] iv,
+            byte[] passwordFingerprint
+    ) {
+        this(id, serviceName, username, encryptedPassword, iv);
+        this.passwordFingerprint = passwordFingerprint;
+    }
+
+    /**
+     * Constrói uma credencial cujos nome de serviço e usuário também ficam criptografados.
+     * A busca por esses campos é feita pelo índice cego (blind index), sem descriptografia.
+     *
+     * @param id Identificador único.
+     * @param encryptedServiceName Nome do serviço criptografado (IV + texto cifrado).
+     * @param encryptedUsername Nome de usuário criptografado (IV + texto cifrado).
+     * @param encryptedPassword Senha já criptografada.
+     * @param iv Vetor de inicialização usado na criptografia da senha.
+     * @param passwordFingerprint HMAC da senha em texto claro, calculado com a chave do cofre.
+     */
+    public AccessCredential(
+            String id,
+            byte[] encryptedServiceName,
+            byte[] encryptedUsername,
+            byte[] encryptedPassword,
+            byte[] iv,
+            byte[] passwordFingerprint
+    ) {
+        this(id, (String) null, (String) null, encryptedPassword, iv, passwordFingerprint);
+        this.encryptedServiceName = encryptedServiceName;
+        this.encryptedUsername = encryptedUsername;
+    }
+
+    /**
+     * Reconstrói uma credencial já existente a partir de todos os seus campos, preservando
+     * a data de criação original. Usado pelas representações compactas em memória.
+     *
+     * @param id Identificador único.
+     * @param serviceName Nome do serviço em texto claro (nulo se criptografado).
+     * @param username Nome de usuário em texto claro (nulo se criptografado).
+     * @param encryptedServiceName Nome do serviço criptografado (nulo em credenciais antigas).
+     * @param encryptedUsername Nome de usuário criptografado (nulo em credenciais antigas).
+     * @param encryptedPassword Senha já criptografada.
+     * @param iv Vetor de inicialização usado na criptografia da senha.
+     * @param passwordFingerprint HMAC da senha em texto claro (pode ser nulo).
+     * @param createdAt Momento original de criação.
+     */
+    public AccessCredential(
+            String id,
+            String serviceName,
+            String username,
+            byte[] encryptedServiceName,
+            byte[] encryptedUsername,
+            byte[] encryptedPassword,
+            byte[] iv,
+            byte[] passwordFingerprint,
+            Instant createdAt
+    ) {
+        this(id, serviceName, username, encryptedPassword, iv, passwordFingerprint);
+        this.encryptedServiceName = encryptedServiceName;
+        this.encryptedUsername = encryptedUsername;
+        this.createdAt = createdAt;
+    }
+
     // Obtém o ID da credencial.
     public String getId() {
         return id;
     }
 
-    // Obtém o nome do serviço associado.
+    // Obtém o nome do serviço associado (nulo se o campo estiver criptografado).
     public String getServiceName() {
         return serviceName;
     }
 
-    // Obtém o nome de usuário.
+    // Obtém o nome de usuário (nulo se o campo estiver criptografado).
     public String getUsername() {
         return username;
     }
 
+    // Obtém o nome do serviço criptografado (nulo em credenciais antigas, em texto claro).
+    public byte[] getEncryptedServiceName() {
+        return encryptedServiceName;
+    }
+
+    // Obtém o nome de usuário criptografado (nulo em credenciais antigas, em texto claro).
+    public byte[] getEncryptedUsername() {
+        return encryptedUsername;
+    }
+
+    /**
+     * Substitui o nome do serviço e o usuário em texto claro pelas versões criptografadas.
+     * Usado na migração de credenciais gravadas por versões anteriores.
+     *
+     * @param encryptedServiceName Nome do serviço criptografado.
+     * @param encryptedUsername Nome de usuário criptografado.
+     */
+    public void setEncryptedFields(byte[] encryptedServiceName, byte[] encryptedUsername) {
+        this.encryptedServiceName = encryptedServiceName;
+        this.encryptedUsername = encryptedUsername;
+        this.serviceName = null;
+        this.username = null;
+    }
+
     // Obtém o array de bytes da senha criptografada.
     public byte[] getEncryptedPassword() {
         return encryptedPassword;
@@ -85,9 +204,50 @@ public class AccessCredential implements Serializable {
         return createdAt;
     }
 
+    // Obtém a impressão digital da senha (pode ser nula em credenciais criadas antes do recurso).
+    public byte[] getPasswordFingerprint() {
+        return passwordFingerprint;
+    }
+
+    // Obtém o número da versão atual da senha (1 para a senha original).
+    public int getVersion() {
+        return Math.max(1, version);
+    }
+
+    // Obtém o momento em que a senha atual passou a valer (a criação, se nunca foi trocada).
+    public Instant getUpdatedAt() {
+        return updatedAt != null ? updatedAt : createdAt;
+    }
+
+    /**
+     * Substitui a senha por uma nova versão, preservando o ID e a data de criação.
+     * A versão anterior deve ser gravada no histórico antes desta chamada.
+     *
+     * @param encryptedPassword Nova senha criptografada.
+     * @param iv Vetor de inicialização da nova senha.
+     * @param passwordFingerprint HMAC da nova senha.
+     */
+    public void replacePassword(byte[] encryptedPassword, byte[] iv, byte[] passwordFingerprint) {
+        this.encryptedPassword = encryptedPassword;
+        this.iv = iv;
+        this.passwordFingerprint = passwordFingerprint;
+        this.version = getVersion() + 1;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Restaura a versão e a data da última troca de senha (usado ao reconstruir a
+     * credencial a partir de representações compactas).
+     */
+    public void restoreVersion(int version, Instant updatedAt) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * Gera uma representação textual do objeto AccessCredential.
-     * Por razões de segurança, os dados sensíveis (senha e IV) são omitidos.
+     * Por razões de segurança, os dados sensíveis (senha e IV) são omitidos, assim como
+     * os campos que estiverem criptografados.
      *
      * @return Uma String formatada com os detalhes não-sensíveis da credencial.
      */
@@ -95,9 +255,10 @@ public class AccessCredential implements Serializable {
     public String toString() {
         return "AccessCredential{" +
                 "id='" + id + '\'' +
-                ", serviceName='" + serviceName + '\'' +
-                ", username='" + username + '\'' +
+                ", serviceName='" + (encryptedServiceName != null ? "<cifrado>" : serviceName) + '\'' +
+                ", username='" + (encryptedUsername != null ? "<cifrado>" : username) + '\'' +
                 ", createdAt=" + createdAt +
+                ", version=" + getVersion() +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.securepm.model;
+
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Manifesto de um backup: para cada arquivo salvo, a sequência de pedaços (identificados pelo
+ * SHA-256 do conteúdo) que o reconstrói. Os pedaços ficam no repositório de backups e são
+ * compartilhados entre todos os snapshots que os contêm.
+ */
+public class BackupSnapshot implements Serializable {
+    // Controle de versão para a serialização da classe.
+    private static final long serialVersionUID = 1L;
+
+    // Campos gravados no manifesto, declarados explicitamente porque 'files' é uma List (a
+    // implementação gravada é sempre uma ArrayList). Mantém o formato dos manifestos existentes.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("createdAt", Instant.class),
+            new ObjectStreamField("files", List.class),
+            new ObjectStreamField("newChunks", int.class),
+            new ObjectStreamField("newBytes", long.class)
+    };
+
+    // Identificador do snapshot (também usado no nome do arquivo do manifesto).
+    private final String id;
+
+    // Momento em que o backup foi feito.
+    private final Instant createdAt;
+
+    // Os arquivos salvos neste snapshot.
+    private final List<FileEntry> files;
+
+    // Pedaços gravados por este backup (os demais já existiam no repositório) e seus bytes.
+    private final int newChunks;
+    private final long newBytes;
+
+    /**
+     * Constrói o manifesto de um snapshot.
+     *
+     * @param id Identificador do snapshot.
+     * @param createdAt Momento do backup.
+     * @param files Os arquivos salvos.
+     * @param newChunks Quantidade de pedaços novos gravados.
+     * @param newBytes Bytes dos pedaços novos.
+     */
+    public BackupSnapshot(String id, Instant createdAt, List<FileEntry> files, int newChunks, long newBytes) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.files = files;
+        this.newChunks = newChunks;
+        this.newBytes = newBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<FileEntry> getFiles() {
+        return files;
+    }
+
+    public int getNewChunks() {
+        return newChunks;
+    }
+
+    public long getNewBytes() {
+        return newBytes;
+    }
+
+    // Soma do tamanho dos arquivos salvos.
+    public long getTotalBytes() {
+        long total = 0;
+        for (FileEntry file : files) total += file.getSize();
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "BackupSnapshot{" +
+                "id='" + id + '\'' +
+                ", createdAt=" + createdAt +
+                ", files=" + files.size() +
+                ", totalBytes=" + getTotalBytes() +
+                ", newBytes=" + newBytes +
+                '}';
+    }
+
+    /**
+     * Um arquivo dentro do snapshot.
+     */
+    public static class FileEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // Campos gravados no manifesto (ver BackupSnapshot.serialPersistentFields).
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("name", String.class),
+                new ObjectStreamField("size", long.class),
+                new ObjectStreamField("lastModified", long.class),
+                new ObjectStreamField("chunkHashes", List.class)
+        };
+
+        // Nome do arquivo, relativo ao diretório de dados.
+        private final String name;
+
+        // Tamanho e data de modificação no momento do backup (permitem pular arquivos inalterados).
+        private final long size;
+        private final long lastModified;
+
+        // SHA-256 de cada pedaço, na ordem do arquivo.
+        private final List<byte[]> chunkHashes;
+
+        public FileEntry(String name, long size, long lastModified, List<byte[]> chunkHashes) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.chunkHashes = chunkHashes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public List<byte[]> getChunkHashes() {
+            return chunkHashes;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.securepm.model;
+
+import java.time.Instant;
+
+/**
+ * Visão de uma credencial para as camadas de apresentação: serviço e usuário já
+ * descriptografados e os metadados da senha. A senha continua cifrada; para obtê-la em
+ * texto claro é preciso pedi-la explicitamente ao serviço do cofre.
+ */
+public class CredentialSummary {
+
+    private final String id;
+    private final String serviceName;
+    private final String username;
+
+    // Senha criptografada (IV + texto cifrado).
+    private final byte[] encryptedPassword;
+
+    private final Instant createdAt;
+
+    // Versão atual da senha e quando ela passou a valer.
+    private final int version;
+    private final Instant updatedAt;
+
+    public CredentialSummary(String id, String serviceName, String username, byte[] encryptedPassword,
+                             Instant createdAt, int version, Instant updatedAt) {
+        this.id = id;
+        this.serviceName = serviceName;
+        this.username = username;
+        this.encryptedPassword = encryptedPassword;
+        this.createdAt = createdAt;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public byte[] getEncryptedPassword() {
+        return encryptedPassword;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "CredentialSummary{" +
+                "id='" + id + '\'' +
+                ", serviceName='" + serviceName + '\'' +
+                ", username='" + username + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package com.securepm.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Registro de exclusão (tombstone) de uma credencial. Guardar a exclusão, e não apenas a
+ * ausência da credencial, permite que a sincronização entre réplicas diferencie uma
+ * credencial apagada em uma réplica de uma credencial criada na outra.
+ */
+public class DeletedCredential implements Serializable {
+    // Controle de versão para a serialização da classe.
+    private static final long serialVersionUID = 1L;
+
+    // ID da credencial excluída.
+    private final String id;
+
+    // Versão da senha que estava em uso quando a credencial foi excluída.
+    private final int version;
+
+    // Momento da exclusão.
+    private final Instant deletedAt;
+
+    /**
+     * Constrói o registro de exclusão.
+     *
+     * @param id O ID da credencial excluída.
+     * @param version A versão da senha no momento da exclusão.
+     * @param deletedAt O momento da exclusão.
+     */
+    public DeletedCredential(String id, int version, Instant deletedAt) {
+        this.id = id;
+        this.version = version;
+        this.deletedAt = deletedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DeletedCredential{" +
+                "id='" + id + '\'' +
+                ", version=" + version +
+                ", deletedAt=" + deletedAt +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package com.securepm.model;
+
+/**
+ * Dados de uma credencial a ser incluída (serviço, usuário e senha em texto claro), usados
+ * nas inclusões em lote; o serviço do cofre os cifra antes de gravar.
+ */
+public class NewCredential {
+
+    private final String serviceName;
+    private final String username;
+    private final String password;
+
+    public NewCredential(String serviceName, String username, String password) {
+        this.serviceName = serviceName;
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
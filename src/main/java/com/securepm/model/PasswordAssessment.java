@@ -0,0 +1,65 @@
+package com.securepm.model;
+
+import com.securepm.util.PasswordStrengthEstimator;
+
+/**
+ * Avaliação de uma senha antes de ela ser gravada: força estimada, presença em vazamentos
+ * conhecidos e reutilização dentro do próprio cofre. Quem apresenta o resultado decide se
+ * pede confirmação ao usuário.
+ */
+public class PasswordAssessment {
+
+    private final PasswordStrengthEstimator.Strength strength;
+
+    // Ocorrências da senha em vazamentos conhecidos (0 se não foi encontrada).
+    private final int pwnedCount;
+
+    // Outras credenciais do cofre que já usam a mesma senha.
+    private final int reuseCount;
+
+    // Versão do histórico da credencial que já usou esta senha (0 se nenhuma).
+    private final int reusedVersion;
+
+    // Indica se a senha é igual à senha atual da credencial.
+    private final boolean sameAsCurrent;
+
+    public PasswordAssessment(PasswordStrengthEstimator.Strength strength, int pwnedCount, int reuseCount,
+                              int reusedVersion, boolean sameAsCurrent) {
+        this.strength = strength;
+        this.pwnedCount = pwnedCount;
+        this.reuseCount = reuseCount;
+        this.reusedVersion = reusedVersion;
+        this.sameAsCurrent = sameAsCurrent;
+    }
+
+    public PasswordStrengthEstimator.Strength getStrength() {
+        return strength;
+    }
+
+    public int getPwnedCount() {
+        return pwnedCount;
+    }
+
+    public int getReuseCount() {
+        return reuseCount;
+    }
+
+    public int getReusedVersion() {
+        return reusedVersion;
+    }
+
+    public boolean isSameAsCurrent() {
+        return sameAsCurrent;
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordAssessment{" +
+                "strength=" + strength +
+                ", pwnedCount=" + pwnedCount +
+                ", reuseCount=" + reuseCount +
+                ", reusedVersion=" + reusedVersion +
+                ", sameAsCurrent=" + sameAsCurrent +
+                '}';
+    }
+}
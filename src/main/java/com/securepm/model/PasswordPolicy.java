@@ -0,0 +1,271 @@
+package com.securepm.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Descreve as regras de geração de senha aplicáveis a um serviço: modo de geração,
+ * comprimento, conjuntos de caracteres permitidos e quantidades mínimas por categoria.
+ * A política é imutável; instâncias são criadas através do {@link Builder}.
+ */
+public class PasswordPolicy implements Serializable {
+    // Controle de versão para a serialização da classe.
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Modos de geração suportados.
+     */
+    public enum Mode {
+        // Caracteres aleatórios de todas as categorias permitidas.
+        RANDOM,
+        // Sílabas alternando consoantes e vogais, mais fáceis de ler e digitar.
+        PRONOUNCEABLE,
+        // Sequência de palavras sorteadas de uma lista (estilo diceware).
+        PASSPHRASE
+    }
+
+    // Símbolos aceitos pela política padrão (os mesmos usados originalmente pelo gerador).
+    public static final String DEFAULT_SYMBOLS = "!@#$%^&*()-_=+<>?";
+
+    // Caracteres facilmente confundidos entre si quando lidos ou digitados.
+    public static final String LOOK_ALIKE_CHARS = "Il1O0o|";
+
+    // Política equivalente ao comportamento histórico de RandomPasswordUtil.generate(int).
+    public static final PasswordPolicy DEFAULT = new Builder().build();
+
+    private final Mode mode;
+    private final int length;
+    private final int maxLength;
+    private final int minUppercase;
+    private final int minLowercase;
+    private final int minDigits;
+    private final int minSymbols;
+    private final String symbols;
+    private final String excludedChars;
+    private final boolean excludeLookAlikes;
+    private final int wordCount;
+    private final String separator;
+
+    private PasswordPolicy(Builder builder) {
+        this.mode = builder.mode;
+        this.length = builder.length;
+        this.maxLength = builder.maxLength;
+        this.minUppercase = builder.minUppercase;
+        this.minLowercase = builder.minLowercase;
+        this.minDigits = builder.minDigits;
+        this.minSymbols = builder.minSymbols;
+        this.symbols = builder.symbols;
+        this.excludedChars = builder.excludedChars;
+        this.excludeLookAlikes = builder.excludeLookAlikes;
+        this.wordCount = builder.wordCount;
+        this.separator = builder.separator;
+    }
+
+    // Obtém o modo de geração.
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Obtém o comprimento padrão das senhas geradas (modos RANDOM e PRONOUNCEABLE).
+    public int getLength() {
+        return length;
+    }
+
+    // Obtém o comprimento máximo aceito pelo serviço (0 indica sem limite).
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    // Obtém a quantidade mínima de letras maiúsculas.
+    public int getMinUppercase() {
+        return minUppercase;
+    }
+
+    // Obtém a quantidade mínima de letras minúsculas.
+    public int getMinLowercase() {
+        return minLowercase;
+    }
+
+    // Obtém a quantidade mínima de dígitos.
+    public int getMinDigits() {
+        return minDigits;
+    }
+
+    // Obtém a quantidade mínima de símbolos.
+    public int getMinSymbols() {
+        return minSymbols;
+    }
+
+    // Obtém o conjunto de símbolos permitidos (vazio desabilita símbolos).
+    public String getSymbols() {
+        return symbols;
+    }
+
+    // Obtém os caracteres explicitamente proibidos.
+    public String getExcludedChars() {
+        return excludedChars;
+    }
+
+    // Indica se caracteres parecidos (como 'l', '1' e 'I') devem ser evitados.
+    public boolean isExcludeLookAlikes() {
+        return excludeLookAlikes;
+    }
+
+    // Obtém a quantidade de palavras no modo PASSPHRASE.
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    // Obtém o separador entre palavras no modo PASSPHRASE.
+    public String getSeparator() {
+        return separator;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PasswordPolicy)) return false;
+        PasswordPolicy that = (PasswordPolicy) o;
+        return length == that.length
+                && maxLength == that.maxLength
+                && minUppercase == that.minUppercase
+                && minLowercase == that.minLowercase
+                && minDigits == that.minDigits
+                && minSymbols == that.minSymbols
+                && excludeLookAlikes == that.excludeLookAlikes
+                && wordCount == that.wordCount
+                && mode == that.mode
+                && symbols.equals(that.symbols)
+                && excludedChars.equals(that.excludedChars)
+                && separator.equals(that.separator);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, length, maxLength, minUppercase, minLowercase, minDigits, minSymbols,
+                symbols, excludedChars, excludeLookAlikes, wordCount, separator);
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordPolicy{" +
+                "mode=" + mode +
+                ", length=" + length +
+                ", maxLength=" + maxLength +
+                ", min(A/a/0/#)=" + minUppercase + "/" + minLowercase + "/" + minDigits + "/" + minSymbols +
+                ", symbols='" + symbols + '\'' +
+                ", excludeLookAlikes=" + excludeLookAlikes +
+                ", wordCount=" + wordCount +
+                '}';
+    }
+
+    /**
+     * Construtor incremental de políticas. Os valores padrão reproduzem a política
+     * histórica: 16 caracteres aleatórios com ao menos um de cada categoria.
+     */
+    public static class Builder {
+        private Mode mode = Mode.RANDOM;
+        private int length = 16;
+        private int maxLength = 0;
+        private int minUppercase = 1;
+        private int minLowercase = 1;
+        private int minDigits = 1;
+        private int minSymbols = 1;
+        private String symbols = DEFAULT_SYMBOLS;
+        private String excludedChars = "";
+        private boolean excludeLookAlikes = false;
+        private int wordCount = 6;
+        private String separator = "-";
+
+        public Builder mode(Mode mode) {
+            this.mode = Objects.requireNonNull(mode);
+            return this;
+        }
+
+        public Builder length(int length) {
+            this.length = length;
+            return this;
+        }
+
+        public Builder maxLength(int maxLength) {
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        public Builder minUppercase(int minUppercase) {
+            this.minUppercase = minUppercase;
+            return this;
+        }
+
+        public Builder minLowercase(int minLowercase) {
+            this.minLowercase = minLowercase;
+            return this;
+        }
+
+        public Builder minDigits(int minDigits) {
+            this.minDigits = minDigits;
+            return this;
+        }
+
+        public Builder minSymbols(int minSymbols) {
+            this.minSymbols = minSymbols;
+            return this;
+        }
+
+        public Builder symbols(String symbols) {
+            this.symbols = Objects.requireNonNull(symbols);
+            return this;
+        }
+
+        public Builder excludedChars(String excludedChars) {
+            this.excludedChars = Objects.requireNonNull(excludedChars);
+            return this;
+        }
+
+        public Builder excludeLookAlikes(boolean excludeLookAlikes) {
+            this.excludeLookAlikes = excludeLookAlikes;
+            return this;
+        }
+
+        public Builder wordCount(int wordCount) {
+            this.wordCount = wordCount;
+            return this;
+        }
+
+        public Builder separator(String separator) {
+            this.separator = Objects.requireNonNull(separator);
+            return this;
+        }
+
+        /**
+         * Valida a combinação de parâmetros e cria a política imutável.
+         *
+         * @return A política configurada.
+         * @throws IllegalArgumentException Se os mínimos excederem o comprimento ou os limites forem inconsistentes.
+         */
+        public PasswordPolicy build() {
+            if (minUppercase < 0 || minLowercase < 0 || minDigits < 0 || minSymbols < 0) {
+                throw new IllegalArgumentException("As quantidades mínimas por categoria não podem ser negativas.");
+            }
+            if (mode == Mode.PASSPHRASE) {
+                if (wordCount < 3) {
+                    throw new IllegalArgumentException("Uma frase-senha deve ter pelo menos 3 palavras.");
+                }
+            } else {
+                if (length < 8) {
+                    throw new IllegalArgumentException("O comprimento mínimo da senha deve ser 8 caracteres.");
+                }
+                if (minUppercase + minLowercase + minDigits + minSymbols > length) {
+                    throw new IllegalArgumentException("A soma dos mínimos por categoria excede o comprimento da senha.");
+                }
+            }
+            if (maxLength > 0 && mode != Mode.PASSPHRASE && length > maxLength) {
+                throw new IllegalArgumentException("O comprimento padrão excede o máximo permitido pelo serviço.");
+            }
+            if (minSymbols > 0 && symbols.isEmpty()) {
+                throw new IllegalArgumentException("A política exige símbolos, mas nenhum símbolo foi permitido.");
+            }
+            return new PasswordPolicy(this);
+        }
+    }
+}
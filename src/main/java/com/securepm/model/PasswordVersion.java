@@ -0,0 +1,87 @@
+package com.securepm.model;
+
+import java.time.Instant;
+
+/**
+ * Uma versão anterior da senha de uma credencial, recuperada do histórico.
+ * A senha permanece criptografada; apenas os metadados ficam em texto claro.
+ */
+public class PasswordVersion {
+
+    // ID da credencial a que esta versão pertence.
+    private final String credentialId;
+
+    // Número da versão (1 é a senha original).
+    private final int version;
+
+    // Senha criptografada (IV + texto cifrado) e seu IV.
+    private final byte[] encryptedPassword;
+    private final byte[] iv;
+
+    // Impressão digital (HMAC) da senha; nula em credenciais antigas.
+    private final byte[] passwordFingerprint;
+
+    // Período em que esta versão foi a senha em uso.
+    private final Instant validFrom;
+    private final Instant replacedAt;
+
+    /**
+     * Constrói uma versão do histórico.
+     *
+     * @param credentialId ID da credencial.
+     * @param version Número da versão.
+     * @param encryptedPassword Senha criptografada.
+     * @param iv Vetor de inicialização da senha.
+     * @param passwordFingerprint HMAC da senha (pode ser nulo).
+     * @param validFrom Momento em que a versão passou a valer.
+     * @param replacedAt Momento em que a versão foi substituída.
+     */
+    public PasswordVersion(String credentialId, int version, byte[] encryptedPassword, byte[] iv,
+                           byte[] passwordFingerprint, Instant validFrom, Instant replacedAt) {
+        this.credentialId = credentialId;
+        this.version = version;
+        this.encryptedPassword = encryptedPassword;
+        this.iv = iv;
+        this.passwordFingerprint = passwordFingerprint;
+        this.validFrom = validFrom;
+        this.replacedAt = replacedAt;
+    }
+
+    public String getCredentialId() {
+        return credentialId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public byte[] getEncryptedPassword() {
+        return encryptedPassword;
+    }
+
+    public byte[] getIv() {
+        return iv;
+    }
+
+    public byte[] getPasswordFingerprint() {
+        return passwordFingerprint;
+    }
+
+    public Instant getValidFrom() {
+        return validFrom;
+    }
+
+    public Instant getReplacedAt() {
+        return replacedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordVersion{" +
+                "credentialId='" + credentialId + '\'' +
+                ", version=" + version +
+                ", validFrom=" + validFrom +
+                ", replacedAt=" + replacedAt +
+                '}';
+    }
+}
@@ -0,0 +1,107 @@
+package com.securepm.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Credencial compartilhada entre usuários. O conteúdo (serviço, usuário e senha) é cifrado
+ * uma única vez com uma chave de conteúdo aleatória, e essa chave é guardada embrulhada para
+ * cada destinatário com a chave pública X25519 dele. A versão da chave muda a cada revogação,
+ * quando o conteúdo recebe uma nova chave.
+ */
+public class SharedCredential implements Serializable {
+    // Controle de versão para a serialização da classe.
+    private static final long serialVersionUID = 1L;
+
+    // Identificador do compartilhamento.
+    private final String id;
+
+    // Usuário que criou o compartilhamento; só ele adiciona ou revoga destinatários.
+    private final String owner;
+
+    private final Instant createdAt;
+    private Instant updatedAt;
+
+    // Versão da chave de conteúdo, amarrada aos textos cifrados.
+    private int keyVersion;
+
+    // Conteúdo cifrado com a chave de conteúdo.
+    private byte[] payload;
+
+    // Chave de conteúdo embrulhada para cada destinatário (inclusive o dono), pelo nome do usuário.
+    private final LinkedHashMap<String, byte[]> wrappedKeys;
+
+    public SharedCredential(String id, String owner, int keyVersion, byte[] payload, Map<String, byte[]> wrappedKeys) {
+        this.id = id;
+        this.owner = owner;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+        this.keyVersion = keyVersion;
+        this.payload = payload;
+        this.wrappedKeys = new LinkedHashMap<>(wrappedKeys);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public int getKeyVersion() {
+        return keyVersion;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    // Destinatários com acesso, na ordem em que foram adicionados.
+    public Set<String> getRecipients() {
+        return Collections.unmodifiableSet(wrappedKeys.keySet());
+    }
+
+    // Chave de conteúdo embrulhada para o destinatário, ou null se ele não tiver acesso.
+    public byte[] getWrappedKey(String recipient) {
+        return wrappedKeys.get(recipient);
+    }
+
+    /**
+     * Dá acesso a novos destinatários com a chave de conteúdo atual.
+     *
+     * @param added As chaves embrulhadas dos novos destinatários.
+     */
+    public void addWrappedKeys(Map<String, byte[]> added) {
+        wrappedKeys.putAll(added);
+        updatedAt = Instant.now();
+    }
+
+    /**
+     * Troca a chave de conteúdo: o conteúdo recifrado e as chaves embrulhadas de quem mantém
+     * o acesso substituem as anteriores.
+     *
+     * @param keyVersion  A nova versão da chave.
+     * @param payload     O conteúdo cifrado com a nova chave.
+     * @param wrappedKeys As novas chaves embrulhadas de todos os destinatários restantes.
+     */
+    public void rotate(int keyVersion, byte[] payload, Map<String, byte[]> wrappedKeys) {
+        this.keyVersion = keyVersion;
+        this.payload = payload;
+        this.wrappedKeys.clear();
+        this.wrappedKeys.putAll(wrappedKeys);
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,153 @@
+package com.securepm.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de uma sincronização entre duas réplicas do cofre: o que foi comparado, o que
+ * foi transferido em cada sentido e as credenciais em conflito.
+ */
+public class SyncReport {
+
+    // Credenciais (incluindo exclusões registradas) em cada réplica antes da sincronização.
+    private int localEntries;
+    private int remoteEntries;
+
+    // Resumos de nós da árvore comparados e baldes cujas folhas foram trocadas.
+    private int nodesCompared;
+    private int bucketsCompared;
+
+    // Credenciais e exclusões recebidas da outra réplica e enviadas a ela.
+    private int recordsReceived;
+    private int deletionsReceived;
+    private int recordsSent;
+    private int deletionsSent;
+
+    // IDs das credenciais alteradas nas duas réplicas de forma incompatível.
+    private final List<String> conflicts = new ArrayList<>();
+
+    // Indica se os conflitos foram resolvidos pela alteração mais recente (ou apenas relatados).
+    private boolean conflictsResolved;
+
+    // Bytes trafegados no canal (em cada sentido).
+    private long bytesSent;
+    private long bytesReceived;
+
+    private long elapsedNanos;
+
+    public int getLocalEntries() {
+        return localEntries;
+    }
+
+    public void setLocalEntries(int localEntries) {
+        this.localEntries = localEntries;
+    }
+
+    public int getRemoteEntries() {
+        return remoteEntries;
+    }
+
+    public void setRemoteEntries(int remoteEntries) {
+        this.remoteEntries = remoteEntries;
+    }
+
+    public int getNodesCompared() {
+        return nodesCompared;
+    }
+
+    public void addNodesCompared(int count) {
+        this.nodesCompared += count;
+    }
+
+    public int getBucketsCompared() {
+        return bucketsCompared;
+    }
+
+    public void setBucketsCompared(int bucketsCompared) {
+        this.bucketsCompared = bucketsCompared;
+    }
+
+    public int getRecordsReceived() {
+        return recordsReceived;
+    }
+
+    public void setRecordsReceived(int recordsReceived) {
+        this.recordsReceived = recordsReceived;
+    }
+
+    public int getDeletionsReceived() {
+        return deletionsReceived;
+    }
+
+    public void setDeletionsReceived(int deletionsReceived) {
+        this.deletionsReceived = deletionsReceived;
+    }
+
+    public int getRecordsSent() {
+        return recordsSent;
+    }
+
+    public void setRecordsSent(int recordsSent) {
+        this.recordsSent = recordsSent;
+    }
+
+    public int getDeletionsSent() {
+        return deletionsSent;
+    }
+
+    public void setDeletionsSent(int deletionsSent) {
+        this.deletionsSent = deletionsSent;
+    }
+
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    public boolean isConflictsResolved() {
+        return conflictsResolved;
+    }
+
+    public void setConflictsResolved(boolean conflictsResolved) {
+        this.conflictsResolved = conflictsResolved;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public void setTraffic(long bytesSent, long bytesReceived) {
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Indica se alguma das réplicas foi alterada.
+    public boolean hasChanges() {
+        return recordsReceived + deletionsReceived + recordsSent + deletionsSent > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncReport{" +
+                "local=" + localEntries +
+                ", remote=" + remoteEntries +
+                ", nodes=" + nodesCompared +
+                ", buckets=" + bucketsCompared +
+                ", received=" + recordsReceived + "+" + deletionsReceived +
+                ", sent=" + recordsSent + "+" + deletionsSent +
+                ", conflicts=" + conflicts.size() +
+                ", bytes=" + bytesSent + "/" + bytesReceived +
+                '}';
+    }
+}
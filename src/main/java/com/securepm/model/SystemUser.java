@@ -23,6 +23,18 @@ public class SystemUser implements Serializable {
     // Timestamp que marca o momento exato do cadastro do usuário no sistema.
     private Instant createdAt;
 
+    // Diretório do cofre do usuário no modo com vários usuários; null no cofre único do diretório de trabalho.
+    private String vaultId;
+
+    // Salt próprio da derivação da chave do cofre; null quando a chave usa o salt global (salt.dat).
+    private byte[] keySalt;
+
+    // Chave pública X25519 para o compartilhamento de credenciais (codificada em X.509), ou null.
+    private byte[] sharePublicKey;
+
+    // Chave privada X25519 correspondente, cifrada com a chave do cofre do usuário, ou null.
+    private byte[] sharePrivateKey;
+
     /**
      * Inicializa um novo objeto de usuário, definindo seus dados essenciais
      * e registrando automaticamente a data e hora da criação.
@@ -58,6 +70,48 @@ public class SystemUser implements Serializable {
         return this.createdAt;
     }
 
+    // Identificador do cofre do usuário, ou null para o cofre único.
+    public String getVaultId() {
+        return this.vaultId;
+    }
+
+    // Salt da derivação da chave do cofre, ou null para o salt global.
+    public byte[] getKeySalt() {
+        return this.keySalt == null ? null : this.keySalt.clone();
+    }
+
+    /**
+     * Associa o usuário a um cofre próprio, com o salt da derivação da chave desse cofre.
+     *
+     * @param vaultId O identificador do diretório do cofre.
+     * @param keySalt O salt aleatório da derivação da chave.
+     */
+    public void assignVault(String vaultId, byte[] keySalt) {
+        this.vaultId = vaultId;
+        this.keySalt = keySalt.clone();
+    }
+
+    // Chave pública de compartilhamento, ou null se o usuário ainda não tiver um par de chaves.
+    public byte[] getSharePublicKey() {
+        return this.sharePublicKey == null ? null : this.sharePublicKey.clone();
+    }
+
+    // Chave privada de compartilhamento cifrada com a chave do cofre, ou null.
+    public byte[] getSharePrivateKey() {
+        return this.sharePrivateKey == null ? null : this.sharePrivateKey.clone();
+    }
+
+    /**
+     * Define o par de chaves de compartilhamento do usuário.
+     *
+     * @param publicKey           A chave pública X25519 codificada.
+     * @param encryptedPrivateKey A chave privada, já cifrada com a chave do cofre.
+     */
+    public void assignShareKeys(byte[] publicKey, byte[] encryptedPrivateKey) {
+        this.sharePublicKey = publicKey.clone();
+        this.sharePrivateKey = encryptedPrivateKey.clone();
+    }
+
     /**
      * Modifica a chave secreta de autenticação de dois fatores (2FA) do usuário.
      *
@@ -0,0 +1,304 @@
+package com.securepm.repository;
+
+import com.securepm.model.BackupSnapshot;
+import com.securepm.util.ContentDefinedChunker;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Backups incrementais e deduplicados dos arquivos de dados. Cada arquivo é dividido em
+ * pedaços definidos pelo conteúdo ({@link ContentDefinedChunker}) e cada pedaço é guardado
+ * uma única vez, com o SHA-256 do conteúdo como nome. Um snapshot é apenas um manifesto com
+ * a lista de pedaços de cada arquivo; assim, o tempo e o espaço de um novo backup crescem
+ * com o tamanho da mudança, e não com o tamanho do cofre.
+ *
+ * Estrutura do diretório de backups:
+ * chunks/ab/abcdef... (um arquivo por pedaço, agrupados pelos dois primeiros dígitos),
+ * snapshots/<id>.snapshot (manifestos serializados).
+ *
+ * Os pedaços são cópias dos arquivos de dados, que já guardam as senhas cifradas; o diretório
+ * de backups deve ter a mesma proteção do diretório de dados.
+ */
+public class BackupManager {
+
+    private static final String CHUNKS_DIR = "chunks";
+    private static final String SNAPSHOTS_DIR = "snapshots";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    // Identificadores ordenáveis pela data (UTC) do backup.
+    private static final DateTimeFormatter ID_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    // Diretório onde ficam os arquivos de dados.
+    private final Path dataDir;
+
+    // Diretório do repositório de backups.
+    private final Path backupDir;
+
+    // Arquivos salvos em cada snapshot (relativos ao diretório de dados).
+    private final List<String> files;
+
+    // Arquivos derivados (índices), que não são salvos e são apagados na restauração para serem reconstruídos.
+    private final List<String> derivedFiles;
+
+    /**
+     * Cria um gerenciador de backups.
+     *
+     * @param dataDir      O diretório dos arquivos de dados.
+     * @param backupDir    O diretório do repositório de backups.
+     * @param files        Os arquivos a salvar.
+     * @param derivedFiles Os índices reconstruíveis, apagados ao restaurar.
+     */
+    public BackupManager(String dataDir, String backupDir, List<String> files, List<String> derivedFiles) {
+        this.dataDir = Paths.get(dataDir);
+        this.backupDir = Paths.get(backupDir);
+        this.files = List.copyOf(files);
+        this.derivedFiles = List.copyOf(derivedFiles);
+    }
+
+    /**
+     * Cria um snapshot com o estado atual dos arquivos de dados. Arquivos com o mesmo tamanho
+     * e data de modificação do último snapshot não são relidos; dos demais, apenas os pedaços
+     * que ainda não existem no repositório são gravados.
+     *
+     * @return O manifesto do novo snapshot.
+     * @throws IOException Se houver falha ao ler os dados ou gravar o backup.
+     * @throws ClassNotFoundException Se o manifesto anterior tiver um formato incompatível.
+     */
+    public BackupSnapshot createSnapshot() throws IOException, ClassNotFoundException {
+        Files.createDirectories(backupDir.resolve(CHUNKS_DIR));
+        Files.createDirectories(backupDir.resolve(SNAPSHOTS_DIR));
+
+        // 1. Arquivos do último snapshot, para pular os que não mudaram.
+        Map<String, BackupSnapshot.FileEntry> previous = new HashMap<>();
+        List<BackupSnapshot> snapshots = listSnapshots();
+        if (!snapshots.isEmpty()) {
+            for (BackupSnapshot.FileEntry entry : snapshots.get(snapshots.size() - 1).getFiles()) {
+                previous.put(entry.getName(), entry);
+            }
+        }
+
+        // 2. Divide cada arquivo alterado em pedaços e grava somente os pedaços novos.
+        List<BackupSnapshot.FileEntry> entries = new ArrayList<>();
+        int[] newChunks = {0};
+        long[] newBytes = {0};
+        MessageDigest sha256 = sha256();
+        for (String name : files) {
+            Path source = dataDir.resolve(name);
+            if (!Files.exists(source)) continue;
+            long size = Files.size(source);
+            long lastModified = Files.getLastModifiedTime(source).toMillis();
+            BackupSnapshot.FileEntry old = previous.get(name);
+            if (old != null && old.getSize() == size && old.getLastModified() == lastModified) {
+                entries.add(old);
+                continue;
+            }
+
+            List<byte[]> hashes = new ArrayList<>();
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 1 << 16)) {
+                ContentDefinedChunker.split(in, (buffer, offset, length) -> {
+                    sha256.update(buffer, offset, length);
+                    byte[] hash = sha256.digest();
+                    hashes.add(hash);
+                    if (storeChunk(hash, buffer, offset, length)) {
+                        newChunks[0]++;
+                        newBytes[0] += length;
+                    }
+                });
+            }
+            entries.add(new BackupSnapshot.FileEntry(name, size, lastModified, hashes));
+        }
+
+        // 3. Grava o manifesto por último: um backup interrompido não deixa snapshot incompleto.
+        BackupSnapshot snapshot = new BackupSnapshot(nextId(), Instant.now(), entries, newChunks[0], newBytes[0]);
+        Path manifest = snapshotPath(snapshot.getId());
+        Path temp = Paths.get(manifest + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            oos.writeObject(snapshot);
+        }
+        Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE);
+        return snapshot;
+    }
+
+    /**
+     * Lista os snapshots existentes, do mais antigo para o mais recente.
+     *
+     * @return Os manifestos.
+     * @throws IOException Se houver falha ao ler o repositório.
+     * @throws ClassNotFoundException Se algum manifesto tiver um formato incompatível.
+     */
+    public List<BackupSnapshot> listSnapshots() throws IOException, ClassNotFoundException {
+        List<BackupSnapshot> snapshots = new ArrayList<>();
+        Path dir = backupDir.resolve(SNAPSHOTS_DIR);
+        if (!Files.isDirectory(dir)) return snapshots;
+        List<Path> manifests = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SNAPSHOT_SUFFIX)) {
+            stream.forEach(manifests::add);
+        }
+        for (Path manifest : manifests) {
+            snapshots.add(readSnapshot(manifest));
+        }
+        snapshots.sort(Comparator.comparing(BackupSnapshot::getCreatedAt));
+        return snapshots;
+    }
+
+    /**
+     * Restaura os arquivos de dados para o estado de um snapshot. Todos os arquivos são
+     * reconstruídos e conferidos (SHA-256 de cada pedaço) antes que qualquer arquivo atual
+     * seja substituído. Arquivos que não existiam no snapshot são apagados, assim como os
+     * índices derivados, que serão reconstruídos no próximo uso.
+     *
+     * @param snapshotId O ID do snapshot.
+     * @throws IOException Se o snapshot não existir, algum pedaço estiver ausente ou corrompido,
+     *                     ou houver falha de escrita.
+     * @throws ClassNotFoundException Se o manifesto tiver um formato incompatível.
+     */
+    public void restore(String snapshotId) throws IOException, ClassNotFoundException {
+        Path manifest = snapshotPath(snapshotId);
+        if (!Files.exists(manifest)) {
+            throw new IOException("O backup '" + snapshotId + "' não existe.");
+        }
+        BackupSnapshot snapshot = readSnapshot(manifest);
+
+        // 1. Reconstrói cada arquivo em um temporário, conferindo os pedaços.
+        Map<String, Path> restored = new LinkedHashMap<>();
+        MessageDigest sha256 = sha256();
+        try {
+            for (BackupSnapshot.FileEntry entry : snapshot.getFiles()) {
+                Path temp = Paths.get(dataDir.resolve(entry.getName()) + ".restore");
+                restored.put(entry.getName(), temp);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                    for (byte[] hash : entry.getChunkHashes()) {
+                        Path chunk = chunkPath(hash);
+                        if (!Files.exists(chunk)) {
+                            throw new IOException("O pedaço " + HexFormat.of().formatHex(hash) + " do backup está ausente.");
+                        }
+                        byte[] data = Files.readAllBytes(chunk);
+                        if (!MessageDigest.isEqual(sha256.digest(data), hash)) {
+                            throw new IOException("O pedaço " + HexFormat.of().formatHex(hash) + " do backup está corrompido.");
+                        }
+                        out.write(data);
+                    }
+                }
+                if (Files.size(temp) != entry.getSize()) {
+                    throw new IOException("O arquivo '" + entry.getName() + "' restaurado não tem o tamanho esperado.");
+                }
+            }
+        } catch (IOException e) {
+            for (Path temp : restored.values()) Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        // 2. Substitui os arquivos atuais e apaga os que não faziam parte do snapshot.
+        for (BackupSnapshot.FileEntry entry : snapshot.getFiles()) {
+            Path target = dataDir.resolve(entry.getName());
+            Files.move(restored.get(entry.getName()), target, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getLastModified()));
+        }
+        for (String name : files) {
+            if (!restored.containsKey(name)) Files.deleteIfExists(dataDir.resolve(name));
+        }
+        for (String name : derivedFiles) {
+            Files.deleteIfExists(dataDir.resolve(name));
+        }
+    }
+
+    /**
+     * Exclui um snapshot e os pedaços que nenhum outro snapshot usa.
+     *
+     * @param snapshotId O ID do snapshot.
+     * @return A quantidade de pedaços liberados.
+     * @throws IOException Se o snapshot não existir ou houver falha ao apagar.
+     * @throws ClassNotFoundException Se algum manifesto tiver um formato incompatível.
+     */
+    public int deleteSnapshot(String snapshotId) throws IOException, ClassNotFoundException {
+        if (!Files.deleteIfExists(snapshotPath(snapshotId))) {
+            throw new IOException("O backup '" + snapshotId + "' não existe.");
+        }
+
+        // Marca os pedaços usados pelos snapshots restantes e apaga os demais.
+        Set<String> live = new HashSet<>();
+        for (BackupSnapshot snapshot : listSnapshots()) {
+            for (BackupSnapshot.FileEntry entry : snapshot.getFiles()) {
+                for (byte[] hash : entry.getChunkHashes()) live.add(HexFormat.of().formatHex(hash));
+            }
+        }
+        int removed = 0;
+        Path chunks = backupDir.resolve(CHUNKS_DIR);
+        if (!Files.isDirectory(chunks)) return 0;
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(chunks)) {
+            for (Path prefix : prefixes) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(prefix)) {
+                    for (Path chunk : stream) {
+                        if (!live.contains(chunk.getFileName().toString())) {
+                            Files.delete(chunk);
+                            removed++;
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    // Grava o pedaço se ele ainda não existir no repositório; retorna 'true' se foi gravado.
+    private boolean storeChunk(byte[] hash, byte[] buffer, int offset, int length) throws IOException {
+        Path chunk = chunkPath(hash);
+        if (Files.exists(chunk)) return false;
+        Files.createDirectories(chunk.getParent());
+        Path temp = Paths.get(chunk + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(buffer, offset, length);
+        }
+        Files.move(temp, chunk, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    private Path chunkPath(byte[] hash) {
+        String hex = HexFormat.of().formatHex(hash);
+        return backupDir.resolve(CHUNKS_DIR).resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    private Path snapshotPath(String snapshotId) throws IOException {
+        if (!snapshotId.matches("[0-9A-Za-z-]+")) {
+            throw new IOException("Identificador de backup inválido: '" + snapshotId + "'.");
+        }
+        return backupDir.resolve(SNAPSHOTS_DIR).resolve(snapshotId + SNAPSHOT_SUFFIX);
+    }
+
+    // Próximo ID livre: a data do backup, com sufixo se já houver um snapshot no mesmo milissegundo.
+    private String nextId() throws IOException {
+        String base = ID_FORMAT.format(Instant.now());
+        String id = base;
+        for (int n = 2; Files.exists(snapshotPath(id)); n++) {
+            id = base + "-" + n;
+        }
+        return id;
+    }
+
+    private static BackupSnapshot readSnapshot(Path manifest) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            return (BackupSnapshot) ois.readObject();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível nesta JVM.", e);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.securepm.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Índice em disco que associa tokens de busca (blind index) aos IDs das credenciais.
+ * O arquivo é uma tabela hash com encadeamento: um diretório de buckets de tamanho fixo
+ * aponta para o registro mais recente de cada bucket, e cada registro aponta para o
+ * anterior. Consultas leem apenas a cadeia de um bucket, sem carregar o índice inteiro,
+ * o que mantém o custo praticamente constante mesmo em cofres com milhões de entradas.
+ * Os registros de cada credencial também formam uma cadeia pelo bucket do seu ID, de modo
+ * que a remoção percorre só esses registros, e não as cadeias dos tokens (as de prefixos
+ * curtos passam por boa parte do cofre).
+ *
+ * Formato: cabeçalho (magic, versão, quantidade de buckets), diretório com um long por
+ * bucket de token, diretório com um long por bucket de ID e registros de tamanho fixo
+ * [token(16) | id(16) | próximo do token(8) | próximo do ID(8) | removido(1)]. Um arquivo
+ * de uma versão anterior do formato é tratado como ausente e recriado na próxima indexação.
+ */
+public class BlindIndexManager {
+
+    private static final int MAGIC = 0x53504D42; // "SPMB"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    // 2^18 buckets: diretório de 2 MB e cadeias curtas até dezenas de milhões de tokens.
+    private static final int BUCKET_COUNT = 1 << 18;
+
+    private static final int TOKEN_SIZE = 16;
+    private static final int RECORD_SIZE = TOKEN_SIZE + 16 + 8 + 8 + 1;
+    private static final long ID_DIRECTORY = HEADER_SIZE + (long) BUCKET_COUNT * Long.BYTES;
+    private static final long DIRECTORY_END = ID_DIRECTORY + (long) BUCKET_COUNT * Long.BYTES;
+
+    // A partir desta quantidade de tokens, compensa carregar o diretório inteiro e gravar em blocos.
+    private static final int BULK_THRESHOLD = 4096;
+
+    // Caminho do arquivo do índice.
+    private final String indexFile;
+
+    /**
+     * Cria um gerenciador para o arquivo de índice informado.
+     *
+     * @param indexFile O caminho do arquivo.
+     */
+    public BlindIndexManager(String indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Indica se o arquivo do índice já foi criado (na versão atual do formato).
+     */
+    public boolean exists() {
+        Path path = Paths.get(indexFile);
+        if (!Files.exists(path)) return false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            return !outdated(header);
+        } catch (IOException e) {
+            return true; // O erro aparece na próxima operação sobre o índice.
+        }
+    }
+
+    /**
+     * Registra os tokens de uma credencial.
+     *
+     * @param credentialId O ID (UUID) da credencial.
+     * @param tokens       Os tokens gerados para seus campos pesquisáveis.
+     * @throws IOException Se houver falha ao gravar o índice.
+     */
+    public void add(String credentialId, List<byte[]> tokens) throws IOException {
+        addAll(Map.of(credentialId, tokens));
+    }
+
+    /**
+     * Registra os tokens de várias credenciais abrindo o arquivo uma única vez
+     * (usado na construção inicial do índice).
+     *
+     * @param tokensById Os tokens de cada credencial, indexados pelo ID.
+     * @throws IOException Se houver falha ao gravar o índice.
+     */
+    public synchronized void addAll(Map<String, List<byte[]>> tokensById) throws IOException {
+        int total = 0;
+        for (List<byte[]> tokens : tokensById.values()) {
+            total += tokens.size();
+        }
+        try (FileChannel channel = open()) {
+            if (total >= BULK_THRESHOLD) {
+                appendBulk(channel, tokensById);
+            } else {
+                appendEach(channel, tokensById);
+            }
+        }
+    }
+
+    // Caminho para poucas inserções: lê e atualiza apenas os buckets afetados.
+    private static void appendEach(FileChannel channel, Map<String, List<byte[]>> tokensById) throws IOException {
+        long end = channel.size();
+        ByteBuffer head = ByteBuffer.allocate(Long.BYTES);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (Map.Entry<String, List<byte[]>> entry : tokensById.entrySet()) {
+            UUID id = UUID.fromString(entry.getKey());
+            long idSlot = idSlotOffset(id);
+            long idHead = readLong(channel, head, idSlot);
+            for (byte[] token : entry.getValue()) {
+                long slot = slotOffset(token);
+
+                // O novo registro aponta para os antigos topos das cadeias do token e do ID e passa a ser o topo.
+                record.clear();
+                putRecord(record, token, id, readLong(channel, head, slot), idHead);
+                record.flip();
+                channel.write(record, end);
+
+                writeLong(channel, head, slot, end);
+                idHead = end;
+                end += RECORD_SIZE;
+            }
+            writeLong(channel, head, idSlot, idHead);
+        }
+    }
+
+    private static long readLong(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        channel.read(buffer, position);
+        return buffer.flip().getLong();
+    }
+
+    private static void writeLong(FileChannel channel, ByteBuffer buffer, long position, long value) throws IOException {
+        buffer.clear();
+        buffer.putLong(value).flip();
+        channel.write(buffer, position);
+    }
+
+    /**
+     * Caminho para cargas grandes: os diretórios inteiros são lidos para a memória, os registros
+     * são gravados sequencialmente em blocos e os diretórios são regravados uma única vez no final.
+     */
+    private static void appendBulk(FileChannel channel, Map<String, List<byte[]>> tokensById) throws IOException {
+        ByteBuffer directoryBytes = ByteBuffer.allocate((int) (DIRECTORY_END - HEADER_SIZE));
+        channel.read(directoryBytes, HEADER_SIZE);
+        directoryBytes.flip();
+        LongBuffer directory = directoryBytes.asLongBuffer();
+
+        long end = channel.size();
+        ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * 16384);
+        for (Map.Entry<String, List<byte[]>> entry : tokensById.entrySet()) {
+            UUID id = UUID.fromString(entry.getKey());
+            int idBucket = BUCKET_COUNT + idBucketOf(id);
+            for (byte[] token : entry.getValue()) {
+                if (block.remaining() < RECORD_SIZE) {
+                    end += flush(channel, block, end);
+                }
+                int bucket = bucketOf(token);
+                long offset = end + block.position();
+                putRecord(block, token, id, directory.get(bucket), directory.get(idBucket));
+                directory.put(bucket, offset);
+                directory.put(idBucket, offset);
+            }
+        }
+        flush(channel, block, end);
+
+        directoryBytes.rewind();
+        channel.write(directoryBytes, HEADER_SIZE);
+    }
+
+    // Grava o conteúdo acumulado do bloco na posição informada e o esvazia.
+    private static long flush(FileChannel channel, ByteBuffer block, long position) throws IOException {
+        block.flip();
+        long written = block.remaining();
+        while (block.hasRemaining()) {
+            position += channel.write(block, position);
+        }
+        block.clear();
+        return written;
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte[] token, UUID id, long next, long nextById) {
+        buffer.put(token, 0, TOKEN_SIZE)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putLong(next)
+                .putLong(nextById)
+                .put((byte) 0);
+    }
+
+    /**
+     * Marca como removidos todos os registros da credencial, percorrendo apenas a cadeia do
+     * bucket do seu ID.
+     *
+     * @param credentialId O ID da credencial removida.
+     * @throws IOException Se houver falha ao acessar o índice.
+     */
+    public synchronized void remove(String credentialId) throws IOException {
+        if (!exists()) return;
+        UUID id = UUID.fromString(credentialId);
+        try (FileChannel channel = open()) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            ByteBuffer tombstone = ByteBuffer.allocate(1);
+            long offset = readLong(channel, ByteBuffer.allocate(Long.BYTES), idSlotOffset(id));
+            while (offset != 0) {
+                record.clear();
+                channel.read(record, offset);
+                record.flip();
+                record.position(TOKEN_SIZE);
+                long msb = record.getLong();
+                long lsb = record.getLong();
+                record.getLong();
+                long nextById = record.getLong();
+                boolean removed = record.get() != 0;
+                if (!removed && msb == id.getMostSignificantBits() && lsb == id.getLeastSignificantBits()) {
+                    tombstone.clear();
+                    tombstone.put((byte) 1).flip();
+                    channel.write(tombstone, offset + RECORD_SIZE - 1);
+                }
+                offset = nextById;
+            }
+        }
+    }
+
+    /**
+     * Retorna os IDs associados a um token, na ordem do mais recente para o mais antigo.
+     *
+     * @param token O token de busca (exato ou de prefixo).
+     * @return Os IDs distintos das credenciais encontradas.
+     * @throws IOException Se houver falha ao ler o índice.
+     */
+    public synchronized List<String> lookup(byte[] token) throws IOException {
+        if (!exists()) return new ArrayList<>();
+        Set<String> ids = new LinkedHashSet<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(indexFile), StandardOpenOption.READ)) {
+            walk(channel, token, (offset, msb, lsb) -> ids.add(new UUID(msb, lsb).toString()));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Apaga o arquivo do índice.
+     */
+    public synchronized boolean delete() throws IOException {
+        return Files.deleteIfExists(Paths.get(indexFile));
+    }
+
+    // Recebe cada registro ativo encontrado na cadeia de um token.
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long offset, long idMostSignificant, long idLeastSignificant);
+    }
+
+    // Percorre a cadeia do bucket do token, entregando ao visitante apenas os registros ativos desse token.
+    private static void walk(FileChannel channel, byte[] token, RecordVisitor visitor) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(Long.BYTES);
+        channel.read(head, slotOffset(token));
+        long offset = head.flip().getLong();
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        byte[] stored = new byte[TOKEN_SIZE];
+        while (offset != 0) {
+            record.clear();
+            channel.read(record, offset);
+            record.flip();
+            record.get(stored);
+            long msb = record.getLong();
+            long lsb = record.getLong();
+            long next = record.getLong();
+            record.getLong(); // Próximo registro do mesmo ID.
+            boolean removed = record.get() != 0;
+            if (!removed && Arrays.equals(stored, 0, TOKEN_SIZE, token, 0, TOKEN_SIZE)) {
+                visitor.visit(offset, msb, lsb);
+            }
+            offset = next;
+        }
+    }
+
+    // Abre o arquivo para escrita, criando o cabeçalho e os diretórios vazios na primeira vez (ou
+    // recriando um índice de uma versão anterior do formato).
+    private FileChannel open() throws IOException {
+        Path path = Paths.get(indexFile);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() > 0) {
+            channel.read(header, 0);
+            if (outdated(header)) {
+                channel.truncate(0);
+            }
+        }
+        if (channel.size() == 0) {
+            header.clear();
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(BUCKET_COUNT).putInt(0).flip();
+            channel.write(header, 0);
+            // Estende o arquivo até o fim dos diretórios; os buckets começam zerados (cadeia vazia).
+            channel.write(ByteBuffer.allocate(1), DIRECTORY_END - 1);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION || header.getInt(8) != BUCKET_COUNT) {
+            channel.close();
+            throw new IOException("O arquivo de índice de busca '" + indexFile + "' está em um formato desconhecido.");
+        }
+        return channel;
+    }
+
+    // Indica se o cabeçalho lido é de um índice de uma versão anterior do formato.
+    private static boolean outdated(ByteBuffer header) {
+        return header.getInt(0) == MAGIC && header.getInt(4) < FORMAT_VERSION;
+    }
+
+    // Posição, no diretório, do bucket correspondente ao token.
+    private static long slotOffset(byte[] token) {
+        return HEADER_SIZE + (long) bucketOf(token) * Long.BYTES;
+    }
+
+    // Posição, no diretório de IDs, do bucket correspondente ao ID.
+    private static long idSlotOffset(UUID id) {
+        return ID_DIRECTORY + (long) idBucketOf(id) * Long.BYTES;
+    }
+
+    // Bucket do ID: os bits aleatórios do UUID.
+    private static int idBucketOf(UUID id) {
+        long bits = id.getLeastSignificantBits() ^ id.getMostSignificantBits();
+        return (int) (bits ^ (bits >>> 32)) & (BUCKET_COUNT - 1);
+    }
+
+    // Bucket do token: os primeiros bytes do HMAC já são uniformemente distribuídos.
+    private static int bucketOf(byte[] token) {
+        int hash = ((token[0] & 0xFF) << 24) | ((token[1] & 0xFF) << 16) | ((token[2] & 0xFF) << 8) | (token[3] & 0xFF);
+        return hash & (BUCKET_COUNT - 1);
+    }
+}
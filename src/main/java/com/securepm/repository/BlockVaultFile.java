@@ -0,0 +1,1484 @@
+package com.securepm.repository;
+
+import com.securepm.jfr.VaultBlockEvent;
+import com.securepm.model.AccessCredential;
+import com.securepm.util.KeyedHashUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo do cofre em blocos comprimidos e criptografados. As credenciais são agrupadas
+ * em blocos de cerca de {@link #BLOCK_SIZE} bytes; cada bloco é comprimido com Deflate e
+ * cifrado com AES-GCM usando seu próprio nonce. Um diretório de IDs, dividido em páginas
+ * cifradas, aponta o bloco de cada credencial, de modo que ler uma credencial decifra apenas
+ * uma página e o seu bloco, e a leitura completa processa os blocos em paralelo.
+ *
+ * Formato:
+ * cabeçalho [magic | versão | tamanho de bloco | reservado],
+ * blocos e páginas do diretório [nonce(12) | texto cifrado + tag(16)],
+ * tabela de checksums [tamanho | CRC32C] por bloco e página (em claro),
+ * rodapé cifrado [tamanho, quantidade, flags, identificador e resumo de cada bloco | resumo de cada página],
+ * trailer [posição da tabela | posição do rodapé | tamanho do rodapé | checksum raiz | magic].
+ *
+ * O cabeçalho, o identificador e o resumo (SHA-256 truncado) do conteúdo de cada bloco ou
+ * página entram como dados autenticados (AAD): partes trocadas de lugar, copiadas de outro
+ * arquivo ou de uma versão anterior deste arquivo são rejeitadas na decifragem.
+ *
+ * Os limites dos blocos dependem do conteúdo (do ID do registro que fecha cada bloco), e esse
+ * mesmo ID identifica o bloco no diretório. Um bloco ou página cujo conteúdo não mudou é copiado
+ * cifrado do arquivo anterior, com o mesmo nonce; assim, alterar uma credencial regrava só o
+ * seu bloco e o rodapé, e o restante do arquivo permanece idêntico byte a byte (o que permite
+ * backups incrementais com deduplicação).
+ *
+ * Detecção de danos: cada registro termina com o CRC32C dos seus bytes, e o checksum raiz
+ * cobre o cabeçalho, a tabela de checksums e o rodapé. Os CRCs só detectam corrupção acidental
+ * e podem ser forjados; a autenticidade vem apenas da tag do GCM de cada bloco. A verificação
+ * ({@link #verify(SecretKey)}) confere os blocos em paralelo sobre o arquivo mapeado em memória
+ * e só decifra os blocos suspeitos; um bloco que falha na autenticação é descartado inteiro, e
+ * dele apenas os IDs dos registros são informados.
+ *
+ * Diário de alterações: incluir, alterar ou remover poucas credenciais não regrava o arquivo.
+ * As alterações são cifradas como uma entrada acrescentada ao fim de "&lt;cofre&gt;.journal"
+ * [cabeçalho (magic | versão | identificador do cofre) | entradas [tamanho | nonce | texto
+ * cifrado + tag]]. O identificador (resumo do rodapé cifrado) liga o diário a esta versão do
+ * arquivo, e o número de cada entrada entra nos dados autenticados, de modo que entradas de
+ * outro diário ou fora de ordem são rejeitadas. As leituras aplicam o diário sobre os blocos;
+ * quando ele passa de um quarto do cofre, o arquivo é regravado com as alterações e o diário,
+ * apagado. Uma entrada incompleta no fim (queda durante a gravação) é ignorada.
+ */
+public class BlockVaultFile {
+
+    // Finalidade da subchave usada para cifrar os blocos.
+    public static final String VAULT_FILE_PURPOSE = "securepm/vault-file/v1";
+
+    // Tamanho alvo, antes da compressão, de cada bloco.
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    // Um bloco fecha após um registro cuja chave de ID satisfaz o critério de corte (1 em 128),
+    // desde que tenha ao menos metade do tamanho alvo; nunca passa do dobro do tamanho alvo.
+    private static final int MIN_BLOCK_SIZE = BLOCK_SIZE / 2;
+    private static final int MAX_BLOCK_SIZE = BLOCK_SIZE * 2;
+    private static final int CUT_BITS = 7;
+
+    // Entradas por página do diretório (em média); as páginas dividem o espaço de chaves pelos bits mais altos.
+    private static final int PAGE_ENTRIES = 2048;
+    private static final int DIRECTORY_ENTRY_SIZE = 16;
+
+    private static final int MAGIC = 0x53504D56; // "SPMV"
+    private static final int FORMAT_VERSION = 4;
+    private static final int HEADER_SIZE = 16;
+    private static final int TRAILER_SIZE = 28;
+    private static final int CHECKSUM_ENTRY_SIZE = 8;
+    private static final int RECORD_CHECKSUM_SIZE = 4;
+    private static final int TAG_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int DIGEST_LENGTH = 16;
+
+    // Tipos de conteúdo cifrado, distinguidos nos dados autenticados.
+    private static final byte KIND_BLOCK = 0;
+    private static final byte KIND_PAGE = 1;
+    private static final byte KIND_FOOTER = 2;
+    private static final byte KIND_JOURNAL = 3;
+
+    // Diário de alterações: magic e tamanho do cabeçalho, e tamanho a partir do qual o cofre é regravado
+    // (o maior entre o mínimo e uma fração do arquivo do cofre).
+    private static final int JOURNAL_MAGIC = 0x53504D4A; // "SPMJ"
+    private static final int JOURNAL_HEADER_SIZE = 16;
+    private static final long JOURNAL_MIN_BYTES = 1L << 20;
+    private static final int JOURNAL_RATIO = 4;
+
+    // Tamanho máximo de cada região mapeada em memória durante a verificação.
+    private static final long MAP_REGION_SIZE = 1L << 30;
+
+    // Flags de cada bloco: comprimido apenas quando isso economiza ao menos 1/8 do tamanho,
+    // pois blocos gravados sem compressão permitem identificar os registros de um bloco danificado.
+    private static final byte BLOCK_DEFLATED = 1;
+
+    // Flags dos campos opcionais de cada registro.
+    private static final int HAS_SERVICE = 1;
+    private static final int HAS_USERNAME = 1 << 1;
+    private static final int HAS_ENCRYPTED_SERVICE = 1 << 2;
+    private static final int HAS_ENCRYPTED_USERNAME = 1 << 3;
+    private static final int HAS_IV = 1 << 4;
+    private static final int HAS_FINGERPRINT = 1 << 5;
+    private static final int HAS_UPDATED_AT = 1 << 6;
+    private static final int HAS_CREATED_AT = 1 << 7;
+    private static final int ID_IS_UUID = 1 << 8;
+    private static final int KNOWN_FLAGS = (1 << 9) - 1;
+
+    private static final int IV_LENGTH = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Caminho do arquivo do cofre.
+    private final String vaultFile;
+
+    // Caminho do diário de alterações.
+    private final String journalFile;
+
+    // Último rodapé lido, reaproveitado enquanto o arquivo não mudar (tamanho e data de modificação).
+    private Footer cachedFooter;
+
+    // Último diário lido, reaproveitado enquanto ele e o cofre não mudarem.
+    private Journal cachedJournal;
+
+    /**
+     * Cria um gerenciador para o arquivo informado.
+     *
+     * @param vaultFile O caminho do arquivo do cofre.
+     */
+    public BlockVaultFile(String vaultFile) {
+        this.vaultFile = vaultFile;
+        this.journalFile = vaultFile + ".journal";
+    }
+
+    /**
+     * Deriva, a partir da chave do cofre, a subchave AES usada nos blocos.
+     */
+    public static SecretKey deriveBlockKey(SecretKey vaultKey) throws GeneralSecurityException {
+        return new SecretKeySpec(KeyedHashUtil.deriveKey(vaultKey, VAULT_FILE_PURPOSE).getEncoded(), "AES");
+    }
+
+    // Caminho do arquivo do cofre.
+    public String getPath() {
+        return vaultFile;
+    }
+
+    // Caminho do diário de alterações.
+    public String getJournalPath() {
+        return journalFile;
+    }
+
+    /**
+     * Indica se o arquivo do cofre existe.
+     */
+    public boolean exists() {
+        return Files.exists(Paths.get(vaultFile));
+    }
+
+    /**
+     * Apaga o arquivo do cofre e o seu diário de alterações.
+     */
+    public boolean delete() throws IOException {
+        Files.deleteIfExists(Paths.get(journalFile));
+        synchronized (this) {
+            cachedJournal = null;
+        }
+        return Files.deleteIfExists(Paths.get(vaultFile));
+    }
+
+    /**
+     * Grava todas as credenciais, substituindo o arquivo de forma atômica e apagando o diário
+     * de alterações. Blocos e páginas com o mesmo conteúdo do arquivo anterior são copiados
+     * sem recifrar; os demais são comprimidos e cifrados em paralelo.
+     *
+     * @param credentials As credenciais a gravar.
+     * @param blockKey    A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @throws IOException Se houver falha de escrita ou de criptografia.
+     */
+    public void writeAll(List<AccessCredential> credentials, SecretKey blockKey) throws IOException {
+        // 1. Serializa os registros e os agrupa em blocos com limites definidos pelo conteúdo.
+        List<byte[]> plainBlocks = new ArrayList<>();
+        List<Integer> blockCounts = new ArrayList<>();
+        long[] keys = new long[credentials.size()];
+        int[] blockOf = new int[credentials.size()];
+        ByteBuffer block = ByteBuffer.allocate(MAX_BLOCK_SIZE);
+        int inBlock = 0;
+        for (int i = 0; i < credentials.size(); i++) {
+            AccessCredential credential = credentials.get(i);
+            block = writeRecord(block, credential);
+            keys[i] = idKey(credential.getId());
+            blockOf[i] = plainBlocks.size();
+            inBlock++;
+            if (block.position() >= MAX_BLOCK_SIZE
+                    || (block.position() >= MIN_BLOCK_SIZE && (keys[i] * 0x9E3779B97F4A7C15L) >>> (64 - CUT_BITS) == 0)) {
+                plainBlocks.add(Arrays.copyOf(block.array(), block.position()));
+                blockCounts.add(inBlock);
+                block.clear();
+                inBlock = 0;
+            }
+        }
+        if (inBlock > 0) {
+            plainBlocks.add(Arrays.copyOf(block.array(), block.position()));
+            blockCounts.add(inBlock);
+        }
+
+        // 2. Identifica cada bloco pela chave do seu último registro (estável enquanto o bloco existir)
+        //    e monta as páginas do diretório: pares (chave do ID, bloco) ordenados pela chave.
+        int blockCount = plainBlocks.size();
+        long[] blockIds = new long[blockCount];
+        Set<Long> usedIds = new HashSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (i == keys.length - 1 || blockOf[i + 1] != blockOf[i]) {
+                long id = keys[i];
+                while (!usedIds.add(id)) id = id * 0x9E3779B97F4A7C15L + 1;
+                blockIds[blockOf[i]] = id;
+            }
+        }
+        List<byte[]> plainPages = directoryPages(keys, blockOf, blockIds);
+        int pageCount = plainPages.size();
+
+        // 3. Reaproveita os blocos e páginas inalterados do arquivo anterior.
+        byte[] header = header();
+        int items = blockCount + pageCount;
+        byte[][] plains = new byte[items][];
+        byte[][] sealed = new byte[items][];
+        byte[][] digests = new byte[items][];
+        byte[] blockFlags = new byte[blockCount];
+        int[] checksums = new int[items];
+        for (int i = 0; i < items; i++) {
+            plains[i] = i < blockCount ? plainBlocks.get(i) : plainPages.get(i - blockCount);
+            digests[i] = digest(plains[i]);
+        }
+        reuseUnchanged(blockKey, blockIds, pageCount, digests, sealed, blockFlags);
+
+        // 4. Comprime (se compensar) e cifra as partes novas e calcula o checksum de todas, em paralelo.
+        try {
+            IntStream.range(0, items).parallel().forEach(i -> {
+                if (sealed[i] == null) {
+                    byte[] plain = plains[i];
+                    if (i < blockCount) {
+                        byte[] packed = deflate(plain);
+                        if (packed.length <= plain.length - plain.length / 8) {
+                            blockFlags[i] = BLOCK_DEFLATED;
+                            plain = packed;
+                        }
+                    }
+                    try {
+                        sealed[i] = i < blockCount
+                                ? seal(plain, blockKey, aad(header, KIND_BLOCK, blockIds[i], digests[i]))
+                                : seal(plain, blockKey, aad(header, KIND_PAGE, i - blockCount, digests[i]));
+                    } catch (GeneralSecurityException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                checksums[i] = crc32c(sealed[i]);
+            });
+        } catch (IllegalStateException e) {
+            throw new IOException("Falha ao cifrar os blocos do cofre.", e.getCause());
+        }
+
+        // 5. Monta a tabela de checksums e o rodapé.
+        ByteBuffer table = ByteBuffer.allocate(items * CHECKSUM_ENTRY_SIZE);
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        footer.writeInt(blockCount);
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < items; i++) {
+            table.putInt(sealed[i].length).putInt(checksums[i]);
+            offset += sealed[i].length;
+            if (i < blockCount) {
+                footer.writeInt(sealed[i].length);
+                footer.writeInt(blockCounts.get(i));
+                footer.writeByte(blockFlags[i]);
+                footer.writeLong(blockIds[i]);
+                footer.write(digests[i]);
+            }
+        }
+        footer.writeInt(pageCount);
+        for (int p = 0; p < pageCount; p++) {
+            footer.writeInt(sealed[blockCount + p].length);
+            footer.write(digests[blockCount + p]);
+        }
+        byte[] sealedFooter;
+        try {
+            sealedFooter = seal(footerBytes.toByteArray(), blockKey, aad(header, KIND_FOOTER, 0, new byte[0]));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Falha ao cifrar o índice do cofre.", e);
+        }
+        int rootChecksum = rootChecksum(header, table.array(), sealedFooter);
+
+        // 6. Grava em um arquivo temporário e o move sobre o original.
+        Path target = Paths.get(vaultFile);
+        Path temp = Paths.get(vaultFile + ".tmp");
+        try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            file.write(header);
+            for (byte[] part : sealed) {
+                file.write(part);
+            }
+            file.write(table.array());
+            file.write(sealedFooter);
+            file.writeLong(offset);
+            file.writeLong(offset + table.capacity());
+            file.writeInt(sealedFooter.length);
+            file.writeInt(rootChecksum);
+            file.writeInt(MAGIC);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+
+        // As credenciais gravadas já incluem as alterações do diário; ele também deixa de valer para o
+        // novo arquivo, cujo rodapé tem outro identificador.
+        Files.deleteIfExists(Paths.get(journalFile));
+        synchronized (this) {
+            cachedFooter = null;
+            cachedJournal = null;
+        }
+    }
+
+    /**
+     * Grava inclusões, alterações e remoções sem regravar o cofre: elas vão, cifradas, para uma
+     * nova entrada no fim do diário de alterações, de modo que o custo depende só das
+     * credenciais alteradas. Se o cofre ainda não existir, ou se o diário passar do limite, o
+     * cofre é regravado por inteiro com as alterações (e o diário é apagado).
+     *
+     * @param upserts  As credenciais incluídas ou alteradas (substituem as de mesmo ID).
+     * @param removals Os IDs das credenciais removidas (aplicados depois das inclusões).
+     * @param blockKey A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @throws IOException Se houver falha de escrita ou de criptografia, ou se o diário atual estiver danificado.
+     */
+    public void appendChanges(Collection<AccessCredential> upserts, Collection<String> removals, SecretKey blockKey)
+            throws IOException {
+        if (upserts.isEmpty() && removals.isEmpty()) return;
+        Map<String, byte[]> changes = new LinkedHashMap<>();
+        for (AccessCredential credential : upserts) {
+            changes.put(credential.getId(), encodeRecord(credential));
+        }
+        for (String id : removals) {
+            changes.put(id, null);
+        }
+        byte[] plain = encodeChanges(changes);
+
+        // 1. Sem cofre, ou com o diário grande demais, regrava o cofre inteiro.
+        Footer footer = null;
+        Journal journal = null;
+        if (exists()) {
+            try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+                footer = readFooter(channel, blockKey);
+                journal = readJournal(footer, blockKey);
+            }
+        }
+        if (footer == null
+                || journal.validLength + Integer.BYTES + plain.length > Math.max(JOURNAL_MIN_BYTES, footer.fileSize / JOURNAL_RATIO)) {
+            writeAll(applyJournal(readAll(blockKey), changes), blockKey);
+            return;
+        }
+
+        // 2. Cifra a entrada com o seu número de ordem e a acrescenta depois da última entrada completa.
+        //    Um diário de outra versão do cofre (ou sem cabeçalho) é substituído por um novo.
+        byte[] header = journalHeader(footer.journalId);
+        byte[] sealed;
+        try {
+            sealed = seal(plain, blockKey, aad(header, KIND_JOURNAL, journal.entries, new byte[0]));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Falha ao cifrar as alterações do cofre.", e);
+        }
+        long position = journal.validLength;
+        ByteBuffer out = ByteBuffer.allocate((position == 0 ? JOURNAL_HEADER_SIZE : 0) + Integer.BYTES + sealed.length);
+        if (position == 0) out.put(header);
+        out.putInt(sealed.length).put(sealed).flip();
+        Path path = Paths.get(journalFile);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+            while (out.hasRemaining()) {
+                position += channel.write(out, position);
+            }
+            channel.force(false);
+        }
+
+        // 3. Atualiza uma cópia do diário em cache (leituras em andamento continuam com a anterior).
+        Journal updated = journal.copy();
+        updated.changes.putAll(changes);
+        updated.entries++;
+        updated.validLength = position;
+        updated.fileSize = position;
+        updated.lastModified = Files.getLastModifiedTime(path).toMillis();
+        synchronized (this) {
+            cachedJournal = updated;
+        }
+    }
+
+    /**
+     * Lê todas as credenciais, decifrando e descomprimindo os blocos em paralelo e aplicando
+     * o diário de alterações.
+     *
+     * @param blockKey A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @return As credenciais, na ordem em que foram gravadas.
+     * @throws IOException Se o arquivo estiver corrompido, adulterado ou a chave for incorreta.
+     */
+    public List<AccessCredential> readAll(SecretKey blockKey) throws IOException {
+        if (!exists()) return new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+            Footer footer = readFooter(channel, blockKey);
+            Journal journal = readJournal(footer, blockKey);
+            List<List<AccessCredential>> decoded = new ArrayList<>();
+            for (int b = 0; b < footer.blockCount; b++) decoded.add(null);
+            try {
+                IntStream.range(0, footer.blockCount).parallel().forEach(b -> {
+                    try {
+                        decoded.set(b, readBlock(channel, footer, b, blockKey));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            List<AccessCredential> all = new ArrayList<>(footer.recordCount);
+            for (List<AccessCredential> records : decoded) {
+                all.addAll(records);
+            }
+            return journal.changes.isEmpty() ? all : applyJournal(all, journal.changes);
+        }
+    }
+
+    /**
+     * Localiza uma credencial decifrando somente a página do diretório e o bloco que a contêm
+     * (ou apenas no diário de alterações, se ela foi alterada depois da última regravação).
+     *
+     * @param credentialId O ID da credencial.
+     * @param blockKey     A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @return A credencial, ou null se ela não existir.
+     * @throws IOException Se o arquivo estiver corrompido, adulterado ou a chave for incorreta.
+     */
+    public AccessCredential find(String credentialId, SecretKey blockKey) throws IOException {
+        if (!exists()) return null;
+        try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+            Footer footer = readFooter(channel, blockKey);
+            Journal journal = readJournal(footer, blockKey);
+            if (journal.changes.containsKey(credentialId)) {
+                byte[] record = journal.changes.get(credentialId);
+                return record == null ? null : decodeRecord(record);
+            }
+            if (footer.pageCount == 0) return null;
+            long key = idKey(credentialId);
+            int page = footer.pageBits == 0 ? 0 : (int) (key >>> (64 - footer.pageBits));
+            ByteBuffer entries = ByteBuffer.wrap(readPage(channel, footer, page, blockKey));
+
+            // Busca binária (sem sinal) pela primeira entrada com a chave; colisões são raras, mas possíveis.
+            int low = 0;
+            int high = entries.capacity() / DIRECTORY_ENTRY_SIZE;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Long.compareUnsigned(entries.getLong(mid * DIRECTORY_ENTRY_SIZE), key) < 0) low = mid + 1;
+                else high = mid;
+            }
+            for (int e = low; e < entries.capacity() / DIRECTORY_ENTRY_SIZE
+                    && entries.getLong(e * DIRECTORY_ENTRY_SIZE) == key; e++) {
+                Integer b = footer.blockIndex.get(entries.getLong(e * DIRECTORY_ENTRY_SIZE + Long.BYTES));
+                if (b == null) {
+                    throw new IOException("O diretório do cofre aponta para um bloco inexistente.");
+                }
+                for (AccessCredential credential : readBlock(channel, footer, b, blockKey)) {
+                    if (credential.getId().equals(credentialId)) return credential;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Verifica a integridade do arquivo sem decifrá-lo por inteiro. Confere o checksum raiz e,
+     * em paralelo sobre o arquivo mapeado em memória, o CRC32C de cada bloco e página. Só as
+     * partes danificadas são decifradas: um bloco que falha na autenticação do GCM é dado como
+     * perdido por inteiro, e o relatório traz os IDs dos seus registros que ainda puderem ser lidos.
+     *
+     * @param blockKey A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @return O relatório da verificação.
+     * @throws IOException Se o arquivo não puder ser lido ou não estiver no formato esperado.
+     */
+    public IntegrityReport verify(SecretKey blockKey) throws IOException {
+        IntegrityReport report = new IntegrityReport();
+        if (!exists()) return report;
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+            // 1. Confere o checksum raiz (cabeçalho, tabela de checksums e rodapé).
+            long size = channel.size();
+            ByteBuffer trailer = readTrailer(channel, size);
+            long tableOffset = trailer.getLong(0);
+            long footerOffset = trailer.getLong(8);
+            int footerLength = trailer.getInt(16);
+            if (tableOffset < HEADER_SIZE || footerOffset < tableOffset || footerLength < 0
+                    || footerOffset + footerLength > size - TRAILER_SIZE
+                    || (footerOffset - tableOffset) % CHECKSUM_ENTRY_SIZE != 0) {
+                report.indexDamaged = true;
+                return report.finish(start);
+            }
+            byte[] header = readFully(channel, 0, HEADER_SIZE).array();
+            byte[] table = readFully(channel, tableOffset, (int) (footerOffset - tableOffset)).array();
+            byte[] sealedFooter = readFully(channel, footerOffset, footerLength).array();
+            report.rootValid = rootChecksum(header, table, sealedFooter) == trailer.getInt(20);
+
+            // 2. Com a tabela íntegra, confere todas as partes em paralelo sem decifrá-las.
+            //    Se a raiz não confere, a tabela não é confiável e todos os blocos são decifrados.
+            ByteBuffer tableBuffer = ByteBuffer.wrap(table);
+            int items = table.length / CHECKSUM_ENTRY_SIZE;
+            boolean[] suspect = new boolean[items];
+            if (report.rootValid) {
+                long[] offsets = new long[items];
+                int[] lengths = new int[items];
+                long offset = HEADER_SIZE;
+                for (int i = 0; i < items; i++) {
+                    offsets[i] = offset;
+                    lengths[i] = tableBuffer.getInt(i * CHECKSUM_ENTRY_SIZE);
+                    offset += lengths[i];
+                }
+                if (offset != tableOffset) {
+                    throw new IOException("A tabela de checksums do cofre '" + vaultFile + "' é inconsistente.");
+                }
+                checkParts(channel, offsets, lengths, tableBuffer, suspect);
+                report.bytesVerified = size;
+            }
+
+            // 3. Decifra o rodapé: ele indica quais partes são blocos e quais são páginas.
+            Footer footer;
+            try {
+                footer = readFooter(channel, blockKey);
+            } catch (IOException e) {
+                report.indexDamaged = true;
+                return report.finish(start);
+            }
+            report.blockCount = footer.blockCount;
+            report.recordCount = footer.recordCount;
+            if (!report.rootValid || suspect.length != footer.blockCount + footer.pageCount) {
+                suspect = new boolean[footer.blockCount + footer.pageCount];
+                Arrays.fill(suspect, true);
+            }
+
+            // 4. Páginas do diretório: são derivadas dos blocos e reconstruídas na regravação.
+            for (int p = 0; p < footer.pageCount; p++) {
+                if (!suspect[footer.blockCount + p]) continue;
+                try {
+                    readPage(channel, footer, p, blockKey);
+                } catch (IOException e) {
+                    report.damagedPages++;
+                }
+            }
+
+            // 5. Blocos suspeitos: os que passam na autenticação do GCM estão íntegros; dos demais,
+            //    apenas os IDs dos registros afetados são levantados.
+            Map<Long, Set<Long>> expectedKeys = null;
+            for (int b = 0; b < footer.blockCount; b++) {
+                if (!suspect[b]) continue;
+                byte[] sealed = readFully(channel, footer.blockOffsets[b], footer.blockLengths[b]).array();
+                try {
+                    open(sealed, blockKey, aad(footer.header, KIND_BLOCK, footer.blockIds[b], footer.blockDigests[b]));
+                    continue; // Bloco íntegro; apenas a tabela de checksums estava danificada.
+                } catch (GeneralSecurityException e) {
+                    report.damagedBlocks.add(b);
+                }
+                if (expectedKeys == null) expectedKeys = keysByBlock(channel, footer, blockKey);
+                identifyDamaged(sealed, footer, b, expectedKeys.getOrDefault(footer.blockIds[b], new HashSet<>()),
+                        blockKey, report);
+            }
+
+            // 6. Diário de alterações: a partir da primeira entrada que falha na autenticação, nenhuma é aproveitada.
+            report.damagedJournalEntries = scanJournal(journalBytes(), new Journal(footer.journalId, blockKey), false);
+        }
+        return report.finish(start);
+    }
+
+    /**
+     * Lê todas as credenciais íntegras de um cofre danificado: os blocos sem danos são lidos
+     * normalmente e os danificados são descartados por inteiro, pois o conteúdo de um bloco que
+     * falhou na autenticação não é confiável. Do diário de alterações são aplicadas as entradas
+     * anteriores à primeira danificada.
+     *
+     * @param report   O relatório obtido em {@link #verify(SecretKey)}.
+     * @param blockKey A subchave obtida em {@link #deriveBlockKey(SecretKey)}.
+     * @return As credenciais íntegras.
+     * @throws IOException Se o índice do cofre estiver danificado ou o arquivo não puder ser lido.
+     */
+    public List<AccessCredential> readHealthy(IntegrityReport report, SecretKey blockKey) throws IOException {
+        if (report.indexDamaged) {
+            throw new IOException("O índice do cofre está danificado; não é possível localizar os blocos.");
+        }
+        List<AccessCredential> healthy = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+            Footer footer = readFooter(channel, blockKey);
+            for (int b = 0; b < footer.blockCount; b++) {
+                if (!report.damagedBlocks.contains(b)) {
+                    healthy.addAll(readBlock(channel, footer, b, blockKey));
+                }
+            }
+            Journal journal = new Journal(footer.journalId, blockKey);
+            scanJournal(journalBytes(), journal, false);
+            return applyJournal(healthy, journal.changes);
+        }
+    }
+
+    /**
+     * Resultado de {@link #verify(SecretKey)}.
+     */
+    public static final class IntegrityReport {
+        private int blockCount;
+        private int recordCount;
+        private long bytesVerified;
+        private long elapsedNanos;
+        private boolean rootValid = true;
+        private boolean indexDamaged;
+        private int damagedPages;
+        private final List<Integer> damagedBlocks = new ArrayList<>();
+        private final List<String> damagedIds = new ArrayList<>();
+        private int unreadableRecords;
+        private int damagedJournalEntries;
+
+        // Indica se nenhum dano foi encontrado.
+        public boolean isHealthy() {
+            return rootValid && !indexDamaged && damagedPages == 0 && damagedBlocks.isEmpty() && damagedJournalEntries == 0;
+        }
+
+        public int getBlockCount() {
+            return blockCount;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        // Bytes conferidos pelos checksums (o arquivo inteiro, quando a tabela está íntegra).
+        public long getBytesVerified() {
+            return bytesVerified;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Indica se o checksum raiz (cabeçalho, tabela e rodapé) confere.
+        public boolean isRootValid() {
+            return rootValid;
+        }
+
+        // Indica se o rodapé não pôde ser lido; nesse caso nenhum bloco pode ser localizado.
+        public boolean isIndexDamaged() {
+            return indexDamaged;
+        }
+
+        // Páginas do diretório danificadas (nenhuma credencial se perde; o diretório é reconstruído ao regravar).
+        public int getDamagedPages() {
+            return damagedPages;
+        }
+
+        public List<Integer> getDamagedBlocks() {
+            return damagedBlocks;
+        }
+
+        // IDs dos registros dos blocos danificados cujo ID ainda pôde ser lido (apenas informativos:
+        // vêm de um bloco não autenticado).
+        public List<String> getDamagedIds() {
+            return damagedIds;
+        }
+
+        // Registros dos blocos danificados cujo próprio ID está ilegível (ou em bloco comprimido).
+        public int getUnreadableRecords() {
+            return unreadableRecords;
+        }
+
+        // Entradas do diário de alterações descartadas: a primeira que falhou na autenticação e as seguintes.
+        public int getDamagedJournalEntries() {
+            return damagedJournalEntries;
+        }
+
+        private IntegrityReport finish(long start) {
+            elapsedNanos = System.nanoTime() - start;
+            return this;
+        }
+    }
+
+    // Índice lido do rodapé, com as páginas do diretório já decifradas.
+    private static final class Footer {
+        byte[] header;
+        int blockCount;
+        long[] blockOffsets;
+        int[] blockLengths;
+        byte[] blockFlags;
+        long[] blockIds;
+        byte[][] blockDigests;
+        Map<Long, Integer> blockIndex;
+        int recordCount;
+        int pageCount;
+        int pageBits;
+        long[] pageOffsets;
+        int[] pageLengths;
+        byte[][] pageDigests;
+        byte[][] pages;
+        long fileSize;
+        long lastModified;
+        SecretKey key;
+        // Identifica esta versão do arquivo no diário de alterações (o rodapé cifrado muda a cada gravação).
+        long journalId;
+    }
+
+    // Alterações do diário já decifradas, na ordem de gravação: o registro codificado, ou null para uma remoção.
+    private static final class Journal {
+        final long baseId;
+        final SecretKey key;
+        final Map<String, byte[]> changes;
+        int entries;
+        long validLength;
+        long fileSize = -1;
+        long lastModified;
+
+        Journal(long baseId, SecretKey key) {
+            this(baseId, key, new LinkedHashMap<>());
+        }
+
+        private Journal(long baseId, SecretKey key, Map<String, byte[]> changes) {
+            this.baseId = baseId;
+            this.key = key;
+            this.changes = changes;
+        }
+
+        Journal copy() {
+            Journal copy = new Journal(baseId, key, new LinkedHashMap<>(changes));
+            copy.entries = entries;
+            copy.validLength = validLength;
+            return copy;
+        }
+    }
+
+    private Footer readFooter(FileChannel channel, SecretKey blockKey) throws IOException {
+        long size = channel.size();
+        long modified = Files.getLastModifiedTime(Paths.get(vaultFile)).toMillis();
+        synchronized (this) {
+            Footer cached = cachedFooter;
+            if (cached != null && cached.fileSize == size && cached.lastModified == modified && cached.key == blockKey) {
+                return cached;
+            }
+        }
+        ByteBuffer trailer = readTrailer(channel, size);
+        long footerOffset = trailer.getLong(8);
+        int footerLength = trailer.getInt(16);
+        if (footerOffset < HEADER_SIZE || footerLength < 0 || footerOffset + footerLength > size - TRAILER_SIZE) {
+            throw new IOException("O trailer do cofre '" + vaultFile + "' está corrompido.");
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        byte[] sealedFooter = readFully(channel, footerOffset, footerLength).array();
+
+        Footer footer = new Footer();
+        footer.header = header.array();
+        footer.fileSize = size;
+        footer.lastModified = modified;
+        footer.key = blockKey;
+        footer.journalId = ByteBuffer.wrap(digest(sealedFooter)).getLong();
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(open(sealedFooter, blockKey, aad(footer.header, KIND_FOOTER, 0, new byte[0])));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível decifrar o índice do cofre (chave incorreta ou arquivo adulterado).", e);
+        }
+        try {
+            footer.blockCount = in.getInt();
+            footer.blockOffsets = new long[footer.blockCount];
+            footer.blockLengths = new int[footer.blockCount];
+            footer.blockFlags = new byte[footer.blockCount];
+            footer.blockIds = new long[footer.blockCount];
+            footer.blockDigests = new byte[footer.blockCount][DIGEST_LENGTH];
+            footer.blockIndex = new HashMap<>();
+            long offset = HEADER_SIZE;
+            for (int b = 0; b < footer.blockCount; b++) {
+                footer.blockOffsets[b] = offset;
+                footer.blockLengths[b] = in.getInt();
+                footer.recordCount += in.getInt();
+                footer.blockFlags[b] = in.get();
+                footer.blockIds[b] = in.getLong();
+                in.get(footer.blockDigests[b]);
+                footer.blockIndex.put(footer.blockIds[b], b);
+                offset += footer.blockLengths[b];
+            }
+            footer.pageCount = in.getInt();
+            footer.pageBits = Integer.numberOfTrailingZeros(Math.max(1, footer.pageCount));
+            footer.pageOffsets = new long[footer.pageCount];
+            footer.pageLengths = new int[footer.pageCount];
+            footer.pageDigests = new byte[footer.pageCount][DIGEST_LENGTH];
+            footer.pages = new byte[footer.pageCount][];
+            for (int p = 0; p < footer.pageCount; p++) {
+                footer.pageOffsets[p] = offset;
+                footer.pageLengths[p] = in.getInt();
+                in.get(footer.pageDigests[p]);
+                offset += footer.pageLengths[p];
+            }
+            if (offset > footerOffset || Integer.bitCount(Math.max(1, footer.pageCount)) != 1) {
+                throw new IOException("O índice do cofre '" + vaultFile + "' está corrompido.");
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("O índice do cofre '" + vaultFile + "' está corrompido.", e);
+        }
+        synchronized (this) {
+            cachedFooter = footer;
+        }
+        return footer;
+    }
+
+    // Lê o diário de alterações do cofre atual (vazio se não existir ou for de outra versão do cofre).
+    private Journal readJournal(Footer footer, SecretKey blockKey) throws IOException {
+        Path path = Paths.get(journalFile);
+        long size = Files.exists(path) ? Files.size(path) : -1;
+        long modified = size < 0 ? 0 : Files.getLastModifiedTime(path).toMillis();
+        synchronized (this) {
+            Journal cached = cachedJournal;
+            if (cached != null && cached.baseId == footer.journalId && cached.key == blockKey
+                    && cached.fileSize == size && cached.lastModified == modified) {
+                return cached;
+            }
+        }
+        Journal journal = new Journal(footer.journalId, blockKey);
+        byte[] data = journalBytes();
+        scanJournal(data, journal, true);
+        journal.fileSize = data == null ? -1 : data.length;
+        journal.lastModified = modified;
+        synchronized (this) {
+            cachedJournal = journal;
+        }
+        return journal;
+    }
+
+    private byte[] journalBytes() throws IOException {
+        try {
+            return Files.readAllBytes(Paths.get(journalFile));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decifra as entradas do diário e aplica as suas alterações. Para na primeira entrada
+     * incompleta (queda durante a gravação); um diário de outra versão do cofre é ignorado.
+     * Uma entrada que falha na autenticação interrompe a leitura com uma exceção ou, sem
+     * 'strict', é contada como danificada junto com todas as seguintes.
+     *
+     * @return A quantidade de entradas danificadas.
+     */
+    private int scanJournal(byte[] data, Journal journal, boolean strict) throws IOException {
+        if (data == null || data.length < JOURNAL_HEADER_SIZE) return 0;
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.getInt(0) != JOURNAL_MAGIC) {
+            throw new IOException("O diário de alterações '" + journalFile + "' está em um formato desconhecido.");
+        }
+        if (in.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("O diário de alterações '" + journalFile + "' usa a versão " + in.getInt(4)
+                    + " do formato, incompatível com a versão " + FORMAT_VERSION + " desta aplicação.");
+        }
+        if (in.getLong(8) != journal.baseId) return 0; // Já incorporado a uma regravação do cofre.
+        byte[] header = Arrays.copyOf(data, JOURNAL_HEADER_SIZE);
+        int position = JOURNAL_HEADER_SIZE;
+        journal.validLength = position;
+        int damaged = 0;
+        while (data.length - position >= Integer.BYTES) {
+            int length = in.getInt(position);
+            if (length < 0 || length > data.length - position - Integer.BYTES) break;
+            if (damaged == 0) {
+                try {
+                    byte[] sealed = Arrays.copyOfRange(data, position + Integer.BYTES, position + Integer.BYTES + length);
+                    byte[] plain = open(sealed, journal.key, aad(header, KIND_JOURNAL, journal.entries, new byte[0]));
+                    decodeChanges(plain, journal.changes);
+                    journal.entries++;
+                    journal.validLength = position + Integer.BYTES + length;
+                } catch (GeneralSecurityException | BufferUnderflowException | IllegalArgumentException e) {
+                    if (strict) {
+                        throw new IOException("Não foi possível decifrar a entrada " + journal.entries + " do diário de alterações "
+                                + "do cofre (chave incorreta ou arquivo danificado). Use a verificação de integridade.", e);
+                    }
+                    damaged++;
+                }
+            } else {
+                damaged++;
+            }
+            position += Integer.BYTES + length;
+        }
+        return damaged;
+    }
+
+    // Conteúdo de uma entrada do diário: [quantidade | [ID | tamanho do registro (-1 para remoção) | registro]].
+    private static byte[] encodeChanges(Map<String, byte[]> changes) {
+        int size = Integer.BYTES;
+        for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+            size += fieldSize(utf8(change.getKey())) + Integer.BYTES + (change.getValue() == null ? 0 : change.getValue().length);
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(changes.size());
+        for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+            putField(out, utf8(change.getKey()));
+            if (change.getValue() == null) {
+                out.putInt(-1);
+            } else {
+                out.putInt(change.getValue().length).put(change.getValue());
+            }
+        }
+        return out.array();
+    }
+
+    private static void decodeChanges(byte[] plain, Map<String, byte[]> changes) {
+        ByteBuffer in = ByteBuffer.wrap(plain);
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String id = getString(in);
+            int length = in.getInt();
+            if (length > in.remaining()) throw new BufferUnderflowException();
+            byte[] record = null;
+            if (length >= 0) {
+                record = new byte[length];
+                in.get(record);
+            }
+            changes.put(id, record);
+        }
+    }
+
+    // Aplica as alterações sobre as credenciais: substitui ou remove na mesma posição e acrescenta as novas no fim.
+    private static List<AccessCredential> applyJournal(List<AccessCredential> credentials, Map<String, byte[]> changes)
+            throws IOException {
+        List<AccessCredential> merged = new ArrayList<>(credentials.size() + changes.size());
+        Set<String> applied = new HashSet<>();
+        for (AccessCredential credential : credentials) {
+            String id = credential.getId();
+            if (!changes.containsKey(id)) {
+                merged.add(credential);
+            } else if (applied.add(id) && changes.get(id) != null) {
+                merged.add(decodeRecord(changes.get(id)));
+            }
+        }
+        for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+            if (change.getValue() != null && !applied.contains(change.getKey())) {
+                merged.add(decodeRecord(change.getValue()));
+            }
+        }
+        return merged;
+    }
+
+    private static byte[] journalHeader(long baseId) {
+        return ByteBuffer.allocate(JOURNAL_HEADER_SIZE).putInt(JOURNAL_MAGIC).putInt(FORMAT_VERSION).putLong(baseId).array();
+    }
+
+    // Lê o trailer e confere o formato do arquivo.
+    private ByteBuffer readTrailer(FileChannel channel, long size) throws IOException {
+        if (size < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IOException("O arquivo do cofre '" + vaultFile + "' está truncado.");
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        if (header.getInt(0) != MAGIC || trailer.getInt(24) != MAGIC) {
+            throw new IOException("O arquivo do cofre '" + vaultFile + "' está em um formato desconhecido.");
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("O arquivo do cofre '" + vaultFile + "' usa a versão " + header.getInt(4)
+                    + " do formato, incompatível com a versão " + FORMAT_VERSION + " desta aplicação.");
+        }
+        return trailer;
+    }
+
+    private List<AccessCredential> readBlock(FileChannel channel, Footer footer, int b, SecretKey blockKey) throws IOException {
+        // O relógio só é lido com a gravação do JFR ativa; desativado, o evento não custa nada.
+        VaultBlockEvent event = new VaultBlockEvent();
+        boolean timed = event.isEnabled();
+        event.begin();
+        long start = timed ? System.nanoTime() : 0;
+        byte[] sealed = readFully(channel, footer.blockOffsets[b], footer.blockLengths[b]).array();
+        long read = timed ? System.nanoTime() : 0;
+        byte[] plain;
+        try {
+            plain = open(sealed, blockKey, aad(footer.header, KIND_BLOCK, footer.blockIds[b], footer.blockDigests[b]));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível decifrar o bloco " + b + " do cofre (chave incorreta ou arquivo danificado). "
+                    + "Use a verificação de integridade para localizar os registros afetados.", e);
+        }
+        if ((footer.blockFlags[b] & BLOCK_DEFLATED) != 0) {
+            plain = inflate(plain);
+        }
+        ByteBuffer in = ByteBuffer.wrap(plain);
+        List<AccessCredential> records = new ArrayList<>();
+        try {
+            while (in.hasRemaining()) {
+                records.add(readRecord(in));
+                in.position(in.position() + RECORD_CHECKSUM_SIZE); // O bloco já foi autenticado pelo GCM.
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("O bloco " + b + " do cofre contém um registro inválido.", e);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.block = b;
+            event.bytes = sealed.length;
+            event.records = records.size();
+            event.diskTime = read - start;
+            event.decodeTime = System.nanoTime() - read;
+            event.commit();
+        }
+        return records;
+    }
+
+    // Decifra uma página do diretório (mantida no rodapé em cache para as próximas buscas).
+    private byte[] readPage(FileChannel channel, Footer footer, int p, SecretKey blockKey) throws IOException {
+        synchronized (footer) {
+            if (footer.pages[p] != null) return footer.pages[p];
+        }
+        byte[] sealed = readFully(channel, footer.pageOffsets[p], footer.pageLengths[p]).array();
+        byte[] page;
+        try {
+            page = open(sealed, blockKey, aad(footer.header, KIND_PAGE, p, footer.pageDigests[p]));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível decifrar a página " + p + " do diretório do cofre.", e);
+        }
+        synchronized (footer) {
+            footer.pages[p] = page;
+        }
+        return page;
+    }
+
+    // Divide o diretório em páginas pela chave (sem sinal); cada página guarda pares (chave, bloco) ordenados.
+    private static List<byte[]> directoryPages(long[] keys, int[] blockOf, long[] blockIds) {
+        int pageBits = 0;
+        while ((long) PAGE_ENTRIES << pageBits < keys.length) pageBits++;
+        int pageCount = keys.length == 0 ? 0 : 1 << pageBits;
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+
+        List<byte[]> pages = new ArrayList<>(pageCount);
+        int next = 0;
+        for (int p = 0; p < pageCount; p++) {
+            int first = next;
+            while (next < order.length && (pageBits == 0 || (int) (keys[order[next]] >>> (64 - pageBits)) == p)) next++;
+            ByteBuffer page = ByteBuffer.allocate((next - first) * DIRECTORY_ENTRY_SIZE);
+            for (int e = first; e < next; e++) {
+                page.putLong(keys[order[e]]).putLong(blockIds[blockOf[order[e]]]);
+            }
+            pages.add(page.array());
+        }
+        return pages;
+    }
+
+    // Chaves de ID de cada bloco, segundo as páginas do diretório que puderem ser lidas.
+    private Map<Long, Set<Long>> keysByBlock(FileChannel channel, Footer footer, SecretKey blockKey) {
+        Map<Long, Set<Long>> keys = new HashMap<>();
+        for (int p = 0; p < footer.pageCount; p++) {
+            ByteBuffer page;
+            try {
+                page = ByteBuffer.wrap(readPage(channel, footer, p, blockKey));
+            } catch (IOException e) {
+                continue;
+            }
+            while (page.hasRemaining()) {
+                long key = page.getLong();
+                keys.computeIfAbsent(page.getLong(), id -> new HashSet<>()).add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Copia do arquivo atual os blocos (mesmo identificador) e as páginas (mesma posição) cujo
+     * resumo coincide com o da parte nova, preservando as flags. Só são copiadas partes cujo
+     * CRC32C confere com a tabela de checksums, para que uma regravação nunca propague um
+     * bloco danificado. Falhas ao ler o arquivo anterior apenas desativam o reaproveitamento.
+     */
+    private void reuseUnchanged(SecretKey blockKey, long[] blockIds, int pageCount, byte[][] digests,
+                                byte[][] sealed, byte[] blockFlags) {
+        if (!exists()) return;
+        int blockCount = blockIds.length;
+        try (FileChannel channel = FileChannel.open(Paths.get(vaultFile), StandardOpenOption.READ)) {
+            Footer previous = readFooter(channel, blockKey);
+            ByteBuffer trailer = readTrailer(channel, channel.size());
+            int previousItems = previous.blockCount + previous.pageCount;
+            if (trailer.getLong(8) - trailer.getLong(0) != (long) previousItems * CHECKSUM_ENTRY_SIZE) return;
+            ByteBuffer table = readFully(channel, trailer.getLong(0), previousItems * CHECKSUM_ENTRY_SIZE);
+            for (int b = 0; b < blockCount; b++) {
+                Integer old = previous.blockIndex.get(blockIds[b]);
+                if (old == null || !Arrays.equals(previous.blockDigests[old], digests[b])) continue;
+                byte[] part = readFully(channel, previous.blockOffsets[old], previous.blockLengths[old]).array();
+                if (crc32c(part) != table.getInt(old * CHECKSUM_ENTRY_SIZE + Integer.BYTES)) continue;
+                sealed[b] = part;
+                blockFlags[b] = previous.blockFlags[old];
+            }
+            if (previous.pageCount == pageCount) {
+                for (int p = 0; p < pageCount; p++) {
+                    if (!Arrays.equals(previous.pageDigests[p], digests[blockCount + p])) continue;
+                    byte[] part = readFully(channel, previous.pageOffsets[p], previous.pageLengths[p]).array();
+                    if (crc32c(part) != table.getInt((previous.blockCount + p) * CHECKSUM_ENTRY_SIZE + Integer.BYTES)) continue;
+                    sealed[blockCount + p] = part;
+                }
+            }
+        } catch (IOException e) {
+            Arrays.fill(sealed, null);
+            Arrays.fill(blockFlags, (byte) 0);
+        }
+    }
+
+    // Confere o CRC32C de cada parte em paralelo, lendo o arquivo por regiões mapeadas em memória.
+    private static void checkParts(FileChannel channel, long[] offsets, int[] lengths, ByteBuffer table,
+                                   boolean[] suspect) throws IOException {
+        List<MappedByteBuffer> regions = new ArrayList<>();
+        List<Long> regionStarts = new ArrayList<>();
+        int[] regionOf = new int[offsets.length];
+        int first = 0;
+        while (first < offsets.length) {
+            int last = first;
+            while (last + 1 < offsets.length
+                    && offsets[last + 1] + lengths[last + 1] - offsets[first] <= MAP_REGION_SIZE) {
+                last++;
+            }
+            regions.add(channel.map(FileChannel.MapMode.READ_ONLY, offsets[first],
+                    offsets[last] + lengths[last] - offsets[first]));
+            regionStarts.add(offsets[first]);
+            for (int i = first; i <= last; i++) regionOf[i] = regions.size() - 1;
+            first = last + 1;
+        }
+        IntStream.range(0, offsets.length).parallel().forEach(i -> {
+            int region = regionOf[i];
+            CRC32C crc = new CRC32C();
+            crc.update(regions.get(region).slice((int) (offsets[i] - regionStarts.get(region)), lengths[i]));
+            suspect[i] = (int) crc.getValue() != table.getInt(i * CHECKSUM_ENTRY_SIZE + Integer.BYTES);
+        });
+    }
+
+    /**
+     * Levanta os IDs dos registros de um bloco que falhou na autenticação, para o relatório.
+     * Blocos sem compressão são decifrados em modo contador (o mesmo fluxo de chave do GCM, sem
+     * conferir a tag) e percorridos em busca de registros cuja chave de ID pertence ao bloco,
+     * segundo o diretório autenticado. Nenhum registro é aproveitado: sem a tag, o conteúdo pode
+     * ter sido alterado de propósito, e o CRC32C não impede isso.
+     */
+    private static void identifyDamaged(byte[] sealed, Footer footer, int b, Set<Long> expected,
+                                        SecretKey blockKey, IntegrityReport report) {
+        if ((footer.blockFlags[b] & BLOCK_DEFLATED) != 0 || sealed.length < NONCE_LENGTH + TAG_LENGTH) {
+            // Em um bloco comprimido, um byte danificado compromete todo o restante do bloco.
+            report.unreadableRecords += expected.size();
+            return;
+        }
+        byte[] plain;
+        try {
+            plain = keystreamDecrypt(sealed, blockKey);
+        } catch (GeneralSecurityException e) {
+            report.unreadableRecords += expected.size();
+            return;
+        }
+        Set<Long> missing = new HashSet<>(expected);
+        ByteBuffer in = ByteBuffer.wrap(plain);
+        int position = 0;
+        while (position < plain.length && !missing.isEmpty()) {
+            try {
+                in.position(position);
+                AccessCredential credential = readRecord(in);
+                if (missing.remove(idKey(credential.getId()))) {
+                    report.damagedIds.add(credential.getId());
+                    position = in.position() + RECORD_CHECKSUM_SIZE;
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // Não há um registro legível nesta posição.
+            }
+            position++;
+        }
+        report.unreadableRecords += missing.size();
+    }
+
+    // Decifra [nonce | texto cifrado + tag] em modo contador, a partir do contador inicial do GCM (nonce || 2).
+    private static byte[] keystreamDecrypt(byte[] sealed, SecretKey key) throws GeneralSecurityException {
+        byte[] counter = new byte[16];
+        System.arraycopy(sealed, 0, counter, 0, NONCE_LENGTH);
+        counter[15] = 2;
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key.getEncoded(), "AES"), new IvParameterSpec(counter));
+        return cipher.doFinal(sealed, NONCE_LENGTH, sealed.length - NONCE_LENGTH - TAG_LENGTH);
+    }
+
+    // Leitura posicional (segura para várias threads no mesmo FileChannel).
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Fim inesperado do arquivo do cofre.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(BLOCK_SIZE).putInt(0).array();
+    }
+
+    // Dados autenticados de cada parte: cabeçalho, tipo, identificador e resumo do conteúdo.
+    private static byte[] aad(byte[] header, byte kind, long id, byte[] digest) {
+        return ByteBuffer.allocate(header.length + 1 + Long.BYTES + digest.length)
+                .put(header).put(kind).putLong(id).put(digest).array();
+    }
+
+    // Cifra com AES-GCM: [nonce | texto cifrado + tag].
+    private static byte[] seal(byte[] plain, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(aad);
+        byte[] sealed = new byte[NONCE_LENGTH + cipher.getOutputSize(plain.length)];
+        System.arraycopy(nonce, 0, sealed, 0, NONCE_LENGTH);
+        cipher.doFinal(plain, 0, plain.length, sealed, NONCE_LENGTH);
+        return sealed;
+    }
+
+    private static byte[] open(byte[] sealed, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 0, NONCE_LENGTH));
+        cipher.updateAAD(aad);
+        return cipher.doFinal(sealed, NONCE_LENGTH, sealed.length - NONCE_LENGTH);
+    }
+
+    // Resumo (SHA-256 truncado) do conteúdo de um bloco ou página; fica apenas no rodapé cifrado.
+    private static byte[] digest(byte[] plain) {
+        try {
+            return Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(plain), DIGEST_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível nesta JVM.", e);
+        }
+    }
+
+    private static int crc32c(byte[] data) {
+        return crc32c(data, 0, data.length);
+    }
+
+    private static int crc32c(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // Checksum raiz: cobre o cabeçalho, a tabela de checksums e o rodapé cifrado.
+    private static int rootChecksum(byte[] header, byte[] table, byte[] sealedFooter) {
+        CRC32C crc = new CRC32C();
+        crc.update(header);
+        crc.update(table);
+        crc.update(sealedFooter);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Codifica uma credencial no mesmo formato binário dos registros do cofre (com o CRC32C
+     * no final). A codificação é determinística: credenciais iguais produzem os mesmos bytes.
+     */
+    static byte[] encodeRecord(AccessCredential credential) {
+        ByteBuffer buffer = writeRecord(ByteBuffer.allocate(512), credential);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decodifica um registro produzido por {@link #encodeRecord(AccessCredential)}, conferindo o CRC32C.
+     *
+     * @throws IOException Se os bytes não formarem um registro íntegro.
+     */
+    static AccessCredential decodeRecord(byte[] record) throws IOException {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(record);
+            AccessCredential credential = readRecord(in);
+            int end = in.position();
+            if (end + RECORD_CHECKSUM_SIZE != record.length || crc32c(record, 0, end) != in.getInt(end)) {
+                throw new IOException("Registro de credencial corrompido.");
+            }
+            return credential;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Registro de credencial inválido.", e);
+        }
+    }
+
+    /**
+     * Codifica um registro no buffer (ampliando-o se necessário) e retorna o buffer em uso.
+     * Campos opcionais são marcados em flags; o IV é omitido quando é o prefixo da senha cifrada.
+     * O registro termina com o CRC32C dos seus bytes.
+     */
+    private static ByteBuffer writeRecord(ByteBuffer buffer, AccessCredential credential) {
+        byte[] password = credential.getEncryptedPassword();
+        byte[] iv = credential.getIv();
+        boolean ivFromPassword = iv != null && password.length >= IV_LENGTH && iv.length == IV_LENGTH
+                && Arrays.equals(iv, 0, IV_LENGTH, password, 0, IV_LENGTH);
+        UUID uuid = canonicalUuid(credential.getId());
+        byte[] id = uuid == null ? utf8(credential.getId()) : null;
+        byte[] service = utf8(credential.getServiceName());
+        byte[] username = utf8(credential.getUsername());
+        int flags = (uuid != null ? ID_IS_UUID : 0)
+                | (service != null ? HAS_SERVICE : 0)
+                | (username != null ? HAS_USERNAME : 0)
+                | (credential.getEncryptedServiceName() != null ? HAS_ENCRYPTED_SERVICE : 0)
+                | (credential.getEncryptedUsername() != null ? HAS_ENCRYPTED_USERNAME : 0)
+                | (iv != null && !ivFromPassword ? HAS_IV : 0)
+                | (credential.getPasswordFingerprint() != null ? HAS_FINGERPRINT : 0)
+                | (credential.getVersion() > 1 ? HAS_UPDATED_AT : 0)
+                | (credential.getCreatedAt() != null ? HAS_CREATED_AT : 0);
+
+        int size = 2 + (uuid != null ? 16 : fieldSize(id)) + fieldSize(service) + fieldSize(username)
+                + fieldSize(credential.getEncryptedServiceName()) + fieldSize(credential.getEncryptedUsername())
+                + fieldSize(password) + ((flags & HAS_IV) != 0 ? fieldSize(iv) : 0)
+                + fieldSize(credential.getPasswordFingerprint()) + 12 + 16 + RECORD_CHECKSUM_SIZE;
+        if (buffer.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            buffer = grown.put(buffer);
+        }
+
+        int start = buffer.position();
+        buffer.putShort((short) flags);
+        if (uuid != null) {
+            buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        } else {
+            putField(buffer, id);
+        }
+        putField(buffer, service);
+        putField(buffer, username);
+        putField(buffer, credential.getEncryptedServiceName());
+        putField(buffer, credential.getEncryptedUsername());
+        putField(buffer, password);
+        if ((flags & HAS_IV) != 0) putField(buffer, iv);
+        putField(buffer, credential.getPasswordFingerprint());
+        if ((flags & HAS_CREATED_AT) != 0) putInstant(buffer, credential.getCreatedAt());
+        if ((flags & HAS_UPDATED_AT) != 0) {
+            buffer.putInt(credential.getVersion());
+            putInstant(buffer, credential.getUpdatedAt());
+        }
+        buffer.putInt(crc32c(buffer.array(), start, buffer.position() - start));
+        return buffer;
+    }
+
+    private static AccessCredential readRecord(ByteBuffer in) {
+        int flags = in.getShort() & 0xFFFF;
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new IllegalArgumentException("Registro com flags desconhecidas: " + flags);
+        }
+        String id = (flags & ID_IS_UUID) != 0 ? new UUID(in.getLong(), in.getLong()).toString() : getString(in);
+        String service = (flags & HAS_SERVICE) != 0 ? getString(in) : null;
+        String username = (flags & HAS_USERNAME) != 0 ? getString(in) : null;
+        byte[] encryptedService = (flags & HAS_ENCRYPTED_SERVICE) != 0 ? getField(in) : null;
+        byte[] encryptedUsername = (flags & HAS_ENCRYPTED_USERNAME) != 0 ? getField(in) : null;
+        byte[] password = getField(in);
+        byte[] iv = (flags & HAS_IV) != 0 ? getField(in) : Arrays.copyOf(password, Math.min(IV_LENGTH, password.length));
+        byte[] fingerprint = (flags & HAS_FINGERPRINT) != 0 ? getField(in) : null;
+        Instant createdAt = (flags & HAS_CREATED_AT) != 0 ? getInstant(in) : null;
+        AccessCredential credential = new AccessCredential(id, service, username, encryptedService, encryptedUsername,
+                password, iv, fingerprint, createdAt);
+        if ((flags & HAS_UPDATED_AT) != 0) {
+            credential.restoreVersion(in.getInt(), getInstant(in));
+        }
+        return credential;
+    }
+
+    private static int fieldSize(byte[] value) {
+        return value == null ? 0 : 2 + value.length;
+    }
+
+    // Campo com 2 bytes de tamanho; campos nulos não são gravados (a ausência fica nas flags).
+    private static void putField(ByteBuffer buffer, byte[] value) {
+        if (value == null) return;
+        if (value.length > 0xFFFF) {
+            throw new IllegalArgumentException("Campo de credencial grande demais para o cofre: " + value.length + " bytes.");
+        }
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static byte[] getField(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length > in.remaining()) throw new BufferUnderflowException();
+        byte[] value = new byte[length];
+        in.get(value);
+        return value;
+    }
+
+    private static String getString(ByteBuffer in) {
+        return new String(getField(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putInstant(ByteBuffer buffer, Instant instant) {
+        buffer.putLong(instant.getEpochSecond()).putInt(instant.getNano());
+    }
+
+    private static Instant getInstant(ByteBuffer in) {
+        return Instant.ofEpochSecond(in.getLong(), in.getInt());
+    }
+
+    // UUID do ID somente se a forma textual for a canônica (a conversão de volta é exata).
+    private static UUID canonicalUuid(String id) {
+        if (id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Chave de 64 bits do ID no diretório: os próprios bits do UUID ou, para outros IDs, FNV-1a.
+    private static long idKey(String id) {
+        UUID uuid = canonicalUuid(id);
+        if (uuid != null) {
+            return uuid.getMostSignificantBits() ^ (uuid.getLeastSignificantBits() * 0x9E3779B97F4A7C15L);
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[16 * 1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Bloco do cofre corrompido.");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco do cofre corrompido.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.securepm.repository;
+
+import com.securepm.model.AccessCredential;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Representação colunar e compacta das credenciais em memória. Em vez de um objeto
+ * AccessCredential (com String de ID, Instant e vários byte[]) por entrada, cada coluna
+ * é um array primitivo:
+ * - ID como dois longs (UUID);
+ * - datas de criação e da última troca de senha como long (nanossegundos desde a época);
+ * - versão da senha como int;
+ * - nomes de serviço em texto claro codificados por dicionário (um int por entrada);
+ * - todos os bytes cifrados de todas as entradas em uma única arena de bytes.
+ *
+ * Opcionalmente, cada linha guarda também na arena os nomes exibidos (serviço e usuário já
+ * descriptografados por quem usa a tabela), que nunca entram no AccessCredential criado
+ * por {@link #get(int)}.
+ *
+ * O IV da senha, que é idêntico aos 16 primeiros bytes do texto cifrado, não é duplicado.
+ * Objetos AccessCredential são criados apenas sob demanda, em {@link #get(int)}.
+ * As linhas seguem a ordem de inserção, mesmo após substituições e remoções. Uma remoção
+ * apenas marca a linha (lápide) e a tira da tabela hash; as linhas marcadas são retiradas
+ * de uma vez quando passam a ser metade da tabela, o que renumera as demais. Por isso, quem
+ * percorre a tabela vai de 0 a {@link #rowCount()} e pula as linhas {@link #isRemoved(int)},
+ * e quem guarda números de linha recebe a renumeração por {@link #onCompactRows(Consumer)}.
+ * A classe não é thread-safe.
+ */
+public class CompactCredentialTable {
+
+    // Campos variáveis gravados na arena, cada um com 2 bytes de tamanho na frente, nesta ordem:
+    // serviço cifrado, usuário cifrado, usuário em texto claro, senha cifrada, IV, impressão digital,
+    // serviço exibido e usuário exibido.
+    private static final int FIELD_COUNT = 8;
+    private static final int DISPLAY_SERVICE_FIELD = 6;
+    private static final int DISPLAY_USER_FIELD = 7;
+
+    // Marcadores de tamanho: campo nulo e IV igual ao início da senha cifrada.
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final int IV_FROM_PASSWORD = 0xFFFE;
+    private static final int MAX_FIELD_LENGTH = 0xFFFD;
+    private static final int IV_LENGTH = 16;
+
+    // Valor de 'arenaOffset' das linhas removidas.
+    private static final int REMOVED = -1;
+
+    // Lápides toleradas antes de uma compactação das linhas.
+    private static final int MIN_REMOVED_TO_COMPACT = 16;
+
+    // Colunas (uma posição por credencial).
+    private long[] idHigh;
+    private long[] idLow;
+    private long[] createdAtNanos;
+    private long[] updatedAtNanos;
+    private int[] version;
+    private int[] serviceCode;
+    private int[] arenaOffset;
+
+    // Linhas ocupadas (inclusive as removidas), credenciais ativas e linhas removidas.
+    private int rows;
+    private int size;
+    private int removed;
+
+    // IDs fora do formato UUID (raros; ex.: dados importados), guardados à parte por linha.
+    private final Map<Integer, String> irregularIds = new HashMap<>();
+
+    // Dicionário de nomes de serviço em texto claro (credenciais anteriores à criptografia desses campos).
+    private final List<String> serviceDictionary = new ArrayList<>();
+    private final Map<String, Integer> serviceCodes = new HashMap<>();
+
+    // Arena com os campos variáveis de todas as linhas; 'garbage' conta bytes de linhas removidas.
+    private byte[] arena;
+    private int arenaSize;
+    private int garbage;
+
+    // Tabela hash de endereçamento aberto: ID -> linha + 1 (0 indica posição vazia).
+    private int[] slots;
+
+    // Avisado a cada compactação das linhas, ou null.
+    private Consumer<int[]> rowListener;
+
+    /**
+     * Cria uma tabela vazia com capacidade inicial para 'capacity' credenciais.
+     */
+    public CompactCredentialTable(int capacity) {
+        int initial = Math.max(16, capacity);
+        idHigh = new long[initial];
+        idLow = new long[initial];
+        createdAtNanos = new long[initial];
+        updatedAtNanos = new long[initial];
+        version = new int[initial];
+        serviceCode = new int[initial];
+        arenaOffset = new int[initial];
+        arena = new byte[initial * 128];
+        slots = new int[Integer.highestOneBit(initial * 2 - 1) << 1];
+    }
+
+    /**
+     * Cria uma tabela com todas as credenciais da lista.
+     */
+    public static CompactCredentialTable of(List<AccessCredential> credentials) {
+        CompactCredentialTable table = new CompactCredentialTable(credentials.size());
+        for (AccessCredential credential : credentials) {
+            table.add(credential);
+        }
+        return table;
+    }
+
+    // Quantidade de credenciais na tabela.
+    public int size() {
+        return size;
+    }
+
+    // Quantidade de linhas, inclusive as removidas que ainda não foram compactadas.
+    public int rowCount() {
+        return rows;
+    }
+
+    // Indica se a linha pertence a uma credencial removida.
+    public boolean isRemoved(int row) {
+        return arenaOffset[row] == REMOVED;
+    }
+
+    /**
+     * Registra quem deve ser avisado quando {@link #compactRows()} renumera as linhas. O
+     * aviso traz, para cada linha anterior, a sua nova posição (-1 para as removidas).
+     */
+    public void onCompactRows(Consumer<int[]> listener) {
+        this.rowListener = listener;
+    }
+
+    /**
+     * Acrescenta uma credencial ao final da tabela, sem nomes exibidos. Se já existir uma com
+     * o mesmo ID, ela é substituída na própria linha, sem mudar de posição.
+     *
+     * @return A linha da credencial.
+     */
+    public int add(AccessCredential credential) {
+        return add(credential, null, null);
+    }
+
+    /**
+     * Acrescenta uma credencial ao final da tabela com os nomes exibidos de serviço e
+     * usuário. Se já existir uma com o mesmo ID, ela é substituída na própria linha, sem
+     * mudar de posição.
+     *
+     * @return A linha da credencial.
+     */
+    public int add(AccessCredential credential, String displayService, String displayUser) {
+        String id = credential.getId();
+        int existing = indexOf(id);
+        if (existing >= 0) {
+            replace(existing, credential, displayService, displayUser);
+            return existing;
+        }
+        ensureCapacity(rows + 1);
+        int row = rows++;
+        size++;
+
+        UUID uuid = parseUuid(id);
+        if (uuid != null) {
+            idHigh[row] = uuid.getMostSignificantBits();
+            idLow[row] = uuid.getLeastSignificantBits();
+        } else {
+            irregularIds.put(row, id);
+        }
+        writeRow(row, credential, displayService, displayUser);
+        insertSlot(row);
+        return row;
+    }
+
+    /**
+     * Substitui os dados da linha informada pelos da credencial, que deve ter o mesmo ID,
+     * mantendo os nomes exibidos. A linha não muda de posição; os campos anteriores ficam na
+     * arena até a próxima compactação.
+     *
+     * @throws IllegalArgumentException Se a credencial tiver outro ID.
+     */
+    public void replace(int row, AccessCredential credential) {
+        replace(row, credential, displayServiceName(row), displayUsername(row));
+    }
+
+    private void replace(int row, AccessCredential credential, String displayService, String displayUser) {
+        checkRow(row);
+        if (!idOf(row).equals(credential.getId())) {
+            throw new IllegalArgumentException("A credencial " + credential.getId() + " não ocupa a linha " + row + ".");
+        }
+        garbage += rowLength(row);
+        writeRow(row, credential, displayService, displayUser);
+        compactIfNeeded();
+    }
+
+    // Grava na linha as colunas e os campos variáveis (no final da arena) da credencial.
+    private void writeRow(int row, AccessCredential credential, String displayService, String displayUser) {
+        createdAtNanos[row] = toNanos(credential.getCreatedAt());
+        updatedAtNanos[row] = toNanos(credential.getUpdatedAt());
+        version[row] = credential.getVersion();
+        serviceCode[row] = encodeService(credential.getServiceName());
+
+        // IV deduplicado quando coincide com o prefixo da senha cifrada (caso do AESCryptoUtil).
+        byte[] password = credential.getEncryptedPassword();
+        byte[] iv = credential.getIv();
+        boolean ivFromPassword = iv != null && password != null && iv.length == IV_LENGTH && password.length >= IV_LENGTH
+                && Arrays.equals(iv, 0, IV_LENGTH, password, 0, IV_LENGTH);
+
+        byte[] username = credential.getUsername() == null ? null : credential.getUsername().getBytes(StandardCharsets.UTF_8);
+        arenaOffset[row] = arenaSize;
+        appendField(credential.getEncryptedServiceName());
+        appendField(credential.getEncryptedUsername());
+        appendField(username);
+        appendField(password);
+        if (ivFromPassword) {
+            appendLength(IV_FROM_PASSWORD);
+        } else {
+            appendField(iv);
+        }
+        appendField(credential.getPasswordFingerprint());
+        appendField(displayService == null ? null : displayService.getBytes(StandardCharsets.UTF_8));
+        appendField(displayUser == null ? null : displayUser.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Remove a credencial com o ID informado, em tempo constante: a linha vira uma lápide e
+     * sai da tabela hash. Quando as lápides passam a ser metade das linhas, todas são
+     * retiradas em uma única passada, que renumera as linhas seguintes.
+     *
+     * @return 'true' se a credencial existia.
+     */
+    public boolean remove(String id) {
+        int row = indexOf(id);
+        if (row < 0) return false;
+        garbage += rowLength(row);
+        deleteSlot(row);
+        irregularIds.remove(row);
+        arenaOffset[row] = REMOVED;
+        size--;
+        removed++;
+        if (removed >= MIN_REMOVED_TO_COMPACT && removed * 2 > rows) {
+            compactRows();
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Retira as linhas removidas, deslocando as ativas para o início das colunas (na mesma
+     * ordem), e reconstrói a tabela hash com as novas posições.
+     */
+    public void compactRows() {
+        if (removed == 0) return;
+        int out = 0;
+        int[] remap = new int[rows];
+        Map<Integer, String> shifted = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            if (arenaOffset[row] == REMOVED) {
+                remap[row] = -1;
+                continue;
+            }
+            if (out != row) {
+                idHigh[out] = idHigh[row];
+                idLow[out] = idLow[row];
+                createdAtNanos[out] = createdAtNanos[row];
+                updatedAtNanos[out] = updatedAtNanos[row];
+                version[out] = version[row];
+                serviceCode[out] = serviceCode[row];
+                arenaOffset[out] = arenaOffset[row];
+            }
+            String irregular = irregularIds.get(row);
+            if (irregular != null) shifted.put(out, irregular);
+            remap[row] = out;
+            out++;
+        }
+        rows = out;
+        removed = 0;
+        irregularIds.clear();
+        irregularIds.putAll(shifted);
+        Arrays.fill(slots, 0);
+        for (int row = 0; row < rows; row++) {
+            insertSlot(row);
+        }
+        if (rowListener != null) {
+            rowListener.accept(remap);
+        }
+    }
+
+    // Compacta a arena quando mais da metade dela pertence a linhas removidas ou substituídas.
+    private void compactIfNeeded() {
+        if (garbage > arenaSize / 2) {
+            compactArena();
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Linha " + row + " fora da tabela de " + rows + " linhas.");
+        }
+        if (arenaOffset[row] == REMOVED) {
+            throw new IllegalArgumentException("A linha " + row + " pertence a uma credencial removida.");
+        }
+    }
+
+    /**
+     * Posição da credencial com o ID informado, ou -1 se ela não estiver na tabela.
+     */
+    public int indexOf(String id) {
+        UUID uuid = parseUuid(id);
+        if (uuid == null) {
+            for (Map.Entry<Integer, String> entry : irregularIds.entrySet()) {
+                if (entry.getValue().equals(id)) return entry.getKey();
+            }
+            return -1;
+        }
+        long high = uuid.getMostSignificantBits();
+        long low = uuid.getLeastSignificantBits();
+        int mask = slots.length - 1;
+        for (int slot = hash(high, low) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (idHigh[row] == high && idLow[row] == low) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Cria um AccessCredential com os dados da linha informada (uma cópia independente).
+     */
+    public AccessCredential get(int row) {
+        checkRow(row);
+        int[] position = {arenaOffset[row]};
+        byte[] encryptedService = readField(position);
+        byte[] encryptedUsername = readField(position);
+        byte[] username = readField(position);
+        byte[] password = readField(position);
+        byte[] iv;
+        if (readLength(position[0]) == IV_FROM_PASSWORD) {
+            position[0] += 2;
+            iv = Arrays.copyOf(password, IV_LENGTH);
+        } else {
+            iv = readField(position);
+        }
+        byte[] fingerprint = readField(position);
+
+        int code = serviceCode[row];
+        AccessCredential credential = new AccessCredential(idOf(row),
+                code < 0 ? null : serviceDictionary.get(code),
+                username == null ? null : new String(username, StandardCharsets.UTF_8),
+                encryptedService, encryptedUsername, password, iv, fingerprint, fromNanos(createdAtNanos[row]));
+        credential.restoreVersion(version[row], fromNanos(updatedAtNanos[row]));
+        return credential;
+    }
+
+    // Instant em nanossegundos desde a época (Long.MIN_VALUE representa nulo).
+    private static long toNanos(Instant instant) {
+        return instant == null ? Long.MIN_VALUE : instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static Instant fromNanos(long nanos) {
+        return nanos == Long.MIN_VALUE ? null : Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    /**
+     * Cria o AccessCredential da credencial com o ID informado, ou null se ela não existir.
+     */
+    public AccessCredential find(String id) {
+        int row = indexOf(id);
+        return row < 0 ? null : get(row);
+    }
+
+    // Nome de serviço exibido da linha, ou null se ela não tiver nomes exibidos.
+    public String displayServiceName(int row) {
+        return readText(row, DISPLAY_SERVICE_FIELD);
+    }
+
+    // Nome de usuário exibido da linha, ou null se ela não tiver nomes exibidos.
+    public String displayUsername(int row) {
+        return readText(row, DISPLAY_USER_FIELD);
+    }
+
+    // Decodifica um campo de texto da linha direto da arena.
+    private String readText(int row, int field) {
+        checkRow(row);
+        int position = arenaOffset[row];
+        for (int skipped = 0; skipped < field; skipped++) {
+            int length = readLength(position);
+            position += 2;
+            if (length != NULL_LENGTH && length != IV_FROM_PASSWORD) position += length;
+        }
+        int length = readLength(position);
+        return length == NULL_LENGTH ? null : new String(arena, position + 2, length, StandardCharsets.UTF_8);
+    }
+
+    // Retorna o ID da linha sem criar o AccessCredential.
+    public String idOf(int row) {
+        String irregular = irregularIds.get(row);
+        return irregular != null ? irregular : new UUID(idHigh[row], idLow[row]).toString();
+    }
+
+    /**
+     * Cria a lista completa de AccessCredential (por exemplo, para gravar o cofre em disco).
+     */
+    public List<AccessCredential> toList() {
+        List<AccessCredential> list = new ArrayList<>(size);
+        for (int row = 0; row < rows; row++) {
+            if (arenaOffset[row] != REMOVED) list.add(get(row));
+        }
+        return list;
+    }
+
+    /**
+     * Memória ocupada pelos arrays da tabela, em bytes (inclui a capacidade reservada).
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 16L * 8 + (long) idHigh.length * (8 + 8 + 8 + 8 + 4 + 4 + 4) + arena.length + slots.length * 4L;
+        for (String service : serviceDictionary) {
+            bytes += 24 + 16 + service.length() + 32 + 16;
+        }
+        return bytes + irregularIds.size() * 96L;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > idHigh.length) {
+            int capacity = Math.max(required, idHigh.length + (idHigh.length >> 1));
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            createdAtNanos = Arrays.copyOf(createdAtNanos, capacity);
+            updatedAtNanos = Arrays.copyOf(updatedAtNanos, capacity);
+            version = Arrays.copyOf(version, capacity);
+            serviceCode = Arrays.copyOf(serviceCode, capacity);
+            arenaOffset = Arrays.copyOf(arenaOffset, capacity);
+        }
+        // Mantém a tabela hash com no máximo 50% de ocupação.
+        if (required * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            for (int row = 0; row < rows; row++) {
+                if (arenaOffset[row] != REMOVED) insertSlot(row);
+            }
+        }
+    }
+
+    private int encodeService(String serviceName) {
+        if (serviceName == null) return -1;
+        Integer code = serviceCodes.get(serviceName);
+        if (code == null) {
+            code = serviceDictionary.size();
+            serviceDictionary.add(serviceName);
+            serviceCodes.put(serviceName, code);
+        }
+        return code;
+    }
+
+    private void appendField(byte[] value) {
+        if (value == null) {
+            appendLength(NULL_LENGTH);
+            return;
+        }
+        if (value.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Campo de credencial grande demais para a tabela compacta: " + value.length + " bytes.");
+        }
+        appendLength(value.length);
+        reserve(value.length);
+        System.arraycopy(value, 0, arena, arenaSize, value.length);
+        arenaSize += value.length;
+    }
+
+    private void appendLength(int length) {
+        reserve(2);
+        arena[arenaSize++] = (byte) (length >>> 8);
+        arena[arenaSize++] = (byte) length;
+    }
+
+    private void reserve(int bytes) {
+        if (arenaSize + bytes > arena.length) {
+            long grown = Math.max((long) arenaSize + bytes, arena.length + (long) (arena.length >> 1));
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("A arena de credenciais excedeu o limite de 2 GB.");
+            }
+            arena = Arrays.copyOf(arena, (int) grown);
+        }
+    }
+
+    private int readLength(int offset) {
+        return ((arena[offset] & 0xFF) << 8) | (arena[offset + 1] & 0xFF);
+    }
+
+    private byte[] readField(int[] position) {
+        int length = readLength(position[0]);
+        position[0] += 2;
+        if (length == NULL_LENGTH) return null;
+        byte[] value = Arrays.copyOfRange(arena, position[0], position[0] + length);
+        position[0] += length;
+        return value;
+    }
+
+    // Tamanho total, na arena, dos campos de uma linha.
+    private int rowLength(int row) {
+        int position = arenaOffset[row];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            int length = readLength(position);
+            position += 2;
+            if (length != NULL_LENGTH && length != IV_FROM_PASSWORD) position += length;
+        }
+        return position - arenaOffset[row];
+    }
+
+    // Copia apenas os campos das linhas ativas para uma nova arena.
+    private void compactArena() {
+        byte[] compacted = new byte[Math.max(arena.length / 2, arenaSize - garbage + 1024)];
+        int end = 0;
+        for (int row = 0; row < rows; row++) {
+            if (arenaOffset[row] == REMOVED) continue;
+            int length = rowLength(row);
+            System.arraycopy(arena, arenaOffset[row], compacted, end, length);
+            arenaOffset[row] = end;
+            end += length;
+        }
+        arena = compacted;
+        arenaSize = end;
+        garbage = 0;
+    }
+
+    private void insertSlot(int row) {
+        if (irregularIds.containsKey(row)) return;
+        int mask = slots.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    // Remove a linha da tabela hash, reposicionando as entradas seguintes do mesmo agrupamento.
+    private void deleteSlot(int row) {
+        if (irregularIds.containsKey(row)) return;
+        int mask = slots.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (slots[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = 0;
+        for (int next = (slot + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int moved = slots[next] - 1;
+            slots[next] = 0;
+            insertSlot(moved);
+        }
+    }
+
+    private static int hash(long high, long low) {
+        long mixed = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    // Converte o ID em UUID somente se a forma textual for a canônica (ida e volta sem perdas).
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package com.securepm.repository;
 
+import com.securepm.jfr.VaultIoEvent;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
 import com.securepm.model.AccessCredential;
+import com.securepm.model.DeletedCredential;
+import com.securepm.util.SerializationUtil;
 
+import javax.crypto.SecretKey;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Atua como uma camada de persistência para objetos AccessCredential.
@@ -16,14 +30,41 @@ import java.util.List;
  */
 public class CredentialManager {
 
+    // Latências de E/S do cofre em blocos: leitura completa, busca de um bloco e gravação completa.
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("vault_read", "Leitura completa do cofre (blocos decifrados).");
+    private static final LatencyHistogram FIND_LATENCY = Metrics.histogram("vault_find", "Leitura de uma credencial pelo ID (um bloco).");
+    private static final LatencyHistogram WRITE_LATENCY = Metrics.histogram("vault_write", "Gravação completa do cofre.");
+    private static final LatencyHistogram APPEND_LATENCY = Metrics.histogram("vault_append", "Gravação de alterações no diário do cofre.");
+
+    // Remoções em lote localizadas uma a uma no cofre; acima disso, ler o cofre inteiro uma vez sai mais barato.
+    private static final int MAX_LOOKUP_REMOVALS = 64;
+
     // Define o nome do arquivo que será usado para a persistência dos dados.
     private final String credentialsFile;
 
+    // Índice de impressões digitais de senha, mantido ao lado do arquivo de credenciais.
+    private final PasswordFingerprintIndex fingerprintIndex;
+
+    // Índice cego (blind index) para busca por serviço e usuário sem descriptografia.
+    private final BlindIndexManager blindIndex;
+
+    // Histórico de versões de senha, gravado por acréscimo fora do arquivo principal.
+    private final PasswordHistoryLog historyLog;
+
+    // Registros de exclusão (tombstones), usados para propagar exclusões na sincronização entre réplicas.
+    private final DeletionLog deletionLog;
+
+    // Cofre em blocos comprimidos e cifrados, que substitui o arquivo serializado após o desbloqueio.
+    private final BlockVaultFile vaultFile;
+
+    // Subchave dos blocos; nula enquanto o cofre não for desbloqueado.
+    private SecretKey blockKey;
+
     /**
      * Cria um gerenciador que utiliza o local de armazenamento padrão "credentials.dat".
      */
     public CredentialManager() {
-        this.credentialsFile = "credentials.dat";
+        this("credentials.dat");
     }
 
     /**
@@ -34,6 +75,140 @@ public class CredentialManager {
      */
     public CredentialManager(String credentialsFile) {
         this.credentialsFile = credentialsFile;
+        this.fingerprintIndex = new PasswordFingerprintIndex(siblingFile(credentialsFile, "-fingerprints.dat"));
+        this.blindIndex = new BlindIndexManager(siblingFile(credentialsFile, "-search.idx"));
+        this.historyLog = new PasswordHistoryLog(siblingFile(credentialsFile, "-history.log"));
+        this.deletionLog = new DeletionLog(siblingFile(credentialsFile, "-deletions.dat"));
+        this.vaultFile = new BlockVaultFile(siblingFile(credentialsFile, ".vault"));
+    }
+
+    // Monta o caminho de um arquivo auxiliar trocando a extensão do arquivo de credenciais por um sufixo.
+    static String siblingFile(String credentialsFile, String suffix) {
+        int dot = credentialsFile.lastIndexOf('.');
+        int slash = Math.max(credentialsFile.lastIndexOf('/'), credentialsFile.lastIndexOf('\\'));
+        String base = dot > slash ? credentialsFile.substring(0, dot) : credentialsFile;
+        return base + suffix;
+    }
+
+    /**
+     * Desbloqueia o cofre com a chave obtida no login. A partir daqui as credenciais são lidas
+     * e gravadas no arquivo em blocos cifrados; se ainda existir o arquivo serializado de uma
+     * versão anterior, ele é convertido e apagado.
+     *
+     * @param vaultKey A chave do cofre.
+     * @throws IOException Se houver falha ao converter ou ler o cofre.
+     * @throws ClassNotFoundException Se o arquivo antigo tiver um formato incompatível.
+     */
+    public void unlock(SecretKey vaultKey) throws IOException, ClassNotFoundException {
+        try {
+            SecretKey key = BlockVaultFile.deriveBlockKey(vaultKey);
+            Path legacy = Paths.get(this.credentialsFile);
+            if (Files.exists(legacy) && !vaultFile.exists()) {
+                vaultFile.writeAll(readSerialized(), key);
+                Files.delete(legacy);
+            }
+            this.blockKey = key;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível derivar a chave do arquivo do cofre.", e);
+        }
+    }
+
+    /**
+     * Indica se há um cofre gravado (em qualquer um dos formatos).
+     */
+    public boolean exists() {
+        return vaultFile.exists() || Files.exists(Paths.get(this.credentialsFile));
+    }
+
+    /**
+     * Busca uma credencial pelo ID. Com o cofre desbloqueado, apenas o bloco que a contém
+     * é decifrado.
+     *
+     * @param credentialId O ID da credencial.
+     * @return A credencial, ou null se não existir.
+     * @throws IOException Se houver falha ao ler o cofre.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public AccessCredential findById(String credentialId) throws IOException, ClassNotFoundException {
+        if (blockKey != null) {
+            VaultIoEvent event = new VaultIoEvent();
+            event.begin();
+            long start = System.nanoTime();
+            AccessCredential credential = vaultFile.find(credentialId, blockKey);
+            FIND_LATENCY.recordSince(start);
+            endIo(event, VaultIoEvent.FIND, credential == null ? 0 : 1);
+            return credential;
+        }
+        for (AccessCredential cred : getAll()) {
+            if (cred.getId().equals(credentialId)) {
+                return cred;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retorna o índice de impressões digitais de senha. Se o índice ainda não existir
+     * (cofre criado por uma versão anterior), ele é reconstruído a partir das credenciais.
+     *
+     * @return O índice pronto para consultas.
+     * @throws IOException Se houver falha ao ler as credenciais ou gravar o índice.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public PasswordFingerprintIndex getFingerprintIndex() throws IOException, ClassNotFoundException {
+        if (!fingerprintIndex.exists() && exists()) {
+            fingerprintIndex.rebuild(getAll());
+        }
+        return fingerprintIndex;
+    }
+
+    /**
+     * Retorna o índice de busca por tokens (blind index) associado a este arquivo de credenciais.
+     * Os tokens são calculados pela camada de serviço, que possui a chave do cofre.
+     *
+     * @return O índice de busca.
+     */
+    public BlindIndexManager getBlindIndex() {
+        return blindIndex;
+    }
+
+    /**
+     * Retorna os arquivos de dados deste cofre que devem entrar nos backups: o arquivo
+     * serializado (se ainda existir), o cofre em blocos, o histórico de senhas, os registros
+     * de exclusão, o diário de alterações do cofre em blocos e o registro de alterações das exclusões.
+     */
+    public List<String> getDataFiles() {
+        return List.of(credentialsFile, siblingFile(credentialsFile, ".vault"), siblingFile(credentialsFile, "-history.log"),
+                siblingFile(credentialsFile, "-deletions.dat"), vaultFile.getJournalPath(), deletionLog.getLogPath());
+    }
+
+    /**
+     * Retorna os índices derivados deste cofre, que são reconstruídos automaticamente
+     * quando não existem.
+     */
+    public List<String> getDerivedFiles() {
+        return List.of(siblingFile(credentialsFile, "-fingerprints.dat"), siblingFile(credentialsFile, "-search.idx"),
+                fingerprintIndex.getLogPath());
+    }
+
+    /**
+     * Retorna o histórico de versões de senha associado a este arquivo de credenciais.
+     *
+     * @return O histórico.
+     */
+    public PasswordHistoryLog getHistoryLog() {
+        return historyLog;
+    }
+
+    /**
+     * Retorna os registros de exclusão das credenciais apagadas deste cofre.
+     *
+     * @return Um mapa do ID da credencial para o seu registro de exclusão.
+     * @throws IOException Se houver falha ao ler o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public Map<String, DeletedCredential> getDeletions() throws IOException, ClassNotFoundException {
+        return deletionLog.getAll();
     }
 
     /**
@@ -45,6 +220,35 @@ public class CredentialManager {
      * @throws ClassNotFoundException Se a estrutura da classe no arquivo for incompatível.
      */
     public List<AccessCredential> getAll() throws IOException, ClassNotFoundException {
+        if (blockKey != null) {
+            VaultIoEvent event = new VaultIoEvent();
+            event.begin();
+            long start = System.nanoTime();
+            List<AccessCredential> all = vaultFile.readAll(blockKey);
+            READ_LATENCY.recordSince(start);
+            endIo(event, VaultIoEvent.READ, all.size());
+            return all;
+        }
+        if (vaultFile.exists()) {
+            throw new IOException("O cofre está bloqueado: faça o login antes de acessar as credenciais.");
+        }
+        return readSerialized();
+    }
+
+    // Encerra o evento de E/S do JFR; o tamanho do arquivo só é consultado se a gravação estiver ativa.
+    private void endIo(VaultIoEvent event, String operation, int records) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = vaultFile.getPath();
+            event.records = records;
+            event.bytes = new File(vaultFile.getPath()).length();
+            event.commit();
+        }
+    }
+
+    // Lê o arquivo no formato anterior (lista de credenciais serializada).
+    private List<AccessCredential> readSerialized() throws IOException, ClassNotFoundException {
         Path path = Paths.get(this.credentialsFile);
 
         if (!Files.exists(path)) {
@@ -54,7 +258,7 @@ public class CredentialManager {
         // Usa try-with-resources para garantir que o stream seja fechado.
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(this.credentialsFile))) {
             // Converte o objeto lido do arquivo para uma lista de credenciais.
-            return (List<AccessCredential>) ois.readObject();
+            return SerializationUtil.toList(ois.readObject(), AccessCredential.class);
         }
     }
 
@@ -66,22 +270,49 @@ public class CredentialManager {
      * @throws IOException Se um erro de I/O ocorrer durante a escrita no arquivo.
      */
     public void saveAll(List<AccessCredential> accessCredentials) throws IOException {
+        if (blockKey != null) {
+            VaultIoEvent event = new VaultIoEvent();
+            event.begin();
+            long start = System.nanoTime();
+            vaultFile.writeAll(accessCredentials, blockKey);
+            WRITE_LATENCY.recordSince(start);
+            endIo(event, VaultIoEvent.WRITE, accessCredentials.size());
+            return;
+        }
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.credentialsFile))) {
             oos.writeObject(accessCredentials); // Serializa e grava a lista inteira.
         }
     }
 
+    // Grava alterações no diário do cofre em blocos, sem regravá-lo (o cofre deve estar desbloqueado).
+    private void appendChanges(Collection<AccessCredential> upserts, Collection<String> removals) throws IOException {
+        VaultIoEvent event = new VaultIoEvent();
+        event.begin();
+        long start = System.nanoTime();
+        vaultFile.appendChanges(upserts, removals, blockKey);
+        APPEND_LATENCY.recordSince(start);
+        endIo(event, VaultIoEvent.APPEND, upserts.size() + removals.size());
+    }
+
     /**
      * Incorpora uma nova credencial à coleção existente e persiste a alteração no arquivo.
+     * Com o cofre desbloqueado, apenas a nova credencial é gravada (no diário de alterações).
      *
      * @param accessCredential O novo objeto de credencial a ser adicionado.
      * @throws IOException Se houver falha ao ler ou salvar o arquivo.
      * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
      */
     public void add(AccessCredential accessCredential) throws IOException, ClassNotFoundException {
-        List<AccessCredential> currentList = getAll();
-        currentList.add(accessCredential);
-        saveAll(currentList);
+        // Obtém (ou reconstrói) o índice antes de gravar, para que ele reflita o estado anterior.
+        PasswordFingerprintIndex index = getFingerprintIndex();
+        if (blockKey != null) {
+            appendChanges(List.of(accessCredential), List.of());
+        } else {
+            List<AccessCredential> currentList = getAll();
+            currentList.add(accessCredential);
+            saveAll(currentList);
+        }
+        index.add(accessCredential.getPasswordFingerprint(), accessCredential.getId());
     }
 
     /**
@@ -93,16 +324,245 @@ public class CredentialManager {
      * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
      */
     public boolean removeById(String credentialId) throws IOException, ClassNotFoundException {
-        List<AccessCredential> currentList = getAll();
-        // O método removeIf retorna true se a coleção foi modificada.
-        boolean removed = currentList.removeIf(cred -> cred.getId().equals(credentialId));
+        AccessCredential target;
+        if (blockKey != null) {
+            // Localiza a credencial por um único bloco e grava só a remoção.
+            target = findById(credentialId);
+            if (target == null) {
+                return false;
+            }
+            appendChanges(List.of(), List.of(credentialId));
+        } else {
+            List<AccessCredential> currentList = getAll();
+            target = null;
+            for (AccessCredential cred : currentList) {
+                if (cred.getId().equals(credentialId)) {
+                    target = cred;
+                    break;
+                }
+            }
 
-        if (removed) {
+            if (target == null) {
+                return false;
+            }
+            currentList.remove(target);
             saveAll(currentList); // Salva a lista apenas se algo foi removido.
         }
+        getFingerprintIndex().remove(target.getPasswordFingerprint(), credentialId);
+        historyLog.purge(credentialId);
+        deletionLog.record(new DeletedCredential(credentialId, target.getVersion(), Instant.now()));
+        return true;
+    }
+
+    /**
+     * Inclui e remove várias credenciais gravando o cofre uma única vez (modo em lote). Os
+     * índices de impressões digitais, o histórico e os registros de exclusão também são
+     * atualizados uma única vez. Com o cofre desbloqueado e poucas remoções, só as alterações
+     * são gravadas (no diário de alterações, que regrava o cofre quando fica grande).
+     *
+     * @param additions As novas credenciais.
+     * @param removals  Os IDs das credenciais a remover.
+     * @return As credenciais efetivamente removidas (IDs inexistentes são ignorados).
+     * @throws IOException Se houver falha ao ler ou salvar os arquivos.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public List<AccessCredential> applyBatch(Collection<AccessCredential> additions, Collection<String> removals)
+            throws IOException, ClassNotFoundException {
+        if (additions.isEmpty() && removals.isEmpty()) return new ArrayList<>();
+        PasswordFingerprintIndex index = getFingerprintIndex();
+        Map<String, AccessCredential> added = new LinkedHashMap<>();
+        for (AccessCredential cred : additions) {
+            added.put(cred.getId(), cred);
+        }
+        List<AccessCredential> removed = new ArrayList<>();
+        if (blockKey != null && removals.size() <= MAX_LOOKUP_REMOVALS) {
+            // 1. Só as alterações: cada remoção é localizada pelo seu bloco.
+            Set<String> removedIds = new LinkedHashSet<>();
+            for (String id : removals) {
+                AccessCredential target = added.remove(id);
+                if (target == null && !removedIds.contains(id)) {
+                    target = findById(id);
+                }
+                if (target != null && removedIds.add(id)) {
+                    removed.add(target);
+                }
+            }
+            appendChanges(added.values(), removedIds);
+        } else {
+            // 1. Regravação completa, com as inclusões aplicadas antes das remoções.
+            Map<String, AccessCredential> current = new LinkedHashMap<>();
+            for (AccessCredential cred : getAll()) {
+                current.put(cred.getId(), cred);
+            }
+            current.putAll(added);
+            for (String id : removals) {
+                AccessCredential target = current.remove(id);
+                if (target != null) {
+                    removed.add(target);
+                    added.remove(id);
+                }
+            }
+            saveAll(new ArrayList<>(current.values()));
+        }
+        List<AccessCredential> kept = new ArrayList<>(added.values());
+        index.update(kept, removed);
+        if (!removed.isEmpty()) {
+            Instant now = Instant.now();
+            Set<String> removedIds = new HashSet<>();
+            List<DeletedCredential> deletions = new ArrayList<>();
+            for (AccessCredential target : removed) {
+                removedIds.add(target.getId());
+                deletions.add(new DeletedCredential(target.getId(), target.getVersion(), now));
+            }
+            historyLog.purgeAll(removedIds);
+            deletionLog.update(deletions, List.of());
+        }
         return removed;
     }
 
+    /**
+     * Aplica de uma vez as alterações recebidas de outra réplica: inclui ou substitui as
+     * credenciais recebidas e apaga as excluídas, gravando o cofre uma única vez. A versão
+     * local de uma credencial substituída é preservada no histórico de senhas. Os índices de
+     * impressões digitais e de busca são apagados, para serem reconstruídos a partir do cofre.
+     *
+     * @param upserts   As credenciais a incluir ou substituir.
+     * @param deletions As exclusões a aplicar (e registrar).
+     * @throws IOException Se houver falha ao ler ou salvar os arquivos.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public void applyChanges(Collection<AccessCredential> upserts, Collection<DeletedCredential> deletions)
+            throws IOException, ClassNotFoundException {
+        if (upserts.isEmpty() && deletions.isEmpty()) return;
+        Map<String, AccessCredential> current = new LinkedHashMap<>();
+        for (AccessCredential cred : getAll()) {
+            current.put(cred.getId(), cred);
+        }
+        Set<String> revived = new HashSet<>();
+        List<AccessCredential> replacedVersions = new ArrayList<>();
+        for (AccessCredential incoming : upserts) {
+            AccessCredential replaced = current.put(incoming.getId(), incoming);
+            if (replaced != null) {
+                replacedVersions.add(replaced);
+            }
+            revived.add(incoming.getId());
+        }
+        List<String> removed = new ArrayList<>();
+        for (DeletedCredential deletion : deletions) {
+            if (current.remove(deletion.getId()) != null) {
+                removed.add(deletion.getId());
+            }
+        }
+        saveAll(new ArrayList<>(current.values()));
+        // O histórico só recebe as versões substituídas depois que o cofre foi gravado.
+        Instant now = Instant.now();
+        for (AccessCredential replaced : replacedVersions) {
+            historyLog.append(replaced, now);
+        }
+        for (String id : removed) {
+            historyLog.purge(id);
+        }
+        deletionLog.update(deletions, revived);
+        fingerprintIndex.delete();
+        blindIndex.delete();
+    }
+
+    /**
+     * Troca a senha de uma credencial mantendo seu ID e sua data de criação. A versão
+     * anterior só é acrescentada ao histórico depois que o cofre foi gravado, para que uma
+     * falha na gravação não deixe no histórico uma troca que não aconteceu. Com o cofre
+     * desbloqueado, apenas a credencial alterada é gravada (no diário de alterações).
+     *
+     * @param credentialId O ID da credencial.
+     * @param encryptedPassword A nova senha criptografada.
+     * @param iv O IV da nova senha.
+     * @param passwordFingerprint O HMAC da nova senha.
+     * @return A credencial atualizada, ou null se nenhuma tiver o ID informado.
+     * @throws IOException Se houver falha ao ler ou salvar os arquivos.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public AccessCredential updatePassword(String credentialId, byte[] encryptedPassword, byte[] iv,
+                                           byte[] passwordFingerprint) throws IOException, ClassNotFoundException {
+        PasswordFingerprintIndex index = getFingerprintIndex();
+        List<AccessCredential> currentList = null;
+        AccessCredential cred;
+        if (blockKey != null) {
+            cred = findById(credentialId);
+        } else {
+            currentList = getAll();
+            cred = null;
+            for (AccessCredential candidate : currentList) {
+                if (candidate.getId().equals(credentialId)) {
+                    cred = candidate;
+                    break;
+                }
+            }
+        }
+        if (cred == null) {
+            return null;
+        }
+        AccessCredential previous = copyOf(cred);
+        cred.replacePassword(encryptedPassword, iv, passwordFingerprint);
+        if (currentList == null) {
+            appendChanges(List.of(cred), List.of());
+        } else {
+            saveAll(currentList);
+        }
+        historyLog.append(previous, Instant.now());
+        index.remove(previous.getPasswordFingerprint(), credentialId);
+        index.add(passwordFingerprint, credentialId);
+        return cred;
+    }
+
+    // Cópia independente da credencial, com a versão e a data da última troca de senha.
+    private static AccessCredential copyOf(AccessCredential cred) {
+        AccessCredential copy = new AccessCredential(cred.getId(), cred.getServiceName(), cred.getUsername(),
+                cred.getEncryptedServiceName(), cred.getEncryptedUsername(), cred.getEncryptedPassword(), cred.getIv(),
+                cred.getPasswordFingerprint(), cred.getCreatedAt());
+        copy.restoreVersion(cred.getVersion(), cred.getUpdatedAt());
+        return copy;
+    }
+
+    /**
+     * Verifica a integridade do cofre: confere os checksums de todos os blocos e, nos blocos
+     * danificados, identifica os registros afetados.
+     *
+     * @return O relatório da verificação.
+     * @throws IOException Se o cofre estiver bloqueado ou não puder ser lido.
+     */
+    public BlockVaultFile.IntegrityReport verifyVault() throws IOException {
+        requireUnlocked();
+        return vaultFile.verify(blockKey);
+    }
+
+    /**
+     * Regrava o cofre apenas com as credenciais dos blocos que passaram na autenticação; os
+     * blocos danificados apontados pela verificação são descartados por inteiro. Os índices
+     * de impressões digitais e de busca são apagados, para serem reconstruídos a partir do
+     * cofre regravado, e o histórico das credenciais perdidas é descartado.
+     *
+     * @param report O relatório obtido em {@link #verifyVault()}.
+     * @return A quantidade de credenciais mantidas.
+     * @throws IOException Se o índice do cofre estiver danificado ou houver falha de escrita.
+     */
+    public int repairVault(BlockVaultFile.IntegrityReport report) throws IOException {
+        requireUnlocked();
+        List<AccessCredential> healthy = vaultFile.readHealthy(report, blockKey);
+        vaultFile.writeAll(healthy, blockKey);
+        fingerprintIndex.delete();
+        blindIndex.delete();
+        for (String id : report.getDamagedIds()) {
+            historyLog.purge(id);
+        }
+        return healthy.size();
+    }
+
+    private void requireUnlocked() throws IOException {
+        if (blockKey == null) {
+            throw new IOException("O cofre está bloqueado: faça o login antes de acessar as credenciais.");
+        }
+    }
+
     /**
      * Apaga de forma definitiva o arquivo de armazenamento de credenciais do disco.
      * Esta é uma operação destrutiva e irreversível.
@@ -112,6 +572,11 @@ public class CredentialManager {
      */
     public boolean deleteAll() throws IOException {
         Path path = Paths.get(this.credentialsFile);
-        return Files.deleteIfExists(path);
+        fingerprintIndex.delete();
+        blindIndex.delete();
+        historyLog.delete();
+        deletionLog.delete();
+        boolean deletedVault = vaultFile.delete();
+        return Files.deleteIfExists(path) || deletedVault;
     }
 }
\ No newline at end of file
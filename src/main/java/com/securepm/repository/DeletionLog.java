@@ -0,0 +1,177 @@
+package com.securepm.repository;
+
+import com.securepm.model.DeletedCredential;
+import com.securepm.util.SerializationUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persiste os registros de exclusão (tombstones) das credenciais, usados pela sincronização
+ * entre réplicas. Os registros ficam em um mapa serializado, indexado pelo ID da credencial,
+ * em um arquivo ao lado do cofre.
+ *
+ * Cada alteração é acrescentada como uma linha [+ | versão | data | ID] ou [- | ID] a um
+ * registro de alterações ao lado do mapa, aplicado sobre ele na leitura; o mapa só é
+ * regravado por inteiro quando o registro fica maior que ele.
+ */
+public class DeletionLog {
+
+    // Tamanho mínimo do registro de alterações antes de o mapa ser regravado.
+    private static final long MIN_LOG_BYTES = 64 * 1024;
+
+    // Caminho do arquivo dos registros de exclusão.
+    private final String deletionsFile;
+
+    // Caminho do registro de alterações posteriores à última gravação do mapa.
+    private final String logFile;
+
+    /**
+     * Cria um registro de exclusões armazenado no arquivo informado.
+     *
+     * @param deletionsFile O caminho do arquivo.
+     */
+    public DeletionLog(String deletionsFile) {
+        this.deletionsFile = deletionsFile;
+        this.logFile = CredentialManager.siblingFile(deletionsFile, ".log");
+    }
+
+    // Caminho do registro de alterações.
+    public String getLogPath() {
+        return logFile;
+    }
+
+    /**
+     * Lê todos os registros de exclusão. Se o arquivo não existir, retorna um mapa vazio.
+     *
+     * @return Um mapa do ID da credencial para o seu registro de exclusão.
+     * @throws IOException Se um erro de I/O acontecer durante a leitura.
+     * @throws ClassNotFoundException Se a estrutura da classe no arquivo for incompatível.
+     */
+    public synchronized Map<String, DeletedCredential> getAll() throws IOException, ClassNotFoundException {
+        Path path = Paths.get(this.deletionsFile);
+        Map<String, DeletedCredential> deletions = new HashMap<>();
+
+        if (Files.exists(path)) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(this.deletionsFile)))) {
+                deletions = SerializationUtil.toMap(ois.readObject(), String.class, DeletedCredential.class);
+            }
+        }
+        replayLog(deletions);
+        return deletions;
+    }
+
+    /**
+     * Registra a exclusão de uma credencial.
+     *
+     * @param deletion O registro de exclusão.
+     * @throws IOException Se houver falha ao ler ou salvar o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public synchronized void record(DeletedCredential deletion) throws IOException, ClassNotFoundException {
+        log(List.of(deletion), List.of());
+    }
+
+    /**
+     * Aplica de uma vez um conjunto de alterações: registra as exclusões informadas e
+     * descarta os registros das credenciais que voltaram a existir.
+     *
+     * @param added   Os novos registros de exclusão.
+     * @param revived Os IDs das credenciais que deixaram de estar excluídas.
+     * @throws IOException Se houver falha ao ler ou salvar o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public synchronized void update(Collection<DeletedCredential> added, Collection<String> revived)
+            throws IOException, ClassNotFoundException {
+        if (added.isEmpty() && revived.isEmpty()) return;
+        log(added, revived);
+    }
+
+    /**
+     * Apaga o arquivo dos registros de exclusão e o seu registro de alterações.
+     */
+    public synchronized boolean delete() throws IOException {
+        Files.deleteIfExists(Paths.get(this.logFile));
+        return Files.deleteIfExists(Paths.get(this.deletionsFile));
+    }
+
+    // Aplica sobre o mapa as linhas completas do registro de alterações (a última pode ter ficado pela metade).
+    private void replayLog(Map<String, DeletedCredential> deletions) throws IOException {
+        Path path = Paths.get(this.logFile);
+        if (!Files.exists(path)) return;
+        String text = Files.readString(path, StandardCharsets.UTF_8);
+        for (String line : text.substring(0, text.lastIndexOf('\n') + 1).split("\n")) {
+            if (line.startsWith("+\t")) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) continue;
+                Instant deletedAt = fields[2].equals("-") ? null : Instant.parse(fields[2]);
+                deletions.put(fields[3], new DeletedCredential(fields[3], Integer.parseInt(fields[1]), deletedAt));
+            } else if (line.startsWith("-\t")) {
+                deletions.remove(line.substring(2));
+            }
+        }
+    }
+
+    /**
+     * Acrescenta as alterações ao registro. Quando ele passa do tamanho do mapa, ou quando a
+     * última linha ficou pela metade, o mapa é regravado com as alterações e o registro apagado.
+     */
+    private void log(Collection<DeletedCredential> added, Collection<String> revived) throws IOException, ClassNotFoundException {
+        List<String> lines = new ArrayList<>(added.size() + revived.size());
+        for (String id : revived) {
+            lines.add("-\t" + id);
+        }
+        for (DeletedCredential deletion : added) {
+            Instant deletedAt = deletion.getDeletedAt();
+            lines.add("+\t" + deletion.getVersion() + "\t" + (deletedAt == null ? "-" : deletedAt.toString()) + "\t" + deletion.getId());
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+
+        Path log = Paths.get(this.logFile);
+        long logSize = Files.exists(log) ? Files.size(log) : 0;
+        long mapSize = Files.exists(Paths.get(this.deletionsFile)) ? Files.size(Paths.get(this.deletionsFile)) : 0;
+        if (logSize + text.length() > Math.max(MIN_LOG_BYTES, mapSize) || (logSize > 0 && !endsWithNewline(log))) {
+            Map<String, DeletedCredential> deletions = getAll();
+            for (String id : revived) {
+                deletions.remove(id);
+            }
+            for (DeletedCredential deletion : added) {
+                deletions.put(deletion.getId(), deletion);
+            }
+            save(deletions);
+            return;
+        }
+        Files.writeString(log, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static boolean endsWithNewline(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(file.length() - 1);
+            return file.read() == '\n';
+        }
+    }
+
+    // Grava em um arquivo temporário e o move sobre o original; o registro de alterações passa a fazer parte dele.
+    private void save(Map<String, DeletedCredential> deletions) throws IOException {
+        Path temp = Paths.get(this.deletionsFile + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            oos.writeObject(deletions);
+        }
+        Files.move(temp, Paths.get(this.deletionsFile), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(Paths.get(this.logFile));
+    }
+}
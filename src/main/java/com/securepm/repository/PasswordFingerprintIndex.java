@@ -0,0 +1,266 @@
+package com.securepm.repository;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.util.SerializationUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice persistente que associa a impressão digital (HMAC) de cada senha aos IDs das
+ * credenciais que a utilizam. Com ele, descobrir se uma senha já está em uso, ou listar
+ * todos os grupos de senhas reutilizadas, é uma consulta em um HashMap, sem
+ * descriptografar nenhuma credencial.
+ *
+ * Cada alteração é acrescentada como uma linha [+ ou - | impressão digital | ID] a um
+ * registro de alterações ao lado do índice, aplicado sobre ele na leitura; o índice só é
+ * regravado por inteiro quando o registro fica maior que ele.
+ */
+public class PasswordFingerprintIndex {
+
+    // Tamanho mínimo do registro de alterações antes de o índice ser regravado.
+    private static final int MIN_LOG_ENTRIES = 1024;
+
+    // Caminho do arquivo em que o índice é serializado.
+    private final String indexFile;
+
+    // Caminho do registro de alterações posteriores à última gravação do índice.
+    private final String logFile;
+
+    // Cópia em memória do índice, carregada na primeira utilização.
+    private HashMap<String, ArrayList<String>> index;
+
+    // Linhas do registro de alterações ainda não incorporadas ao arquivo do índice.
+    private int logEntries;
+
+    /**
+     * Cria um índice armazenado no arquivo informado.
+     *
+     * @param indexFile O caminho do arquivo do índice.
+     */
+    public PasswordFingerprintIndex(String indexFile) {
+        this.indexFile = indexFile;
+        this.logFile = CredentialManager.siblingFile(indexFile, ".log");
+    }
+
+    // Caminho do registro de alterações do índice.
+    public String getLogPath() {
+        return logFile;
+    }
+
+    /**
+     * Indica se o arquivo do índice já existe em disco.
+     */
+    public boolean exists() {
+        return Files.exists(Paths.get(indexFile));
+    }
+
+    /**
+     * Retorna quantas credenciais usam a senha com a impressão digital informada.
+     *
+     * @param fingerprint O HMAC da senha.
+     * @return O número de credenciais com a mesma senha (0 se nenhuma).
+     * @throws IOException Se houver falha ao ler o índice.
+     * @throws ClassNotFoundException Se o formato do arquivo for incompatível.
+     */
+    public int countUsages(byte[] fingerprint) throws IOException, ClassNotFoundException {
+        List<String> ids = load().get(key(fingerprint));
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Retorna os IDs das credenciais que compartilham a senha informada.
+     */
+    public List<String> findIds(byte[] fingerprint) throws IOException, ClassNotFoundException {
+        List<String> ids = load().get(key(fingerprint));
+        return ids == null ? Collections.emptyList() : Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * Retorna apenas os grupos de IDs com duas ou mais credenciais usando a mesma senha.
+     *
+     * @return Uma lista de grupos; cada grupo contém os IDs que compartilham uma senha.
+     * @throws IOException Se houver falha ao ler o índice.
+     * @throws ClassNotFoundException Se o formato do arquivo for incompatível.
+     */
+    public List<List<String>> getReusedGroups() throws IOException, ClassNotFoundException {
+        List<List<String>> groups = new ArrayList<>();
+        for (List<String> ids : load().values()) {
+            if (ids.size() > 1) {
+                groups.add(Collections.unmodifiableList(ids));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Registra que a credencial 'id' usa a senha com a impressão digital informada.
+     */
+    public void add(byte[] fingerprint, String id) throws IOException, ClassNotFoundException {
+        if (fingerprint == null) return;
+        String key = key(fingerprint);
+        List<String> ids = load().computeIfAbsent(key, k -> new ArrayList<>(1));
+        if (!ids.contains(id)) {
+            ids.add(id);
+            log(List.of("+\t" + key + "\t" + id));
+        }
+    }
+
+    /**
+     * Remove a associação entre a credencial 'id' e a impressão digital informada.
+     */
+    public void remove(byte[] fingerprint, String id) throws IOException, ClassNotFoundException {
+        if (fingerprint == null) return;
+        String key = key(fingerprint);
+        List<String> ids = load().get(key);
+        if (ids != null && ids.remove(id)) {
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+            log(List.of("-\t" + key + "\t" + id));
+        }
+    }
+
+    /**
+     * Registra e remove várias associações de uma vez, gravando o índice uma única vez
+     * (usado nas gravações em lote).
+     *
+     * @param added   As credenciais incluídas.
+     * @param removed As credenciais excluídas.
+     */
+    public void update(Collection<AccessCredential> added, Collection<AccessCredential> removed)
+            throws IOException, ClassNotFoundException {
+        HashMap<String, ArrayList<String>> current = load();
+        List<String> changes = new ArrayList<>();
+        for (AccessCredential credential : removed) {
+            if (credential.getPasswordFingerprint() == null) continue;
+            String key = key(credential.getPasswordFingerprint());
+            List<String> ids = current.get(key);
+            if (ids != null && ids.remove(credential.getId())) {
+                if (ids.isEmpty()) {
+                    current.remove(key);
+                }
+                changes.add("-\t" + key + "\t" + credential.getId());
+            }
+        }
+        for (AccessCredential credential : added) {
+            if (credential.getPasswordFingerprint() == null) continue;
+            String key = key(credential.getPasswordFingerprint());
+            List<String> ids = current.computeIfAbsent(key, k -> new ArrayList<>(1));
+            if (!ids.contains(credential.getId())) {
+                ids.add(credential.getId());
+                changes.add("+\t" + key + "\t" + credential.getId());
+            }
+        }
+        log(changes);
+    }
+
+    /**
+     * Reconstrói o índice a partir da lista completa de credenciais (ex.: índice ausente
+     * ou cofre gravado por uma versão anterior). Credenciais sem impressão digital são ignoradas.
+     */
+    public void rebuild(List<AccessCredential> credentials) throws IOException {
+        index = new HashMap<>();
+        for (AccessCredential credential : credentials) {
+            if (credential.getPasswordFingerprint() != null) {
+                index.computeIfAbsent(key(credential.getPasswordFingerprint()), k -> new ArrayList<>(1))
+                        .add(credential.getId());
+            }
+        }
+        save();
+    }
+
+    /**
+     * Apaga o arquivo do índice e o seu registro de alterações.
+     */
+    public boolean delete() throws IOException {
+        index = null;
+        logEntries = 0;
+        Files.deleteIfExists(Paths.get(logFile));
+        return Files.deleteIfExists(Paths.get(indexFile));
+    }
+
+    private HashMap<String, ArrayList<String>> load() throws IOException, ClassNotFoundException {
+        if (index == null) {
+            Path path = Paths.get(indexFile);
+            if (!Files.exists(path)) {
+                index = new HashMap<>();
+            } else {
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                    HashMap<String, Object> stored = SerializationUtil.toMap(ois.readObject(), String.class, Object.class);
+                    HashMap<String, ArrayList<String>> loaded = new HashMap<>(stored.size() * 4 / 3 + 1);
+                    for (Map.Entry<String, Object> entry : stored.entrySet()) {
+                        loaded.put(entry.getKey(), SerializationUtil.toList(entry.getValue(), String.class));
+                    }
+                    index = loaded;
+                }
+                replayLog();
+            }
+        }
+        return index;
+    }
+
+    // Aplica sobre o índice as linhas completas do registro de alterações (a última pode ter ficado pela metade).
+    private void replayLog() throws IOException {
+        logEntries = 0;
+        Path path = Paths.get(logFile);
+        if (!Files.exists(path)) return;
+        String text = Files.readString(path, StandardCharsets.UTF_8);
+        for (String line : text.substring(0, text.lastIndexOf('\n') + 1).split("\n")) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3) continue;
+            if (fields[0].equals("+")) {
+                List<String> ids = index.computeIfAbsent(fields[1], k -> new ArrayList<>(1));
+                if (!ids.contains(fields[2])) ids.add(fields[2]);
+            } else {
+                List<String> ids = index.get(fields[1]);
+                if (ids != null && ids.remove(fields[2]) && ids.isEmpty()) index.remove(fields[1]);
+            }
+            logEntries++;
+        }
+        if (!text.endsWith("\n")) {
+            // Descarta a linha incompleta, para que as próximas alterações não sejam acrescentadas a ela.
+            save();
+        }
+    }
+
+    // Acrescenta as alterações ao registro; quando ele passa do tamanho do índice, regrava o índice inteiro.
+    private void log(List<String> changes) throws IOException {
+        if (changes.isEmpty()) return;
+        if (logEntries + changes.size() > Math.max(MIN_LOG_ENTRIES, index.size())) {
+            save();
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String change : changes) {
+            text.append(change).append('\n');
+        }
+        Files.writeString(Paths.get(logFile), text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logEntries += changes.size();
+    }
+
+    // Grava o índice inteiro; o registro de alterações passa a fazer parte dele.
+    private void save() throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            oos.writeObject(index);
+        }
+        Files.deleteIfExists(Paths.get(logFile));
+        logEntries = 0;
+    }
+
+    // Converte a impressão digital em uma chave de mapa com igualdade por conteúdo.
+    private static String key(byte[] fingerprint) {
+        return Base64.getEncoder().encodeToString(fingerprint);
+    }
+}
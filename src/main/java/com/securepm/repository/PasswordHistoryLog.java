@@ -0,0 +1,319 @@
+package com.securepm.repository;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.PasswordVersion;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Histórico de versões de senha, gravado em um arquivo separado do cofre e apenas por
+ * acréscimo (append-only). Cada registro aponta para a versão anterior da mesma credencial,
+ * formando uma cadeia por credencial; o arquivo só é lido ao consultar o histórico, de modo
+ * que a listagem e a leitura da senha atual não dependem do seu tamanho.
+ *
+ * Cada registro guarda apenas o que difere da versão seguinte: a senha cifrada, o IV quando
+ * ele não é o prefixo do texto cifrado e a impressão digital. Serviço e usuário não se
+ * repetem, pois são os mesmos da credencial. O conteúdo é comprimido com Deflate quando
+ * isso reduz o tamanho.
+ *
+ * Formato: cabeçalho (magic, versão) seguido de registros
+ * [tamanho | id | anterior | versão | início | fim | flags | dados].
+ */
+public class PasswordHistoryLog {
+
+    private static final int MAGIC = 0x53504D48; // "SPMH"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    // Flags de cada registro.
+    private static final int FLAG_COMPRESSED = 1;
+    private static final int FLAG_IV = 1 << 1;
+    private static final int FLAG_FINGERPRINT = 1 << 2;
+
+    private static final int IV_LENGTH = 16;
+
+    // Caminho do arquivo do histórico.
+    private final String historyFile;
+
+    // Posição do registro mais recente de cada credencial; carregada na primeira utilização.
+    private Map<String, Long> heads;
+
+    /**
+     * Cria um histórico armazenado no arquivo informado.
+     *
+     * @param historyFile O caminho do arquivo.
+     */
+    public PasswordHistoryLog(String historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * Acrescenta ao histórico a versão atual da credencial, antes que ela seja substituída.
+     *
+     * @param credential A credencial, ainda com a senha que será substituída.
+     * @param replacedAt O momento da substituição.
+     * @throws IOException Se houver falha ao gravar o histórico.
+     */
+    public synchronized void append(AccessCredential credential, Instant replacedAt) throws IOException {
+        Map<String, Long> chainHeads = loadHeads();
+        long previous = chainHeads.getOrDefault(credential.getId(), -1L);
+
+        byte[] password = credential.getEncryptedPassword();
+        byte[] iv = credential.getIv();
+        int flags = 0;
+        ByteArrayOutputStream fields = new ByteArrayOutputStream(96);
+        DataOutputStream fieldOut = new DataOutputStream(fields);
+        writeBytes(fieldOut, password);
+        boolean ivFromPassword = iv != null && password.length >= IV_LENGTH && iv.length == IV_LENGTH
+                && Arrays.equals(iv, 0, IV_LENGTH, password, 0, IV_LENGTH);
+        if (!ivFromPassword) {
+            flags |= FLAG_IV;
+            writeBytes(fieldOut, iv == null ? new byte[0] : iv);
+        }
+        if (credential.getPasswordFingerprint() != null) {
+            flags |= FLAG_FINGERPRINT;
+            writeBytes(fieldOut, credential.getPasswordFingerprint());
+        }
+        byte[] payload = fields.toByteArray();
+        byte[] compressed = deflate(payload);
+        if (compressed.length < payload.length) {
+            flags |= FLAG_COMPRESSED;
+            payload = compressed;
+        }
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 96);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeUTF(credential.getId());
+        out.writeLong(previous);
+        out.writeInt(credential.getVersion());
+        writeInstant(out, credential.getUpdatedAt());
+        writeInstant(out, replacedAt);
+        out.writeByte(flags);
+        writeBytes(out, payload);
+
+        try (RandomAccessFile file = openForAppend()) {
+            long offset = file.length();
+            file.seek(offset);
+            file.writeInt(record.size());
+            file.write(record.toByteArray());
+            chainHeads.put(credential.getId(), offset);
+        }
+    }
+
+    /**
+     * Retorna as versões anteriores da senha de uma credencial, da mais recente para a
+     * mais antiga, percorrendo a cadeia da credencial.
+     *
+     * @param credentialId O ID da credencial.
+     * @return As versões anteriores (lista vazia se a senha nunca foi trocada).
+     * @throws IOException Se houver falha ao ler o histórico.
+     */
+    public synchronized List<PasswordVersion> getHistory(String credentialId) throws IOException {
+        List<PasswordVersion> versions = new ArrayList<>();
+        Long head = loadHeads().get(credentialId);
+        if (head == null) return versions;
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "r")) {
+            long offset = head;
+            while (offset >= 0) {
+                file.seek(offset);
+                byte[] record = new byte[file.readInt()];
+                file.readFully(record);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                String id = in.readUTF();
+                long previous = in.readLong();
+                int version = in.readInt();
+                Instant validFrom = readInstant(in);
+                Instant replacedAt = readInstant(in);
+                int flags = in.readUnsignedByte();
+                byte[] payload = readBytes(in);
+                if ((flags & FLAG_COMPRESSED) != 0) {
+                    payload = inflate(payload);
+                }
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(payload));
+                byte[] password = readBytes(fields);
+                byte[] iv = (flags & FLAG_IV) != 0 ? readBytes(fields) : Arrays.copyOf(password, IV_LENGTH);
+                byte[] fingerprint = (flags & FLAG_FINGERPRINT) != 0 ? readBytes(fields) : null;
+                versions.add(new PasswordVersion(id, version, password, iv, fingerprint, validFrom, replacedAt));
+                offset = previous;
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Remove do arquivo o histórico de uma credencial excluída. O arquivo é reescrito com as
+     * demais cadeias (o histórico só cresce por acréscimo; esta é a única reescrita).
+     *
+     * @param credentialId O ID da credencial excluída.
+     * @throws IOException Se houver falha ao reescrever o histórico.
+     */
+    public synchronized void purge(String credentialId) throws IOException {
+        purgeAll(Set.of(credentialId));
+    }
+
+    /**
+     * Remove do arquivo o histórico de várias credenciais excluídas, reescrevendo-o uma única vez.
+     *
+     * @param credentialIds Os IDs das credenciais excluídas.
+     * @throws IOException Se houver falha ao reescrever o histórico.
+     */
+    public synchronized void purgeAll(Set<String> credentialIds) throws IOException {
+        Map<String, Long> current = loadHeads();
+        if (credentialIds.stream().noneMatch(current::containsKey)) return;
+
+        Path source = Paths.get(historyFile);
+        Path temp = Paths.get(historyFile + ".tmp");
+        Map<String, Long> newHeads = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            in.readInt();
+            in.readInt();
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            long written = HEADER_SIZE;
+            while (in.available() > 0) {
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                String id = new DataInputStream(new ByteArrayInputStream(record)).readUTF();
+                if (credentialIds.contains(id)) continue;
+
+                // O ponteiro para a versão anterior passa a ser a nova posição dela.
+                int previousAt = 2 + utfLength(record);
+                long previous = newHeads.getOrDefault(id, -1L);
+                for (int i = 0; i < Long.BYTES; i++) {
+                    record[previousAt + i] = (byte) (previous >>> (56 - 8 * i));
+                }
+                out.writeInt(record.length);
+                out.write(record);
+                newHeads.put(id, written);
+                written += Integer.BYTES + record.length;
+            }
+        }
+        Files.move(temp, source, StandardCopyOption.REPLACE_EXISTING);
+        heads = newHeads;
+    }
+
+    /**
+     * Apaga o arquivo do histórico.
+     */
+    public synchronized boolean delete() throws IOException {
+        heads = null;
+        return Files.deleteIfExists(Paths.get(historyFile));
+    }
+
+    // Lê apenas o cabeçalho de cada registro para descobrir o topo da cadeia de cada credencial.
+    private Map<String, Long> loadHeads() throws IOException {
+        if (heads == null) {
+            heads = new HashMap<>();
+            Path path = Paths.get(historyFile);
+            if (Files.exists(path)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    checkHeader(in.readInt(), in.readInt());
+                    long offset = HEADER_SIZE;
+                    while (in.available() > 0) {
+                        int length = in.readInt();
+                        in.mark(1024);
+                        String id = in.readUTF();
+                        in.reset();
+                        in.skipNBytes(length);
+                        heads.put(id, offset);
+                        offset += Integer.BYTES + length;
+                    }
+                }
+            }
+        }
+        return heads;
+    }
+
+    private RandomAccessFile openForAppend() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(historyFile, "rw");
+        if (file.length() == 0) {
+            file.writeInt(MAGIC);
+            file.writeInt(FORMAT_VERSION);
+        } else {
+            checkHeader(file.readInt(), file.readInt());
+        }
+        return file;
+    }
+
+    private void checkHeader(int magic, int version) throws IOException {
+        if (magic != MAGIC || version != FORMAT_VERSION) {
+            throw new IOException("O arquivo de histórico '" + historyFile + "' está em um formato desconhecido.");
+        }
+    }
+
+    // Tamanho, em bytes, da string UTF modificada no início do registro.
+    private static int utfLength(byte[] record) {
+        return ((record[0] & 0xFF) << 8) | (record[1] & 0xFF);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant == null ? Long.MIN_VALUE : instant.getEpochSecond());
+        out.writeInt(instant == null ? 0 : instant.getNano());
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds == Long.MIN_VALUE ? null : Instant.ofEpochSecond(seconds, nanos);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[data.length + 64];
+            int length = deflater.deflate(buffer);
+            return deflater.finished() ? Arrays.copyOf(buffer, length) : data;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[256];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Registro de histórico corrompido.");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Registro de histórico corrompido.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.securepm.repository;
+
+import com.securepm.model.PasswordPolicy;
+import com.securepm.util.SerializationUtil;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Persiste as políticas de geração de senha associadas a cada serviço.
+ * As políticas são guardadas em um mapa serializado, indexado pelo nome do
+ * serviço normalizado (sem espaços nas pontas e em minúsculas).
+ */
+public class PasswordPolicyManager {
+
+    // Define o nome do arquivo que será usado para a persistência das políticas.
+    private final String policiesFile;
+
+    /**
+     * Cria um gerenciador que utiliza o local de armazenamento padrão "policies.dat".
+     */
+    public PasswordPolicyManager() {
+        this.policiesFile = "policies.dat";
+    }
+
+    /**
+     * Cria um gerenciador que aponta para um arquivo de armazenamento específico.
+     *
+     * @param policiesFile O caminho completo para o arquivo a ser utilizado.
+     */
+    public PasswordPolicyManager(String policiesFile) {
+        this.policiesFile = policiesFile;
+    }
+
+    /**
+     * Lê todas as políticas cadastradas. Se o arquivo não existir, retorna um mapa vazio.
+     *
+     * @return Um mapa do nome normalizado do serviço para sua política.
+     * @throws IOException Se um erro de I/O acontecer durante a leitura.
+     * @throws ClassNotFoundException Se a estrutura da classe no arquivo for incompatível.
+     */
+    public Map<String, PasswordPolicy> getAll() throws IOException, ClassNotFoundException {
+        Path path = Paths.get(this.policiesFile);
+
+        if (!Files.exists(path)) {
+            return new HashMap<>();
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(this.policiesFile))) {
+            return SerializationUtil.toMap(ois.readObject(), String.class, PasswordPolicy.class);
+        }
+    }
+
+    /**
+     * Busca a política configurada para um serviço.
+     *
+     * @param serviceName O nome do serviço, em qualquer combinação de maiúsculas e minúsculas.
+     * @return Um Optional com a política, ou vazio se o serviço usa a política padrão.
+     * @throws IOException Se houver falha ao ler o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public Optional<PasswordPolicy> getPolicyFor(String serviceName) throws IOException, ClassNotFoundException {
+        return Optional.ofNullable(getAll().get(normalize(serviceName)));
+    }
+
+    /**
+     * Associa (ou substitui) a política de um serviço e persiste a alteração.
+     *
+     * @param serviceName O nome do serviço.
+     * @param policy      A política a ser aplicada.
+     * @throws IOException Se houver falha ao ler ou salvar o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public void savePolicy(String serviceName, PasswordPolicy policy) throws IOException, ClassNotFoundException {
+        Map<String, PasswordPolicy> policies = getAll();
+        policies.put(normalize(serviceName), policy);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.policiesFile))) {
+            oos.writeObject(policies);
+        }
+    }
+
+    /**
+     * Remove a política de um serviço, que volta a usar a política padrão.
+     *
+     * @param serviceName O nome do serviço.
+     * @return 'true' se havia uma política cadastrada para o serviço.
+     * @throws IOException Se houver falha ao ler ou salvar o arquivo.
+     * @throws ClassNotFoundException Se a classe desserializada não for encontrada.
+     */
+    public boolean removePolicy(String serviceName) throws IOException, ClassNotFoundException {
+        Map<String, PasswordPolicy> policies = getAll();
+        if (policies.remove(normalize(serviceName)) == null) {
+            return false;
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.policiesFile))) {
+            oos.writeObject(policies);
+        }
+        return true;
+    }
+
+    // Normaliza o nome do serviço para que "GitHub" e " github " compartilhem a mesma política.
+    private static String normalize(String serviceName) {
+        return serviceName.trim().toLowerCase(Locale.ROOT);
+    }
+}
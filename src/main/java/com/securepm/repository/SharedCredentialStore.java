@@ -0,0 +1,138 @@
+package com.securepm.repository;
+
+import com.securepm.model.SharedCredential;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Guarda as credenciais compartilhadas do modo com vários usuários e, para cada usuário, a
+ * caixa de entrada com os compartilhamentos a que ele tem acesso.
+ *
+ * Estrutura do diretório:
+ * items/ab/&lt;id&gt;.share (um arquivo por compartilhamento, com o conteúdo cifrado e as
+ * chaves embrulhadas) e inbox/cd/&lt;sha256 do usuário&gt;/&lt;id&gt; (arquivos vazios que
+ * marcam o acesso), de modo que listar os compartilhamentos de um usuário lê apenas a caixa
+ * dele.
+ */
+public class SharedCredentialStore {
+
+    private static final String ITEMS_DIR = "items";
+    private static final String INBOX_DIR = "inbox";
+    private static final String SHARE_SUFFIX = ".share";
+
+    // Diretório raiz dos compartilhamentos.
+    private final Path dir;
+
+    public SharedCredentialStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Grava o compartilhamento, substituindo a versão anterior (num temporário e depois com
+     * uma troca atômica, para que um leitor nunca veja o arquivo pela metade).
+     *
+     * @throws IOException Se ocorrer uma falha ao gravar o arquivo.
+     */
+    public void save(SharedCredential shared) throws IOException {
+        Path file = itemOf(shared.getId());
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            oos.writeObject(shared);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carrega um compartilhamento pelo ID.
+     *
+     * @return O compartilhamento, ou um Optional vazio se não existir.
+     */
+    public Optional<SharedCredential> find(String id) throws IOException, ClassNotFoundException {
+        Path file = itemOf(id);
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return Optional.of((SharedCredential) ois.readObject());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Marca o acesso do usuário ao compartilhamento.
+     */
+    public void addToInbox(String username, String id) throws IOException {
+        Path box = inboxOf(username);
+        Files.createDirectories(box);
+        Path marker = box.resolve(checkId(id));
+        if (!Files.exists(marker)) {
+            Files.createFile(marker);
+        }
+    }
+
+    /**
+     * Remove o acesso do usuário ao compartilhamento.
+     *
+     * @return 'true' se o usuário tinha acesso.
+     */
+    public boolean removeFromInbox(String username, String id) throws IOException {
+        return Files.deleteIfExists(inboxOf(username).resolve(checkId(id)));
+    }
+
+    /**
+     * Lista os IDs dos compartilhamentos a que o usuário tem acesso.
+     */
+    public List<String> inbox(String username) throws IOException {
+        Path box = inboxOf(username);
+        List<String> ids = new ArrayList<>();
+        if (!Files.isDirectory(box)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(box)) {
+            for (Path marker : markers) ids.add(marker.getFileName().toString());
+        }
+        return ids;
+    }
+
+    private Path itemOf(String id) {
+        checkId(id);
+        return dir.resolve(ITEMS_DIR).resolve(id.substring(0, 2)).resolve(id + SHARE_SUFFIX);
+    }
+
+    private Path inboxOf(String username) {
+        String hex = HexFormat.of().formatHex(sha256(username.getBytes(StandardCharsets.UTF_8)));
+        return dir.resolve(INBOX_DIR).resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    // Os IDs vêm de UUID.randomUUID(); qualquer outro formato é recusado, para que um ID nunca aponte para fora do diretório.
+    private static String checkId(String id) {
+        try {
+            if (UUID.fromString(id).toString().equals(id)) {
+                return id;
+            }
+        } catch (IllegalArgumentException e) {
+            // Tratado abaixo.
+        }
+        throw new IllegalArgumentException("ID de compartilhamento inválido: " + id);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível.", e);
+        }
+    }
+}
@@ -12,11 +12,48 @@ import java.util.Optional;
  * Gerencia a persistência de um único objeto SystemUser em disco.
  * Esta classe é responsável por salvar, carregar e excluir os dados
  * do usuário principal da aplicação.
+ *
+ * No modo com vários usuários, o gerenciador é uma visão de um único usuário do
+ * {@link UserStore}: as mesmas operações leem e gravam apenas o registro desse usuário.
  */
 public class UserManager {
 
-    // Constante que define o nome do arquivo para armazenamento do usuário.
-    private static final String USER_FILE = "users.dat";
+    // Define o nome do arquivo para armazenamento do usuário.
+    private final String userFile;
+
+    // Cadastro com vários usuários e o nome do usuário desta visão (null no modo de arquivo único).
+    private final UserStore store;
+    private final String storeUsername;
+
+    /**
+     * Cria um gerenciador que utiliza o local de armazenamento padrão "users.dat".
+     */
+    public UserManager() {
+        this("users.dat");
+    }
+
+    /**
+     * Cria um gerenciador que aponta para um arquivo de armazenamento específico.
+     *
+     * @param userFile O caminho completo para o arquivo a ser utilizado.
+     */
+    public UserManager(String userFile) {
+        this.userFile = userFile;
+        this.store = null;
+        this.storeUsername = null;
+    }
+
+    /**
+     * Cria uma visão de um único usuário de um cadastro com vários usuários.
+     *
+     * @param store    O cadastro de usuários.
+     * @param username O nome do usuário desta visão; gravar um usuário com outro nome é recusado.
+     */
+    public UserManager(UserStore store, String username) {
+        this.userFile = null;
+        this.store = store;
+        this.storeUsername = username;
+    }
 
     /**
      * Serializa e armazena o objeto do usuário no arquivo,
@@ -26,8 +63,15 @@ public class UserManager {
      * @throws IOException Lançada se ocorrer uma falha durante a escrita no arquivo.
      */
     public void saveUser(SystemUser systemUser) throws IOException {
+        if (store != null) {
+            if (!storeUsername.equals(systemUser.getUsername())) {
+                throw new IllegalArgumentException("Este perfil pertence ao usuário '" + storeUsername + "'.");
+            }
+            store.save(systemUser);
+            return;
+        }
         // O try-with-resources garante o fechamento automático do stream.
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USER_FILE))) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.userFile))) {
             oos.writeObject(systemUser);
         }
     }
@@ -41,14 +85,17 @@ public class UserManager {
      * @throws ClassNotFoundException Se a classe do objeto serializado não for encontrada.
      */
     public Optional<SystemUser> getUser() throws IOException, ClassNotFoundException {
-        Path path = Paths.get(USER_FILE);
+        if (store != null) {
+            return store.find(storeUsername);
+        }
+        Path path = Paths.get(this.userFile);
 
         // Se o arquivo não existe, não há usuário para carregar.
         if (!Files.exists(path)) {
             return Optional.empty();
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(USER_FILE))) {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(this.userFile))) {
             // Lê o objeto do arquivo, faz o cast e o encapsula em um Optional.
             SystemUser systemUser = (SystemUser) ois.readObject();
             return Optional.of(systemUser);
@@ -63,7 +110,10 @@ public class UserManager {
      * @throws IOException Se ocorrer uma falha ao acessar ou deletar o arquivo.
      */
     public boolean deleteUser() throws IOException {
-        Path path = Paths.get(USER_FILE);
+        if (store != null) {
+            return store.delete(storeUsername);
+        }
+        Path path = Paths.get(this.userFile);
         // O método deleteIfExists já verifica a existência antes de tentar apagar.
         return Files.deleteIfExists(path);
     }
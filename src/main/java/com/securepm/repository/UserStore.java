@@ -0,0 +1,175 @@
+package com.securepm.repository;
+
+import com.securepm.model.SystemUser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cadastro de vários usuários em disco, indexado pelo nome de usuário. Cada usuário fica em
+ * seu próprio arquivo, cujo nome é o SHA-256 do nome de usuário; assim, encontrar, criar ou
+ * apagar um usuário lê ou grava apenas o arquivo dele, e o custo não cresce com a quantidade
+ * de usuários cadastrados.
+ *
+ * Estrutura do diretório:
+ * ab/abcdef....user (um arquivo por usuário, agrupados pelos dois primeiros dígitos, para
+ * que nenhum diretório fique com centenas de milhares de entradas).
+ *
+ * Os arquivos são gravados num temporário e só então publicados, de modo que um leitor
+ * nunca vê um usuário pela metade, e a criação é exclusiva: dois registros simultâneos com o
+ * mesmo nome não se sobrescrevem.
+ */
+public class UserStore {
+
+    private static final String USER_SUFFIX = ".user";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Diretório raiz do cadastro.
+    private final Path dir;
+
+    /**
+     * Cria o cadastro no diretório informado (criado na primeira gravação).
+     *
+     * @param dir O diretório dos arquivos de usuários.
+     */
+    public UserStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Procura um usuário pelo nome, lendo apenas o arquivo dele.
+     *
+     * @return O usuário, ou um Optional vazio se não houver usuário com esse nome.
+     * @throws IOException Se o arquivo existir mas não puder ser lido.
+     * @throws ClassNotFoundException Se a classe do objeto serializado não for encontrada.
+     */
+    public Optional<SystemUser> find(String username) throws IOException, ClassNotFoundException {
+        Path file = fileOf(username);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            SystemUser user = (SystemUser) ois.readObject();
+            // Dois nomes com o mesmo SHA-256 não acontecem na prática; a conferência evita devolver o usuário errado.
+            return user.getUsername().equals(username) ? Optional.of(user) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            // O usuário foi apagado entre a verificação e a leitura.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Indica se já existe um usuário com o nome informado.
+     */
+    public boolean exists(String username) {
+        return Files.exists(fileOf(username));
+    }
+
+    /**
+     * Cria um usuário, apenas se ainda não existir outro com o mesmo nome.
+     *
+     * @return 'true' se o usuário foi criado, 'false' se o nome já estava em uso.
+     * @throws IOException Se ocorrer uma falha ao gravar o arquivo.
+     */
+    public boolean create(SystemUser user) throws IOException {
+        Path file = fileOf(user.getUsername());
+        Path temp = writeTemp(file, user);
+        try {
+            // O link falha se o destino já existir: a publicação é atômica e exclusiva.
+            Files.createLink(file, temp);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            // Sem links no sistema de arquivos, a exclusividade vem da criação com CREATE_NEW.
+            try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                out.write(Files.readAllBytes(temp));
+            } catch (FileAlreadyExistsException exists) {
+                return false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Grava um usuário, substituindo a versão anterior se houver.
+     *
+     * @throws IOException Se ocorrer uma falha ao gravar o arquivo.
+     */
+    public void save(SystemUser user) throws IOException {
+        Path file = fileOf(user.getUsername());
+        Path temp = writeTemp(file, user);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Apaga um usuário.
+     *
+     * @return 'true' se o usuário existia.
+     * @throws IOException Se ocorrer uma falha ao apagar o arquivo.
+     */
+    public boolean delete(String username) throws IOException {
+        return Files.deleteIfExists(fileOf(username));
+    }
+
+    /**
+     * Conta os usuários cadastrados percorrendo todos os diretórios; serve para relatórios e
+     * benchmarks, e não é usado no registro nem no login.
+     */
+    public int count() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        int total = 0;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> users = Files.newDirectoryStream(shard, "*" + USER_SUFFIX)) {
+                    for (Path ignored : users) total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    // Serializa o usuário num arquivo temporário ao lado do destino.
+    private Path writeTemp(Path file, SystemUser user) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            oos.writeObject(user);
+        }
+        return temp;
+    }
+
+    // Caminho do arquivo de um usuário: ab/abcdef....user, com o SHA-256 do nome.
+    private Path fileOf(String username) {
+        String hex = HexFormat.of().formatHex(sha256(username.getBytes(StandardCharsets.UTF_8)));
+        return dir.resolve(hex.substring(0, 2)).resolve(hex + USER_SUFFIX);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível.", e);
+        }
+    }
+}
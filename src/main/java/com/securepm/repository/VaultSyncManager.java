@@ -0,0 +1,854 @@
+package com.securepm.repository;
+
+import com.securepm.model.AccessCredential;
+import com.securepm.model.DeletedCredential;
+import com.securepm.model.SyncReport;
+import com.securepm.util.KeyedHashUtil;
+import com.securepm.util.MerkleTree;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sincroniza duas réplicas do mesmo cofre trocando apenas o que difere entre elas. Cada
+ * réplica monta uma árvore de Merkle ({@link MerkleTree}) cujas folhas são as credenciais
+ * (e os registros de exclusão), com o resumo de cada folha calculado sobre o registro
+ * cifrado completo. As réplicas comparam os resumos da raiz para as folhas, descendo apenas
+ * pelos nós diferentes, e só então trocam as credenciais dos baldes que divergem: o volume
+ * transferido cresce com o número de alterações, e não com o tamanho do cofre.
+ *
+ * Regras de mesclagem, por credencial:
+ * - presente em uma só réplica: é copiada para a outra (inclusive uma exclusão);
+ * - versões de senha diferentes: vence a maior (a outra réplica não viu as trocas);
+ * - mesma versão com conteúdo diferente, ou excluída em uma réplica depois de alterada na
+ *   outra: conflito, resolvido pela alteração mais recente ou apenas relatado.
+ *
+ * As duas réplicas precisam ter a mesma chave de cofre (mesmo usuário mestre e salt). Os
+ * resumos usam uma subchave HMAC, de modo que não revelam nada sobre as credenciais, e todas
+ * as mensagens são cifradas com AES-GCM usando uma chave de sessão derivada da chave do
+ * cofre: uma réplica com outra chave é recusada já na primeira mensagem.
+ */
+public class VaultSyncManager {
+
+    // Finalidade da subchave usada nos resumos e na chave de sessão.
+    public static final String SYNC_PURPOSE = "securepm/vault-sync/v1";
+
+    /**
+     * O que fazer com credenciais alteradas nas duas réplicas de forma incompatível.
+     */
+    public enum ConflictPolicy {
+        // Mantém a alteração mais recente (data da troca de senha ou da exclusão).
+        LAST_WRITER_WINS,
+        // Não altera nenhuma das réplicas; apenas relata as credenciais em conflito.
+        REPORT
+    }
+
+    private static final int MAGIC = 0x53504D53; // "SPMS"
+    private static final int PROTOCOL_VERSION = 2;
+    private static final int NONCE_LENGTH = 32;
+    private static final int TAG_BITS = 128;
+
+    // Texto claro por quadro; mensagens maiores (a cópia inicial de um cofre grande, por
+    // exemplo) seguem em vários quadros, lidos e gravados sob demanda.
+    private static final int FRAME_PAYLOAD = 1 << 20;
+
+    // Tamanho máximo de um quadro cifrado: marcador de continuação, texto claro e tag do GCM.
+    private static final int MAX_FRAME = 1 + FRAME_PAYLOAD + TAG_BITS / 8;
+
+    // Marcadores do primeiro byte (cifrado) de cada quadro.
+    private static final byte FRAME_MORE = 0;
+    private static final byte FRAME_LAST = 1;
+
+    // Limite das quantidades e tamanhos lidos das mensagens.
+    private static final int MAX_COUNT = 64 * 1024 * 1024;
+
+    // Tempo máximo de espera por uma conexão e por cada mensagem.
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 60_000;
+
+    // Mensagens do protocolo.
+    private static final byte OP_HELLO = 1;
+    private static final byte OP_NODES = 2;
+    private static final byte OP_LEAVES = 3;
+    private static final byte OP_FETCH = 4;
+    private static final byte OP_APPLY = 5;
+    private static final byte OP_DONE = 6;
+
+    // Prefixos das entradas do HMAC, para separar chaves de folha, credenciais e exclusões.
+    private static final byte LEAF_KEY = 0;
+    private static final byte LEAF_RECORD = 1;
+    private static final byte LEAF_DELETION = 2;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // A réplica local.
+    private final CredentialManager credentials;
+
+    // Chave do cofre (para abrir outra réplica local) e subchave HMAC da sincronização.
+    private final SecretKey vaultKey;
+    private final SecretKey syncKey;
+
+    /**
+     * Cria o gerenciador de sincronização de uma réplica já desbloqueada.
+     *
+     * @param credentials A réplica local.
+     * @param vaultKey    A chave do cofre.
+     * @throws GeneralSecurityException Se a subchave não puder ser derivada.
+     */
+    public VaultSyncManager(CredentialManager credentials, SecretKey vaultKey) throws GeneralSecurityException {
+        this.credentials = credentials;
+        this.vaultKey = vaultKey;
+        this.syncKey = KeyedHashUtil.deriveKey(vaultKey, SYNC_PURPOSE);
+    }
+
+    /**
+     * Sincroniza com outra réplica no mesmo computador (outro diretório). A outra réplica é
+     * desbloqueada com a mesma chave e atende ao protocolo em uma thread, pelo mesmo canal
+     * usado na rede.
+     *
+     * @param peer   A outra réplica.
+     * @param policy O tratamento de conflitos.
+     * @return O relatório, do ponto de vista desta réplica.
+     * @throws IOException Se houver falha de leitura, escrita ou de protocolo.
+     * @throws ClassNotFoundException Se algum arquivo tiver um formato incompatível.
+     */
+    public SyncReport syncWith(CredentialManager peer, ConflictPolicy policy) throws IOException, ClassNotFoundException {
+        peer.unlock(vaultKey);
+        VaultSyncManager responder;
+        try {
+            responder = new VaultSyncManager(peer, vaultKey);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível derivar a chave de sincronização.", e);
+        }
+        PipedOutputStream toPeer = new PipedOutputStream();
+        PipedOutputStream fromPeer = new PipedOutputStream();
+        PipedInputStream peerIn = new PipedInputStream(toPeer, 1 << 16);
+        PipedInputStream localIn = new PipedInputStream(fromPeer, 1 << 16);
+        Exception[] peerFailure = new Exception[1];
+        Thread thread = new Thread(() -> {
+            try (peerIn; fromPeer) {
+                responder.serve(peerIn, fromPeer);
+            } catch (Exception e) {
+                peerFailure[0] = e;
+            }
+        }, "vault-sync-peer");
+        thread.start();
+        SyncReport report;
+        try (localIn; toPeer) {
+            report = sync(localIn, toPeer, policy);
+        } catch (IOException e) {
+            joinQuietly(thread);
+            if (peerFailure[0] != null) {
+                throw new IOException("A outra réplica falhou: " + peerFailure[0].getMessage(), peerFailure[0]);
+            }
+            throw e;
+        }
+        joinQuietly(thread);
+        return report;
+    }
+
+    /**
+     * Conecta-se a outra instância que esteja aguardando em {@link #serveOnce(int, int)} e
+     * sincroniza com ela.
+     *
+     * @param host   O endereço da outra instância.
+     * @param port   A porta.
+     * @param policy O tratamento de conflitos.
+     * @return O relatório, do ponto de vista desta réplica.
+     * @throws IOException Se houver falha de conexão ou de protocolo.
+     * @throws ClassNotFoundException Se algum arquivo tiver um formato incompatível.
+     */
+    public SyncReport syncWithHost(String host, int port, ConflictPolicy policy) throws IOException, ClassNotFoundException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            return sync(new BufferedInputStream(socket.getInputStream()),
+                    new BufferedOutputStream(socket.getOutputStream()), policy);
+        }
+    }
+
+    /**
+     * Aguarda uma única conexão de outra instância, na interface local (loopback), e atende
+     * à sincronização que ela conduzir.
+     *
+     * @param port            A porta.
+     * @param acceptTimeoutMs Tempo máximo de espera pela conexão.
+     * @return O relatório do que foi alterado nesta réplica.
+     * @throws IOException Se nenhuma conexão chegar a tempo ou houver falha de protocolo.
+     * @throws ClassNotFoundException Se algum arquivo tiver um formato incompatível.
+     */
+    public SyncReport serveOnce(int port, int acceptTimeoutMs) throws IOException, ClassNotFoundException {
+        try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(acceptTimeoutMs);
+            try (Socket socket = server.accept()) {
+                socket.setSoTimeout(READ_TIMEOUT_MS);
+                return serve(new BufferedInputStream(socket.getInputStream()),
+                        new BufferedOutputStream(socket.getOutputStream()));
+            }
+        }
+    }
+
+    /**
+     * Conduz a sincronização: desce pela árvore comparando resumos, troca as folhas dos
+     * baldes divergentes, busca as credenciais que esta réplica deve receber e envia as que
+     * a outra deve receber.
+     */
+    SyncReport sync(InputStream in, OutputStream out, ConflictPolicy policy) throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        SyncReport report = new SyncReport();
+        report.setConflictsResolved(policy == ConflictPolicy.LAST_WRITER_WINS);
+        State local = buildState();
+        Channel channel = Channel.open(in, out, syncKey, true);
+
+        // 1. Apresentação: as duas réplicas trocam o número de folhas e escolhem a mesma profundidade.
+        DataOutputStream greeting = channel.message(OP_HELLO);
+        greeting.writeInt(local.entries.size());
+        channel.send(greeting);
+        DataInputStream hello = expect(channel, OP_HELLO);
+        int remoteCount = hello.readInt();
+        report.setLocalEntries(local.entries.size());
+        report.setRemoteEntries(remoteCount);
+        MerkleTree tree = local.tree(MerkleTree.depthFor(Math.max(local.entries.size(), remoteCount)));
+
+        // 2. Desce pela árvore apenas pelos nós com resumos diferentes.
+        List<Integer> frontier = List.of(0);
+        List<Integer> buckets = new ArrayList<>();
+        for (int level = 0; level <= tree.getDepth() && !frontier.isEmpty(); level++) {
+            DataOutputStream request = channel.message(OP_NODES);
+            request.writeInt(level);
+            writeInts(request, frontier);
+            channel.send(request);
+            DataInputStream reply = expect(channel, OP_NODES);
+            List<Integer> differing = new ArrayList<>();
+            for (int node : frontier) {
+                if (!Arrays.equals(tree.getHash(level, node), readHash(reply))) differing.add(node);
+            }
+            report.addNodesCompared(frontier.size());
+            if (level == tree.getDepth()) {
+                buckets = differing;
+                break;
+            }
+            List<Integer> children = new ArrayList<>();
+            for (int node : differing) {
+                for (int c = 0; c < MerkleTree.FANOUT; c++) children.add(node * MerkleTree.FANOUT + c);
+            }
+            frontier = children;
+        }
+        report.setBucketsCompared(buckets.size());
+
+        if (!buckets.isEmpty()) {
+            // 3. Troca as folhas dos baldes divergentes e decide, credencial a credencial, o que fazer.
+            DataOutputStream request = channel.message(OP_LEAVES);
+            writeInts(request, buckets);
+            channel.send(request);
+            DataInputStream reply = expect(channel, OP_LEAVES);
+            Map<String, Entry> remote = new HashMap<>();
+            Set<String> ids = new LinkedHashSet<>();
+            for (int bucket : buckets) {
+                int count = reply.readInt();
+                for (int i = 0; i < count; i++) {
+                    Entry entry = readEntry(reply);
+                    remote.put(entry.id, entry);
+                    ids.add(entry.id);
+                }
+                for (int index : tree.leavesIn(bucket)) ids.add(local.entries.get(index).id);
+            }
+
+            List<String> fetch = new ArrayList<>();
+            List<DeletedCredential> localDeletions = new ArrayList<>();
+            List<Entry> push = new ArrayList<>();
+            for (String id : ids) {
+                Entry mine = local.byId.get(id);
+                Entry theirs = remote.get(id);
+                if (mine != null && theirs != null && Arrays.equals(mine.hash, theirs.hash)) continue;
+                int winner = mine == null ? -1 : theirs == null ? 1 : compare(mine, theirs);
+                if (winner == 0) {
+                    report.getConflicts().add(id);
+                    if (policy == ConflictPolicy.REPORT) continue;
+                    winner = resolveByTime(mine, theirs);
+                }
+                if (winner > 0) {
+                    push.add(mine);
+                } else if (theirs.deletion != null) {
+                    localDeletions.add(theirs.deletion);
+                } else {
+                    fetch.add(id);
+                }
+            }
+
+            // 4. Recebe as credenciais desta réplica, conferindo cada uma pelo resumo anunciado.
+            List<AccessCredential> received = new ArrayList<>();
+            if (!fetch.isEmpty()) {
+                DataOutputStream fetchRequest = channel.message(OP_FETCH);
+                fetchRequest.writeInt(fetch.size());
+                for (String id : fetch) fetchRequest.writeUTF(id);
+                channel.send(fetchRequest);
+                DataInputStream records = expect(channel, OP_FETCH);
+                Mac mac = local.mac;
+                for (String id : fetch) {
+                    byte[] record = readBytes(records);
+                    AccessCredential credential = BlockVaultFile.decodeRecord(record);
+                    if (!credential.getId().equals(id) || !Arrays.equals(recordHash(mac, record), remote.get(id).hash)) {
+                        throw new IOException("A outra réplica enviou uma credencial diferente da anunciada: " + id);
+                    }
+                    received.add(credential);
+                }
+            }
+
+            // 5. Envia as credenciais e exclusões que a outra réplica deve aplicar.
+            if (!push.isEmpty()) {
+                DataOutputStream apply = channel.message(OP_APPLY);
+                List<Entry> records = new ArrayList<>();
+                List<Entry> deletions = new ArrayList<>();
+                for (Entry entry : push) (entry.deletion != null ? deletions : records).add(entry);
+                apply.writeInt(records.size());
+                for (Entry entry : records) writeBytes(apply, entry.record);
+                apply.writeInt(deletions.size());
+                for (Entry entry : deletions) writeDeletion(apply, entry.deletion);
+                channel.send(apply);
+                expect(channel, OP_APPLY);
+                report.setRecordsSent(records.size());
+                report.setDeletionsSent(deletions.size());
+            }
+
+            credentials.applyChanges(received, localDeletions);
+            report.setRecordsReceived(received.size());
+            report.setDeletionsReceived(localDeletions.size());
+        }
+
+        channel.send(channel.message(OP_DONE));
+        report.setTraffic(channel.bytesSent, channel.bytesReceived);
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Atende à sincronização conduzida pela outra réplica até receber a mensagem final.
+     *
+     * @return O relatório do que foi alterado nesta réplica.
+     */
+    SyncReport serve(InputStream in, OutputStream out) throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        SyncReport report = new SyncReport();
+        State local = buildState();
+        Channel channel = Channel.open(in, out, syncKey, false);
+
+        DataInputStream hello = expect(channel, OP_HELLO);
+        int remoteCount = hello.readInt();
+        DataOutputStream greeting = channel.message(OP_HELLO);
+        greeting.writeInt(local.entries.size());
+        channel.send(greeting);
+        report.setLocalEntries(local.entries.size());
+        report.setRemoteEntries(remoteCount);
+        MerkleTree tree = local.tree(MerkleTree.depthFor(Math.max(local.entries.size(), remoteCount)));
+
+        while (true) {
+            DataInputStream request = channel.receive();
+            byte op = request.readByte();
+            switch (op) {
+                case OP_NODES: {
+                    int level = request.readInt();
+                    if (level < 0 || level > tree.getDepth()) throw new IOException("Nível da árvore inválido: " + level);
+                    int[] nodes = readInts(request, tree.getNodeCount(level));
+                    DataOutputStream reply = channel.message(OP_NODES);
+                    for (int node : nodes) writeHash(reply, tree.getHash(level, node));
+                    channel.send(reply);
+                    report.addNodesCompared(nodes.length);
+                    break;
+                }
+                case OP_LEAVES: {
+                    int[] buckets = readInts(request, tree.getNodeCount(tree.getDepth()));
+                    DataOutputStream reply = channel.message(OP_LEAVES);
+                    for (int bucket : buckets) {
+                        int[] leaves = tree.leavesIn(bucket);
+                        reply.writeInt(leaves.length);
+                        for (int index : leaves) writeEntry(reply, local.entries.get(index));
+                    }
+                    channel.send(reply);
+                    report.setBucketsCompared(report.getBucketsCompared() + buckets.length);
+                    break;
+                }
+                case OP_FETCH: {
+                    // O pedido é lido por inteiro antes da resposta: enquanto a outra réplica
+                    // envia o pedido, ela ainda não está lendo os quadros da resposta.
+                    int count = readCount(request);
+                    String[] ids = new String[count];
+                    for (int i = 0; i < count; i++) ids[i] = request.readUTF();
+                    DataOutputStream reply = channel.message(OP_FETCH);
+                    for (String id : ids) {
+                        Entry entry = local.byId.get(id);
+                        if (entry == null || entry.record == null) {
+                            throw new IOException("Credencial solicitada não existe nesta réplica: " + id);
+                        }
+                        writeBytes(reply, entry.record);
+                    }
+                    channel.send(reply);
+                    report.setRecordsSent(report.getRecordsSent() + count);
+                    break;
+                }
+                case OP_APPLY: {
+                    int recordCount = readCount(request);
+                    List<AccessCredential> upserts = new ArrayList<>(recordCount);
+                    for (int i = 0; i < recordCount; i++) upserts.add(BlockVaultFile.decodeRecord(readBytes(request)));
+                    int deletionCount = readCount(request);
+                    List<DeletedCredential> deletions = new ArrayList<>(deletionCount);
+                    for (int i = 0; i < deletionCount; i++) deletions.add(readDeletion(request));
+                    credentials.applyChanges(upserts, deletions);
+                    channel.send(channel.message(OP_APPLY));
+                    report.setRecordsReceived(report.getRecordsReceived() + recordCount);
+                    report.setDeletionsReceived(report.getDeletionsReceived() + deletionCount);
+                    break;
+                }
+                case OP_DONE:
+                    report.setTraffic(channel.bytesSent, channel.bytesReceived);
+                    report.setElapsedNanos(System.nanoTime() - start);
+                    return report;
+                default:
+                    throw new IOException("Mensagem de sincronização desconhecida: " + op);
+            }
+        }
+    }
+
+    // Folha da árvore: uma credencial (registro cifrado) ou um registro de exclusão.
+    private static final class Entry {
+        String id;
+        long key;
+        int version;
+        Instant timestamp;
+        byte[] hash;
+        byte[] record;
+        DeletedCredential deletion;
+    }
+
+    // Estado de uma réplica: as folhas, indexadas pelo ID.
+    private static final class State {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Entry> byId = new HashMap<>();
+        Mac mac;
+
+        MerkleTree tree(int depth) {
+            long[] keys = new long[entries.size()];
+            byte[][] hashes = new byte[entries.size()][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = entries.get(i).key;
+                hashes[i] = entries.get(i).hash;
+            }
+            return new MerkleTree(keys, hashes, depth);
+        }
+    }
+
+    // Lê a réplica local e calcula a chave e o resumo (HMAC) de cada folha.
+    private State buildState() throws IOException, ClassNotFoundException {
+        State state = new State();
+        try {
+            state.mac = Mac.getInstance("HmacSHA256");
+            state.mac.init(syncKey);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("HMAC-SHA256 não está disponível nesta JVM.", e);
+        }
+        for (AccessCredential credential : credentials.getAll()) {
+            Entry entry = new Entry();
+            entry.id = credential.getId();
+            entry.version = credential.getVersion();
+            entry.timestamp = credential.getUpdatedAt();
+            entry.record = BlockVaultFile.encodeRecord(credential);
+            entry.hash = recordHash(state.mac, entry.record);
+            add(state, entry);
+        }
+        for (DeletedCredential deletion : credentials.getDeletions().values()) {
+            if (state.byId.containsKey(deletion.getId())) continue; // Recriada depois da exclusão.
+            Entry entry = new Entry();
+            entry.id = deletion.getId();
+            entry.version = deletion.getVersion();
+            entry.timestamp = deletion.getDeletedAt();
+            entry.deletion = deletion;
+            entry.hash = deletionHash(state.mac, deletion);
+            add(state, entry);
+        }
+        return state;
+    }
+
+    private static void add(State state, Entry entry) {
+        state.mac.update(LEAF_KEY);
+        byte[] key = state.mac.doFinal(entry.id.getBytes(StandardCharsets.UTF_8));
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) value = (value << 8) | (key[i] & 0xFF);
+        entry.key = value;
+        state.entries.add(entry);
+        state.byId.put(entry.id, entry);
+    }
+
+    private static byte[] recordHash(Mac mac, byte[] record) {
+        mac.update(LEAF_RECORD);
+        return Arrays.copyOf(mac.doFinal(record), MerkleTree.HASH_LENGTH);
+    }
+
+    private static byte[] deletionHash(Mac mac, DeletedCredential deletion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeDeletion(new DataOutputStream(bytes), deletion);
+        mac.update(LEAF_DELETION);
+        return Arrays.copyOf(mac.doFinal(bytes.toByteArray()), MerkleTree.HASH_LENGTH);
+    }
+
+    /**
+     * Compara duas versões divergentes da mesma credencial.
+     *
+     * @return Positivo se a local vence, negativo se a remota vence e 0 em caso de conflito.
+     */
+    private static int compare(Entry local, Entry remote) {
+        if (local.deletion == null && remote.deletion == null) {
+            return Integer.compare(local.version, remote.version);
+        }
+        if (local.deletion != null && remote.deletion != null) {
+            // Excluída nas duas réplicas: basta que ambas guardem o mesmo registro de exclusão.
+            int byVersion = Integer.compare(local.version, remote.version);
+            return byVersion != 0 ? byVersion : resolveByTime(local, remote);
+        }
+        // Excluída em uma réplica: a exclusão vence se removeu a versão que a outra conhece.
+        Entry deleted = local.deletion != null ? local : remote;
+        Entry live = local.deletion != null ? remote : local;
+        if (deleted.version >= live.version) return deleted == local ? 1 : -1;
+        return 0;
+    }
+
+    // Desempate pela alteração mais recente (e, se simultâneas, pelo resumo, para que as duas réplicas concordem).
+    private static int resolveByTime(Entry local, Entry remote) {
+        int byTime = local.timestamp.compareTo(remote.timestamp);
+        return byTime != 0 ? byTime : Arrays.compare(local.hash, remote.hash);
+    }
+
+    private static DataInputStream expect(Channel channel, byte op) throws IOException {
+        DataInputStream message = channel.receive();
+        byte received = message.readByte();
+        if (received != op) {
+            throw new IOException("Resposta inesperada da outra réplica: " + received + " (esperada " + op + ").");
+        }
+        return message;
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeUTF(entry.id);
+        out.writeInt(entry.version);
+        out.writeLong(entry.timestamp.getEpochSecond());
+        out.writeInt(entry.timestamp.getNano());
+        out.writeBoolean(entry.deletion != null);
+        out.write(entry.hash);
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        Entry entry = new Entry();
+        entry.id = in.readUTF();
+        entry.version = in.readInt();
+        entry.timestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        if (in.readBoolean()) {
+            entry.deletion = new DeletedCredential(entry.id, entry.version, entry.timestamp);
+        }
+        entry.hash = new byte[MerkleTree.HASH_LENGTH];
+        in.readFully(entry.hash);
+        return entry;
+    }
+
+    private static void writeDeletion(DataOutputStream out, DeletedCredential deletion) throws IOException {
+        out.writeUTF(deletion.getId());
+        out.writeInt(deletion.getVersion());
+        out.writeLong(deletion.getDeletedAt().getEpochSecond());
+        out.writeInt(deletion.getDeletedAt().getNano());
+    }
+
+    private static DeletedCredential readDeletion(DataInputStream in) throws IOException {
+        return new DeletedCredential(in.readUTF(), in.readInt(), Instant.ofEpochSecond(in.readLong(), in.readInt()));
+    }
+
+    private static void writeHash(DataOutputStream out, byte[] hash) throws IOException {
+        out.writeBoolean(hash != null);
+        if (hash != null) out.write(hash);
+    }
+
+    private static byte[] readHash(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        byte[] hash = new byte[MerkleTree.HASH_LENGTH];
+        in.readFully(hash);
+        return hash;
+    }
+
+    private static void writeInts(DataOutputStream out, List<Integer> values) throws IOException {
+        out.writeInt(values.size());
+        for (int value : values) out.writeInt(value);
+    }
+
+    // Lê uma lista de índices, todos menores que 'bound'.
+    private static int[] readInts(DataInputStream in, int bound) throws IOException {
+        int[] values = new int[readCount(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+            if (values[i] < 0 || values[i] >= bound) throw new IOException("Índice de nó inválido: " + values[i]);
+        }
+        return values;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_COUNT) throw new IOException("Quantidade inválida na mensagem: " + count);
+        return count;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[readCount(in)];
+        in.readFully(value);
+        return value;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Canal cifrado entre as réplicas. Após a troca de nonces em claro, cada mensagem é
+     * enviada como uma sequência de quadros [tamanho | texto cifrado + tag], cifrados com
+     * AES-GCM sob uma chave de sessão (HMAC da subchave de sincronização sobre os dois nonces).
+     * O nonce do GCM é formado pelo sentido do quadro e por um contador, o que também impede
+     * reordenar ou repetir quadros; o primeiro byte cifrado de cada quadro indica se a mensagem
+     * continua, de modo que ela também não pode ser truncada. Os quadros são gravados à medida
+     * que a mensagem é escrita e lidos à medida que ela é consumida, sem limite para o tamanho
+     * da mensagem e sem montá-la inteira em memória.
+     */
+    private static final class Channel {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final SecretKey sessionKey;
+        private final byte sendDirection;
+        private final byte receiveDirection;
+        private long sendCounter;
+        private long receiveCounter;
+        private FrameOutput pending;
+        private FrameInput current;
+        long bytesSent;
+        long bytesReceived;
+
+        private Channel(InputStream in, OutputStream out, SecretKey sessionKey, boolean initiator) {
+            this.in = new DataInputStream(in);
+            this.out = new DataOutputStream(out);
+            this.sessionKey = sessionKey;
+            this.sendDirection = initiator ? (byte) 'I' : (byte) 'R';
+            this.receiveDirection = initiator ? (byte) 'R' : (byte) 'I';
+        }
+
+        static Channel open(InputStream in, OutputStream out, SecretKey syncKey, boolean initiator) throws IOException {
+            DataInputStream dataIn = new DataInputStream(in);
+            DataOutputStream dataOut = new DataOutputStream(out);
+            byte[] mine = new byte[NONCE_LENGTH];
+            RANDOM.nextBytes(mine);
+            dataOut.writeInt(MAGIC);
+            dataOut.writeInt(PROTOCOL_VERSION);
+            dataOut.write(mine);
+            dataOut.flush();
+            if (dataIn.readInt() != MAGIC) {
+                throw new IOException("A outra ponta não é uma réplica do SecurePM.");
+            }
+            int version = dataIn.readInt();
+            if (version != PROTOCOL_VERSION) {
+                throw new IOException("A outra réplica usa a versão " + version + " do protocolo de sincronização, "
+                        + "incompatível com a versão " + PROTOCOL_VERSION + ".");
+            }
+            byte[] theirs = new byte[NONCE_LENGTH];
+            dataIn.readFully(theirs);
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(syncKey);
+                mac.update("session".getBytes(StandardCharsets.UTF_8));
+                mac.update(initiator ? mine : theirs);
+                mac.update(initiator ? theirs : mine);
+                Channel channel = new Channel(in, out, new SecretKeySpec(mac.doFinal(), "AES"), initiator);
+                channel.bytesSent = channel.bytesReceived = 2 * Integer.BYTES + NONCE_LENGTH;
+                return channel;
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Não foi possível derivar a chave de sessão.", e);
+            }
+        }
+
+        // Começa uma nova mensagem com o código informado.
+        DataOutputStream message(byte op) throws IOException {
+            pending = new FrameOutput();
+            DataOutputStream message = new DataOutputStream(pending);
+            message.writeByte(op);
+            return message;
+        }
+
+        // Envia o restante da mensagem, no quadro final.
+        void send(DataOutputStream message) throws IOException {
+            message.flush();
+            pending.finish();
+            pending = null;
+        }
+
+        // Lê o primeiro quadro da próxima mensagem; os demais são lidos conforme ela é consumida.
+        DataInputStream receive() throws IOException {
+            if (current != null) current.skipRemaining();
+            current = new FrameInput();
+            return new DataInputStream(current);
+        }
+
+        private void writeFrame(byte[] plain, int length) throws IOException {
+            byte[] sealed;
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, sessionKey, new GCMParameterSpec(TAG_BITS, nonce(sendDirection, sendCounter++)));
+                sealed = cipher.doFinal(plain, 0, length);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Falha ao cifrar a mensagem de sincronização.", e);
+            }
+            out.writeInt(sealed.length);
+            out.write(sealed);
+            out.flush();
+            bytesSent += Integer.BYTES + sealed.length;
+        }
+
+        private byte[] readFrame() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("A outra réplica encerrou a conexão (a chave do cofre é a mesma nas duas?).", e);
+            }
+            if (length <= TAG_BITS / 8 || length > MAX_FRAME) throw new IOException("Mensagem de sincronização inválida.");
+            byte[] sealed = new byte[length];
+            in.readFully(sealed);
+            bytesReceived += Integer.BYTES + length;
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, sessionKey, new GCMParameterSpec(TAG_BITS, nonce(receiveDirection, receiveCounter++)));
+                return cipher.doFinal(sealed);
+            } catch (AEADBadTagException e) {
+                throw new IOException("A outra réplica não usa a mesma chave de cofre (ou a mensagem foi adulterada).", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Falha ao decifrar a mensagem de sincronização.", e);
+            }
+        }
+
+        private static byte[] nonce(byte direction, long counter) {
+            byte[] nonce = new byte[12];
+            nonce[0] = direction;
+            for (int i = 0; i < Long.BYTES; i++) nonce[4 + i] = (byte) (counter >>> (56 - 8 * i));
+            return nonce;
+        }
+
+        /**
+         * Mensagem sendo escrita: acumula até um quadro de texto claro e o envia quando chega
+         * mais conteúdo; o último quadro só é enviado em {@link #finish()}.
+         */
+        private final class FrameOutput extends OutputStream {
+            // Posição 0 reservada para o marcador de continuação.
+            private final byte[] buffer = new byte[1 + FRAME_PAYLOAD];
+            private int length = 1;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (length == buffer.length) flushFrame();
+                buffer[length++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (length == buffer.length) flushFrame();
+                    int n = Math.min(len, buffer.length - length);
+                    System.arraycopy(b, off, buffer, length, n);
+                    length += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            private void flushFrame() throws IOException {
+                buffer[0] = FRAME_MORE;
+                writeFrame(buffer, length);
+                length = 1;
+            }
+
+            void finish() throws IOException {
+                buffer[0] = FRAME_LAST;
+                writeFrame(buffer, length);
+            }
+        }
+
+        /**
+         * Mensagem sendo lida: decifra o quadro seguinte quando o atual se esgota e termina no
+         * quadro marcado como último.
+         */
+        private final class FrameInput extends InputStream {
+            private byte[] frame;
+            private int position;
+
+            FrameInput() throws IOException {
+                next();
+            }
+
+            private void next() throws IOException {
+                frame = readFrame();
+                if (frame.length == 0 || (frame[0] != FRAME_MORE && frame[0] != FRAME_LAST)) {
+                    throw new IOException("Quadro de sincronização inválido.");
+                }
+                position = 1;
+            }
+
+            // Avança para o próximo quadro com conteúdo; 'false' se a mensagem terminou.
+            private boolean ensureData() throws IOException {
+                while (position == frame.length) {
+                    if (frame[0] == FRAME_LAST) return false;
+                    next();
+                }
+                return true;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return ensureData() ? frame[position++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (!ensureData()) return -1;
+                int n = Math.min(len, frame.length - position);
+                System.arraycopy(frame, position, b, off, n);
+                position += n;
+                return n;
+            }
+
+            // Descarta o que a leitura não consumiu, para que a próxima mensagem comece no quadro certo.
+            void skipRemaining() throws IOException {
+                while (frame[0] != FRAME_LAST) next();
+                position = frame.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.securepm.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.securepm.metrics.Counter;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+import com.securepm.model.CredentialSummary;
+import com.securepm.service.AuthenticationException;
+import com.securepm.service.MultiUserVaultService;
+import com.securepm.service.VaultService;
+import com.securepm.service.VaultSession;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP embutido (com.sun.net.httpserver) que expõe o {@link VaultService} como uma
+ * API JSON, para que várias ferramentas internas usem o mesmo cofre. Cada requisição é
+ * atendida em sua própria thread virtual.
+ *
+ * O login (POST /api/login) faz o BCrypt e o TOTP uma única vez e devolve um token de
+ * sessão; o token identifica a {@link VaultSession} guardada no servidor, com a chave do
+ * cofre já derivada, e é enviado nas demais requisições no cabeçalho
+ * "Authorization: Bearer &lt;token&gt;". Tokens sem uso por mais tempo que o limite expiram.
+ *
+ * No modo com vários usuários ({@link MultiUserVaultService}), cada token fica associado ao
+ * cofre do usuário que fez o login, e a rota POST /api/register cria novos usuários.
+ *
+ * Rotas:
+ * <pre>
+ * POST   /api/register                   {"username", "password"} -> {"otpauthUri"} (só com vários usuários)
+ * POST   /api/login                      {"username", "password", "totp"} -> {"token", "expiresInMinutes"}
+ * POST   /api/logout
+ * GET    /api/status
+ * GET    /api/credentials[?q=termo&amp;limit=n]
+ * POST   /api/credentials                {"service", "username", "password"?, "length"?}
+ * GET    /api/credentials/{id}
+ * GET    /api/credentials/{id}/password
+ * PUT    /api/credentials/{id}           {"password"?, "length"?}
+ * DELETE /api/credentials/{id}
+ * GET    /api/password[?service=nome&amp;length=n]
+ * GET    /metrics                        métricas no formato texto do Prometheus
+ * </pre>
+ * Sem "password" no corpo, a inclusão e a troca de senha geram uma com a política do serviço.
+ * A rota /metrics não exige token: traz apenas contagens e latências, para a coleta pelo Prometheus.
+ */
+public class VaultHttpServer implements AutoCloseable {
+
+    // Porta padrão; o servidor escuta apenas na interface local, a menos que outro endereço seja informado.
+    public static final int DEFAULT_PORT = 8787;
+
+    // Tempo sem uso, em minutos, após o qual um token expira.
+    public static final int DEFAULT_SESSION_MINUTES = 15;
+
+    // Quantidade máxima de resultados da busca, quando 'limit' não é informado.
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    // Tamanho máximo aceito para o corpo de uma requisição.
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final String API_PREFIX = "/api/";
+
+    // Caminho das métricas para a coleta pelo Prometheus.
+    private static final String METRICS_PATH = "/metrics";
+
+    // Latência de cada requisição da API (da leitura ao envio da resposta) e respostas de erro.
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.histogram("http_request", "Requisição à API HTTP.");
+    private static final Counter ERROR_RESPONSES = Metrics.counter("http_errors", "Respostas da API HTTP com estado 4xx ou 5xx.");
+
+    /**
+     * Erro de uma requisição, já com o código HTTP da resposta.
+     */
+    static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Sessão associada a um token, o serviço do cofre dela e o instante do último uso.
+    private static final class TokenEntry {
+        private final VaultSession session;
+        private final VaultService vaultService;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        TokenEntry(VaultSession session, VaultService vaultService) {
+            this.session = session;
+            this.vaultService = vaultService;
+        }
+    }
+
+    // O cofre único, ou null no modo com vários usuários.
+    private final VaultService singleVault;
+
+    // O serviço com vários usuários, ou null no modo de cofre único.
+    private final MultiUserVaultService users;
+    private final InetSocketAddress address;
+    private final Duration sessionTimeout;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, TokenEntry> tokens = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    /**
+     * Cria o servidor.
+     *
+     * @param vaultService   O serviço do cofre.
+     * @param address        O endereço e a porta de escuta (porta 0 escolhe uma livre).
+     * @param sessionMinutes Minutos sem uso até um token expirar.
+     */
+    public VaultHttpServer(VaultService vaultService, InetSocketAddress address, int sessionMinutes) {
+        this.singleVault = vaultService;
+        this.users = null;
+        this.address = address;
+        this.sessionTimeout = Duration.ofMinutes(sessionMinutes);
+    }
+
+    /**
+     * Cria o servidor no modo com vários usuários, cada um com o próprio cofre.
+     *
+     * @param users          O serviço com vários usuários.
+     * @param address        O endereço e a porta de escuta (porta 0 escolhe uma livre).
+     * @param sessionMinutes Minutos sem uso até um token expirar.
+     */
+    public VaultHttpServer(MultiUserVaultService users, InetSocketAddress address, int sessionMinutes) {
+        this.singleVault = null;
+        this.users = users;
+        this.address = address;
+        this.sessionTimeout = Duration.ofMinutes(sessionMinutes);
+    }
+
+    /**
+     * Abre a porta e começa a atender às requisições.
+     *
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public void start() throws IOException {
+        // Sem TCP_NODELAY, o cabeçalho e o corpo da resposta saem em escritas separadas e o
+        // algoritmo de Nagle somado ao ACK atrasado do cliente adiciona ~40 ms a cada requisição.
+        // A propriedade é lida quando o primeiro servidor é criado na JVM.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext(API_PREFIX, this::handle);
+        server.createContext(METRICS_PATH, this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // Porta em que o servidor está escutando.
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Registra um token para uma sessão já aberta por quem embute o servidor (por exemplo, um
+     * benchmark), sem passar pelo login.
+     *
+     * @return O token a enviar no cabeçalho "Authorization".
+     */
+    public String openToken(VaultSession session) {
+        return openToken(session, users != null ? users.vaultFor(session) : singleVault);
+    }
+
+    private String openToken(VaultSession session, VaultService vaultService) {
+        expireSessions();
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.put(token, new TokenEntry(session, vaultService));
+        return token;
+    }
+
+    // Quantidade de tokens de sessão ativos.
+    public int activeSessions() {
+        expireSessions();
+        return tokens.size();
+    }
+
+    /**
+     * Para o servidor e encerra todas as sessões.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdown();
+        tokens.values().forEach(this::endSession);
+        tokens.clear();
+    }
+
+    // Atende a uma requisição: encaminha para a rota e converte o resultado ou o erro em JSON.
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        JsonElement body;
+        try {
+            String path = exchange.getRequestURI().getRawPath().substring(API_PREFIX.length());
+            String[] segments = path.isEmpty() ? new String[0] : path.split("/");
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8);
+            }
+            body = route(exchange, exchange.getRequestMethod(), segments);
+            status = "POST".equals(exchange.getRequestMethod()) && segments.length == 1
+                    && ("credentials".equals(segments[0]) || "register".equals(segments[0])) ? 201 : 200;
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (AuthenticationException e) {
+            status = 401;
+            body = error(e.getMessage());
+        } catch (JsonParseException e) {
+            status = 400;
+            body = error("JSON inválido no corpo da requisição.");
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Erro no servidor: " + e.getMessage());
+            status = 500;
+            body = error("Erro interno no servidor.");
+        }
+
+        byte[] response = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+        REQUEST_LATENCY.recordSince(start);
+        if (status >= 400) {
+            ERROR_RESPONSES.increment();
+        }
+    }
+
+    // Devolve as métricas do processo no formato texto do Prometheus.
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().close();
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        byte[] response = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    // Encaminha a requisição conforme o método e os segmentos do caminho após "/api/".
+    private JsonElement route(HttpExchange exchange, String method, String[] path) throws Exception {
+        if (path.length == 0) {
+            throw new HttpError(404, "Rota não encontrada.");
+        }
+        if (path.length == 1 && "login".equals(path[0])) {
+            requireMethod(method, "POST");
+            return login(readJson(exchange));
+        }
+        if (path.length == 1 && "register".equals(path[0]) && users != null) {
+            requireMethod(method, "POST");
+            return register(readJson(exchange));
+        }
+
+        // Demais rotas exigem um token válido.
+        String token = bearerToken(exchange);
+        TokenEntry entry = authorize(token);
+        VaultSession session = entry.session;
+        VaultService vaultService = entry.vaultService;
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        switch (path[0]) {
+            case "logout":
+                requireMethod(method, "POST");
+                TokenEntry removed = tokens.remove(token);
+                if (removed != null) endSession(removed);
+                return message("Sessão encerrada.");
+            case "status":
+                requireMethod(method, "GET");
+                JsonObject status = new JsonObject();
+                status.addProperty("credentials", VaultService.await(vaultService.count(session)));
+                status.addProperty("sessions", activeSessions());
+                status.addProperty("memoryBytes", vaultService.estimateMemoryBytes());
+                return status;
+            case "password":
+                requireMethod(method, "GET");
+                JsonObject generated = new JsonObject();
+                generated.addProperty("password", VaultService.await(
+                        vaultService.generatePassword(query.get("service"), intParam(query, "length", 0))));
+                return generated;
+            case "credentials":
+                return credentials(exchange, method, path, query, session, vaultService);
+            default:
+                throw new HttpError(404, "Rota não encontrada.");
+        }
+    }
+
+    // Rotas de /api/credentials.
+    private JsonElement credentials(HttpExchange exchange, String method, String[] path, Map<String, String> query,
+                                    VaultSession session, VaultService vaultService) throws Exception {
+        if (path.length == 1) {
+            if ("GET".equals(method)) {
+                JsonArray list = new JsonArray();
+                String term = query.get("q");
+                if (term == null || term.isBlank()) {
+                    for (CredentialSummary cred : VaultService.await(vaultService.list(session))) list.add(toJson(cred));
+                } else {
+                    int limit = intParam(query, "limit", DEFAULT_SEARCH_LIMIT);
+                    for (VaultService.SearchResult result : VaultService.await(vaultService.search(session, term, limit))) {
+                        list.add(toJson(result.getCredential()));
+                    }
+                }
+                return list;
+            }
+            requireMethod(method, "POST");
+            JsonObject request = readJson(exchange);
+            String service = requiredString(request, "service");
+            String username = requiredString(request, "username");
+            String password = optionalString(request, "password");
+            boolean generate = password == null;
+            if (generate) {
+                password = VaultService.await(vaultService.generatePassword(service, optionalInt(request, "length")));
+            }
+            JsonObject created = toJson(VaultService.await(vaultService.addCredential(session, service, username, password)));
+            if (generate) created.addProperty("password", password);
+            return created;
+        }
+
+        String id = path[1];
+        if (path.length == 3 && "password".equals(path[2])) {
+            requireMethod(method, "GET");
+            String password = VaultService.await(vaultService.revealPassword(session, id));
+            if (password == null) throw notFound();
+            JsonObject result = new JsonObject();
+            result.addProperty("id", id);
+            result.addProperty("password", password);
+            return result;
+        }
+        if (path.length != 2) {
+            throw new HttpError(404, "Rota não encontrada.");
+        }
+        switch (method) {
+            case "GET": {
+                CredentialSummary cred = VaultService.await(vaultService.find(session, id));
+                if (cred == null) throw notFound();
+                return toJson(cred);
+            }
+            case "PUT": {
+                CredentialSummary cred = VaultService.await(vaultService.find(session, id));
+                if (cred == null) throw notFound();
+                JsonObject request = readJson(exchange);
+                String password = optionalString(request, "password");
+                boolean generate = password == null;
+                if (generate) {
+                    password = VaultService.await(vaultService.generatePassword(cred.getServiceName(), optionalInt(request, "length")));
+                }
+                CredentialSummary updated = VaultService.await(vaultService.updatePassword(session, id, password));
+                if (updated == null) throw notFound();
+                JsonObject result = toJson(updated);
+                if (generate) result.addProperty("password", password);
+                return result;
+            }
+            case "DELETE":
+                if (!VaultService.await(vaultService.remove(session, id))) throw notFound();
+                return message("Credencial removida.");
+            default:
+                throw new HttpError(405, "Método não permitido: " + method);
+        }
+    }
+
+    // Registra um novo usuário (modo com vários usuários) e devolve a URI para configurar o 2FA.
+    private JsonElement register(JsonObject request) throws Exception {
+        String otpAuthUri = VaultService.await(users.register(requiredString(request, "username"),
+                requiredString(request, "password")));
+        JsonObject result = new JsonObject();
+        result.addProperty("otpauthUri", otpAuthUri);
+        return result;
+    }
+
+    // Autentica o usuário mestre e registra um novo token para a sessão aberta.
+    private JsonElement login(JsonObject request) throws Exception {
+        String username = requiredString(request, "username");
+        String password = requiredString(request, "password");
+        String totp = requiredString(request, "totp");
+        String token;
+        if (users != null) {
+            VaultSession session = VaultService.await(users.authenticate(username, password, totp));
+            token = openToken(session, users.vaultFor(session));
+        } else {
+            token = openToken(VaultService.await(singleVault.authenticate(username, password, totp)), singleVault);
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("token", token);
+        result.addProperty("expiresInMinutes", sessionTimeout.toMinutes());
+        return result;
+    }
+
+    // Sessão do token informado; recusa tokens desconhecidos ou expirados.
+    private TokenEntry authorize(String token) throws HttpError {
+        TokenEntry entry = token == null ? null : tokens.get(token);
+        if (entry == null) {
+            throw new HttpError(401, "Token de sessão ausente ou inválido. Faça o login em /api/login.");
+        }
+        long now = System.nanoTime();
+        if (now - entry.lastUsedNanos > sessionTimeout.toNanos() || !entry.session.isOpen()) {
+            tokens.remove(token);
+            endSession(entry);
+            throw new HttpError(401, "Sessão expirada. Faça o login novamente.");
+        }
+        entry.lastUsedNanos = now;
+        return entry;
+    }
+
+    // Encerra a sessão do token; com vários usuários, fecha o cofre do usuário após a última sessão.
+    private void endSession(TokenEntry entry) {
+        if (users != null) {
+            users.logout(entry.session);
+        } else {
+            entry.session.close();
+        }
+    }
+
+    // Encerra as sessões sem uso por mais tempo que o limite.
+    private void expireSessions() {
+        long now = System.nanoTime();
+        tokens.entrySet().removeIf(e -> {
+            boolean expired = now - e.getValue().lastUsedNanos > sessionTimeout.toNanos();
+            if (expired) endSession(e.getValue());
+            return expired;
+        });
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static void requireMethod(String method, String expected) throws HttpError {
+        if (!expected.equals(method)) {
+            throw new HttpError(405, "Método não permitido: " + method);
+        }
+    }
+
+    private static HttpError notFound() {
+        return new HttpError(404, "Nenhuma credencial com esse ID.");
+    }
+
+    // Lê o corpo da requisição como um objeto JSON.
+    private static JsonObject readJson(HttpExchange exchange) throws IOException, HttpError {
+        byte[] data;
+        try (InputStream in = exchange.getRequestBody()) {
+            data = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (data.length > MAX_BODY_BYTES) {
+            throw new HttpError(413, "Corpo da requisição muito grande.");
+        }
+        JsonElement element = JsonParser.parseString(new String(data, StandardCharsets.UTF_8));
+        if (!element.isJsonObject()) {
+            throw new HttpError(400, "O corpo da requisição deve ser um objeto JSON.");
+        }
+        return element.getAsJsonObject();
+    }
+
+    private static String requiredString(JsonObject request, String field) throws HttpError {
+        String value = optionalString(request, field);
+        if (value == null || value.isBlank()) {
+            throw new HttpError(400, "Campo obrigatório ausente: " + field);
+        }
+        return value;
+    }
+
+    private static String optionalString(JsonObject request, String field) {
+        JsonElement value = request.get(field);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Campo '" + field + "' deve ser um texto.");
+        }
+        return value.getAsString();
+    }
+
+    private static int optionalInt(JsonObject request, String field) {
+        JsonElement value = request.get(field);
+        if (value == null || value.isJsonNull()) {
+            return 0;
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Campo '" + field + "' deve ser um número inteiro.");
+        }
+        return value.getAsInt();
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parâmetro '" + name + "' deve ser um número inteiro.");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // Credencial em JSON, sem a senha (que só é devolvida pela rota própria).
+    private static JsonObject toJson(CredentialSummary cred) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", cred.getId());
+        json.addProperty("service", cred.getServiceName());
+        json.addProperty("username", cred.getUsername());
+        json.addProperty("version", cred.getVersion());
+        if (cred.getCreatedAt() != null) json.addProperty("createdAt", cred.getCreatedAt().toString());
+        if (cred.getUpdatedAt() != null) json.addProperty("updatedAt", cred.getUpdatedAt().toString());
+        return json;
+    }
+
+    private static JsonObject message(String text) {
+        JsonObject json = new JsonObject();
+        json.addProperty("message", text);
+        return json;
+    }
+
+    private static JsonObject error(String text) {
+        JsonObject json = new JsonObject();
+        json.addProperty("error", text);
+        return json;
+    }
+}
@@ -0,0 +1,14 @@
+package com.securepm.service;
+
+/**
+ * Indica que a autenticação do usuário mestre falhou (usuário, senha mestra ou código 2FA
+ * inválidos). A mensagem descreve a etapa que falhou e pode ser exibida ao usuário.
+ */
+public class AuthenticationException extends Exception {
+    // Controle de versão para a serialização da classe.
+    private static final long serialVersionUID = 1L;
+
+    public AuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,145 @@
+package com.securepm.service;
+
+import com.securepm.model.BackupSnapshot;
+import com.securepm.repository.BackupManager;
+import com.securepm.repository.CredentialManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Fluxos de console para os backups incrementais do cofre: criar, listar, restaurar e
+ * excluir snapshots.
+ */
+public class BackupService {
+
+    // Diretório padrão do repositório de backups.
+    private static final String BACKUP_DIR = "backups";
+
+    // Arquivos fora do cofre que também entram no backup: usuário mestre, salt da chave e políticas.
+    private static final List<String> OTHER_DATA_FILES = List.of("users.dat", "salt.dat", "policies.dat");
+
+    private final BackupManager backupManager;
+
+    /**
+     * Cria o serviço com o repositório de backups padrão, no diretório atual.
+     */
+    public BackupService() {
+        CredentialManager credentials = new CredentialManager();
+        List<String> files = new ArrayList<>(credentials.getDataFiles());
+        files.addAll(OTHER_DATA_FILES);
+        this.backupManager = new BackupManager(".", BACKUP_DIR, files, credentials.getDerivedFiles());
+    }
+
+    /**
+     * Exibe o menu de backups até o usuário voltar.
+     *
+     * @param scanner Objeto para interagir com o usuário via console.
+     * @return 'true' se um backup foi restaurado (a sessão atual precisa ser reiniciada).
+     */
+    public boolean manageBackups(Scanner scanner) {
+        while (true) {
+            System.out.println("\n== BACKUPS DO COFRE ==");
+            System.out.println("1) Criar backup agora");
+            System.out.println("2) Listar backups");
+            System.out.println("3) Restaurar um backup");
+            System.out.println("4) Excluir um backup");
+            System.out.println("5) Voltar");
+            System.out.print("Escolha uma opção (1-5): ");
+            String opt = scanner.nextLine().trim();
+
+            switch (opt) {
+                case "1":
+                    createBackup();
+                    break;
+                case "2":
+                    listBackups();
+                    break;
+                case "3":
+                    if (restoreBackup(scanner)) return true;
+                    break;
+                case "4":
+                    deleteBackup(scanner);
+                    break;
+                case "5":
+                    return false;
+                default:
+                    System.out.println("❌ Opção inválida. Por favor, escolha um número de 1 a 5.");
+            }
+        }
+    }
+
+    private void createBackup() {
+        try {
+            long start = System.nanoTime();
+            BackupSnapshot snapshot = backupManager.createSnapshot();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("✅ Backup '%s' criado em %d ms: %d arquivo(s), %.1f KB no total, %.1f KB novos (%d pedaço(s)).%n",
+                    snapshot.getId(), elapsedMs, snapshot.getFiles().size(), snapshot.getTotalBytes() / 1024.0,
+                    snapshot.getNewBytes() / 1024.0, snapshot.getNewChunks());
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um manifesto de backup tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível criar o backup. " + e.getMessage());
+        }
+    }
+
+    private List<BackupSnapshot> listBackups() {
+        try {
+            List<BackupSnapshot> snapshots = backupManager.listSnapshots();
+            if (snapshots.isEmpty()) {
+                System.out.println("Nenhum backup encontrado.");
+                return snapshots;
+            }
+            System.out.println("---------------------------------");
+            for (BackupSnapshot snapshot : snapshots) {
+                System.out.printf("%s | %s | %.1f KB | +%.1f KB novos%n", snapshot.getId(), snapshot.getCreatedAt(),
+                        snapshot.getTotalBytes() / 1024.0, snapshot.getNewBytes() / 1024.0);
+            }
+            System.out.println("---------------------------------");
+            return snapshots;
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um manifesto de backup tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível listar os backups. " + e.getMessage());
+        }
+        return List.of();
+    }
+
+    private boolean restoreBackup(Scanner scanner) {
+        if (listBackups().isEmpty()) return false;
+        System.out.print("Digite o ID do backup a restaurar: ");
+        String id = scanner.nextLine().trim();
+        System.out.print("⚠️ Os dados atuais serão substituídos pelos do backup. Confirma? (s/n): ");
+        if (!"s".equalsIgnoreCase(scanner.nextLine().trim())) {
+            System.out.println("Operação cancelada.");
+            return false;
+        }
+        try {
+            backupManager.restore(id);
+            System.out.println("✅ Backup '" + id + "' restaurado. Faça o login novamente para abrir o cofre restaurado.");
+            return true;
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O manifesto do backup tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível restaurar o backup. " + e.getMessage());
+        }
+        return false;
+    }
+
+    private void deleteBackup(Scanner scanner) {
+        if (listBackups().isEmpty()) return;
+        System.out.print("Digite o ID do backup a excluir: ");
+        String id = scanner.nextLine().trim();
+        try {
+            int freed = backupManager.deleteSnapshot(id);
+            System.out.println("✅ Backup '" + id + "' excluído (" + freed + " pedaço(s) liberado(s)).");
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um manifesto de backup tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível excluir o backup. " + e.getMessage());
+        }
+    }
+}
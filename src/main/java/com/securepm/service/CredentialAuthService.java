@@ -1,32 +1,38 @@
 package com.securepm.service;
 
-import com.securepm.model.AccessCredential;
-import com.securepm.repository.CredentialManager;
-import com.securepm.util.AESCryptoUtil;
-import com.securepm.util.PasswordBreachChecker;
+import com.securepm.model.CredentialSummary;
+import com.securepm.model.PasswordAssessment;
+import com.securepm.model.PasswordPolicy;
+import com.securepm.model.PasswordVersion;
+import com.securepm.repository.BlockVaultFile;
 import com.securepm.util.RandomPasswordUtil;
+import com.securepm.util.SearchIndex;
 
-import javax.crypto.SecretKey;
-import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
-import java.util.UUID;
 
 /**
- * Orquestra as operações relacionadas ao ciclo de vida das credenciais de serviço.
- * Fornece a lógica de negócio para adicionar, consultar e remover credenciais de forma segura.
+ * Orquestra, no console, as operações relacionadas ao ciclo de vida das credenciais de serviço.
+ * Lê as entradas do usuário, delega a lógica de negócio ao {@link VaultService} e exibe os resultados.
  */
 public class CredentialAuthService {
 
-    // Instância do gerenciador de persistência para as credenciais.
-    private final CredentialManager repository = new CredentialManager();
+    // API do cofre; toda a lógica de negócio e o acesso aos arquivos ficam nela.
+    private final VaultService vaultService;
+
+    // Quantidade máxima de resultados exibidos pela busca rápida.
+    private static final int QUICK_SEARCH_LIMIT = 20;
+
+    public CredentialAuthService(VaultService vaultService) {
+        this.vaultService = vaultService;
+    }
 
     // ... (o método addCredential e outros permanecem os mesmos, mas vamos ajustar os blocos catch)
 
-    public void addCredential(SecretKey aesKey, Scanner scanner) {
+    public void addCredential(VaultSession session, Scanner scanner) {
         try {
             System.out.println("== REGISTRAR NOVA CREDENCIAL ==");
 
@@ -36,42 +42,14 @@ public class CredentialAuthService {
             System.out.print("Informe o usuário ou e-mail de login: ");
             String user = scanner.nextLine().trim();
 
-            System.out.print("Digite a senha (ou deixe em branco para gerar uma senha forte): ");
-            String rawPassword = scanner.nextLine().trim();
-
-            if (rawPassword.isEmpty()) {
-                int length;
-                do {
-                    System.out.print("Defina o tamanho da senha (mínimo 8 caracteres): ");
-                    try {
-                        length = Integer.parseInt(scanner.nextLine().trim());
-                    } catch (NumberFormatException e) {
-                        length = 0;
-                    }
-                } while (length < 8);
-                rawPassword = RandomPasswordUtil.generate(length);
-                System.out.println("Sua senha segura gerada é: " + rawPassword);
-            }
-
-            int pwnedCount = PasswordBreachChecker.getPwnedCount(rawPassword);
-            if (pwnedCount > 0) {
-                System.out.printf("⚠️ ALERTA: Esta senha foi encontrada em %d vazamentos de dados conhecidos.%n", pwnedCount);
-                System.out.print("Você realmente deseja usar esta senha? (s/n): ");
-                String response = scanner.nextLine().trim().toLowerCase();
-                if (!"s".equals(response)) {
-                    System.out.println("Operação cancelada. A credencial não foi salva.");
-                    return;
-                }
+            String rawPassword = choosePassword(session, null, service, scanner);
+            if (rawPassword == null) {
+                System.out.println("Operação cancelada. A credencial não foi salva.");
+                return;
             }
 
-            byte[] encryptedData = AESCryptoUtil.encrypt(rawPassword, aesKey);
-            byte[] iv = Arrays.copyOf(encryptedData, 16);
-
-            String id = UUID.randomUUID().toString();
-            AccessCredential credential = new AccessCredential(id, service, user, encryptedData, iv);
-            repository.add(credential);
-
-            System.out.println("✅ Credencial registrada e protegida com sucesso! O ID é: " + id);
+            CredentialSummary credential = VaultService.await(vaultService.addCredential(session, service, user, rawPassword));
+            System.out.println("✅ Credencial registrada e protegida com sucesso! O ID é: " + credential.getId());
 
             // --- MUDANÇA AQUI ---
         } catch (ClassNotFoundException e) {
@@ -89,22 +67,87 @@ public class CredentialAuthService {
         }
     }
 
-    public void listCredentials(SecretKey aesKey) {
-        try {
-            File file = new File("credentials.dat");
-            if (!file.exists() || file.length() == 0) {
-                System.out.println("ℹ️ Nenhum registro de credencial encontrado.");
-                return;
+    /**
+     * Lê a senha digitada (ou gera uma, seguindo a política do serviço) e mostra a avaliação
+     * feita pelo serviço do cofre: força, vazamentos conhecidos e reutilização. Cada alerta
+     * pede confirmação antes de a senha ser aceita.
+     *
+     * @param credentialId A credencial cuja senha será trocada, ou null para uma nova credencial.
+     * @return A senha escolhida, ou null se o usuário desistir.
+     */
+    private String choosePassword(VaultSession session, String credentialId, String service, Scanner scanner) throws Exception {
+        System.out.print("Digite a senha (ou deixe em branco para gerar uma senha forte): ");
+        String rawPassword = scanner.nextLine().trim();
+
+        if (rawPassword.isEmpty()) {
+            Optional<PasswordPolicy> policy = VaultService.await(vaultService.getPolicy(service));
+            if (policy.isPresent()) {
+                rawPassword = generateWithPolicy(policy.get(), scanner);
+            } else {
+                int length;
+                do {
+                    System.out.print("Defina o tamanho da senha (mínimo 8 caracteres): ");
+                    try {
+                        length = Integer.parseInt(scanner.nextLine().trim());
+                    } catch (NumberFormatException e) {
+                        length = 0;
+                    }
+                } while (length < 8);
+                rawPassword = RandomPasswordUtil.generate(length);
             }
+            System.out.println("Sua senha segura gerada é: " + rawPassword);
+        }
+
+        PasswordAssessment assessment = VaultService.await(vaultService.assessPassword(session, credentialId, rawPassword));
+        System.out.println("🔒 Força da senha: " + assessment.getStrength());
+        if (!assessment.getStrength().getWarning().isEmpty()) {
+            System.out.println("   Atenção: " + assessment.getStrength().getWarning());
+        }
 
-            List<AccessCredential> credentials = repository.getAll();
+        if (assessment.getPwnedCount() > 0) {
+            System.out.printf("⚠️ ALERTA: Esta senha foi encontrada em %d vazamentos de dados conhecidos.%n", assessment.getPwnedCount());
+            System.out.print("Você realmente deseja usar esta senha? (s/n): ");
+            if (!"s".equals(scanner.nextLine().trim().toLowerCase())) {
+                return null;
+            }
+        }
+
+        if (assessment.isSameAsCurrent()) {
+            System.out.println("❌ A nova senha é igual à senha atual.");
+            return null;
+        }
+
+        // Senhas antigas desta mesma credencial não devem voltar a ser usadas.
+        if (assessment.getReusedVersion() > 0) {
+            System.out.printf("⚠️ ALERTA: Esta senha já foi usada nesta credencial (versão %d).%n", assessment.getReusedVersion());
+            System.out.print("Deseja reutilizá-la mesmo assim? (s/n): ");
+            if (!"s".equals(scanner.nextLine().trim().toLowerCase())) {
+                return null;
+            }
+        }
+
+        // Impressão digital da senha: a reutilização é detectada sem descriptografar o cofre.
+        if (assessment.getReuseCount() > 0) {
+            System.out.printf("⚠️ ALERTA: Esta senha já é usada por %d outra(s) credencial(is) do cofre.%n", assessment.getReuseCount());
+            System.out.print("Deseja reutilizá-la mesmo assim? (s/n): ");
+            if (!"s".equals(scanner.nextLine().trim().toLowerCase())) {
+                return null;
+            }
+        }
+
+        return rawPassword;
+    }
+
+    public void listCredentials(VaultSession session) {
+        try {
+            List<CredentialSummary> credentials = VaultService.await(vaultService.list(session));
             if (credentials.isEmpty()) {
                 System.out.println("ℹ️ O repositório está vazio. Nenhuma credencial para listar.");
                 return;
             }
 
             System.out.println("\n== LISTA DE CREDENCIAIS SALVAS ==");
-            for (AccessCredential cred : credentials) {
+            for (CredentialSummary cred : credentials) {
                 String encryptedBase64 = Base64.getEncoder().encodeToString(cred.getEncryptedPassword());
                 System.out.println("---------------------------------");
                 System.out.println("ID         : " + cred.getId());
@@ -112,6 +155,9 @@ public class CredentialAuthService {
                 System.out.println("Usuário    : " + cred.getUsername());
                 System.out.println("Senha (Cifrada): " + encryptedBase64);
                 System.out.println("Data Criação: " + cred.getCreatedAt());
+                if (cred.getVersion() > 1) {
+                    System.out.println("Versão Senha: " + cred.getVersion() + " (trocada em " + cred.getUpdatedAt() + ")");
+                }
             }
             System.out.println("---------------------------------");
 
@@ -127,7 +173,7 @@ public class CredentialAuthService {
         }
     }
 
-    public void removeCredential(Scanner scanner) {
+    public void removeCredential(VaultSession session, Scanner scanner) {
         try {
             System.out.println("\n== REMOVER CREDENCIAL ==");
             System.out.print("Digite o ID completo da credencial que deseja excluir: ");
@@ -138,9 +184,7 @@ public class CredentialAuthService {
                 return;
             }
 
-            boolean removed = repository.removeById(id);
-
-            if (removed) {
+            if (VaultService.await(vaultService.remove(session, id))) {
                 System.out.println("✅ Credencial removida com sucesso.");
             } else {
                 System.out.println("❌ Nenhuma credencial encontrada com o ID fornecido.");
@@ -156,4 +200,431 @@ public class CredentialAuthService {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Troca a senha de uma credencial existente. O ID e a data de criação são mantidos e a
+     * senha anterior é preservada no histórico de versões.
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void updatePassword(VaultSession session, Scanner scanner) {
+        try {
+            System.out.println("\n== TROCAR SENHA DE UMA CREDENCIAL ==");
+            System.out.print("Digite o ID completo da credencial: ");
+            String id = scanner.nextLine().trim();
+
+            CredentialSummary target = id.isEmpty() ? null : VaultService.await(vaultService.find(session, id));
+            if (target == null) {
+                System.out.println("❌ Nenhuma credencial encontrada com o ID fornecido.");
+                return;
+            }
+            System.out.println("Credencial: " + target.getServiceName() + " / " + target.getUsername() + " (senha na versão " + target.getVersion() + ")");
+
+            String rawPassword = choosePassword(session, id, target.getServiceName(), scanner);
+            if (rawPassword == null) {
+                System.out.println("Operação cancelada. A senha não foi alterada.");
+                return;
+            }
+
+            CredentialSummary updated = VaultService.await(vaultService.updatePassword(session, id, rawPassword));
+            if (updated == null) {
+                System.out.println("❌ A credencial foi removida antes da troca. Nenhuma alteração foi feita.");
+                return;
+            }
+            System.out.println("✅ Senha atualizada com sucesso! Versão atual: " + updated.getVersion() + ".");
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais ('credentials.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o arquivo 'credentials.dat' ou o histórico de senhas. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao trocar a senha: " + e.getClass().getSimpleName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Exibe o histórico de versões da senha de uma credencial (as senhas continuam cifradas).
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void showPasswordHistory(VaultSession session, Scanner scanner) {
+        try {
+            System.out.println("\n== HISTÓRICO DE SENHAS ==");
+            System.out.print("Digite o ID completo da credencial: ");
+            String id = scanner.nextLine().trim();
+
+            CredentialSummary cred = id.isEmpty() ? null : VaultService.await(vaultService.find(session, id));
+            if (cred == null) {
+                System.out.println("❌ Nenhuma credencial encontrada com o ID fornecido.");
+                return;
+            }
+
+            System.out.println("Credencial : " + cred.getServiceName() + " / " + cred.getUsername());
+            System.out.println("---------------------------------");
+            System.out.println("Versão " + cred.getVersion() + " (atual), em uso desde " + cred.getUpdatedAt());
+            System.out.println("Senha (Cifrada): " + Base64.getEncoder().encodeToString(cred.getEncryptedPassword()));
+            for (PasswordVersion version : VaultService.await(vaultService.history(session, id))) {
+                System.out.println("---------------------------------");
+                System.out.println("Versão " + version.getVersion() + ", de " + version.getValidFrom() + " até " + version.getReplacedAt());
+                System.out.println("Senha (Cifrada): " + Base64.getEncoder().encodeToString(version.getEncryptedPassword()));
+            }
+            System.out.println("---------------------------------");
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais ('credentials.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o histórico de senhas. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao exibir o histórico: " + e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Lista os grupos de credenciais que compartilham a mesma senha. A consulta usa apenas
+     * o índice de impressões digitais; nenhuma senha é descriptografada.
+     */
+    public void reportReusedPasswords(VaultSession session) {
+        try {
+            List<List<CredentialSummary>> groups = VaultService.await(vaultService.reusedGroups(session));
+            if (groups.isEmpty()) {
+                System.out.println("✅ Nenhuma senha reutilizada foi encontrada no cofre.");
+                return;
+            }
+
+            System.out.println("\n== SENHAS REUTILIZADAS ==");
+            int groupNumber = 1;
+            for (List<CredentialSummary> group : groups) {
+                System.out.println("---------------------------------");
+                System.out.println("Grupo " + groupNumber++ + " (" + group.size() + " credenciais com a mesma senha):");
+                for (CredentialSummary cred : group) {
+                    System.out.println("  - " + cred.getServiceName() + " / " + cred.getUsername() + " (ID " + cred.getId() + ")");
+                }
+            }
+            System.out.println("---------------------------------");
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais ('credentials.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o arquivo 'credentials.dat'. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao gerar o relatório: " + e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Verifica a integridade do arquivo do cofre e informa exatamente quais credenciais estão
+     * danificadas. Se houver danos, oferece regravar o cofre apenas com as credenciais íntegras.
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void verifyVault(VaultSession session, Scanner scanner) {
+        try {
+            System.out.println("\n== VERIFICAÇÃO DE INTEGRIDADE DO COFRE ==");
+            BlockVaultFile.IntegrityReport report = VaultService.await(vaultService.verify(session));
+            double seconds = Math.max(report.getElapsedNanos(), 1) / 1e9;
+            System.out.printf("Blocos: %d | Credenciais: %d | %.1f MB conferidos em %d ms (%.0f MB/s)%n",
+                    report.getBlockCount(), report.getRecordCount(), report.getBytesVerified() / 1048576.0,
+                    report.getElapsedNanos() / 1_000_000, report.getBytesVerified() / 1048576.0 / seconds);
+
+            if (report.isHealthy()) {
+                System.out.println("✅ Nenhuma corrupção encontrada.");
+                return;
+            }
+            if (report.isIndexDamaged()) {
+                System.out.println("❌ O índice do cofre está danificado; os blocos não podem ser localizados.");
+                return;
+            }
+            if (!report.isRootValid()) {
+                System.out.println("⚠️ O checksum raiz não confere: a tabela de checksums ou o índice foram alterados.");
+            }
+            if (report.getDamagedPages() > 0) {
+                System.out.println("⚠️ Páginas do diretório danificadas: " + report.getDamagedPages()
+                        + " (nenhuma credencial é perdida; o diretório é reconstruído ao regravar).");
+            }
+            System.out.println("⚠️ Blocos danificados: " + report.getDamagedBlocks());
+            for (String id : report.getDamagedIds()) {
+                System.out.println("  - Credencial danificada: ID " + id);
+            }
+            if (report.getUnreadableRecords() > 0) {
+                System.out.println("  - " + report.getUnreadableRecords() + " credencial(is) danificada(s) com ID ilegível.");
+            }
+            if (report.getDamagedJournalEntries() > 0) {
+                System.out.println("⚠️ Alterações recentes danificadas no diário do cofre: " + report.getDamagedJournalEntries()
+                        + " (as anteriores a elas são mantidas).");
+            }
+            System.out.println("As credenciais dos blocos danificados não podem ser autenticadas e serão descartadas.");
+
+            System.out.print("Regravar o cofre apenas com as credenciais íntegras? (s/n): ");
+            if (!"s".equalsIgnoreCase(scanner.nextLine().trim())) {
+                System.out.println("Operação cancelada. O cofre não foi alterado.");
+                return;
+            }
+            int kept = VaultService.await(vaultService.repair(session, report));
+            System.out.println("✅ Cofre regravado com " + kept + " credencial(is) íntegra(s).");
+
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível verificar o arquivo do cofre. " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao verificar o cofre: " + e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Busca credenciais pelo nome do serviço e/ou usuário sem descriptografar o cofre:
+     * o termo é convertido em um token HMAC e consultado no índice cego em disco.
+     * Apenas as credenciais encontradas são descriptografadas para exibição.
+     * Um '*' no final do termo indica busca por prefixo (ex.: "git*").
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void searchCredentials(VaultSession session, Scanner scanner) {
+        try {
+            System.out.println("\n== BUSCAR CREDENCIAIS ==");
+            System.out.print("Termo de busca (termine com * para buscar por prefixo, ex: git*): ");
+            String term = scanner.nextLine().trim();
+            boolean prefix = term.endsWith("*");
+            if (prefix) {
+                term = term.substring(0, term.length() - 1).trim();
+            }
+            if (term.isEmpty()) {
+                System.out.println("O termo de busca não pode ser vazio. Operação cancelada.");
+                return;
+            }
+
+            System.out.print("Buscar em: 1) Serviço  2) Usuário  3) Ambos (Enter = 3): ");
+            String scope = scanner.nextLine().trim();
+            boolean inService = !"2".equals(scope);
+            boolean inUser = !"1".equals(scope);
+
+            List<CredentialSummary> results = VaultService.await(vaultService.blindSearch(session, term, prefix, inService, inUser));
+            if (results.isEmpty()) {
+                System.out.println("ℹ️ Nenhuma credencial corresponde à busca.");
+                return;
+            }
+
+            System.out.println("\n== RESULTADOS DA BUSCA ==");
+            for (CredentialSummary cred : results) {
+                System.out.println("---------------------------------");
+                System.out.println("ID         : " + cred.getId());
+                System.out.println("Serviço    : " + cred.getServiceName());
+                System.out.println("Usuário    : " + cred.getUsername());
+                System.out.println("Data Criação: " + cred.getCreatedAt());
+            }
+            System.out.println("---------------------------------");
+            System.out.println(results.size() + " credencial(is) encontrada(s).");
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais ('credentials.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o índice de busca. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao buscar as credenciais: " + e.getClass().getSimpleName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Carrega (ou recarrega) o cofre em memória e informa o tamanho da cópia carregada.
+     * O desbloqueio converte, na primeira vez, o 'credentials.dat' para o arquivo em blocos cifrados.
+     *
+     * @param session A sessão autenticada.
+     */
+    public void loadVault(VaultSession session) {
+        try {
+            long start = System.nanoTime();
+            int count = VaultService.await(vaultService.load(session));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("🔎 Cofre carregado: %d credencial(is) em %d ms (~%.1f KB em memória, com o índice de busca).%n",
+                    count, elapsedMs, vaultService.estimateMemoryBytes() / 1024.0);
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de credenciais ('credentials.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o arquivo 'credentials.dat'. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao carregar o cofre: " + e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Busca rápida no índice em memória: aceita parte do nome (prefixo) e tolera erros de
+     * digitação (ex.: "gihtub" encontra "GitHub"). Os resultados são ordenados por
+     * relevância: correspondência exata, prefixo e aproximada.
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void quickSearch(VaultSession session, Scanner scanner) {
+        System.out.println("\n== BUSCA RÁPIDA ==");
+        System.out.print("Digite parte do serviço ou do usuário: ");
+        String term = scanner.nextLine().trim();
+        if (term.isEmpty()) {
+            System.out.println("O termo de busca não pode ser vazio. Operação cancelada.");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            List<VaultService.SearchResult> results = VaultService.await(vaultService.search(session, term, QUICK_SEARCH_LIMIT));
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            if (results.isEmpty()) {
+                System.out.printf("ℹ️ Nenhuma credencial corresponde à busca (%.2f ms).%n", elapsedMs);
+                return;
+            }
+
+            System.out.println("\n== RESULTADOS DA BUSCA ==");
+            int position = 1;
+            for (VaultService.SearchResult result : results) {
+                CredentialSummary cred = result.getCredential();
+                System.out.println("---------------------------------");
+                System.out.println(position++ + ") " + cred.getServiceName() + " / " + cred.getUsername()
+                        + "  [" + describe(result.getHit()) + "]");
+                System.out.println("   ID: " + cred.getId());
+            }
+            System.out.println("---------------------------------");
+            System.out.printf("%d resultado(s) em %.2f ms.%n", results.size(), elapsedMs);
+
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao buscar no cofre: " + e.getMessage());
+        }
+    }
+
+    // Descrição legível do tipo de correspondência de um resultado.
+    private static String describe(SearchIndex.Hit hit) {
+        String field = hit.getField() == SearchIndex.FIELD_SERVICE ? "serviço" : "usuário";
+        switch (hit.getMatchType()) {
+            case EXACT:
+                return field + ", exato";
+            case PREFIX:
+                return field + ", prefixo";
+            default:
+                return field + ", aproximado (" + hit.getDistance() + " erro(s))";
+        }
+    }
+
+    /**
+     * Gera uma senha com a política do serviço. Nos modos baseados em caracteres, o usuário
+     * pode aceitar o comprimento padrão da política ou informar outro.
+     */
+    private String generateWithPolicy(PasswordPolicy policy, Scanner scanner) {
+        System.out.println("ℹ️ Aplicando a política configurada para este serviço: " + policy);
+        if (policy.getMode() == PasswordPolicy.Mode.PASSPHRASE) {
+            return new String(RandomPasswordUtil.generate(policy));
+        }
+        while (true) {
+            System.out.print("Defina o tamanho da senha (Enter para usar " + policy.getLength() + "): ");
+            String input = scanner.nextLine().trim();
+            try {
+                int length = input.isEmpty() ? policy.getLength() : Integer.parseInt(input);
+                return new String(RandomPasswordUtil.generate(policy, length));
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Entrada inválida. Por favor, digite um número.");
+            } catch (IllegalArgumentException e) {
+                System.out.println("❌ " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Permite cadastrar, substituir ou remover a política de geração de senha de um serviço.
+     *
+     * @param scanner Objeto para interagir com o usuário via console.
+     */
+    public void configurePolicy(Scanner scanner) {
+        try {
+            System.out.println("\n== POLÍTICA DE SENHA POR SERVIÇO ==");
+            System.out.print("Informe o nome do serviço: ");
+            String service = scanner.nextLine().trim();
+            if (service.isEmpty()) {
+                System.out.println("O nome do serviço não pode ser vazio. Operação cancelada.");
+                return;
+            }
+
+            VaultService.await(vaultService.getPolicy(service))
+                    .ifPresent(current -> System.out.println("Política atual: " + current));
+
+            System.out.println("1) Caracteres aleatórios");
+            System.out.println("2) Pronunciável");
+            System.out.println("3) Frase-senha (palavras)");
+            System.out.println("4) Remover política (voltar ao padrão)");
+            System.out.print("Escolha o modo (1-4): ");
+            String opt = scanner.nextLine().trim();
+
+            if ("4".equals(opt)) {
+                boolean removed = VaultService.await(vaultService.removePolicy(service));
+                System.out.println(removed ? "✅ Política removida." : "ℹ️ O serviço já usava a política padrão.");
+                return;
+            }
+
+            PasswordPolicy.Builder builder = new PasswordPolicy.Builder();
+            switch (opt) {
+                case "1":
+                    builder.mode(PasswordPolicy.Mode.RANDOM);
+                    break;
+                case "2":
+                    builder.mode(PasswordPolicy.Mode.PRONOUNCEABLE);
+                    break;
+                case "3":
+                    builder.mode(PasswordPolicy.Mode.PASSPHRASE)
+                            .wordCount(readInt(scanner, "Quantidade de palavras", 6))
+                            .minSymbols(0);
+                    break;
+                default:
+                    System.out.println("❌ Opção inválida. Operação cancelada.");
+                    return;
+            }
+
+            if (!"3".equals(opt)) {
+                builder.length(readInt(scanner, "Comprimento padrão", 16))
+                        .minUppercase(readInt(scanner, "Mínimo de maiúsculas", 1))
+                        .minLowercase(readInt(scanner, "Mínimo de minúsculas", 1))
+                        .minDigits(readInt(scanner, "Mínimo de dígitos", 1));
+                System.out.print("Símbolos permitidos (Enter para " + PasswordPolicy.DEFAULT_SYMBOLS + ", '-' para nenhum): ");
+                String symbols = scanner.nextLine().trim();
+                if ("-".equals(symbols)) {
+                    builder.symbols("").minSymbols(0);
+                } else {
+                    if (!symbols.isEmpty()) {
+                        builder.symbols(symbols);
+                    }
+                    builder.minSymbols(readInt(scanner, "Mínimo de símbolos", 1));
+                }
+                System.out.print("Excluir caracteres parecidos (l, 1, I, O, 0)? (s/n): ");
+                builder.excludeLookAlikes("s".equalsIgnoreCase(scanner.nextLine().trim()));
+            }
+            builder.maxLength(readInt(scanner, "Comprimento máximo aceito pelo serviço (0 = sem limite)", 0));
+
+            PasswordPolicy policy = builder.build();
+            // Compila e testa a política antes de salvá-la, para rejeitar combinações impossíveis.
+            RandomPasswordUtil.generate(policy);
+            VaultService.await(vaultService.savePolicy(service, policy));
+            System.out.println("✅ Política salva para o serviço '" + service + "'.");
+
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ Política inválida: " + e.getMessage());
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: O formato do arquivo de políticas ('policies.dat') é incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível acessar o arquivo 'policies.dat'. Verifique as permissões.");
+        } catch (Exception e) {
+            System.err.println("Ocorreu um erro inesperado ao configurar a política: " + e.getClass().getSimpleName());
+        }
+    }
+
+    // Lê um inteiro do console, usando o valor padrão quando a entrada é vazia ou inválida.
+    private static int readInt(Scanner scanner, String label, int defaultValue) {
+        System.out.print(label + " (Enter para " + defaultValue + "): ");
+        String input = scanner.nextLine().trim();
+        try {
+            return input.isEmpty() ? defaultValue : Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
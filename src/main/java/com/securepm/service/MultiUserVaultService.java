@@ -0,0 +1,307 @@
+package com.securepm.service;
+
+import com.securepm.audit.AuditJournal;
+import com.securepm.model.SystemUser;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.SharedCredentialStore;
+import com.securepm.repository.UserManager;
+import com.securepm.repository.UserStore;
+import com.securepm.util.KeyFactoryUtil;
+import com.securepm.util.TwoFactorCodeUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo com vários usuários: cada usuário tem o próprio perfil no {@link UserStore} e o
+ * próprio cofre, num diretório separado, com o salt da chave guardado no perfil. O registro
+ * e o login leem e gravam apenas os arquivos do usuário, sem carregar os demais perfis.
+ *
+ * Estrutura do diretório de dados:
+ * users/ (o cadastro de usuários), vaults/&lt;id&gt;/ (credenciais e políticas de cada usuário),
+ * shared/ (credenciais compartilhadas entre usuários, pelo {@link SharingService}) e audit/
+ * (um único diário de auditoria para todos os cofres).
+ *
+ * Cada login abre (ou reaproveita) um {@link VaultService} sobre o cofre do usuário, obtido
+ * depois com {@link #vaultFor(VaultSession)}; o serviço é fechado quando a última sessão do
+ * usuário é encerrada com {@link #logout(VaultSession)}, para que a memória acompanhe os
+ * usuários ativos, e não os cadastrados.
+ */
+public class MultiUserVaultService implements AutoCloseable {
+
+    public static final String USERS_DIR = "users";
+    public static final String VAULTS_DIR = "vaults";
+    public static final String SHARED_DIR = "shared";
+
+    // Cofre aberto de um usuário, as sessões ativas sobre ele e os logins em andamento.
+    private static final class Tenant {
+        private final VaultService service;
+        private final Set<String> sessions = new HashSet<>();
+        private int pendingLogins;
+
+        Tenant(VaultService service) {
+            this.service = service;
+        }
+    }
+
+    private final UserStore store;
+    private final Path vaultsDir;
+    private final AuditJournal audit;
+    private final SharingService sharing;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Cofres abertos, pelo nome do usuário; protegido pelo próprio mapa.
+    private final Map<String, Tenant> tenants = new HashMap<>();
+
+    /**
+     * Cria o serviço sobre um diretório de dados, com o diário de auditoria em
+     * &lt;diretório&gt;/{@link VaultService#AUDIT_DIR}.
+     *
+     * @throws UncheckedIOException Se o diário de auditoria não puder ser aberto.
+     */
+    public MultiUserVaultService(Path dataDir) {
+        this(dataDir, openAuditJournal(dataDir));
+    }
+
+    /**
+     * Cria o serviço sobre um diretório de dados e um diário de auditoria, que passa a ser
+     * fechado junto com o serviço.
+     *
+     * @param audit O diário de auditoria, ou null para não registrar as operações.
+     */
+    public MultiUserVaultService(Path dataDir, AuditJournal audit) {
+        this.store = new UserStore(dataDir.resolve(USERS_DIR));
+        this.vaultsDir = dataDir.resolve(VAULTS_DIR);
+        this.audit = audit;
+        this.sharing = new SharingService(store, new SharedCredentialStore(dataDir.resolve(SHARED_DIR)), audit);
+    }
+
+    private static AuditJournal openAuditJournal(Path dataDir) {
+        try {
+            return AuditJournal.open(dataDir.resolve(VaultService.AUDIT_DIR));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o diário de auditoria.", e);
+        }
+    }
+
+    public UserStore getUserStore() {
+        return store;
+    }
+
+    // Compartilhamento de credenciais entre os usuários deste serviço.
+    public SharingService getSharing() {
+        return sharing;
+    }
+
+    /**
+     * Indica se já existe um usuário com o nome informado.
+     */
+    public CompletableFuture<Boolean> isRegistered(String username) {
+        return async(() -> store.exists(username));
+    }
+
+    /**
+     * Registra um novo usuário com um cofre vazio. Ao contrário do modo de um único usuário,
+     * um perfil existente nunca é substituído.
+     *
+     * @param username O nome de usuário, ainda não registrado.
+     * @param password A senha mestra, com pelo menos {@link VaultService#MIN_MASTER_PASSWORD_LENGTH} caracteres.
+     * @return Um futuro com a URI 'otpauth' para configurar o 2FA; falha com
+     *         IllegalArgumentException se o nome já estiver em uso.
+     */
+    public CompletableFuture<String> register(String username, String password) {
+        return async(() -> {
+            if (username == null || username.isBlank()) {
+                throw new IllegalArgumentException("Informe o nome de usuário.");
+            }
+            // 1. Recusa cedo um nome em uso, antes do BCrypt; a criação exclusiva abaixo decide as disputas.
+            if (store.exists(username)) {
+                throw new IllegalArgumentException("O nome de usuário '" + username + "' já está em uso.");
+            }
+            String hashedPassword = VaultService.hashMasterPassword(password);
+            String twoFASecret = TwoFactorCodeUtils.generateBase32Secret();
+
+            // 2. Cria o diretório do cofre antes do perfil, para que um perfil nunca aponte para um cofre ausente.
+            SystemUser user = new SystemUser(username, hashedPassword, twoFASecret);
+            user.assignVault(UUID.randomUUID().toString(), KeyFactoryUtil.generateSalt());
+            // O par de chaves de compartilhamento já nasce com o perfil, para que o usuário possa
+            // receber compartilhamentos antes do primeiro login.
+            SharingService.assignKeyPair(user, KeyFactoryUtil.deriveAESKeyFromPassword(password, user.getKeySalt()));
+            Path vaultDir = vaultsDir.resolve(user.getVaultId());
+            Files.createDirectories(vaultDir);
+
+            // 3. Publica o perfil; se outro registro com o mesmo nome venceu a disputa, desfaz o diretório.
+            if (!store.create(user)) {
+                Files.deleteIfExists(vaultDir);
+                throw new IllegalArgumentException("O nome de usuário '" + username + "' já está em uso.");
+            }
+            record(username, AuditJournal.Action.REGISTER, "ok");
+            return TwoFactorCodeUtils.getGoogleAuthenticatorBarCode("SecurePM", username, twoFASecret);
+        });
+    }
+
+    /**
+     * Autentica um usuário (senha mestra com BCrypt e código TOTP) e abre uma sessão no cofre
+     * dele, cujas operações são feitas no serviço devolvido por {@link #vaultFor(VaultSession)}.
+     *
+     * @return Um futuro com a sessão; falha com {@link AuthenticationException} se alguma etapa não conferir.
+     */
+    public CompletableFuture<VaultSession> authenticate(String username, String password, String totpCode) {
+        return async(() -> {
+            Optional<SystemUser> user = store.find(username);
+            if (user.isEmpty() || user.get().getVaultId() == null) {
+                record(username, AuditJournal.Action.LOGIN_FAILED, "usuario-invalido");
+                throw new AuthenticationException("Nome de usuário inválido.");
+            }
+            Tenant tenant = acquire(user.get());
+            VaultSession session = null;
+            try {
+                session = VaultService.await(tenant.service.authenticate(username, password, totpCode));
+                ensureShareKeys(tenant, username, session);
+                return session;
+            } finally {
+                release(username, tenant, session);
+            }
+        });
+    }
+
+    /**
+     * Serviço do cofre do usuário da sessão.
+     *
+     * @throws IllegalStateException Se a sessão já foi encerrada.
+     */
+    public VaultService vaultFor(VaultSession session) {
+        synchronized (tenants) {
+            Tenant tenant = session.isOpen() ? tenants.get(session.getUser()) : null;
+            if (tenant == null || !tenant.sessions.contains(session.getId())) {
+                throw new IllegalStateException("A sessão foi encerrada.");
+            }
+            return tenant.service;
+        }
+    }
+
+    /**
+     * Encerra a sessão e, se era a última do usuário, fecha o serviço do cofre dele.
+     * Chamar mais de uma vez para a mesma sessão não tem efeito.
+     */
+    public void logout(VaultSession session) {
+        session.close();
+        VaultService closed = null;
+        synchronized (tenants) {
+            Tenant tenant = tenants.get(session.getUser());
+            if (tenant != null && tenant.sessions.remove(session.getId()) && tenant.sessions.isEmpty()
+                    && tenant.pendingLogins == 0) {
+                tenants.remove(session.getUser());
+                closed = tenant.service;
+            }
+        }
+        if (closed != null) {
+            closed.close();
+        }
+    }
+
+    // Quantidade de usuários com o cofre aberto.
+    public int openVaults() {
+        synchronized (tenants) {
+            return tenants.size();
+        }
+    }
+
+    /**
+     * Encerra todas as sessões, fecha os cofres abertos e o diário de auditoria.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        List<Tenant> open;
+        synchronized (tenants) {
+            open = new ArrayList<>(tenants.values());
+            tenants.clear();
+        }
+        for (Tenant tenant : open) {
+            tenant.service.close();
+        }
+        sharing.close();
+        if (audit != null) {
+            audit.close();
+        }
+    }
+
+    // Cofre aberto do usuário, criando o serviço sobre os arquivos dele se ainda não estiver aberto.
+    private Tenant acquire(SystemUser user) {
+        synchronized (tenants) {
+            Tenant tenant = tenants.computeIfAbsent(user.getUsername(), name -> {
+                Path vaultDir = vaultsDir.resolve(user.getVaultId());
+                return new Tenant(new VaultService(new UserManager(store, name),
+                        new CredentialManager(vaultDir.resolve("credentials.dat").toString()),
+                        new PasswordPolicyManager(vaultDir.resolve("policies.dat").toString()), audit, false));
+            });
+            tenant.pendingLogins++;
+            return tenant;
+        }
+    }
+
+    // Gera o par de chaves de compartilhamento dos perfis criados sem ele, no primeiro login
+    // (quando a chave do cofre está disponível); logins simultâneos do mesmo usuário geram um único par.
+    private void ensureShareKeys(Tenant tenant, String username, VaultSession session) throws Exception {
+        synchronized (tenant) {
+            SystemUser user = store.find(username).orElseThrow();
+            if (user.getSharePublicKey() == null) {
+                SharingService.assignKeyPair(user, session.key());
+                store.save(user);
+            }
+        }
+    }
+
+    // Associa a sessão aberta ao cofre ou, se o login falhou e não há outras sessões, fecha o serviço.
+    private void release(String username, Tenant tenant, VaultSession session) {
+        boolean idle;
+        synchronized (tenants) {
+            tenant.pendingLogins--;
+            if (session != null) {
+                tenant.sessions.add(session.getId());
+            }
+            idle = tenant.sessions.isEmpty() && tenant.pendingLogins == 0 && tenants.get(username) == tenant;
+            if (idle) {
+                tenants.remove(username);
+            }
+        }
+        if (idle) {
+            tenant.service.close();
+        }
+    }
+
+    private void record(String actor, AuditJournal.Action action, String outcome) {
+        if (audit != null) {
+            audit.record(actor, null, action, null, outcome);
+        }
+    }
+
+    // Executa a tarefa em uma thread virtual; o futuro falha com a exceção original.
+    private <T> CompletableFuture<T> async(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,348 @@
+package com.securepm.service;
+
+import com.securepm.audit.AuditJournal;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+import com.securepm.model.NewCredential;
+import com.securepm.model.SharedCredential;
+import com.securepm.model.SystemUser;
+import com.securepm.repository.SharedCredentialStore;
+import com.securepm.repository.UserStore;
+import com.securepm.util.ShareCryptoUtil;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Compartilhamento de credenciais entre os usuários do {@link MultiUserVaultService}, sem
+ * copiar a senha em texto claro: o conteúdo é cifrado uma única vez com uma chave de conteúdo
+ * aleatória, e essa chave é embrulhada com a chave pública X25519 de cada destinatário
+ * ({@link ShareCryptoUtil}). Cada usuário abre os compartilhamentos com a própria chave
+ * privada, guardada no perfil cifrada com a chave do cofre dele.
+ *
+ * Os embrulhos de um grupo grande são calculados em paralelo. Ao revogar um destinatário, o
+ * conteúdo recebe uma nova chave (uma única cifragem) e só a chave de conteúdo é embrulhada
+ * de novo para quem mantém o acesso; quem foi removido não consegue abrir as versões seguintes.
+ */
+public class SharingService implements AutoCloseable {
+
+    // Dados autenticados da chave privada de compartilhamento cifrada com a chave do cofre.
+    private static final byte[] PRIVATE_KEY_AAD = "securepm/share-private-key/v1".getBytes(StandardCharsets.UTF_8);
+
+    // Latência de embrulhar a chave de conteúdo para todos os destinatários de uma operação.
+    private static final LatencyHistogram WRAP_BATCH_LATENCY = Metrics.histogram("share_wrap_batch", "Embrulho da chave de conteúdo para um grupo de destinatários.");
+
+    private final UserStore users;
+    private final SharedCredentialStore store;
+    private final AuditJournal audit;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Serializa as alterações de destinatários, que leem e regravam o compartilhamento inteiro.
+    private final ReentrantLock changes = new ReentrantLock();
+
+    SharingService(UserStore users, SharedCredentialStore store, AuditJournal audit) {
+        this.users = users;
+        this.store = store;
+        this.audit = audit;
+    }
+
+    /**
+     * Gera o par de chaves de compartilhamento do usuário, com a chave privada cifrada pela
+     * chave do cofre dele (o perfil ainda precisa ser gravado por quem chama).
+     */
+    static void assignKeyPair(SystemUser user, SecretKey vaultKey) throws GeneralSecurityException {
+        KeyPair pair = ShareCryptoUtil.generateKeyPair();
+        user.assignShareKeys(pair.getPublic().getEncoded(),
+                ShareCryptoUtil.seal(pair.getPrivate().getEncoded(), vaultKey, PRIVATE_KEY_AAD));
+    }
+
+    /**
+     * Compartilha uma credencial com os destinatários (o dono da sessão sempre mantém acesso).
+     *
+     * @param recipients Os nomes dos usuários destinatários, que precisam ter um par de chaves.
+     * @return Um futuro com o ID do compartilhamento; falha com IllegalArgumentException se algum
+     *         destinatário não existir.
+     */
+    public CompletableFuture<String> share(VaultSession session, String service, String username, String password,
+                                           Collection<String> recipients) {
+        return async(() -> {
+            session.key(); // Recusa sessões encerradas.
+            String owner = session.getUser();
+            Set<String> names = new LinkedHashSet<>();
+            names.add(owner);
+            names.addAll(recipients);
+
+            // 1. Chaves públicas dos destinatários, lidas direto dos perfis.
+            Map<String, PublicKey> publicKeys = publicKeys(names);
+
+            // 2. Cifra o conteúdo uma única vez e embrulha a chave para cada destinatário.
+            String id = UUID.randomUUID().toString();
+            SecretKey contentKey = ShareCryptoUtil.generateContentKey();
+            byte[] payload = ShareCryptoUtil.seal(encode(new NewCredential(service, username, password)), contentKey,
+                    payloadAad(id, 1));
+            SharedCredential shared = new SharedCredential(id, owner, 1, payload, wrapAll(contentKey, id, 1, publicKeys));
+
+            // 3. Grava o compartilhamento antes das caixas de entrada, que só apontam para compartilhamentos existentes.
+            store.save(shared);
+            for (String name : names) {
+                store.addToInbox(name, id);
+            }
+            record(session, AuditJournal.Action.SHARE, id, "destinatarios=" + names.size());
+            return id;
+        });
+    }
+
+    /**
+     * Lista os IDs dos compartilhamentos a que o usuário da sessão tem acesso.
+     */
+    public CompletableFuture<List<String>> inbox(VaultSession session) {
+        return async(() -> {
+            session.key(); // Recusa sessões encerradas.
+            return store.inbox(session.getUser());
+        });
+    }
+
+    /**
+     * Abre um compartilhamento com a chave privada do usuário da sessão.
+     *
+     * @return Um futuro com o serviço, o usuário e a senha, ou null se o compartilhamento não
+     *         existir ou o usuário não tiver acesso.
+     */
+    public CompletableFuture<NewCredential> reveal(VaultSession session, String id) {
+        return async(() -> {
+            Optional<SharedCredential> shared = store.find(id);
+            if (shared.isEmpty() || shared.get().getWrappedKey(session.getUser()) == null) {
+                record(session, AuditJournal.Action.SHARE_REVEAL, id, "nao-encontrada");
+                return null;
+            }
+            SharedCredential current = shared.get();
+            SecretKey contentKey = contentKey(session, current);
+            NewCredential credential = decode(ShareCryptoUtil.open(current.getPayload(), contentKey,
+                    payloadAad(id, current.getKeyVersion())));
+            record(session, AuditJournal.Action.SHARE_REVEAL, id, "ok");
+            return credential;
+        });
+    }
+
+    /**
+     * Dá acesso a novos destinatários, embrulhando a chave de conteúdo atual para cada um; o
+     * conteúdo não é cifrado de novo. Só o dono do compartilhamento pode incluir destinatários.
+     *
+     * @return Um futuro com a quantidade de destinatários incluídos (os que já tinham acesso são ignorados).
+     */
+    public CompletableFuture<Integer> addRecipients(VaultSession session, String id, Collection<String> recipients) {
+        return async(() -> {
+            changes.lock();
+            try {
+                SharedCredential shared = owned(session, id);
+                Set<String> names = new LinkedHashSet<>(recipients);
+                names.removeAll(shared.getRecipients());
+                if (names.isEmpty()) {
+                    return 0;
+                }
+                SecretKey contentKey = contentKey(session, shared);
+                shared.addWrappedKeys(wrapAll(contentKey, id, shared.getKeyVersion(), publicKeys(names)));
+                store.save(shared);
+                for (String name : names) {
+                    store.addToInbox(name, id);
+                }
+                record(session, AuditJournal.Action.SHARE_ADD, id, "destinatarios=" + names.size());
+                return names.size();
+            } finally {
+                changes.unlock();
+            }
+        });
+    }
+
+    /**
+     * Revoga o acesso de um destinatário: o conteúdo recebe uma nova chave de conteúdo e só essa
+     * chave é embrulhada de novo, em paralelo, para os demais destinatários. Só o dono do
+     * compartilhamento pode revogar, e o próprio dono não pode ser removido.
+     *
+     * @return Um futuro com 'true' se o destinatário tinha acesso.
+     */
+    public CompletableFuture<Boolean> revoke(VaultSession session, String id, String recipient) {
+        return async(() -> {
+            changes.lock();
+            try {
+                SharedCredential shared = owned(session, id);
+                if (recipient.equals(shared.getOwner())) {
+                    throw new IllegalArgumentException("O dono não pode ser removido do próprio compartilhamento.");
+                }
+                if (shared.getWrappedKey(recipient) == null) {
+                    return false;
+                }
+                // 1. Decifra o conteúdo com a chave atual e o cifra uma vez com uma nova chave.
+                byte[] plain = ShareCryptoUtil.open(shared.getPayload(), contentKey(session, shared),
+                        payloadAad(id, shared.getKeyVersion()));
+                int version = shared.getKeyVersion() + 1;
+                SecretKey contentKey = ShareCryptoUtil.generateContentKey();
+                byte[] payload = ShareCryptoUtil.seal(plain, contentKey, payloadAad(id, version));
+
+                // 2. Embrulha a nova chave para quem mantém o acesso (perfis apagados deixam o grupo).
+                Set<String> remaining = new LinkedHashSet<>(shared.getRecipients());
+                remaining.remove(recipient);
+                Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+                for (String name : remaining) {
+                    Optional<SystemUser> user = users.find(name);
+                    if (user.isPresent() && user.get().getSharePublicKey() != null) {
+                        publicKeys.put(name, ShareCryptoUtil.decodePublicKey(user.get().getSharePublicKey()));
+                    }
+                }
+                shared.rotate(version, payload, wrapAll(contentKey, id, version, publicKeys));
+                store.save(shared);
+                store.removeFromInbox(recipient, id);
+                record(session, AuditJournal.Action.SHARE_REVOKE, id, "removido=" + recipient);
+                return true;
+            } finally {
+                changes.unlock();
+            }
+        });
+    }
+
+    /**
+     * Encerra as threads do serviço.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // Compartilhamento que o usuário da sessão criou; recusa os dos outros usuários.
+    private SharedCredential owned(VaultSession session, String id) throws Exception {
+        SharedCredential shared = store.find(id)
+                .orElseThrow(() -> new IllegalArgumentException("Nenhum compartilhamento com o ID " + id + "."));
+        if (!shared.getOwner().equals(session.getUser())) {
+            throw new IllegalStateException("Só o dono do compartilhamento pode alterar os destinatários.");
+        }
+        return shared;
+    }
+
+    // Chave de conteúdo atual, desembrulhada com a chave privada do usuário da sessão.
+    private SecretKey contentKey(VaultSession session, SharedCredential shared) throws Exception {
+        String name = session.getUser();
+        SystemUser user = users.find(name)
+                .orElseThrow(() -> new IllegalStateException("O perfil do usuário '" + name + "' não existe mais."));
+        if (user.getSharePrivateKey() == null) {
+            throw new IllegalStateException("O usuário '" + name + "' não tem um par de chaves de compartilhamento.");
+        }
+        byte[] privateKey = ShareCryptoUtil.open(user.getSharePrivateKey(), session.key(), PRIVATE_KEY_AAD);
+        return ShareCryptoUtil.unwrap(shared.getWrappedKey(name), ShareCryptoUtil.decodePrivateKey(privateKey),
+                user.getSharePublicKey(), wrapAad(shared.getId(), name, shared.getKeyVersion()));
+    }
+
+    // Chaves públicas dos usuários; falha listando os que não existem ou ainda não têm um par de chaves.
+    private Map<String, PublicKey> publicKeys(Collection<String> names) throws Exception {
+        List<String> ordered = new ArrayList<>(names);
+        PublicKey[] keys = new PublicKey[ordered.size()];
+        List<String> missing = new ArrayList<>();
+        IntStream.range(0, ordered.size()).parallel().forEach(i -> {
+            try {
+                Optional<SystemUser> user = users.find(ordered.get(i));
+                if (user.isPresent() && user.get().getSharePublicKey() != null) {
+                    keys[i] = ShareCryptoUtil.decodePublicKey(user.get().getSharePublicKey());
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Falha ao ler o perfil de '" + ordered.get(i) + "'.", e);
+            }
+        });
+        Map<String, PublicKey> result = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) missing.add(ordered.get(i));
+            else result.put(ordered.get(i), keys[i]);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Usuário(s) inexistente(s) ou sem chave de compartilhamento: " + missing);
+        }
+        return result;
+    }
+
+    // Embrulha a chave de conteúdo para todos os destinatários, em paralelo e com um único par efêmero.
+    private static Map<String, byte[]> wrapAll(SecretKey contentKey, String id, int version,
+                                               Map<String, PublicKey> publicKeys) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        KeyPair ephemeral = ShareCryptoUtil.generateKeyPair();
+        List<Map.Entry<String, PublicKey>> entries = new ArrayList<>(publicKeys.entrySet());
+        byte[][] wrapped = new byte[entries.size()][];
+        IntStream.range(0, entries.size()).parallel().forEach(i -> {
+            Map.Entry<String, PublicKey> entry = entries.get(i);
+            try {
+                wrapped[i] = ShareCryptoUtil.wrap(contentKey, entry.getValue(), wrapAad(id, entry.getKey(), version), ephemeral);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Falha ao embrulhar a chave para '" + entry.getKey() + "'.", e);
+            }
+        });
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < wrapped.length; i++) {
+            result.put(entries.get(i).getKey(), wrapped[i]);
+        }
+        WRAP_BATCH_LATENCY.recordSince(start);
+        return result;
+    }
+
+    private static byte[] wrapAad(String id, String recipient, int version) {
+        return (id + "\n" + recipient + "\n" + version).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] payloadAad(String id, int version) {
+        return (id + "\n" + version).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(NewCredential credential) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(credential.getServiceName());
+            out.writeUTF(credential.getUsername());
+            out.writeUTF(credential.getPassword());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static NewCredential decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return new NewCredential(in.readUTF(), in.readUTF(), in.readUTF());
+        }
+    }
+
+    private void record(VaultSession session, AuditJournal.Action action, String target, String outcome) {
+        if (audit != null) {
+            audit.record(session.getUser(), session.getId(), action, target, outcome);
+        }
+    }
+
+    // Executa a tarefa em uma thread virtual; o futuro falha com a exceção original.
+    private <T> CompletableFuture<T> async(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
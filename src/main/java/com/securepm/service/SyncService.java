@@ -0,0 +1,188 @@
+package com.securepm.service;
+
+import com.securepm.model.SyncReport;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.VaultSyncManager;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.Scanner;
+
+/**
+ * Fluxos de console para sincronizar o cofre com outra réplica: outro diretório neste
+ * computador ou outra instância do SecurePM, por uma conexão de rede local.
+ */
+public class SyncService {
+
+    // Porta padrão para a sincronização entre instâncias.
+    private static final int DEFAULT_PORT = 47_470;
+
+    // Tempo máximo de espera pela conexão da outra instância.
+    private static final int ACCEPT_TIMEOUT_MS = 120_000;
+
+    // Nome do arquivo de credenciais dentro do diretório de uma réplica.
+    private static final String CREDENTIALS_FILE = "credentials.dat";
+
+    private final CredentialManager repository = new CredentialManager();
+
+    /**
+     * Exibe o menu de sincronização até o usuário voltar.
+     *
+     * @param session A sessão autenticada.
+     * @param scanner Objeto para interagir com o usuário via console.
+     * @return 'true' se o cofre local foi alterado (e precisa ser recarregado).
+     */
+    public boolean manageSync(VaultSession session, Scanner scanner) {
+        SecretKey aesKey = session.key();
+        boolean changed = false;
+        while (true) {
+            System.out.println("\n== SINCRONIZAÇÃO ENTRE RÉPLICAS ==");
+            System.out.println("1) Sincronizar com outro diretório deste computador");
+            System.out.println("2) Sincronizar com outra instância (conectar)");
+            System.out.println("3) Aguardar a conexão de outra instância");
+            System.out.println("4) Voltar");
+            System.out.print("Escolha uma opção (1-4): ");
+            String opt = scanner.nextLine().trim();
+
+            switch (opt) {
+                case "1":
+                    changed |= syncWithDirectory(aesKey, scanner);
+                    break;
+                case "2":
+                    changed |= syncWithInstance(aesKey, scanner);
+                    break;
+                case "3":
+                    changed |= waitForInstance(aesKey, scanner);
+                    break;
+                case "4":
+                    return changed;
+                default:
+                    System.out.println("❌ Opção inválida. Por favor, escolha um número de 1 a 4.");
+            }
+        }
+    }
+
+    private boolean syncWithDirectory(SecretKey aesKey, Scanner scanner) {
+        System.out.print("Diretório da outra réplica: ");
+        Path directory = Paths.get(scanner.nextLine().trim()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(directory)) {
+            System.out.println("❌ O diretório informado não existe.");
+            return false;
+        }
+        if (directory.equals(Paths.get("").toAbsolutePath().normalize())) {
+            System.out.println("❌ O diretório informado é o do próprio cofre.");
+            return false;
+        }
+        VaultSyncManager.ConflictPolicy policy = askPolicy(scanner);
+        try {
+            CredentialManager peer = new CredentialManager(directory.resolve(CREDENTIALS_FILE).toString());
+            SyncReport report = manager(aesKey).syncWith(peer, policy);
+            printReport(report);
+            return report.getRecordsReceived() + report.getDeletionsReceived() > 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um arquivo de uma das réplicas tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível sincronizar as réplicas. " + e.getMessage());
+        }
+        return false;
+    }
+
+    private boolean syncWithInstance(SecretKey aesKey, Scanner scanner) {
+        System.out.print("Endereço da outra instância (Enter para localhost): ");
+        String host = scanner.nextLine().trim();
+        if (host.isEmpty()) host = "localhost";
+        int port = askPort(scanner);
+        if (port < 0) return false;
+        VaultSyncManager.ConflictPolicy policy = askPolicy(scanner);
+        try {
+            SyncReport report = manager(aesKey).syncWithHost(host, port, policy);
+            printReport(report);
+            return report.getRecordsReceived() + report.getDeletionsReceived() > 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um arquivo do cofre tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: Não foi possível sincronizar com a outra instância. " + e.getMessage());
+        }
+        return false;
+    }
+
+    private boolean waitForInstance(SecretKey aesKey, Scanner scanner) {
+        int port = askPort(scanner);
+        if (port < 0) return false;
+        System.out.printf("⏳ Aguardando a conexão de outra instância na porta %d (até %d s)...%n",
+                port, ACCEPT_TIMEOUT_MS / 1000);
+        try {
+            SyncReport report = manager(aesKey).serveOnce(port, ACCEPT_TIMEOUT_MS);
+            System.out.printf("✅ Sincronização concluída: %d credencial(is) e %d exclusão(ões) recebidas, %d credencial(is) enviadas.%n",
+                    report.getRecordsReceived(), report.getDeletionsReceived(), report.getRecordsSent());
+            return report.getRecordsReceived() + report.getDeletionsReceived() > 0;
+        } catch (SocketTimeoutException e) {
+            System.out.println("ℹ️ Nenhuma instância se conectou a tempo.");
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ Erro Crítico: Um arquivo do cofre tem um formato incompatível com a versão atual do programa.");
+        } catch (IOException e) {
+            System.err.println("❌ Erro de Leitura/Escrita: A sincronização com a outra instância falhou. " + e.getMessage());
+        }
+        return false;
+    }
+
+    private VaultSyncManager manager(SecretKey aesKey) throws IOException, ClassNotFoundException {
+        repository.unlock(aesKey);
+        try {
+            return new VaultSyncManager(repository, aesKey);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Não foi possível derivar a chave de sincronização.", e);
+        }
+    }
+
+    private static VaultSyncManager.ConflictPolicy askPolicy(Scanner scanner) {
+        System.out.println("Em caso de conflito (a mesma credencial alterada nas duas réplicas):");
+        System.out.println("1) Manter a alteração mais recente");
+        System.out.println("2) Não alterar e apenas relatar");
+        System.out.print("Escolha (1-2, padrão 2): ");
+        return "1".equals(scanner.nextLine().trim())
+                ? VaultSyncManager.ConflictPolicy.LAST_WRITER_WINS
+                : VaultSyncManager.ConflictPolicy.REPORT;
+    }
+
+    private static int askPort(Scanner scanner) {
+        System.out.print("Porta (Enter para " + DEFAULT_PORT + "): ");
+        String value = scanner.nextLine().trim();
+        if (value.isEmpty()) return DEFAULT_PORT;
+        try {
+            int port = Integer.parseInt(value);
+            if (port > 0 && port <= 65_535) return port;
+        } catch (NumberFormatException e) {
+            // Tratado abaixo.
+        }
+        System.out.println("❌ Porta inválida.");
+        return -1;
+    }
+
+    private static void printReport(SyncReport report) {
+        System.out.printf("Réplicas: %d entrada(s) aqui, %d na outra | %d nó(s) comparados, %d balde(s) divergentes%n",
+                report.getLocalEntries(), report.getRemoteEntries(), report.getNodesCompared(), report.getBucketsCompared());
+        System.out.printf("Recebidas: %d credencial(is) e %d exclusão(ões) | Enviadas: %d credencial(is) e %d exclusão(ões)%n",
+                report.getRecordsReceived(), report.getDeletionsReceived(), report.getRecordsSent(), report.getDeletionsSent());
+        System.out.printf("Tráfego: %.1f KB enviados, %.1f KB recebidos em %d ms%n",
+                report.getBytesSent() / 1024.0, report.getBytesReceived() / 1024.0, report.getElapsedNanos() / 1_000_000);
+        if (!report.getConflicts().isEmpty()) {
+            System.out.println(report.isConflictsResolved()
+                    ? "⚠️ Conflitos resolvidos pela alteração mais recente:"
+                    : "⚠️ Conflitos não resolvidos (nenhuma das réplicas foi alterada para estas credenciais):");
+            for (String id : report.getConflicts()) {
+                System.out.println("  - ID " + id);
+            }
+        }
+        if (report.hasChanges()) {
+            System.out.println("✅ Réplicas sincronizadas.");
+        } else if (report.getConflicts().isEmpty()) {
+            System.out.println("✅ As réplicas já estavam sincronizadas.");
+        }
+    }
+}
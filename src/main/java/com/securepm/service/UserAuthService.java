@@ -1,25 +1,22 @@
 package com.securepm.service;
 
-import com.securepm.model.SystemUser;
-import com.securepm.repository.UserManager;
-import com.securepm.util.TwoFactorCodeUtils;
-import org.mindrot.jbcrypt.BCrypt;
-
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Optional;
 import java.util.Scanner;
 
 /**
- * Provee a lógica de negócio para autenticação e gerenciamento do usuário principal.
- * Encapsula as regras para registro, login e reinicialização do perfil de usuário.
+ * Fluxos de console para o usuário principal: registro, login e reinicialização do perfil.
+ * As regras (BCrypt, 2FA e derivação da chave) ficam no {@link VaultService}; esta classe
+ * apenas lê as entradas e exibe os resultados.
  */
 public class UserAuthService {
 
-    // Ponto de acesso ao repositório responsável pela persistência do usuário.
-    private final UserManager userManager = new UserManager();
+    // API do cofre, responsável pela autenticação e pela persistência do usuário.
+    private final VaultService vaultService;
+
+    public UserAuthService(VaultService vaultService) {
+        this.vaultService = vaultService;
+    }
 
     /**
      * Verifica de forma rápida se já existe um usuário configurado na aplicação,
@@ -29,9 +26,8 @@ public class UserAuthService {
      */
     public boolean isUserRegistered() {
         try {
-            // A presença do usuário no Optional indica que ele está registrado.
-            return userManager.getUser().isPresent();
-        } catch (IOException | ClassNotFoundException e) {
+            return VaultService.await(vaultService.isRegistered());
+        } catch (Exception e) {
             // Em caso de erro de leitura ou de classe, assume-se que não há usuário válido.
             System.err.println("Alerta ao verificar registro: " + e.getMessage());
             return false;
@@ -55,23 +51,13 @@ public class UserAuthService {
             do {
                 System.out.print("Crie sua senha mestra (mínimo de 8 caracteres): ");
                 password = scanner.nextLine().trim();
-                if (password.length() < 8) {
+                if (password.length() < VaultService.MIN_MASTER_PASSWORD_LENGTH) {
                     System.out.println("❌ Senha muito curta. Por favor, tente novamente.");
                 }
-            } while (password.length() < 8);
+            } while (password.length() < VaultService.MIN_MASTER_PASSWORD_LENGTH);
 
-            // Gera um hash seguro da senha usando BCrypt com um 'salt' automático.
-            String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt(12));
-
-            // Gera uma chave secreta no formato Base32 para o 2FA.
-            String twoFASecret = TwoFactorCodeUtils.generateBase32Secret();
-
-            // Instancia e persiste o novo usuário no sistema.
-            SystemUser systemUser = new SystemUser(username, hashedPassword, twoFASecret);
-            userManager.saveUser(systemUser);
-
-            // Monta a URI que será usada para gerar o QR Code em um app autenticador.
-            String barCodeUri = TwoFactorCodeUtils.getGoogleAuthenticatorBarCode("SecurePM", username, twoFASecret);
+            // O serviço gera o hash BCrypt e o segredo do 2FA e devolve a URI para o app autenticador.
+            String barCodeUri = VaultService.await(vaultService.register(username, password));
 
             System.out.println("\n✅ Usuário registrado com sucesso!");
             System.out.println("Para ativar o 2FA, use um gerador de QR Code online (como https://www.qr-code-generator.com/) com a URI abaixo.");
@@ -86,58 +72,31 @@ public class UserAuthService {
 
     /**
      * Processa a tentativa de login do usuário, validando credenciais em múltiplas etapas.
-     * Se o login for bem-sucedido, gera e retorna uma chave de sessão AES para criptografia.
+     * Se o login for bem-sucedido, abre uma sessão com a chave do cofre derivada da senha mestra.
      *
      * @param scanner Objeto para capturar as entradas do usuário.
-     * @return Uma SecretKey AES em caso de sucesso, ou 'null' se a autenticação falhar.
+     * @return A sessão em caso de sucesso, ou 'null' se a autenticação falhar.
      */
-    public SecretKey login(Scanner scanner) {
+    public VaultSession login(Scanner scanner) {
         try {
             System.out.println("\n== AUTENTICAÇÃO DE USUÁRIO ==");
-
-            // Tenta carregar os dados do usuário a partir do arquivo.
-            Optional<SystemUser> optUser = userManager.getUser();
-            if (optUser.isEmpty()) {
-                System.out.println("Nenhum usuário foi encontrado. Por favor, realize o registro primeiro.");
-                return null;
-            }
-            SystemUser systemUser = optUser.get();
-
-            // Validação do nome de usuário.
             System.out.print("Usuário: ");
             String usernameInput = scanner.nextLine().trim();
-            if (!usernameInput.equals(systemUser.getUsername())) {
-                System.out.println("❌ Nome de usuário inválido.");
-                return null;
-            }
-
-            // Validação da senha mestra com BCrypt.
             System.out.print("Senha Mestra: ");
             String passwordInput = scanner.nextLine().trim();
-            if (!BCrypt.checkpw(passwordInput, systemUser.getPasswordHash())) {
-                System.out.println("❌ Senha mestra incorreta.");
-                return null;
-            }
-
-            // Validação do código de autenticação de dois fatores (2FA).
             System.out.print("Código 2FA (6 dígitos): ");
             String code = scanner.nextLine().trim();
-            if (!TwoFactorCodeUtils.verifyTOTPCode(systemUser.getTwoFASecret(), code)) {
-                System.out.println("❌ Código 2FA inválido ou expirado.");
-                return null;
-            }
 
+            VaultSession session = VaultService.await(vaultService.authenticate(usernameInput, passwordInput, code));
             System.out.println("\n✅ Autenticação bem-sucedida. Acesso liberado.");
+            return session;
 
-            // Gera uma chave AES de 128 bits para ser usada na sessão atual.
-            KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-            keyGen.init(128);
-            return keyGen.generateKey();
-
+        } catch (AuthenticationException e) {
+            System.out.println("❌ " + e.getMessage());
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Falha ao carregar os dados do usuário: " + e.getMessage());
         } catch (NoSuchAlgorithmException e) {
-            System.err.println("O algoritmo de criptografia AES não está disponível no sistema: " + e.getMessage());
+            System.err.println("O algoritmo de derivação de chave não está disponível no sistema: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Ocorreu um erro durante a validação do 2FA: " + e.getMessage());
         }
@@ -151,14 +110,14 @@ public class UserAuthService {
     public void resetUser() {
         try {
             System.out.println("\n== REINICIALIZAÇÃO DE USUÁRIO ==");
-            boolean deleted = userManager.deleteUser();
+            boolean deleted = VaultService.await(vaultService.resetUser());
             if (deleted) {
                 System.out.println("✅ Os dados do usuário foram removidos com sucesso.");
             } else {
                 System.out.println("ℹ️ Nenhum usuário para remover. O sistema já está limpo.");
             }
-        } catch (IOException e) {
+        } catch (Exception e) {
             System.err.println("Falha ao tentar remover o arquivo do usuário: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
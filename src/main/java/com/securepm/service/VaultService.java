@@ -0,0 +1,1230 @@
+package com.securepm.service;
+
+import com.securepm.audit.AuditJournal;
+import com.securepm.jfr.CryptoBatchEvent;
+import com.securepm.jfr.LoginPhaseEvent;
+import com.securepm.metrics.Counter;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+import com.securepm.model.AccessCredential;
+import com.securepm.model.CredentialSummary;
+import com.securepm.model.NewCredential;
+import com.securepm.model.PasswordAssessment;
+import com.securepm.model.PasswordPolicy;
+import com.securepm.model.PasswordVersion;
+import com.securepm.model.SystemUser;
+import com.securepm.repository.BlockVaultFile;
+import com.securepm.repository.CompactCredentialTable;
+import com.securepm.repository.CredentialManager;
+import com.securepm.repository.PasswordPolicyManager;
+import com.securepm.repository.UserManager;
+import com.securepm.util.AESCryptoUtil;
+import com.securepm.util.BlindIndexUtil;
+import com.securepm.util.KeyFactoryUtil;
+import com.securepm.util.KeyedHashUtil;
+import com.securepm.util.PasswordBreachChecker;
+import com.securepm.util.PasswordStrengthEstimator;
+import com.securepm.util.RandomPasswordUtil;
+import com.securepm.util.SearchIndex;
+import com.securepm.util.TwoFactorCodeUtils;
+import org.mindrot.jbcrypt.BCrypt;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * API do cofre sem interface: autenticação, consulta e alteração das credenciais, sem ler
+ * do console nem imprimir nada. Cada operação devolve um {@link CompletableFuture} e é
+ * executada em uma thread virtual, de modo que o serviço pode ser embutido em outros
+ * programas (agente, servidor HTTP, processamento em lote) e usado por muitas sessões ao
+ * mesmo tempo na mesma JVM.
+ *
+ * As sessões compartilham uma única cópia do cofre em memória (tabela compacta, índice de
+ * busca e nomes descriptografados). Consultas rodam em paralelo sob a trava de leitura;
+ * alterações são serializadas pela trava de escrita. Se o arquivo do cofre for alterado por
+ * outro processo, a cópia em memória é recarregada na operação seguinte.
+ *
+ * Com um {@link AuditJournal}, cada operação das sessões (e cada login, registro e
+ * exclusão do perfil) é registrada no diário de auditoria ao terminar; o registro apenas
+ * enfileira a entrada, sem E/S no caminho da operação. A chave do cofre é ligada ao diário
+ * na abertura das sessões, para que ele seja selado com ela.
+ *
+ * Os futuros falham com a exceção original (IOException, ClassNotFoundException,
+ * {@link AuthenticationException}, ...); {@link #await(CompletableFuture)} a relança para
+ * quem precisa esperar o resultado de forma síncrona.
+ */
+public class VaultService implements AutoCloseable {
+
+    /**
+     * Um resultado da busca rápida: a correspondência encontrada e a credencial.
+     */
+    public static final class SearchResult {
+        private final SearchIndex.Hit hit;
+        private final CredentialSummary credential;
+
+        SearchResult(SearchIndex.Hit hit, CredentialSummary credential) {
+            this.hit = hit;
+            this.credential = credential;
+        }
+
+        public SearchIndex.Hit getHit() {
+            return hit;
+        }
+
+        public CredentialSummary getCredential() {
+            return credential;
+        }
+    }
+
+    /**
+     * Resultado de uma gravação em lote, na mesma ordem das entradas.
+     */
+    public static final class BatchResult {
+        private final List<CredentialSummary> added;
+        private final List<Boolean> removed;
+
+        BatchResult(List<CredentialSummary> added, List<Boolean> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        // As credenciais criadas, uma para cada inclusão.
+        public List<CredentialSummary> getAdded() {
+            return added;
+        }
+
+        // Para cada ID informado, se a credencial existia e foi removida.
+        public List<Boolean> getRemoved() {
+            return removed;
+        }
+    }
+
+    /**
+     * Destino de uma exportação: recebe cada credencial com a senha já descriptografada.
+     */
+    @FunctionalInterface
+    public interface ExportSink {
+        void accept(CredentialSummary credential, String password) throws Exception;
+    }
+
+    // Linhas cifradas por vez na importação (em paralelo dentro de cada bloco).
+    private static final int IMPORT_CHUNK_SIZE = 4096;
+
+    // Custo do BCrypt da senha mestra.
+    private static final int BCRYPT_ROUNDS = 12;
+
+    // Latências do BCrypt da senha mestra e logins recusados (senha ou código 2FA).
+    private static final LatencyHistogram BCRYPT_HASH_LATENCY = Metrics.histogram("bcrypt_hash", "BCrypt da senha mestra no registro.");
+    private static final LatencyHistogram BCRYPT_VERIFY_LATENCY = Metrics.histogram("bcrypt_verify", "Verificação BCrypt da senha mestra no login.");
+    private static final Counter LOGIN_FAILURES = Metrics.counter("login_failures", "Logins recusados por senha mestra ou código 2FA.");
+
+    // Tamanho mínimo da senha mestra.
+    public static final int MIN_MASTER_PASSWORD_LENGTH = 8;
+
+    // Diretório do diário de auditoria do serviço padrão.
+    public static final String AUDIT_DIR = "audit";
+
+    private final UserManager userManager;
+    private final CredentialManager repository;
+    private final PasswordPolicyManager policyRepository;
+
+    // Diário de auditoria, ou null se o serviço não registra as operações.
+    private final AuditJournal audit;
+
+    // Se o diário é fechado junto com o serviço (ou compartilhado com outros serviços).
+    private final boolean ownsAudit;
+
+    // Arquivo em blocos do cofre e seu diário de alterações, observados para detectar alterações feitas por outros processos.
+    private final File vaultFile;
+    private final File journalFile;
+
+    // Uma thread virtual por operação.
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Consultas compartilham a trava de leitura; alterações e recargas usam a de escrita.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Cópia do cofre em memória, compartilhada pelas sessões: a tabela guarda também os nomes
+    // descriptografados, e os documentos do índice de busca são as linhas da tabela.
+    private SecretKey loadedKey;
+    private CompactCredentialTable vault;
+    private SearchIndex memoryIndex;
+
+    // Versão dos arquivos do cofre carregada (data de modificação e tamanho do cofre e do diário).
+    private long[] loadedVersion;
+
+    /**
+     * Cria o serviço sobre os arquivos padrão do diretório de trabalho, com o diário de
+     * auditoria em {@link #AUDIT_DIR}.
+     *
+     * @throws UncheckedIOException Se o diário de auditoria não puder ser aberto.
+     */
+    public VaultService() {
+        this(new UserManager(), new CredentialManager(), new PasswordPolicyManager(), openAuditJournal());
+    }
+
+    /**
+     * Cria o serviço sobre repositórios específicos (por exemplo, em outro diretório), sem
+     * diário de auditoria.
+     */
+    public VaultService(UserManager userManager, CredentialManager repository, PasswordPolicyManager policyRepository) {
+        this(userManager, repository, policyRepository, null);
+    }
+
+    /**
+     * Cria o serviço sobre repositórios específicos e um diário de auditoria, que passa a ser
+     * fechado junto com o serviço.
+     *
+     * @param audit O diário de auditoria, ou null para não registrar as operações.
+     */
+    public VaultService(UserManager userManager, CredentialManager repository, PasswordPolicyManager policyRepository,
+                        AuditJournal audit) {
+        this(userManager, repository, policyRepository, audit, true);
+    }
+
+    // Serviço de um dos cofres do modo com vários usuários, que compartilham o mesmo diário.
+    VaultService(UserManager userManager, CredentialManager repository, PasswordPolicyManager policyRepository,
+                 AuditJournal audit, boolean ownsAudit) {
+        this.userManager = userManager;
+        this.repository = repository;
+        this.policyRepository = policyRepository;
+        this.audit = audit;
+        this.ownsAudit = ownsAudit;
+        this.vaultFile = new File(repository.getDataFiles().get(1));
+        this.journalFile = new File(repository.getDataFiles().get(4));
+    }
+
+    private static AuditJournal openAuditJournal() {
+        try {
+            return AuditJournal.open(Paths.get(AUDIT_DIR));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o diário de auditoria.", e);
+        }
+    }
+
+    // --- Usuário mestre e sessões ---
+
+    /**
+     * Indica se já existe um usuário mestre registrado.
+     */
+    public CompletableFuture<Boolean> isRegistered() {
+        return async(() -> userManager.getUser().isPresent());
+    }
+
+    /**
+     * Registra o usuário mestre (substituindo o anterior, se houver).
+     *
+     * @param username O nome de usuário.
+     * @param password A senha mestra, com pelo menos {@link #MIN_MASTER_PASSWORD_LENGTH} caracteres.
+     * @return Um futuro com a URI 'otpauth' para configurar o 2FA em um app autenticador.
+     */
+    public CompletableFuture<String> register(String username, String password) {
+        return async(() -> {
+            String hashedPassword = hashMasterPassword(password);
+            String twoFASecret = TwoFactorCodeUtils.generateBase32Secret();
+            userManager.saveUser(new SystemUser(username, hashedPassword, twoFASecret));
+            record(username, null, AuditJournal.Action.REGISTER, null, "ok");
+            return TwoFactorCodeUtils.getGoogleAuthenticatorBarCode("SecurePM", username, twoFASecret);
+        });
+    }
+
+    // Confere o tamanho mínimo da senha mestra e calcula o hash BCrypt guardado no perfil.
+    static String hashMasterPassword(String password) {
+        if (password.length() < MIN_MASTER_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException("A senha mestra deve ter no mínimo " + MIN_MASTER_PASSWORD_LENGTH + " caracteres.");
+        }
+        long start = System.nanoTime();
+        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_ROUNDS));
+        BCRYPT_HASH_LATENCY.recordSince(start);
+        return hashedPassword;
+    }
+
+    /**
+     * Autentica o usuário mestre (usuário, senha mestra com BCrypt e código TOTP), deriva a
+     * chave do cofre e abre uma sessão.
+     *
+     * @return Um futuro com a sessão; falha com {@link AuthenticationException} se alguma etapa não conferir.
+     */
+    public CompletableFuture<VaultSession> authenticate(String username, String password, String totpCode) {
+        return async(() -> {
+            Optional<SystemUser> optUser = userManager.getUser();
+            if (optUser.isEmpty()) {
+                throw new AuthenticationException("Nenhum usuário foi encontrado. Por favor, realize o registro primeiro.");
+            }
+            SystemUser systemUser = optUser.get();
+            if (!systemUser.getUsername().equals(username)) {
+                record(username, null, AuditJournal.Action.LOGIN_FAILED, null, "usuario-invalido");
+                throw new AuthenticationException("Nome de usuário inválido.");
+            }
+            // Cada etapa vira um evento do JFR, para separar CPU (BCrypt, PBKDF2) de disco (abertura do cofre).
+            LoginPhaseEvent phase = new LoginPhaseEvent();
+            phase.begin();
+            long start = System.nanoTime();
+            boolean passwordMatches = BCrypt.checkpw(password, systemUser.getPasswordHash());
+            BCRYPT_VERIFY_LATENCY.recordSince(start);
+            endPhase(phase, LoginPhaseEvent.BCRYPT, passwordMatches);
+            if (!passwordMatches) {
+                LOGIN_FAILURES.increment();
+                record(username, null, AuditJournal.Action.LOGIN_FAILED, null, "senha-incorreta");
+                throw new AuthenticationException("Senha mestra incorreta.");
+            }
+
+            phase = new LoginPhaseEvent();
+            phase.begin();
+            boolean codeMatches = TwoFactorCodeUtils.verifyTOTPCode(systemUser.getTwoFASecret(), totpCode);
+            endPhase(phase, LoginPhaseEvent.TOTP, codeMatches);
+            if (!codeMatches) {
+                LOGIN_FAILURES.increment();
+                record(username, null, AuditJournal.Action.LOGIN_FAILED, null, "2fa-invalido");
+                throw new AuthenticationException("Código 2FA inválido ou expirado.");
+            }
+
+            // A chave vem da senha mestra (PBKDF2 + salt persistente), para valer entre sessões;
+            // no modo com vários usuários, cada perfil guarda o salt do próprio cofre.
+            phase = new LoginPhaseEvent();
+            phase.begin();
+            byte[] keySalt = systemUser.getKeySalt();
+            SecretKey key = keySalt != null ? KeyFactoryUtil.deriveAESKeyFromPassword(password, keySalt)
+                    : KeyFactoryUtil.deriveAESKeyFromPassword(password);
+            endPhase(phase, LoginPhaseEvent.PBKDF2, true);
+
+            phase = new LoginPhaseEvent();
+            phase.begin();
+            VaultSession session = null;
+            try {
+                session = open(key, username);
+                record(username, session.getId(), AuditJournal.Action.LOGIN, null, "ok");
+                return session;
+            } finally {
+                endPhase(phase, LoginPhaseEvent.OPEN_VAULT, session != null);
+            }
+        });
+    }
+
+    /**
+     * Abre uma sessão com uma chave de cofre já obtida por quem chama (por exemplo, um
+     * programa que embute o serviço ou um benchmark). A chave é validada ao desbloquear o cofre.
+     */
+    public CompletableFuture<VaultSession> openSession(SecretKey vaultKey) {
+        return async(() -> {
+            VaultSession session = open(vaultKey, null);
+            record(null, session.getId(), AuditJournal.Action.OPEN_SESSION, null, "ok");
+            return session;
+        });
+    }
+
+    /**
+     * Apaga o usuário mestre.
+     *
+     * @return Um futuro com 'true' se havia um usuário para remover.
+     */
+    public CompletableFuture<Boolean> resetUser() {
+        return async(() -> {
+            boolean deleted = userManager.deleteUser();
+            record(null, null, AuditJournal.Action.RESET_USER, null, deleted ? "ok" : "nao-encontrado");
+            return deleted;
+        });
+    }
+
+    // --- Consultas ---
+
+    /**
+     * Recarrega o cofre do disco (por exemplo, após restaurar um backup ou sincronizar).
+     *
+     * @return Um futuro com a quantidade de credenciais carregadas.
+     */
+    public CompletableFuture<Integer> load(VaultSession session) {
+        return async(() -> {
+            SecretKey key = session.key();
+            lock.writeLock().lock();
+            try {
+                reload(key);
+                return vault.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Quantidade de credenciais no cofre.
+    public CompletableFuture<Integer> count(VaultSession session) {
+        return read(session, () -> vault.size());
+    }
+
+    /**
+     * Lista todas as credenciais, na ordem do cofre.
+     */
+    public CompletableFuture<List<CredentialSummary>> list(VaultSession session) {
+        return audited(session, AuditJournal.Action.LIST, VaultService::itemCount, read(session, () -> {
+            List<CredentialSummary> result = new ArrayList<>(vault.size());
+            for (int row = 0; row < vault.rowCount(); row++) {
+                if (!vault.isRemoved(row)) result.add(summarize(row));
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Localiza uma credencial pelo ID.
+     *
+     * @return Um futuro com a credencial, ou null se nenhuma tiver o ID informado.
+     */
+    public CompletableFuture<CredentialSummary> find(VaultSession session, String id) {
+        return audited(session, AuditJournal.Action.FIND, result -> id, read(session, () -> {
+            int row = vault.indexOf(id);
+            return row < 0 ? null : summarize(row);
+        }));
+    }
+
+    /**
+     * Localiza as credenciais de um serviço pelo nome exato (sem diferenciar maiúsculas).
+     */
+    public CompletableFuture<List<CredentialSummary>> findByService(VaultSession session, String serviceName) {
+        return audited(session, AuditJournal.Action.SEARCH, VaultService::itemCount, read(session, () -> {
+            List<CredentialSummary> result = new ArrayList<>();
+            String serviceKey = serviceName.toLowerCase(Locale.ROOT);
+            for (int row : memoryIndex.docsWithTerm(serviceName, SearchIndex.FIELD_SERVICE)) {
+                // O índice não diferencia acentos; a comparação final é exata, sem maiúsculas.
+                if (vault.displayServiceName(row).toLowerCase(Locale.ROOT).equals(serviceKey)) {
+                    result.add(summarize(row));
+                }
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Busca rápida no índice em memória: prefixo e tolerância a erros de digitação, com os
+     * resultados ordenados por relevância.
+     */
+    public CompletableFuture<List<SearchResult>> search(VaultSession session, String term, int limit) {
+        return audited(session, AuditJournal.Action.SEARCH, VaultService::itemCount, read(session, () -> {
+            List<SearchResult> results = new ArrayList<>();
+            for (SearchIndex.Hit hit : memoryIndex.search(term, limit)) {
+                results.add(new SearchResult(hit, summarize(hit.getDoc())));
+            }
+            return results;
+        }));
+    }
+
+    /**
+     * Busca pelo índice cego em disco: o termo é convertido em um token HMAC, sem
+     * descriptografar o cofre, e cada ID encontrado é conferido contra a cópia em memória
+     * (prefixos longos são truncados no índice). A consulta roda sob a trava de leitura; só a
+     * primeira busca sobre um cofre antigo, que cifra os campos ainda em texto claro e cria o
+     * índice, passa antes pela trava de escrita.
+     *
+     * @param prefix    Se o termo é um prefixo.
+     * @param inService Se a busca considera o nome do serviço.
+     * @param inUser    Se a busca considera o nome de usuário.
+     */
+    public CompletableFuture<List<CredentialSummary>> blindSearch(VaultSession session, String term, boolean prefix,
+                                                                  boolean inService, boolean inUser) {
+        return audited(session, AuditJournal.Action.SEARCH, VaultService::itemCount, async(() -> {
+            SecretKey aesKey = session.key();
+            ensureFresh(aesKey);
+            if (!repository.getBlindIndex().exists()) {
+                migrateBlindIndex(aesKey);
+            }
+
+            // 1. Tokens do termo, fora da trava.
+            SecretKey blindKey = KeyedHashUtil.deriveKey(aesKey, BlindIndexUtil.BLIND_INDEX_PURPOSE);
+            byte[] serviceToken = !inService ? null : prefix
+                    ? BlindIndexUtil.prefixToken(blindKey, BlindIndexUtil.FIELD_SERVICE, term)
+                    : BlindIndexUtil.exactToken(blindKey, BlindIndexUtil.FIELD_SERVICE, term);
+            byte[] userToken = !inUser ? null : prefix
+                    ? BlindIndexUtil.prefixToken(blindKey, BlindIndexUtil.FIELD_USERNAME, term)
+                    : BlindIndexUtil.exactToken(blindKey, BlindIndexUtil.FIELD_USERNAME, term);
+            String normalizedTerm = BlindIndexUtil.normalize(term);
+
+            // 2. Consulta ao índice e confirmação com os nomes já descriptografados em memória.
+            lock.readLock().lock();
+            try {
+                Set<String> ids = new LinkedHashSet<>();
+                if (serviceToken != null) ids.addAll(repository.getBlindIndex().lookup(serviceToken));
+                if (userToken != null) ids.addAll(repository.getBlindIndex().lookup(userToken));
+                List<CredentialSummary> results = new ArrayList<>();
+                for (String id : ids) {
+                    int row = vault.indexOf(id);
+                    if (row < 0) continue;
+                    if ((inService && matchesTerm(vault.displayServiceName(row), normalizedTerm, prefix))
+                            || (inUser && matchesTerm(vault.displayUsername(row), normalizedTerm, prefix))) {
+                        results.add(summarize(row));
+                    }
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }));
+    }
+
+    /**
+     * Descriptografa a senha de uma credencial.
+     *
+     * @return Um futuro com a senha em texto claro, ou null se nenhuma credencial tiver o ID.
+     */
+    public CompletableFuture<String> revealPassword(VaultSession session, String id) {
+        return audited(session, AuditJournal.Action.REVEAL_PASSWORD, result -> id, read(session, () -> {
+            AccessCredential cred = vault.find(id);
+            return cred == null ? null : AESCryptoUtil.decrypt(cred.getEncryptedPassword(), session.key());
+        }));
+    }
+
+    /**
+     * Retorna as versões anteriores da senha de uma credencial (ainda cifradas).
+     */
+    public CompletableFuture<List<PasswordVersion>> history(VaultSession session, String id) {
+        return audited(session, AuditJournal.Action.HISTORY, result -> id,
+                read(session, () -> repository.getHistoryLog().getHistory(id)));
+    }
+
+    /**
+     * Agrupa as credenciais que compartilham a mesma senha, usando apenas o índice de
+     * impressões digitais (nenhuma senha é descriptografada).
+     */
+    public CompletableFuture<List<List<CredentialSummary>>> reusedGroups(VaultSession session) {
+        return read(session, () -> {
+            List<List<CredentialSummary>> groups = new ArrayList<>();
+            for (List<String> ids : repository.getFingerprintIndex().getReusedGroups()) {
+                List<CredentialSummary> group = new ArrayList<>();
+                for (String id : ids) {
+                    int row = vault.indexOf(id);
+                    if (row >= 0) group.add(summarize(row));
+                }
+                groups.add(group);
+            }
+            return groups;
+        });
+    }
+
+    /**
+     * Avalia uma senha antes de gravá-la: força, vazamentos conhecidos (a consulta à API
+     * corre em paralelo com as verificações locais) e reutilização no cofre e no histórico.
+     *
+     * @param credentialId A credencial cuja senha será trocada, ou null para uma nova credencial.
+     */
+    public CompletableFuture<PasswordAssessment> assessPassword(VaultSession session, String credentialId, String password) {
+        CompletableFuture<Integer> pwned = PasswordBreachChecker.getPwnedCountAsync(password);
+        // A consulta de vazamentos não segura a trava de leitura: a parte local é feita sob a
+        // trava e só depois combinada com o resultado da consulta.
+        CompletableFuture<PasswordAssessment> local = read(session, () -> {
+            PasswordStrengthEstimator.Strength strength = PasswordStrengthEstimator.estimate(password);
+            byte[] fingerprint = fingerprint(session.key(), password);
+            int reuseCount = repository.getFingerprintIndex().countUsages(fingerprint);
+            boolean sameAsCurrent = false;
+            int reusedVersion = 0;
+            if (credentialId != null) {
+                AccessCredential current = vault.find(credentialId);
+                sameAsCurrent = current != null && Arrays.equals(fingerprint, current.getPasswordFingerprint());
+                for (PasswordVersion old : repository.getHistoryLog().getHistory(credentialId)) {
+                    if (Arrays.equals(fingerprint, old.getPasswordFingerprint())) {
+                        reusedVersion = old.getVersion();
+                        break;
+                    }
+                }
+                // A própria credencial não conta como reutilização.
+                if (sameAsCurrent) reuseCount--;
+            }
+            return new PasswordAssessment(strength, 0, reuseCount, reusedVersion, sameAsCurrent);
+        });
+        return local.thenCombine(pwned, (assessment, pwnedCount) -> new PasswordAssessment(assessment.getStrength(),
+                pwnedCount, assessment.getReuseCount(), assessment.getReusedVersion(), assessment.isSameAsCurrent()));
+    }
+
+    // --- Alterações ---
+
+    /**
+     * Cifra e grava uma nova credencial, atualizando os índices.
+     *
+     * @return Um futuro com a credencial criada.
+     */
+    public CompletableFuture<CredentialSummary> addCredential(VaultSession session, String service, String user, String password) {
+        return audited(session, AuditJournal.Action.ADD, VaultService::credentialId, write(session, () -> {
+            SecretKey aesKey = session.key();
+            byte[] encryptedData = AESCryptoUtil.encrypt(password, aesKey);
+            byte[] iv = Arrays.copyOf(encryptedData, 16);
+
+            // Serviço e usuário também são cifrados; a busca passa a usar os tokens do índice cego.
+            byte[] encryptedService = AESCryptoUtil.encrypt(service, aesKey);
+            byte[] encryptedUser = AESCryptoUtil.encrypt(user, aesKey);
+
+            String id = UUID.randomUUID().toString();
+            AccessCredential credential = new AccessCredential(id, encryptedService, encryptedUser, encryptedData, iv,
+                    fingerprint(aesKey, password));
+            ensureBlindIndex(aesKey);
+            repository.add(credential);
+            repository.getBlindIndex().add(id, searchTokens(aesKey, service, user));
+            remember(credential, service, user);
+            return summarize(credential, service, user);
+        }));
+    }
+
+    /**
+     * Inclui e remove várias credenciais com uma única gravação do cofre e dos índices, em vez
+     * de uma gravação por operação.
+     *
+     * @param additions As credenciais a incluir.
+     * @param removals  Os IDs das credenciais a remover (aplicados depois das inclusões).
+     * @return Um futuro com as credenciais criadas e o resultado de cada remoção.
+     */
+    public CompletableFuture<BatchResult> applyBatch(VaultSession session, List<NewCredential> additions, List<String> removals) {
+        String counts = "inclusoes=" + additions.size() + " remocoes=" + removals.size();
+        return audited(session, AuditJournal.Action.BATCH, result -> counts, write(session, () -> {
+            SecretKey aesKey = session.key();
+            List<AccessCredential> created = new ArrayList<>(additions.size());
+            Map<String, List<byte[]>> tokens = new LinkedHashMap<>();
+            for (NewCredential draft : additions) {
+                byte[] encryptedData = AESCryptoUtil.encrypt(draft.getPassword(), aesKey);
+                String id = UUID.randomUUID().toString();
+                created.add(new AccessCredential(id, AESCryptoUtil.encrypt(draft.getServiceName(), aesKey),
+                        AESCryptoUtil.encrypt(draft.getUsername(), aesKey), encryptedData, Arrays.copyOf(encryptedData, 16),
+                        fingerprint(aesKey, draft.getPassword())));
+                tokens.put(id, searchTokens(aesKey, draft.getServiceName(), draft.getUsername()));
+            }
+
+            // 1. Uma única gravação do cofre, do índice de senhas, do histórico e das exclusões.
+            ensureBlindIndex(aesKey);
+            Set<String> removedIds = new HashSet<>();
+            for (AccessCredential target : repository.applyBatch(created, removals)) {
+                removedIds.add(target.getId());
+            }
+
+            // 2. Índice cego e cópia em memória.
+            repository.getBlindIndex().addAll(tokens);
+            List<CredentialSummary> added = new ArrayList<>(created.size());
+            for (int i = 0; i < created.size(); i++) {
+                AccessCredential credential = created.get(i);
+                NewCredential draft = additions.get(i);
+                remember(credential, draft.getServiceName(), draft.getUsername());
+                added.add(summarize(credential, draft.getServiceName(), draft.getUsername()));
+            }
+            List<Boolean> removed = new ArrayList<>(removals.size());
+            for (String id : removals) {
+                boolean wasRemoved = removedIds.remove(id);
+                if (wasRemoved) {
+                    repository.getBlindIndex().remove(id);
+                    forget(id);
+                }
+                removed.add(wasRemoved);
+            }
+            return new BatchResult(added, removed);
+        }));
+    }
+
+    /**
+     * Importa credenciais de uma fonte lida sob demanda (por exemplo, um arquivo CSV ou JSON).
+     * As linhas são cifradas em blocos, em paralelo em todos os núcleos, e o texto claro de
+     * cada bloco é descartado logo em seguida; os tokens de busca vão para o índice cego bloco
+     * a bloco. O cofre é gravado uma única vez no final: se a fonte ou a gravação falharem,
+     * nada é incluído e os tokens já gravados são retirados do índice cego.
+     *
+     * @param source As credenciais a importar.
+     * @return Um futuro com a quantidade de credenciais importadas.
+     */
+    public CompletableFuture<Integer> importCredentials(VaultSession session, Iterator<NewCredential> source) {
+        return audited(session, AuditJournal.Action.IMPORT, VaultService::itemCount, async(() -> {
+            SecretKey aesKey = session.key();
+            ensureFresh(aesKey);
+            lock.writeLock().lock();
+            try {
+                ensureBlindIndex(aesKey);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // 1. Cifra os blocos fora da trava; só as credenciais cifradas ficam em memória.
+            List<AccessCredential> created = new ArrayList<>();
+            try {
+                encryptImport(source, aesKey, created);
+
+                // 2. Uma única gravação do cofre e dos índices, sob a trava de escrita.
+                if (created.isEmpty()) {
+                    return 0;
+                }
+                lock.writeLock().lock();
+                try {
+                    if (!isFresh(aesKey)) reload(aesKey);
+                    repository.applyBatch(created, List.of());
+                    rememberImported(created, aesKey);
+                    loadedVersion = fileVersion();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (Exception e) {
+                unindexUncommitted(created, e);
+                throw e;
+            }
+            return created.size();
+        }));
+    }
+
+    // Cifra as linhas da fonte em blocos e grava os tokens de busca de cada bloco no índice cego.
+    private void encryptImport(Iterator<NewCredential> source, SecretKey aesKey, List<AccessCredential> created) throws Exception {
+        SecretKey fingerprintKey = KeyedHashUtil.deriveKey(aesKey, KeyedHashUtil.PASSWORD_FINGERPRINT_PURPOSE);
+        SecretKey blindKey = KeyedHashUtil.deriveKey(aesKey, BlindIndexUtil.BLIND_INDEX_PURPOSE);
+        List<NewCredential> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        while (source.hasNext()) {
+            chunk.add(source.next());
+            if (chunk.size() == IMPORT_CHUNK_SIZE || !source.hasNext()) {
+                AccessCredential[] encrypted = new AccessCredential[chunk.size()];
+                @SuppressWarnings("unchecked")
+                List<byte[]>[] tokens = (List<byte[]>[]) new List<?>[chunk.size()];
+                List<NewCredential> rows = chunk;
+                CryptoBatchEvent event = new CryptoBatchEvent();
+                event.begin();
+                IntStream.range(0, rows.size()).parallel().forEach(i -> {
+                    NewCredential row = rows.get(i);
+                    try {
+                        byte[] encryptedData = AESCryptoUtil.encrypt(row.getPassword(), aesKey);
+                        encrypted[i] = new AccessCredential(UUID.randomUUID().toString(),
+                                AESCryptoUtil.encrypt(row.getServiceName(), aesKey), AESCryptoUtil.encrypt(row.getUsername(), aesKey),
+                                encryptedData, Arrays.copyOf(encryptedData, 16), KeyedHashUtil.hmac(fingerprintKey, row.getPassword()));
+                        tokens[i] = new ArrayList<>(BlindIndexUtil.tokensFor(blindKey, BlindIndexUtil.FIELD_SERVICE, row.getServiceName()));
+                        tokens[i].addAll(BlindIndexUtil.tokensFor(blindKey, BlindIndexUtil.FIELD_USERNAME, row.getUsername()));
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Falha ao cifrar a credencial importada.", e);
+                    }
+                });
+                endCryptoBatch(event, CryptoBatchEvent.ENCRYPT_IMPORT, rows.size());
+                Map<String, List<byte[]>> tokensById = new LinkedHashMap<>();
+                for (int i = 0; i < encrypted.length; i++) {
+                    created.add(encrypted[i]);
+                    tokensById.put(encrypted[i].getId(), tokens[i]);
+                }
+                // Tokens de IDs ainda não gravados não aparecem nas buscas (cada ID é conferido no
+                // cofre) e são retirados se a importação falhar.
+                repository.getBlindIndex().addAll(tokensById);
+                chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            }
+        }
+    }
+
+    // Acrescenta à cópia em memória as credenciais importadas, descriptografando os nomes bloco a bloco.
+    private void rememberImported(List<AccessCredential> created, SecretKey aesKey) {
+        for (int from = 0; from < created.size(); from += IMPORT_CHUNK_SIZE) {
+            List<AccessCredential> chunk = created.subList(from, Math.min(created.size(), from + IMPORT_CHUNK_SIZE));
+            String[][] fields = decryptNames(chunk, aesKey);
+            for (int i = 0; i < fields.length; i++) {
+                remember(chunk.get(i), fields[i][0], fields[i][1]);
+            }
+        }
+    }
+
+    /**
+     * Retira do índice cego os tokens das credenciais importadas que não chegaram ao cofre.
+     * Uma falha aqui não esconde a original: fica registrada como suprimida nela.
+     */
+    private void unindexUncommitted(List<AccessCredential> created, Exception failure) {
+        try {
+            for (AccessCredential credential : created) {
+                if (repository.findById(credential.getId()) == null) {
+                    repository.getBlindIndex().remove(credential.getId());
+                }
+            }
+        } catch (Exception rollback) {
+            failure.addSuppressed(rollback);
+        }
+    }
+
+    /**
+     * Exporta todas as credenciais, descriptografando cada senha apenas no momento de
+     * entregá-la ao destino, de modo que o cofre em texto claro nunca fica inteiro em memória.
+     *
+     * @param sink O destino de cada credencial (por exemplo, um arquivo CSV ou JSON).
+     * @return Um futuro com a quantidade de credenciais exportadas.
+     */
+    public CompletableFuture<Integer> exportCredentials(VaultSession session, ExportSink sink) {
+        return audited(session, AuditJournal.Action.EXPORT, VaultService::itemCount, async(() -> {
+            SecretKey aesKey = session.key();
+            ensureFresh(aesKey);
+
+            // Instantâneo das referências (ainda cifradas) sob a trava de leitura; o restante é feito sem a trava.
+            List<CredentialSummary> snapshot;
+            lock.readLock().lock();
+            try {
+                snapshot = new ArrayList<>(vault.size());
+                for (int row = 0; row < vault.rowCount(); row++) {
+                    if (!vault.isRemoved(row)) snapshot.add(summarize(row));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            CryptoBatchEvent event = new CryptoBatchEvent();
+            event.begin();
+            for (CredentialSummary cred : snapshot) {
+                sink.accept(cred, AESCryptoUtil.decrypt(cred.getEncryptedPassword(), aesKey));
+            }
+            endCryptoBatch(event, CryptoBatchEvent.DECRYPT_EXPORT, snapshot.size());
+            return snapshot.size();
+        }));
+    }
+
+    /**
+     * Troca a senha de uma credencial; a anterior vai para o histórico.
+     *
+     * @return Um futuro com a credencial atualizada, ou null se ela não existir mais.
+     */
+    public CompletableFuture<CredentialSummary> updatePassword(VaultSession session, String id, String password) {
+        return audited(session, AuditJournal.Action.UPDATE_PASSWORD, result -> id, write(session, () -> {
+            SecretKey aesKey = session.key();
+            byte[] encryptedData = AESCryptoUtil.encrypt(password, aesKey);
+            byte[] iv = Arrays.copyOf(encryptedData, 16);
+            AccessCredential updated = repository.updatePassword(id, encryptedData, iv, fingerprint(aesKey, password));
+            if (updated == null) {
+                return null;
+            }
+            int row = vault.indexOf(id);
+            if (row >= 0) {
+                vault.replace(row, updated);
+            } else {
+                remember(updated, serviceNameOf(updated, aesKey), usernameOf(updated, aesKey));
+                row = vault.indexOf(id);
+            }
+            return summarize(row);
+        }));
+    }
+
+    /**
+     * Remove uma credencial e seus tokens de busca.
+     *
+     * @return Um futuro com 'true' se a credencial existia.
+     */
+    public CompletableFuture<Boolean> remove(VaultSession session, String id) {
+        return audited(session, AuditJournal.Action.REMOVE, result -> id, write(session, () -> {
+            AccessCredential target = vault.find(id);
+            if (target == null || !repository.removeById(id)) {
+                return false;
+            }
+            repository.getBlindIndex().remove(id);
+            forget(id);
+            return true;
+        }));
+    }
+
+    /**
+     * Verifica a integridade do arquivo do cofre.
+     */
+    public CompletableFuture<BlockVaultFile.IntegrityReport> verify(VaultSession session) {
+        return audited(session, AuditJournal.Action.VERIFY, result -> null, read(session, repository::verifyVault));
+    }
+
+    /**
+     * Verifica o diário de auditoria do serviço, incluindo o selo da chave do cofre da sessão.
+     * As entradas já registradas são gravadas e seladas antes da verificação.
+     *
+     * @return Um futuro com o relatório; falha com IllegalStateException se o serviço não tem diário.
+     */
+    public CompletableFuture<AuditJournal.Report> verifyAudit(VaultSession session) {
+        return audited(session, AuditJournal.Action.VERIFY, result -> "diario-de-auditoria", async(() -> {
+            SecretKey key = session.key();
+            if (audit == null) {
+                throw new IllegalStateException("Este serviço não tem diário de auditoria.");
+            }
+            audit.sync();
+            return AuditJournal.verify(audit.getDirectory(), key);
+        }));
+    }
+
+    /**
+     * Regrava o cofre apenas com as credenciais íntegras e recarrega a cópia em memória.
+     *
+     * @return Um futuro com a quantidade de credenciais mantidas.
+     */
+    public CompletableFuture<Integer> repair(VaultSession session, BlockVaultFile.IntegrityReport report) {
+        return audited(session, AuditJournal.Action.REPAIR, VaultService::itemCount, write(session, () -> {
+            int kept = repository.repairVault(report);
+            reload(session.key());
+            return kept;
+        }));
+    }
+
+    // --- Políticas de senha ---
+
+    public CompletableFuture<Optional<PasswordPolicy>> getPolicy(String serviceName) {
+        return async(() -> policyRepository.getPolicyFor(serviceName));
+    }
+
+    public CompletableFuture<Void> savePolicy(String serviceName, PasswordPolicy policy) {
+        return async(() -> {
+            policyRepository.savePolicy(serviceName, policy);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> removePolicy(String serviceName) {
+        return async(() -> policyRepository.removePolicy(serviceName));
+    }
+
+    /**
+     * Gera uma senha aleatória com a política do serviço (ou a política padrão, se o serviço
+     * não tiver uma).
+     *
+     * @param serviceName O serviço, ou null para usar a política padrão.
+     * @param length      O comprimento desejado, ou 0 para usar o da política.
+     * @return Um futuro com a senha; falha com IllegalArgumentException se o comprimento violar a política.
+     */
+    public CompletableFuture<String> generatePassword(String serviceName, int length) {
+        return async(() -> {
+            PasswordPolicy policy = serviceName == null ? PasswordPolicy.DEFAULT
+                    : policyRepository.getPolicyFor(serviceName).orElse(PasswordPolicy.DEFAULT);
+            return new String(length > 0 ? RandomPasswordUtil.generate(policy, length) : RandomPasswordUtil.generate(policy));
+        });
+    }
+
+    // Memória estimada da cópia do cofre e do índice de busca (0 se ainda não foi carregada).
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return vault == null ? 0 : vault.estimateMemoryBytes() + memoryIndex.estimateMemoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Encerra as threads do serviço e descarta a cópia do cofre em memória.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (audit != null) {
+            // Espera as operações em andamento, para que entrem no diário antes de fechá-lo.
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        SecretKey key;
+        lock.writeLock().lock();
+        try {
+            key = loadedKey;
+            loadedKey = null;
+            vault = null;
+            memoryIndex = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (audit != null) {
+            // O fechamento do diário já sela as entradas; um diário compartilhado é selado agora.
+            if (ownsAudit) {
+                audit.close();
+            } else if (key != null) {
+                audit.detachVault(key);
+            }
+        }
+    }
+
+    /**
+     * Espera o resultado de um futuro e relança a exceção original em caso de falha, em
+     * vez da CompletionException/ExecutionException que a envolve.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    // --- Auditoria ---
+
+    // Registra a operação da sessão no diário de auditoria quando o futuro terminar (só o enfileiramento).
+    private <T> CompletableFuture<T> audited(VaultSession session, AuditJournal.Action action,
+                                             Function<T, String> target, CompletableFuture<T> future) {
+        if (audit == null) {
+            return future;
+        }
+        return future.whenComplete((result, error) -> record(session.getUser(), session.getId(), action,
+                target.apply(error == null ? result : null),
+                error != null ? "falha: " + error.getClass().getSimpleName()
+                        : result == null || Boolean.FALSE.equals(result) ? "nao-encontrada" : "ok"));
+    }
+
+    private void record(String actor, String sessionId, AuditJournal.Action action, String target, String outcome) {
+        if (audit != null) {
+            audit.record(actor, sessionId, action, target, outcome);
+        }
+    }
+
+    private static String credentialId(CredentialSummary credential) {
+        return credential == null ? null : credential.getId();
+    }
+
+    // Quantidade de itens de um resultado, como alvo da entrada de auditoria.
+    private static String itemCount(Object result) {
+        if (result instanceof List) return "itens=" + ((List<?>) result).size();
+        if (result instanceof Integer) return "itens=" + result;
+        return null;
+    }
+
+    // --- Execução e estado em memória ---
+
+    // Executa a tarefa em uma thread virtual; o futuro falha com a exceção original.
+    private <T> CompletableFuture<T> async(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // Consulta sob a trava de leitura, com a cópia em memória atualizada.
+    private <T> CompletableFuture<T> read(VaultSession session, Callable<T> task) {
+        return async(() -> {
+            ensureFresh(session.key());
+            lock.readLock().lock();
+            try {
+                return task.call();
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    // Alteração sob a trava de escrita; ao final, registra a versão do arquivo gravada.
+    private <T> CompletableFuture<T> write(VaultSession session, Callable<T> task) {
+        return async(() -> {
+            ensureFresh(session.key());
+            lock.writeLock().lock();
+            try {
+                T result = task.call();
+                loadedVersion = fileVersion();
+                return result;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private VaultSession open(SecretKey key, String user) throws IOException, ClassNotFoundException {
+        lock.writeLock().lock();
+        try {
+            if (loadedKey != null && !loadedKey.equals(key)) {
+                throw new IllegalStateException("O cofre já está aberto com outra chave.");
+            }
+            if (!isFresh(key)) {
+                reload(key);
+            }
+            if (audit != null) {
+                audit.attachVault(key);
+            }
+            return new VaultSession(key, user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Recarrega a cópia em memória se ela não existir ou se o arquivo mudou desde a leitura.
+    private void ensureFresh(SecretKey key) throws IOException, ClassNotFoundException {
+        lock.readLock().lock();
+        try {
+            if (isFresh(key)) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!isFresh(key)) reload(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isFresh(SecretKey key) {
+        if (vault == null || !key.equals(loadedKey)) return false;
+        return Arrays.equals(fileVersion(), loadedVersion);
+    }
+
+    private long[] fileVersion() {
+        return new long[]{vaultFile.lastModified(), vaultFile.length(), journalFile.lastModified(), journalFile.length()};
+    }
+
+    /**
+     * Lê o cofre e reconstrói a cópia em memória, descriptografando os nomes de serviço e
+     * usuários em paralelo. Deve ser chamado com a trava de escrita.
+     */
+    private void reload(SecretKey key) throws IOException, ClassNotFoundException {
+        long[] version = fileVersion();
+        repository.unlock(key);
+        List<AccessCredential> credentials = repository.getAll();
+        String[][] fields = decryptNames(credentials, key);
+
+        memoryIndex = new SearchIndex();
+        vault = new CompactCredentialTable(credentials.size());
+        vault.onCompactRows(memoryIndex::renumber);
+        for (int i = 0; i < fields.length; i++) {
+            remember(credentials.get(i), fields[i][0], fields[i][1]);
+        }
+        loadedKey = key;
+        loadedVersion = version;
+    }
+
+    // Descriptografa em paralelo os nomes de serviço e usuário das credenciais.
+    private static String[][] decryptNames(List<AccessCredential> credentials, SecretKey key) {
+        String[][] fields = new String[credentials.size()][];
+        CryptoBatchEvent event = new CryptoBatchEvent();
+        event.begin();
+        IntStream.range(0, credentials.size()).parallel().forEach(i -> {
+            AccessCredential cred = credentials.get(i);
+            fields[i] = new String[]{serviceNameOf(cred, key), usernameOf(cred, key)};
+        });
+        endCryptoBatch(event, CryptoBatchEvent.DECRYPT_NAMES, credentials.size());
+        return fields;
+    }
+
+    // Acrescenta uma credencial à cópia em memória.
+    private void remember(AccessCredential credential, String service, String user) {
+        int row = vault.add(credential, service, user);
+        memoryIndex.add(row, service, user);
+    }
+
+    // Retira uma credencial da cópia em memória; a tabela avisa o índice se renumerar as linhas.
+    private void forget(String id) {
+        int row = vault.indexOf(id);
+        if (row < 0) return;
+        memoryIndex.remove(row);
+        vault.remove(id);
+    }
+
+    // Cria o índice cego sob a trava de escrita e recarrega a cópia em memória se a migração regravou o cofre.
+    private void migrateBlindIndex(SecretKey aesKey) throws Exception {
+        lock.writeLock().lock();
+        try {
+            ensureBlindIndex(aesKey);
+            if (!isFresh(aesKey)) reload(aesKey);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Garante que o índice cego exista. Na primeira execução sobre um cofre antigo, cifra
+     * os campos de serviço e usuário que ainda estavam em texto claro e indexa todas as credenciais.
+     */
+    private void ensureBlindIndex(SecretKey aesKey) throws Exception {
+        if (repository.getBlindIndex().exists()) {
+            return;
+        }
+        List<AccessCredential> credentials = repository.getAll();
+        Map<String, List<byte[]>> tokensById = new LinkedHashMap<>();
+        boolean migrated = false;
+        for (AccessCredential cred : credentials) {
+            String service = serviceNameOf(cred, aesKey);
+            String user = usernameOf(cred, aesKey);
+            if (cred.getEncryptedServiceName() == null) {
+                cred.setEncryptedFields(AESCryptoUtil.encrypt(service, aesKey), AESCryptoUtil.encrypt(user, aesKey));
+                migrated = true;
+            }
+            tokensById.put(cred.getId(), searchTokens(aesKey, service, user));
+        }
+        if (migrated) {
+            repository.saveAll(credentials);
+        }
+        repository.getBlindIndex().addAll(tokensById);
+    }
+
+    // Encerra o evento de uma etapa do login; os campos só são preenchidos se a gravação estiver ativa.
+    private static void endPhase(LoginPhaseEvent event, String phase, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private static void endCryptoBatch(CryptoBatchEvent event, String operation, int credentials) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.credentials = credentials;
+            event.commit();
+        }
+    }
+
+    private CredentialSummary summarize(int row) {
+        return summarize(vault.get(row), vault.displayServiceName(row), vault.displayUsername(row));
+    }
+
+    private static CredentialSummary summarize(AccessCredential cred, String service, String user) {
+        return new CredentialSummary(cred.getId(), service, user, cred.getEncryptedPassword(), cred.getCreatedAt(),
+                cred.getVersion(), cred.getUpdatedAt());
+    }
+
+    private static byte[] fingerprint(SecretKey aesKey, String password) throws Exception {
+        SecretKey fingerprintKey = KeyedHashUtil.deriveKey(aesKey, KeyedHashUtil.PASSWORD_FINGERPRINT_PURPOSE);
+        return KeyedHashUtil.hmac(fingerprintKey, password);
+    }
+
+    private static boolean matchesTerm(String value, String normalizedTerm, boolean prefix) {
+        String normalized = BlindIndexUtil.normalize(value);
+        return prefix ? normalized.startsWith(normalizedTerm) : normalized.equals(normalizedTerm);
+    }
+
+    // Tokens de busca (exatos e de prefixo) dos campos de serviço e usuário.
+    private static List<byte[]> searchTokens(SecretKey aesKey, String service, String user) throws Exception {
+        SecretKey blindKey = KeyedHashUtil.deriveKey(aesKey, BlindIndexUtil.BLIND_INDEX_PURPOSE);
+        List<byte[]> tokens = new ArrayList<>(BlindIndexUtil.tokensFor(blindKey, BlindIndexUtil.FIELD_SERVICE, service));
+        tokens.addAll(BlindIndexUtil.tokensFor(blindKey, BlindIndexUtil.FIELD_USERNAME, user));
+        return tokens;
+    }
+
+    // Nome do serviço em texto claro, descriptografando-o quando necessário.
+    private static String serviceNameOf(AccessCredential cred, SecretKey aesKey) {
+        return readField(cred.getEncryptedServiceName(), cred.getServiceName(), aesKey);
+    }
+
+    // Nome de usuário em texto claro, descriptografando-o quando necessário.
+    private static String usernameOf(AccessCredential cred, SecretKey aesKey) {
+        return readField(cred.getEncryptedUsername(), cred.getUsername(), aesKey);
+    }
+
+    private static String readField(byte[] encrypted, String plain, SecretKey aesKey) {
+        if (encrypted == null) {
+            return plain;
+        }
+        try {
+            return AESCryptoUtil.decrypt(encrypted, aesKey);
+        } catch (Exception e) {
+            // Um registro ilegível não deve impedir a exibição dos demais.
+            return "(não foi possível descriptografar)";
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.securepm.service;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Sessão autenticada no {@link VaultService}. Guarda a chave do cofre derivada no login; a
+ * chave só é acessível dentro do pacote de serviços, e as operações de uma sessão encerrada
+ * são recusadas. Várias sessões podem ser usadas ao mesmo tempo, em threads diferentes.
+ */
+public class VaultSession implements AutoCloseable {
+
+    private final String id = UUID.randomUUID().toString();
+    private final Instant openedAt = Instant.now();
+    private final String user;
+    private volatile SecretKey key;
+
+    VaultSession(SecretKey key, String user) {
+        this.key = key;
+        this.user = user;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getOpenedAt() {
+        return openedAt;
+    }
+
+    // Usuário mestre que fez o login, ou null se a sessão foi aberta diretamente com a chave.
+    public String getUser() {
+        return user;
+    }
+
+    public boolean isOpen() {
+        return key != null;
+    }
+
+    // Chave do cofre; falha se a sessão já foi encerrada.
+    SecretKey key() {
+        SecretKey current = key;
+        if (current == null) {
+            throw new IllegalStateException("A sessão foi encerrada.");
+        }
+        return current;
+    }
+
+    /**
+     * Encerra a sessão e descarta a referência à chave.
+     */
+    @Override
+    public void close() {
+        key = null;
+    }
+}
@@ -0,0 +1,303 @@
+package com.securepm.transfer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.securepm.model.NewCredential;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lê credenciais de um arquivo exportado por navegadores ou outros gerenciadores de senhas,
+ * um registro por vez, sem carregar o arquivo inteiro em memória.
+ *
+ * - CSV: a primeira linha é o cabeçalho; as colunas são reconhecidas pelo nome (por exemplo,
+ *   "name"/"url", "username"/"login_username" e "password"/"login_password", como nos
+ *   arquivos do Chrome, do Firefox e do Bitwarden). Campos entre aspas podem conter vírgulas,
+ *   aspas duplicadas e quebras de linha.
+ * - JSON: uma lista de objetos, ou um objeto com a lista em "credentials" ou "items"; cada
+ *   objeto traz "service" (ou "name"/"title"/"url"), "username" e "password", diretamente
+ *   ou dentro de "login" (formato do Bitwarden). Lido com o {@link JsonReader} do Gson.
+ *
+ * Registros sem senha (notas, cartões, entradas vazias) são ignorados e contados em
+ * {@link #getSkipped()}. Um registro malformado interrompe a leitura com uma
+ * IllegalArgumentException que informa o número do registro.
+ */
+public class CredentialFileReader implements Iterator<NewCredential>, Closeable {
+
+    /**
+     * Formato do arquivo, deduzido pela extensão.
+     */
+    public enum Format {
+        CSV, JSON;
+
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".json")) return JSON;
+            throw new IllegalArgumentException("Formato não reconhecido (use a extensão .csv ou .json): " + file);
+        }
+    }
+
+    // Nomes aceitos para cada campo, em ordem de preferência.
+    private static final List<String> SERVICE_NAMES = List.of("service", "serviço", "servico", "name", "title", "url",
+            "login_uri", "origin", "hostname", "website");
+    private static final List<String> USERNAME_NAMES = List.of("username", "usuário", "usuario", "login_username",
+            "user", "login", "email");
+    private static final List<String> PASSWORD_NAMES = List.of("password", "senha", "login_password");
+
+    private final Format format;
+    private final BufferedReader csv;
+    private final JsonReader json;
+
+    // Colunas do CSV para serviço, usuário e senha.
+    private int serviceColumn = -1;
+    private int usernameColumn = -1;
+    private int passwordColumn = -1;
+
+    private NewCredential next;
+    private long records;
+    private long skipped;
+    private boolean finished;
+
+    /**
+     * Abre um arquivo, com o formato deduzido pela extensão.
+     */
+    public static CredentialFileReader open(Path file) throws IOException {
+        return new CredentialFileReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), Format.of(file));
+    }
+
+    public CredentialFileReader(Reader reader, Format format) throws IOException {
+        this.format = format;
+        BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        if (format == Format.CSV) {
+            this.csv = buffered;
+            this.json = null;
+            readCsvHeader();
+        } else {
+            this.csv = null;
+            this.json = new JsonReader(buffered);
+            openJsonArray();
+        }
+    }
+
+    // Quantidade de registros lidos até agora (incluindo os ignorados).
+    public long getRecords() {
+        return records;
+    }
+
+    // Quantidade de registros ignorados por não terem senha.
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = format == Format.CSV ? readCsvRecord() : readJsonRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public NewCredential next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        NewCredential current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csv != null) csv.close();
+        if (json != null) json.close();
+    }
+
+    // --- CSV ---
+
+    private void readCsvHeader() throws IOException {
+        List<String> header = readCsvRow();
+        if (header == null) {
+            finished = true;
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (i == 0 && name.startsWith("\uFEFF")) name = name.substring(1);
+            columns.putIfAbsent(name, i);
+        }
+        serviceColumn = column(columns, SERVICE_NAMES);
+        usernameColumn = column(columns, USERNAME_NAMES);
+        passwordColumn = column(columns, PASSWORD_NAMES);
+        if (serviceColumn < 0 || passwordColumn < 0) {
+            throw new IllegalArgumentException("Cabeçalho do CSV sem as colunas de serviço e senha: " + header);
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, List<String> names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null) return index;
+        }
+        return -1;
+    }
+
+    private NewCredential readCsvRecord() throws IOException {
+        List<String> row;
+        while ((row = readCsvRow()) != null) {
+            if (row.size() == 1 && row.get(0).isEmpty()) continue;
+            records++;
+            NewCredential credential = credential(field(row, serviceColumn), field(row, usernameColumn), field(row, passwordColumn));
+            if (credential != null) return credential;
+            skipped++;
+        }
+        return null;
+    }
+
+    private static String field(List<String> row, int column) {
+        return column >= 0 && column < row.size() ? row.get(column) : null;
+    }
+
+    // Lê uma linha lógica do CSV (RFC 4180); retorna null no fim do arquivo.
+    private List<String> readCsvRow() throws IOException {
+        int c = csv.read();
+        if (c < 0) return null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("Registro " + (records + 1) + ": aspas não fechadas no CSV.");
+                }
+                if (c == '"') {
+                    csv.mark(1);
+                    int following = csv.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        csv.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c < 0) {
+                break;
+            } else if (c == '\r') {
+                csv.mark(1);
+                if (csv.read() != '\n') csv.reset();
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = csv.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // --- JSON ---
+
+    // Posiciona o leitor no início da lista de credenciais.
+    private void openJsonArray() throws IOException {
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            json.beginArray();
+            return;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (("credentials".equals(name) || "items".equals(name)) && json.peek() == JsonToken.BEGIN_ARRAY) {
+                json.beginArray();
+                return;
+            }
+            json.skipValue();
+        }
+        throw new IllegalArgumentException("O JSON não contém uma lista de credenciais (\"credentials\" ou \"items\").");
+    }
+
+    private NewCredential readJsonRecord() throws IOException {
+        while (json.hasNext()) {
+            records++;
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new IllegalArgumentException("Registro " + records + ": esperado um objeto JSON.");
+            }
+            Map<String, String> fields = new HashMap<>();
+            readJsonObject(fields);
+            NewCredential credential = credential(first(fields, SERVICE_NAMES), first(fields, USERNAME_NAMES),
+                    first(fields, PASSWORD_NAMES));
+            if (credential != null) return credential;
+            skipped++;
+        }
+        return null;
+    }
+
+    // Lê os campos de texto de um objeto; os do objeto "login" aninhado (e a primeira URI) também contam.
+    private void readJsonObject(Map<String, String> fields) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName().toLowerCase(Locale.ROOT);
+            JsonToken token = json.peek();
+            if ("login".equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                readJsonObject(fields);
+            } else if ("uris".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    Map<String, String> uri = new HashMap<>();
+                    if (json.peek() == JsonToken.BEGIN_OBJECT) readJsonObject(uri);
+                    else json.skipValue();
+                    if (uri.containsKey("uri")) fields.putIfAbsent("login_uri", uri.get("uri"));
+                }
+                json.endArray();
+            } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                fields.putIfAbsent(name, json.nextString());
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static String first(Map<String, String> fields, List<String> names) {
+        for (String name : names) {
+            String value = fields.get(name);
+            if (value != null && !value.isBlank()) return value;
+        }
+        return null;
+    }
+
+    // Monta a credencial, ou null se o registro não tiver serviço ou senha.
+    private static NewCredential credential(String service, String username, String password) {
+        if (service == null || service.isBlank() || password == null || password.isEmpty()) {
+            return null;
+        }
+        return new NewCredential(service.trim(), username == null ? "" : username.trim(), password);
+    }
+}
@@ -0,0 +1,91 @@
+package com.securepm.transfer;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Grava credenciais em CSV ou JSON à medida que são entregues, sem acumular o arquivo em
+ * memória. Os dois formatos são lidos de volta pelo {@link CredentialFileReader}:
+ *
+ * - CSV: cabeçalho "service,username,password" e um registro por linha (RFC 4180);
+ * - JSON: {"credentials": [{"service", "username", "password"}, ...]}, gravado com o
+ *   {@link JsonWriter} do Gson.
+ */
+public class CredentialFileWriter implements Closeable {
+
+    private final CredentialFileReader.Format format;
+    private final Writer out;
+    private final JsonWriter json;
+    private long written;
+
+    public CredentialFileWriter(Writer out, CredentialFileReader.Format format) throws IOException {
+        this.format = format;
+        this.out = out;
+        if (format == CredentialFileReader.Format.JSON) {
+            json = new JsonWriter(out);
+            json.setHtmlSafe(false);
+            json.beginObject();
+            json.name("credentials");
+            json.beginArray();
+        } else {
+            json = null;
+            out.write("service,username,password\r\n");
+        }
+    }
+
+    // Quantidade de credenciais gravadas.
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Grava uma credencial.
+     */
+    public void write(String service, String username, String password) throws IOException {
+        if (json != null) {
+            json.beginObject();
+            json.name("service").value(service);
+            json.name("username").value(username);
+            json.name("password").value(password);
+            json.endObject();
+        } else {
+            writeCsvField(service);
+            out.write(',');
+            writeCsvField(username);
+            out.write(',');
+            writeCsvField(password);
+            out.write("\r\n");
+        }
+        written++;
+    }
+
+    /**
+     * Fecha a lista (no JSON) e o arquivo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (format == CredentialFileReader.Format.JSON) {
+            json.endArray();
+            json.endObject();
+            json.close();
+        } else {
+            out.close();
+        }
+    }
+
+    // Campo entre aspas quando contém vírgula, aspas, quebra de linha ou espaços nas pontas.
+    private void writeCsvField(String value) throws IOException {
+        boolean quote = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' '
+                || value.chars().anyMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r'));
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -1,9 +1,12 @@
 package com.securepm.util;
 
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Arrays;
 
@@ -20,6 +23,24 @@ public class AESCryptoUtil {
     // Especifica o tamanho em bytes do Vetor de Inicialização (IV), que é de 128 bits para o AES.
     private static final int IV_LENGTH_BYTES = 16;
 
+    // Gerador de IVs compartilhado (SecureRandom é seguro para uso concorrente); criar um por
+    // chamada custava mais que a própria cifragem de um campo curto.
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Um Cipher por thread: Cipher.getInstance é caro e a instância não pode ser compartilhada,
+    // mas pode ser reinicializada a cada operação (importações e cargas cifram milhares de campos).
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Latências de cifragem e decifragem de um campo.
+    private static final LatencyHistogram ENCRYPT_LATENCY = Metrics.histogram("aes_encrypt", "Cifragem AES de um campo.");
+    private static final LatencyHistogram DECRYPT_LATENCY = Metrics.histogram("aes_decrypt", "Decifragem AES de um campo.");
+
     /**
      * Criptografa uma string de texto plano. O Vetor de Inicialização (IV) é gerado
      * aleatoriamente a cada chamada e é prefixado ao texto cifrado resultante.
@@ -30,13 +51,15 @@ public class AESCryptoUtil {
      * @throws Exception Se ocorrer qualquer erro durante o processo de criptografia.
      */
     public static byte[] encrypt(String plainText, SecretKey key) throws Exception {
+        long start = System.nanoTime();
+
         // 1. Gera um Vetor de Inicialização (IV) criptograficamente seguro.
         byte[] iv = new byte[IV_LENGTH_BYTES];
-        new SecureRandom().nextBytes(iv);
+        RANDOM.nextBytes(iv);
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
 
-        // 2. Obtém e inicializa a instância do Cipher para o modo de criptografia.
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        // 2. Obtém e inicializa a instância do Cipher da thread para o modo de criptografia.
+        Cipher cipher = CIPHERS.get();
         cipher.init(Cipher.ENCRYPT_MODE, key, ivSpec);
 
         // 3. Realiza a criptografia do texto plano (convertido para bytes UTF-8).
@@ -49,6 +72,7 @@ public class AESCryptoUtil {
         System.arraycopy(iv, 0, result, 0, IV_LENGTH_BYTES);
         System.arraycopy(cipherBytes, 0, result, IV_LENGTH_BYTES, cipherBytes.length);
 
+        ENCRYPT_LATENCY.recordSince(start);
         return result;
     }
 
@@ -62,6 +86,8 @@ public class AESCryptoUtil {
      * @throws Exception Se ocorrer qualquer erro, como chave incorreta ou dados corrompidos.
      */
     public static String decrypt(byte[] encryptedData, SecretKey key) throws Exception {
+        long start = System.nanoTime();
+
         // 1. Extrai os primeiros 16 bytes do array, que correspondem ao IV.
         byte[] iv = Arrays.copyOfRange(encryptedData, 0, IV_LENGTH_BYTES);
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
@@ -69,14 +95,16 @@ public class AESCryptoUtil {
         // 2. Extrai o restante dos dados, que representa o texto efetivamente cifrado.
         byte[] cipherBytes = Arrays.copyOfRange(encryptedData, IV_LENGTH_BYTES, encryptedData.length);
 
-        // 3. Obtém e inicializa a instância do Cipher para o modo de descriptografia.
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        // 3. Obtém e inicializa a instância do Cipher da thread para o modo de descriptografia.
+        Cipher cipher = CIPHERS.get();
         cipher.init(Cipher.DECRYPT_MODE, key, ivSpec);
 
         // 4. Realiza a descriptografia dos dados.
         byte[] plainBytes = cipher.doFinal(cipherBytes);
 
         // 5. Converte o resultado de volta para uma string no formato UTF-8.
-        return new String(plainBytes, StandardCharsets.UTF_8);
+        String plainText = new String(plainBytes, StandardCharsets.UTF_8);
+        DECRYPT_LATENCY.recordSince(start);
+        return plainText;
     }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.securepm.util;
+
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Gera os "blind index tokens" usados na busca sobre campos criptografados.
+ * Um token é o HMAC (truncado) do valor normalizado, ou de um de seus prefixos, com uma
+ * subchave do cofre. O índice em disco guarda apenas esses tokens: quem não tem a chave
+ * não consegue relacioná-los aos nomes de serviço ou usuários.
+ */
+public class BlindIndexUtil {
+
+    // Finalidade da subchave usada nos tokens de busca.
+    public static final String BLIND_INDEX_PURPOSE = "securepm/blind-index/v1";
+
+    // Campos pesquisáveis; cada um gera tokens em um domínio separado.
+    public static final String FIELD_SERVICE = "service";
+    public static final String FIELD_USERNAME = "username";
+
+    // Tamanho de cada token, em bytes (128 bits são suficientes para evitar colisões).
+    public static final int TOKEN_LENGTH = 16;
+
+    // Maior prefixo indexado; buscas por prefixos mais longos usam o prefixo truncado e filtram depois.
+    public static final int MAX_PREFIX_LENGTH = 24;
+
+    /**
+     * Normaliza um valor para busca: remove acentos, espaços nas pontas e repetidos,
+     * e converte para minúsculas. Assim, "GitHub " e "github" geram o mesmo token.
+     */
+    public static String normalize(String value) {
+        String ascii = normalizeAscii(value);
+        if (ascii != null) {
+            return ascii;
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFKD);
+        return decomposed.replaceAll("\\p{M}", "")
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Caminho rápido de {@link #normalize(String)} para valores só com ASCII (a maioria dos
+     * nomes de serviço e e-mails), sem Normalizer nem expressões regulares. Produz o mesmo
+     * resultado; retorna null se encontrar qualquer caractere fora do ASCII.
+     */
+    private static String normalizeAscii(String value) {
+        value = value.trim();
+        StringBuilder out = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) return null;
+            if (c == ' ' || (c >= '\t' && c <= '\r')) {
+                pendingSpace = out.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            out.append(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Token de correspondência exata para o valor informado.
+     */
+    public static byte[] exactToken(SecretKey blindKey, String field, String value) throws GeneralSecurityException {
+        return token(blindKey, field + ":eq:" + normalize(value));
+    }
+
+    /**
+     * Token de prefixo. Prefixos maiores que {@link #MAX_PREFIX_LENGTH} são truncados,
+     * portanto o resultado da busca deve ser confirmado após a descriptografia.
+     */
+    public static byte[] prefixToken(SecretKey blindKey, String field, String prefix) throws GeneralSecurityException {
+        String normalized = normalize(prefix);
+        if (normalized.length() > MAX_PREFIX_LENGTH) {
+            normalized = normalized.substring(0, MAX_PREFIX_LENGTH);
+        }
+        return token(blindKey, field + ":pre:" + normalized);
+    }
+
+    /**
+     * Todos os tokens que devem ser gravados no índice para um campo: o token exato e um
+     * token para cada prefixo de 1 até {@link #MAX_PREFIX_LENGTH} caracteres.
+     */
+    public static List<byte[]> tokensFor(SecretKey blindKey, String field, String value) throws GeneralSecurityException {
+        String normalized = normalize(value);
+        List<byte[]> tokens = new ArrayList<>(MAX_PREFIX_LENGTH + 1);
+        tokens.add(token(blindKey, field + ":eq:" + normalized));
+        int limit = Math.min(normalized.length(), MAX_PREFIX_LENGTH);
+        for (int len = 1; len <= limit; len++) {
+            tokens.add(token(blindKey, field + ":pre:" + normalized.substring(0, len)));
+        }
+        return tokens;
+    }
+
+    private static byte[] token(SecretKey blindKey, String input) throws GeneralSecurityException {
+        return Arrays.copyOf(KeyedHashUtil.hmac(blindKey, input), TOKEN_LENGTH);
+    }
+}
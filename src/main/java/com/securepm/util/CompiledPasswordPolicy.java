@@ -0,0 +1,376 @@
+package com.securepm.util;
+
+import com.securepm.model.PasswordPolicy;
+
+import java.util.Arrays;
+
+/**
+ * Forma "compilada" de uma {@link PasswordPolicy}: os alfabetos de cada categoria já
+ * filtrados (exclusões e caracteres parecidos), o alfabeto combinado e as tabelas de
+ * sílabas ficam prontos em arrays de char. A geração propriamente dita se resume a
+ * sorteios de índice nessas tabelas, sem nenhuma decisão de política no laço.
+ */
+final class CompiledPasswordPolicy {
+
+    private static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
+    private static final String NUMERIC_CHARS = "0123456789";
+    private static final String VOWEL_CHARS = "aeiou";
+    private static final String CONSONANT_CHARS = "bcdfghjklmnpqrstvwxz";
+
+    // Índices das categorias nas tabelas 'classes' e 'minCounts'.
+    private static final int UPPER = 0;
+    private static final int LOWER = 1;
+    private static final int DIGIT = 2;
+    private static final int SYMBOL = 3;
+
+    // Tentativas de sorteio antes de desistir de uma política que quase nunca é satisfeita.
+    private static final int MAX_ATTEMPTS = 100;
+
+    private final PasswordPolicy policy;
+
+    // Alfabeto de cada categoria, após a remoção dos caracteres proibidos.
+    private final char[][] classes;
+
+    // Quantidade mínima de caracteres exigida de cada categoria.
+    private final int[] minCounts;
+
+    // Soma de minCounts, ou seja, quantos caracteres são "garantidos".
+    private final int requiredTotal;
+
+    // União de todas as categorias permitidas, usada para completar a senha.
+    private final char[] allChars;
+
+    // Tabelas do modo pronunciável.
+    private final char[] vowels;
+    private final char[] consonants;
+
+    // upperOf[c] guarda a versão maiúscula permitida de 'c' (ou 0 se não houver).
+    private final char[] upperOf;
+
+    // categoryOf[c] guarda a categoria de 'c' mais um (ou 0 se 'c' não for permitido).
+    private final byte[] categoryOf;
+
+    // Tabelas do modo frase-senha: índices das palavras cujos caracteres (e a inicial maiúscula,
+    // quando exigida) são todos permitidos, com as maiúsculas e minúsculas de cada uma já capitalizada.
+    private final int[] wordPool;
+    private final int[] wordUpper;
+    private final int[] wordLower;
+
+    // Maiúsculas e minúsculas de cada ocorrência do separador da frase-senha.
+    private final int separatorUpper;
+    private final int separatorLower;
+
+    CompiledPasswordPolicy(PasswordPolicy policy) {
+        this.policy = policy;
+
+        String excluded = policy.getExcludedChars()
+                + (policy.isExcludeLookAlikes() ? PasswordPolicy.LOOK_ALIKE_CHARS : "");
+
+        this.classes = new char[][]{
+                filter(UPPERCASE_CHARS, excluded),
+                filter(LOWERCASE_CHARS, excluded),
+                filter(NUMERIC_CHARS, excluded),
+                filter(policy.getSymbols(), excluded)
+        };
+        this.minCounts = new int[]{
+                policy.getMinUppercase(),
+                policy.getMinLowercase(),
+                policy.getMinDigits(),
+                policy.getMinSymbols()
+        };
+
+        int required = 0;
+        StringBuilder all = new StringBuilder();
+        for (int k = 0; k < classes.length; k++) {
+            if (minCounts[k] > 0 && classes[k].length == 0) {
+                throw new IllegalArgumentException("A política exige caracteres de uma categoria que ficou vazia após as exclusões.");
+            }
+            required += minCounts[k];
+            all.append(classes[k]);
+        }
+        if (all.length() == 0) {
+            throw new IllegalArgumentException("A política não permite nenhum caractere.");
+        }
+        this.requiredTotal = required;
+        this.allChars = all.toString().toCharArray();
+
+        this.vowels = filter(VOWEL_CHARS, excluded);
+        this.consonants = filter(CONSONANT_CHARS, excluded);
+        this.upperOf = new char[128];
+        for (char c : classes[UPPER]) {
+            upperOf[Character.toLowerCase(c)] = c;
+        }
+        this.categoryOf = new byte[128];
+        for (int k = 0; k < classes.length; k++) {
+            for (char c : classes[k]) {
+                if (c < 128 && categoryOf[c] == 0) categoryOf[c] = (byte) (k + 1);
+            }
+        }
+        if (policy.getMode() == PasswordPolicy.Mode.PRONOUNCEABLE) {
+            if (vowels.length == 0 || consonants.length == 0) {
+                throw new IllegalArgumentException("As exclusões removeram todas as vogais ou consoantes do modo pronunciável.");
+            }
+            if (minCounts[UPPER] > 0 && !hasUpper(vowels) && !hasUpper(consonants)) {
+                throw new IllegalArgumentException("Nenhuma vogal ou consoante do modo pronunciável tem maiúscula permitida.");
+            }
+        }
+
+        if (policy.getMode() == PasswordPolicy.Mode.PASSPHRASE) {
+            // O separador entra na senha como está, então todos os seus caracteres precisam ser permitidos.
+            String separator = policy.getSeparator();
+            int[] separatorCounts = count(separator.toCharArray(), separator.length());
+            if (separatorCounts == null) {
+                throw new IllegalArgumentException("O separador da frase-senha usa caracteres excluídos ou não permitidos pela política.");
+            }
+            this.separatorUpper = separatorCounts[UPPER];
+            this.separatorLower = separatorCounts[LOWER];
+
+            WordList words = WordList.builtIn();
+            int[] pool = new int[words.size()];
+            int[] upper = new int[words.size()];
+            int[] lower = new int[words.size()];
+            int count = 0;
+            char[] word = new char[0];
+            for (int w = 0; w < words.size(); w++) {
+                if (word.length < words.wordLength(w)) word = new char[words.wordLength(w)];
+                int end = words.copyWord(w, word, 0);
+                if (end == 0 || !capitalize(word)) continue;
+                int[] counts = count(word, end);
+                if (counts == null) continue;
+                pool[count] = w;
+                upper[count] = counts[UPPER];
+                lower[count] = counts[LOWER];
+                count++;
+            }
+            if (count == 0) {
+                throw new IllegalArgumentException("As exclusões removeram todas as palavras do modo frase-senha.");
+            }
+            this.wordPool = Arrays.copyOf(pool, count);
+            this.wordUpper = Arrays.copyOf(upper, count);
+            this.wordLower = Arrays.copyOf(lower, count);
+        } else {
+            this.wordPool = null;
+            this.wordUpper = null;
+            this.wordLower = null;
+            this.separatorUpper = 0;
+            this.separatorLower = 0;
+        }
+    }
+
+    // Converte a inicial da palavra para maiúscula, se a política exigir maiúsculas.
+    // Devolve 'false' se a inicial não tiver a versão maiúscula permitida.
+    private boolean capitalize(char[] word) {
+        if (minCounts[UPPER] == 0) return true;
+        char first = word[0];
+        if (first >= 128 || upperOf[first] == 0) return false;
+        word[0] = upperOf[first];
+        return true;
+    }
+
+    // Quantidade de caracteres de cada categoria nos 'length' primeiros de 'chars',
+    // ou null se algum deles não for permitido.
+    private int[] count(char[] chars, int length) {
+        int[] counts = new int[classes.length];
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c >= 128 || categoryOf[c] == 0) return null;
+            counts[categoryOf[c] - 1]++;
+        }
+        return counts;
+    }
+
+    // Indica se alguma letra da tabela tem a versão maiúscula permitida.
+    private boolean hasUpper(char[] letters) {
+        for (char c : letters) {
+            if (upperOf[c] != 0) return true;
+        }
+        return false;
+    }
+
+    // Obtém a política de origem.
+    PasswordPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Gera uma senha segundo a política compilada.
+     *
+     * @param length Comprimento desejado (ignorado no modo PASSPHRASE).
+     * @param random Fonte de índices aleatórios uniformes.
+     * @return A senha em um char[] recém-alocado.
+     */
+    char[] generate(int length, RandomPasswordUtil.RandomBytes random) {
+        switch (policy.getMode()) {
+            case PRONOUNCEABLE:
+                checkLength(length);
+                return generatePronounceable(length, random);
+            case PASSPHRASE:
+                return generatePassphrase(random);
+            default:
+                checkLength(length);
+                char[] dst = new char[length];
+                fillRandom(dst, random);
+                return dst;
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length < 8) {
+            throw new IllegalArgumentException("O comprimento mínimo da senha deve ser 8 caracteres.");
+        }
+        if (length < requiredTotal) {
+            throw new IllegalArgumentException("O comprimento é menor que a soma dos mínimos exigidos pela política.");
+        }
+        if (policy.getMaxLength() > 0 && length > policy.getMaxLength()) {
+            throw new IllegalArgumentException("O serviço aceita no máximo " + policy.getMaxLength() + " caracteres.");
+        }
+    }
+
+    /**
+     * Modo RANDOM: preenche os mínimos de cada categoria, completa com o alfabeto
+     * combinado e embaralha o array no próprio lugar (Fisher-Yates).
+     */
+    void fillRandom(char[] dst, RandomPasswordUtil.RandomBytes random) {
+        int pos = 0;
+        for (int k = 0; k < classes.length; k++) {
+            char[] alphabet = classes[k];
+            for (int n = 0; n < minCounts[k]; n++) {
+                dst[pos++] = alphabet[random.nextIndex(alphabet.length)];
+            }
+        }
+        while (pos < dst.length) {
+            dst[pos++] = allChars[random.nextIndex(allChars.length)];
+        }
+        shuffle(dst, 0, dst.length, random);
+    }
+
+    /**
+     * Modo PRONOUNCEABLE: alterna consoantes e vogais, converte algumas letras para
+     * maiúsculas e acrescenta dígitos e símbolos exigidos ao final, preservando a leitura.
+     */
+    private char[] generatePronounceable(int length, RandomPasswordUtil.RandomBytes random) {
+        int tail = minCounts[DIGIT] + minCounts[SYMBOL];
+        int letters = length - tail;
+        if (letters < minCounts[UPPER] + minCounts[LOWER]) {
+            throw new IllegalArgumentException("O comprimento não comporta as letras exigidas pela política.");
+        }
+
+        char[] dst = new char[length];
+        int[] eligible = new int[letters];
+        int eligibleCount = 0;
+        for (int attempt = 0; ; attempt++) {
+            boolean vowel = random.nextIndex(2) == 0;
+            for (int i = 0; i < letters; i++) {
+                char[] table = vowel ? vowels : consonants;
+                dst[i] = table[random.nextIndex(table.length)];
+                vowel = !vowel;
+            }
+
+            // Posições que possuem maiúscula permitida.
+            eligibleCount = 0;
+            for (int i = 0; i < letters; i++) {
+                if (upperOf[dst[i]] != 0) {
+                    eligible[eligibleCount++] = i;
+                }
+            }
+            if (eligibleCount >= minCounts[UPPER]) break;
+            // Situação rara (exclusões agressivas): refaz a sequência de letras, um número limitado de vezes.
+            if (attempt + 1 == MAX_ATTEMPTS) {
+                throw new IllegalArgumentException("As exclusões deixam poucas letras com maiúscula permitida para o comprimento pedido.");
+            }
+        }
+
+        // Sorteia, entre as posições elegíveis, quais serão convertidas.
+        for (int n = 0; n < minCounts[UPPER]; n++) {
+            int j = n + random.nextIndex(eligibleCount - n);
+            int chosen = eligible[j];
+            eligible[j] = eligible[n];
+            eligible[n] = chosen;
+            dst[chosen] = upperOf[dst[chosen]];
+        }
+
+        int pos = letters;
+        pos = appendFrom(classes[DIGIT], minCounts[DIGIT], dst, pos, random);
+        appendFrom(classes[SYMBOL], minCounts[SYMBOL], dst, pos, random);
+        return dst;
+    }
+
+    /**
+     * Modo PASSPHRASE: sorteia palavras da lista embutida que só usam caracteres permitidos,
+     * opcionalmente capitalizadas, unidas pelo separador e seguidas dos caracteres que ainda
+     * faltam para os mínimos de maiúsculas e minúsculas e dos dígitos e símbolos exigidos.
+     */
+    private char[] generatePassphrase(RandomPasswordUtil.RandomBytes random) {
+        WordList words = WordList.builtIn();
+        int wordCount = policy.getWordCount();
+        String separator = policy.getSeparator();
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int[] picks = new int[wordCount];
+            int upper = separatorUpper * (wordCount - 1);
+            int lower = separatorLower * (wordCount - 1);
+            int total = separator.length() * (wordCount - 1);
+            for (int i = 0; i < wordCount; i++) {
+                picks[i] = random.nextIndex(wordPool.length);
+                upper += wordUpper[picks[i]];
+                lower += wordLower[picks[i]];
+                total += words.wordLength(wordPool[picks[i]]);
+            }
+            int missingUpper = Math.max(0, minCounts[UPPER] - upper);
+            int missingLower = Math.max(0, minCounts[LOWER] - lower);
+            total += missingUpper + missingLower + minCounts[DIGIT] + minCounts[SYMBOL];
+            if (policy.getMaxLength() > 0 && total > policy.getMaxLength()) {
+                continue; // Combinação longa demais para o serviço; sorteia novamente.
+            }
+
+            char[] dst = new char[total];
+            int pos = 0;
+            for (int i = 0; i < wordCount; i++) {
+                if (i > 0) {
+                    separator.getChars(0, separator.length(), dst, pos);
+                    pos += separator.length();
+                }
+                int start = pos;
+                pos = words.copyWord(wordPool[picks[i]], dst, pos);
+                if (minCounts[UPPER] > 0) {
+                    dst[start] = upperOf[dst[start]];
+                }
+            }
+            pos = appendFrom(classes[UPPER], missingUpper, dst, pos, random);
+            pos = appendFrom(classes[LOWER], missingLower, dst, pos, random);
+            pos = appendFrom(classes[DIGIT], minCounts[DIGIT], dst, pos, random);
+            appendFrom(classes[SYMBOL], minCounts[SYMBOL], dst, pos, random);
+            return dst;
+        }
+        throw new IllegalArgumentException("Não foi possível gerar uma frase-senha dentro do comprimento máximo do serviço.");
+    }
+
+    private static int appendFrom(char[] alphabet, int count, char[] dst, int pos, RandomPasswordUtil.RandomBytes random) {
+        for (int n = 0; n < count; n++) {
+            dst[pos++] = alphabet[random.nextIndex(alphabet.length)];
+        }
+        return pos;
+    }
+
+    private static void shuffle(char[] dst, int offset, int length, RandomPasswordUtil.RandomBytes random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextIndex(i + 1);
+            char tmp = dst[offset + i];
+            dst[offset + i] = dst[offset + j];
+            dst[offset + j] = tmp;
+        }
+    }
+
+    // Remove de 'source' todos os caracteres presentes em 'excluded', preservando a ordem.
+    private static char[] filter(String source, String excluded) {
+        StringBuilder kept = new StringBuilder(source.length());
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (excluded.indexOf(c) < 0 && kept.indexOf(String.valueOf(c)) < 0) {
+                kept.append(c);
+            }
+        }
+        return kept.toString().toCharArray();
+    }
+}
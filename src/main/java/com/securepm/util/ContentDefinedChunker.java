@@ -0,0 +1,104 @@
+package com.securepm.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Divide um fluxo de bytes em pedaços (chunks) de tamanho variável cujos limites dependem
+ * do conteúdo (algoritmo FastCDC, com hash "gear"). Como cada limite é decidido pelos bytes
+ * ao seu redor, inserir ou remover dados só altera os pedaços próximos da mudança: os demais
+ * continuam idênticos e podem ser deduplicados entre versões de um arquivo.
+ *
+ * Tamanhos: mínimo de {@link #MIN_SIZE}, média próxima de {@link #AVERAGE_SIZE} e máximo de
+ * {@link #MAX_SIZE} bytes. A normalização (máscara mais exigente antes da média e mais branda
+ * depois) concentra os tamanhos em torno da média.
+ */
+public class ContentDefinedChunker {
+
+    public static final int MIN_SIZE = 2 * 1024;
+    public static final int AVERAGE_SIZE = 8 * 1024;
+    public static final int MAX_SIZE = 64 * 1024;
+
+    // Máscaras do FastCDC para média de 8 KB: 15 bits antes da média e 11 bits depois.
+    private static final long MASK_STRICT = 0x0000D9F003530000L;
+    private static final long MASK_LOOSE = 0x0000D90003530000L;
+
+    // Tabela do hash "gear". A semente é fixa: os limites precisam ser os mesmos em toda execução.
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EC0E5EC0E5EC0EL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Recebe cada pedaço produzido. O array é reutilizado entre as chamadas; quem precisar
+     * guardar o conteúdo deve copiá-lo.
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Lê o fluxo até o fim e entrega os pedaços, em ordem, ao handler.
+     *
+     * @param in      O fluxo de entrada (não é fechado).
+     * @param handler O destino de cada pedaço.
+     * @throws IOException Se houver falha de leitura ou no handler.
+     */
+    public static void split(InputStream in, ChunkHandler handler) throws IOException {
+        byte[] buffer = new byte[MAX_SIZE * 4];
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        while (true) {
+            // Mantém ao menos MAX_SIZE bytes disponíveis (ou tudo o que resta do fluxo).
+            if (!eof && end - start < MAX_SIZE) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                while (end < buffer.length) {
+                    int read = in.read(buffer, end, buffer.length - end);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    end += read;
+                }
+            }
+            if (start == end) return;
+            int length = cutPoint(buffer, start, end - start);
+            handler.accept(buffer, start, length);
+            start += length;
+        }
+    }
+
+    /**
+     * Calcula o tamanho do próximo pedaço a partir de 'offset'.
+     *
+     * @param data   Os dados.
+     * @param offset O início do pedaço.
+     * @param length Os bytes disponíveis a partir de 'offset'.
+     * @return O tamanho do pedaço (no máximo {@link #MAX_SIZE}).
+     */
+    public static int cutPoint(byte[] data, int offset, int length) {
+        if (length <= MIN_SIZE) return length;
+        int limit = Math.min(length, MAX_SIZE);
+        int normal = Math.min(limit, AVERAGE_SIZE);
+        long hash = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & MASK_STRICT) == 0) return i + 1;
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & MASK_LOOSE) == 0) return i + 1;
+        }
+        return limit;
+    }
+}
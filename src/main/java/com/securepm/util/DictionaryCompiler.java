@@ -0,0 +1,37 @@
+package com.securepm.util;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Ferramenta executada durante o build (fase process-classes) que compila as listas de
+ * palavras em texto para o formato binário da {@link DictionaryTrie}. Dessa forma, a
+ * aplicação apenas lê arrays prontos em vez de montar a trie a cada inicialização.
+ *
+ * Uso: java com.securepm.util.DictionaryCompiler &lt;diretório de saída das classes&gt;
+ */
+public class DictionaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Uso: DictionaryCompiler <diretório de saída>");
+            System.exit(1);
+        }
+
+        // 1. Monta a trie a partir dos dicionários em texto presentes no classpath.
+        DictionaryTrie trie = DictionaryTrie.fromSources();
+
+        // 2. Grava o resultado ao lado das demais classes, no caminho esperado em tempo de execução.
+        Path target = Paths.get(args[0], DictionaryTrie.COMPILED_RESOURCE.substring(1));
+        Files.createDirectories(target.getParent());
+        try (OutputStream out = new FileOutputStream(target.toFile())) {
+            trie.write(out);
+        }
+
+        System.out.println("Dicionário compilado: " + trie.nodeCount() + " nós -> " + target);
+    }
+}
@@ -0,0 +1,236 @@
+package com.securepm.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Trie compacta e somente leitura com os dicionários usados pelo estimador de força.
+ * Todos os nós ficam em arrays primitivos (arestas ordenadas por caractere, busca binária),
+ * sem um objeto por nó. Cada nó terminal guarda o "rank" da palavra: quanto menor,
+ * mais comum ela é e menos tentativas um atacante precisa para acertá-la.
+ *
+ * A trie é gerada durante o build por {@link DictionaryCompiler} e lida do classpath;
+ * se o arquivo compilado não existir (ex.: execução direta pela IDE), é montada a partir
+ * das listas em texto.
+ */
+final class DictionaryTrie {
+
+    // Recurso gerado no build com a trie já serializada.
+    static final String COMPILED_RESOURCE = "/dictionaries/dictionary.trie";
+
+    // Listas de origem, em ordem de prioridade, e o rank inicial atribuído a cada uma.
+    static final String[] SOURCE_RESOURCES = {
+            "/dictionaries/passwords.txt",
+            "/dictionaries/portuguese.txt",
+            "/wordlist.txt"
+    };
+    private static final int[] SOURCE_BASE_RANK = {1, 400, 600};
+
+    // Identificação e versão do formato binário.
+    private static final int MAGIC = 0x53504D54; // "SPMT"
+    private static final int FORMAT_VERSION = 1;
+
+    // firstEdge[n] .. firstEdge[n + 1] delimitam as arestas do nó 'n'.
+    private final int[] firstEdge;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+
+    // Rank da palavra que termina no nó (0 indica que o nó não é terminal).
+    private final int[] rank;
+
+    private DictionaryTrie(int[] firstEdge, char[] edgeLabel, int[] edgeTarget, int[] rank) {
+        this.firstEdge = firstEdge;
+        this.edgeLabel = edgeLabel;
+        this.edgeTarget = edgeTarget;
+        this.rank = rank;
+    }
+
+    /**
+     * Retorna a trie embutida, carregada uma única vez na primeira chamada.
+     */
+    static DictionaryTrie builtIn() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final DictionaryTrie INSTANCE = loadBuiltIn();
+    }
+
+    private static DictionaryTrie loadBuiltIn() {
+        try (InputStream in = DictionaryTrie.class.getResourceAsStream(COMPILED_RESOURCE)) {
+            if (in != null) {
+                return read(in);
+            }
+            return fromSources();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao carregar os dicionários do estimador de força.", e);
+        }
+    }
+
+    // Nó raiz da trie.
+    int root() {
+        return 0;
+    }
+
+    /**
+     * Segue a aresta rotulada com 'c' a partir de 'node'.
+     *
+     * @return O nó de destino, ou -1 se não houver aresta com esse caractere.
+     */
+    int next(int node, char c) {
+        int lo = firstEdge[node];
+        int hi = firstEdge[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = edgeLabel[mid];
+            if (label < c) {
+                lo = mid + 1;
+            } else if (label > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return -1;
+    }
+
+    // Rank da palavra terminada em 'node', ou 0 se o nó não for terminal.
+    int rank(int node) {
+        return rank[node];
+    }
+
+    // Quantidade de nós, útil para relatórios de tamanho.
+    int nodeCount() {
+        return rank.length;
+    }
+
+    /**
+     * Monta a trie a partir das listas em texto do classpath.
+     */
+    static DictionaryTrie fromSources() throws IOException {
+        Builder builder = new Builder();
+        for (int s = 0; s < SOURCE_RESOURCES.length; s++) {
+            try (InputStream in = DictionaryTrie.class.getResourceAsStream(SOURCE_RESOURCES[s])) {
+                if (in == null) {
+                    throw new FileNotFoundException("Dicionário não encontrado no classpath: " + SOURCE_RESOURCES[s]);
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                int index = 0;
+                while ((line = reader.readLine()) != null) {
+                    String word = line.trim().toLowerCase(Locale.ROOT);
+                    if (!word.isEmpty()) {
+                        builder.add(word, SOURCE_BASE_RANK[s] + index++);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Grava a trie no formato binário lido por {@link #read(InputStream)}.
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(rank.length);
+        data.writeInt(edgeLabel.length);
+        for (int v : firstEdge) data.writeInt(v);
+        for (char c : edgeLabel) data.writeChar(c);
+        for (int v : edgeTarget) data.writeInt(v);
+        for (int v : rank) data.writeInt(v);
+        data.flush();
+    }
+
+    static DictionaryTrie read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+            throw new IOException("Formato de dicionário compilado desconhecido.");
+        }
+        int nodes = data.readInt();
+        int edges = data.readInt();
+        int[] firstEdge = new int[nodes + 1];
+        char[] edgeLabel = new char[edges];
+        int[] edgeTarget = new int[edges];
+        int[] rank = new int[nodes];
+        for (int i = 0; i < firstEdge.length; i++) firstEdge[i] = data.readInt();
+        for (int i = 0; i < edges; i++) edgeLabel[i] = data.readChar();
+        for (int i = 0; i < edges; i++) edgeTarget[i] = data.readInt();
+        for (int i = 0; i < nodes; i++) rank[i] = data.readInt();
+        return new DictionaryTrie(firstEdge, edgeLabel, edgeTarget, rank);
+    }
+
+    /**
+     * Construtor temporário baseado em objetos; ao final, a árvore é achatada em arrays
+     * numerados em largura (BFS), com as arestas de cada nó ordenadas.
+     */
+    static final class Builder {
+        private static final class Node {
+            final TreeMap<Character, Node> children = new TreeMap<>();
+            int rank;
+            int id;
+        }
+
+        private final Node root = new Node();
+        private int nodes = 1;
+        private int edges = 0;
+
+        // Insere uma palavra; se ela já existir, mantém o menor rank (a ocorrência mais comum).
+        void add(String word, int wordRank) {
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                    nodes++;
+                    edges++;
+                }
+                node = child;
+            }
+            if (node.rank == 0 || wordRank < node.rank) {
+                node.rank = wordRank;
+            }
+        }
+
+        DictionaryTrie build() {
+            int[] firstEdge = new int[nodes + 1];
+            char[] edgeLabel = new char[edges];
+            int[] edgeTarget = new int[edges];
+            int[] rank = new int[nodes];
+
+            // Numera os nós em largura para que os filhos de cada nó recebam ids consecutivos.
+            List<Node> order = new ArrayList<>(nodes);
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                node.id = order.size();
+                order.add(node);
+                queue.addAll(node.children.values());
+            }
+
+            int edge = 0;
+            for (Node node : order) {
+                firstEdge[node.id] = edge;
+                rank[node.id] = node.rank;
+                for (var entry : node.children.entrySet()) {
+                    edgeLabel[edge] = entry.getKey();
+                    edgeTarget[edge] = entry.getValue().id;
+                    edge++;
+                }
+            }
+            firstEdge[nodes] = edge;
+            return new DictionaryTrie(firstEdge, edgeLabel, edgeTarget, Arrays.copyOf(rank, nodes));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.securepm.util;
 
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -31,6 +34,9 @@ public class KeyFactoryUtil {
     // Comprimento da chave AES a ser derivada, em bits (neste caso, 256 bits).
     private static final int KEY_LENGTH = 256;
 
+    // Latência da derivação da chave do cofre (inclui a leitura do salt).
+    private static final LatencyHistogram DERIVE_LATENCY = Metrics.histogram("pbkdf2_derive", "Derivação PBKDF2 da chave do cofre.");
+
     /**
      * Gerencia o ciclo de vida do salt. Tenta carregar o salt de um arquivo se ele já existir;
      * caso contrário, gera um novo, o salva em disco para uso futuro e o retorna.
@@ -47,9 +53,7 @@ public class KeyFactoryUtil {
         }
 
         // Se o arquivo não existe, um novo salt aleatório e seguro é gerado.
-        SecureRandom random = new SecureRandom();
-        byte[] salt = new byte[SALT_LENGTH];
-        random.nextBytes(salt);
+        byte[] salt = generateSalt();
 
         // Salva o novo salt em disco para garantir que o mesmo salt seja sempre reutilizado.
         try (FileOutputStream fos = new FileOutputStream(saltFile)) {
@@ -72,9 +76,39 @@ public class KeyFactoryUtil {
     public static SecretKey deriveAESKeyFromPassword(String masterPassword)
             throws NoSuchAlgorithmException, InvalidKeySpecException, IOException {
 
+        long start = System.nanoTime();
+
         // 1. Obtém o salt, que é um componente essencial para a segurança da derivação da chave.
         byte[] salt = loadOrGenerateSalt();
+        return derive(masterPassword, salt, start);
+    }
+
+    /**
+     * Deriva a chave com um salt informado, em vez do salt global do arquivo; usado pelos
+     * cofres de cada usuário no modo com vários usuários.
+     *
+     * @param masterPassword A senha mestra que servirá como base para a derivação.
+     * @param salt           O salt do cofre, gerado por {@link #generateSalt()}.
+     * @return Uma SecretKey pronta para ser usada em algoritmos de criptografia AES.
+     * @throws NoSuchAlgorithmException Se o algoritmo PBKDF2WithHmacSHA256 não for suportado.
+     * @throws InvalidKeySpecException Se os parâmetros fornecidos para a derivação forem inválidos.
+     */
+    public static SecretKey deriveAESKeyFromPassword(String masterPassword, byte[] salt)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return derive(masterPassword, salt, System.nanoTime());
+    }
+
+    /**
+     * Gera um novo salt aleatório, sem gravá-lo em disco.
+     */
+    public static byte[] generateSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
 
+    private static SecretKey derive(String masterPassword, byte[] salt, long start)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
         // 2. Configura as especificações para o PBKDF2: senha, salt, iterações e tamanho da chave.
         PBEKeySpec spec = new PBEKeySpec(
                 masterPassword.toCharArray(),
@@ -90,6 +124,8 @@ public class KeyFactoryUtil {
         byte[] keyBytes = factory.generateSecret(spec).getEncoded();
 
         // 5. Encapsula os bytes gerados em um objeto SecretKey, especificando que é para uso com AES.
-        return new SecretKeySpec(keyBytes, "AES");
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+        DERIVE_LATENCY.recordSince(start);
+        return key;
     }
 }
\ No newline at end of file
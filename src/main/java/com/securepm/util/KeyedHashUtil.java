@@ -0,0 +1,73 @@
+package com.securepm.util;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Funções de hash com chave (HMAC-SHA256) derivadas da chave do cofre.
+ * Permitem comparar valores secretos (como senhas) sem descriptografá-los: dois textos
+ * iguais produzem a mesma impressão digital, mas só quem conhece a chave do cofre
+ * consegue calculá-la.
+ */
+public class KeyedHashUtil {
+
+    // Algoritmo usado tanto na derivação das subchaves quanto no cálculo das impressões digitais.
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // Finalidade da subchave usada nas impressões digitais de senhas.
+    public static final String PASSWORD_FINGERPRINT_PURPOSE = "securepm/password-fingerprint/v1";
+
+    // Um Mac por thread, reinicializado com a chave a cada cálculo (os tokens de busca de uma
+    // única credencial já somam dezenas de HMACs).
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * Deriva uma subchave independente a partir da chave do cofre, separada por finalidade.
+     * Assim, a chave de criptografia nunca é usada diretamente como chave de HMAC.
+     *
+     * @param vaultKey A chave do cofre obtida no login.
+     * @param purpose  Um rótulo único para o uso da subchave.
+     * @return Uma SecretKey HMAC-SHA256 específica para a finalidade informada.
+     * @throws GeneralSecurityException Se o algoritmo HMAC não estiver disponível.
+     */
+    public static SecretKey deriveKey(SecretKey vaultKey, String purpose) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(vaultKey.getEncoded(), HMAC_ALGORITHM));
+        byte[] derived = mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(derived, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Calcula o HMAC de um texto, codificado em UTF-8.
+     *
+     * @param key   A subchave obtida em {@link #deriveKey(SecretKey, String)}.
+     * @param value O texto a ser protegido.
+     * @return Os 32 bytes do HMAC.
+     * @throws GeneralSecurityException Se a chave for inválida para o algoritmo.
+     */
+    public static byte[] hmac(SecretKey key, CharSequence value) throws GeneralSecurityException {
+        Mac mac = MACS.get();
+        mac.init(key);
+        // Codifica sem criar uma String intermediária e apaga a cópia em bytes após o uso.
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(value));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        try {
+            return mac.doFinal(bytes);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+}
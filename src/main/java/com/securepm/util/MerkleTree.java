@@ -0,0 +1,150 @@
+package com.securepm.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Árvore de Merkle de aridade fixa sobre um conjunto de folhas (chave de 64 bits, resumo).
+ * As folhas são distribuídas em baldes pelos bits mais altos da chave; cada balde tem como
+ * resumo o SHA-256 das suas folhas ordenadas pela chave, e cada nó interno o SHA-256 dos
+ * resumos dos seus {@link #FANOUT} filhos. Dois conjuntos iguais produzem a mesma raiz e,
+ * quando diferem, comparar os nós nível a nível leva apenas aos baldes que mudaram.
+ *
+ * Os níveis vão de 0 (raiz) até {@link #getDepth()} (baldes); o nó 'i' do nível 'l' tem os
+ * filhos i * FANOUT até i * FANOUT + FANOUT - 1 no nível l + 1. Nós sem folhas têm resumo nulo.
+ */
+public final class MerkleTree {
+
+    // Filhos por nó interno (4 bits da chave por nível).
+    public static final int FANOUT = 16;
+
+    // Bytes de cada resumo (SHA-256 truncado).
+    public static final int HASH_LENGTH = 16;
+
+    // Profundidade máxima: 16^4 = 65.536 baldes.
+    public static final int MAX_DEPTH = 4;
+
+    // Folhas desejadas, em média, por balde.
+    private static final int LEAVES_PER_BUCKET = 8;
+
+    private static final byte[] EMPTY = new byte[HASH_LENGTH];
+
+    private final int depth;
+
+    // Resumos de cada nível; levels[depth] são os baldes.
+    private final byte[][][] levels;
+
+    // Índices das folhas ordenados pela chave e início de cada balde nessa ordem.
+    private final int[] order;
+    private final int[] bucketStart;
+
+    /**
+     * Escolhe a profundidade para o número de folhas. As duas réplicas devem usar a mesma
+     * profundidade; por isso ela é calculada a partir do maior dos dois tamanhos.
+     *
+     * @param leaves O número de folhas.
+     * @return A profundidade, entre 1 e {@link #MAX_DEPTH}.
+     */
+    public static int depthFor(long leaves) {
+        int depth = 1;
+        while (depth < MAX_DEPTH && (1L << (4 * depth)) * LEAVES_PER_BUCKET < leaves) depth++;
+        return depth;
+    }
+
+    /**
+     * Constrói a árvore.
+     *
+     * @param keys   A chave de cada folha (define o balde).
+     * @param hashes O resumo de cada folha.
+     * @param depth  A profundidade, entre 1 e {@link #MAX_DEPTH}.
+     */
+    public MerkleTree(long[] keys, byte[][] hashes, int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Profundidade inválida para a árvore de Merkle: " + depth);
+        }
+        this.depth = depth;
+        int bucketCount = 1 << (4 * depth);
+
+        // 1. Ordena as folhas pela chave (sem sinal) e marca o início de cada balde.
+        Integer[] sorted = new Integer[keys.length];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+        order = new int[keys.length];
+        bucketStart = new int[bucketCount + 1];
+        for (int i = 0; i < sorted.length; i++) {
+            order[i] = sorted[i];
+            bucketStart[bucketOf(keys[sorted[i]]) + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) bucketStart[b + 1] += bucketStart[b];
+
+        // 2. Resumo de cada balde não vazio.
+        levels = new byte[depth + 1][][];
+        levels[depth] = new byte[bucketCount][];
+        MessageDigest sha = sha256();
+        byte[] keyBytes = new byte[Long.BYTES];
+        for (int b = 0; b < bucketCount; b++) {
+            if (bucketStart[b] == bucketStart[b + 1]) continue;
+            for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) {
+                long key = keys[order[i]];
+                for (int k = 0; k < Long.BYTES; k++) keyBytes[k] = (byte) (key >>> (56 - 8 * k));
+                sha.update(keyBytes);
+                sha.update(hashes[order[i]]);
+            }
+            levels[depth][b] = Arrays.copyOf(sha.digest(), HASH_LENGTH);
+        }
+
+        // 3. Níveis internos, das folhas para a raiz.
+        for (int level = depth - 1; level >= 0; level--) {
+            byte[][] children = levels[level + 1];
+            byte[][] nodes = new byte[children.length / FANOUT][];
+            for (int n = 0; n < nodes.length; n++) {
+                boolean any = false;
+                for (int c = 0; c < FANOUT; c++) {
+                    byte[] child = children[n * FANOUT + c];
+                    any |= child != null;
+                    sha.update(child != null ? child : EMPTY);
+                }
+                byte[] hash = Arrays.copyOf(sha.digest(), HASH_LENGTH);
+                nodes[n] = any ? hash : null;
+            }
+            levels[level] = nodes;
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // Quantidade de nós em um nível.
+    public int getNodeCount(int level) {
+        return levels[level].length;
+    }
+
+    /**
+     * Retorna o resumo de um nó, ou null se não houver folhas sob ele.
+     */
+    public byte[] getHash(int level, int node) {
+        return levels[level][node];
+    }
+
+    // Balde de uma chave: os 4 * depth bits mais altos.
+    public int bucketOf(long key) {
+        return (int) (key >>> (64 - 4 * depth));
+    }
+
+    /**
+     * Retorna os índices (na ordem de construção) das folhas de um balde.
+     */
+    public int[] leavesIn(int bucket) {
+        return Arrays.copyOfRange(order, bucketStart[bucket], bucketStart[bucket + 1]);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não está disponível nesta JVM.", e);
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package com.securepm.util;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import com.securepm.jfr.BreachCheckEvent;
+import com.securepm.metrics.Counter;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilitário para interagir com o serviço "Have I Been Pwned" (HIBP).
@@ -17,6 +28,29 @@ public class PasswordBreachChecker {
     // Endpoint da API Pwned Passwords que utiliza o modelo de k-anonymity.
     private static final String HIBP_API_ENDPOINT = "https://api.pwnedpasswords.com/range/";
 
+    // Timeout aplicado tanto à conexão quanto à resposta de cada requisição.
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // Tamanho do sufixo do hash SHA-1 (40 caracteres hexadecimais menos os 5 do prefixo).
+    private static final int SUFFIX_LENGTH = 35;
+
+    // Tabela usada para converter cada byte do hash em dois dígitos hexadecimais maiúsculos.
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    // Cliente HTTP compartilhado: reaproveita conexões (keep-alive) e negocia HTTP/2 quando disponível.
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(TIMEOUT)
+            .build();
+
+    // Consultas em andamento, indexadas pelo prefixo; chamadas simultâneas para o mesmo prefixo compartilham a mesma requisição.
+    private static final Map<String, CompletableFuture<byte[]>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    // Latência das chamadas à API, chamadas que falharam e consultas atendidas por uma chamada já em andamento.
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.histogram("hibp_request", "Chamada à API Pwned Passwords.");
+    private static final Counter REQUEST_ERRORS = Metrics.counter("hibp_errors", "Chamadas à API Pwned Passwords que falharam.");
+    private static final Counter SHARED_REQUESTS = Metrics.counter("hibp_shared", "Consultas que reaproveitaram uma chamada em andamento.");
+
     /**
      * Consulta a API 'Have I Been Pwned' para verificar se uma senha foi exposta em vazamentos.
      * A senha em si nunca é enviada para o serviço; apenas os 5 primeiros caracteres de seu
@@ -28,54 +62,146 @@ public class PasswordBreachChecker {
      * @throws Exception Lançada se houver falha na comunicação com a API ou no processamento.
      */
     public static int getPwnedCount(String password) throws Exception {
-        // 1. Calcula o hash SHA-1 da senha, que é o formato de hash usado pela API HIBP.
-        MessageDigest md = MessageDigest.getInstance("SHA-1");
-        byte[] digest = md.digest(password.getBytes(StandardCharsets.UTF_8));
-
-        // 2. Converte o hash de array de bytes para uma representação hexadecimal em maiúsculas.
-        StringBuilder sha1Hex = new StringBuilder();
-        for (byte b : digest) {
-            sha1Hex.append(String.format("%02X", b));
+        try {
+            return getPwnedCountAsync(password).join();
+        } catch (CompletionException e) {
+            // Desembrulha a causa original para manter o contrato de exceções da versão síncrona.
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Versão assíncrona de {@link #getPwnedCount(String)}. A requisição é executada pelo
+     * cliente HTTP compartilhado e, se outra consulta para o mesmo prefixo já estiver
+     * em andamento, o resultado dela é reaproveitado em vez de abrir uma nova chamada.
+     *
+     * @param password A senha em texto claro que será verificada.
+     * @return Um CompletableFuture que será completado com o número de ocorrências da senha em vazamentos.
+     */
+    public static CompletableFuture<Integer> getPwnedCountAsync(String password) {
+        // 1. Calcula o hash SHA-1 da senha e o converte para hexadecimal maiúsculo (formato da API HIBP).
+        byte[] hexHash;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            hexHash = toUpperHex(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        String fullHash = sha1Hex.toString();
-
-        // 3. Divide o hash em um prefixo (primeiros 5 caracteres) e um sufixo (o restante).
-        String prefix = fullHash.substring(0, 5);
-        String suffix = fullHash.substring(5);
-
-        // 4. Prepara e executa a chamada HTTP GET, enviando apenas o prefixo do hash na URL.
-        URL url = new URL(HIBP_API_ENDPOINT + prefix);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("User-Agent", "Java-SecurePM-Client"); // Boa prática para identificar o cliente.
-        conn.setConnectTimeout(5000); // Timeout de 5 segundos para conexão.
-        conn.setReadTimeout(5000);    // Timeout de 5 segundos para leitura da resposta.
-
-        // Valida se a requisição foi bem-sucedida.
-        int responseCode = conn.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            throw new RuntimeException("A chamada à API HIBP falhou. Código de resposta: " + responseCode);
+
+        // 2. Divide o hash em um prefixo (primeiros 5 caracteres) e um sufixo (o restante).
+        String prefix = new String(hexHash, 0, 5, StandardCharsets.US_ASCII);
+        byte[] suffix = new byte[SUFFIX_LENGTH];
+        System.arraycopy(hexHash, 5, suffix, 0, SUFFIX_LENGTH);
+
+        // 3. Obtém (ou inicia) a consulta do prefixo e procura o sufixo diretamente nos bytes da resposta.
+        return fetchRange(prefix).thenApply(body -> findCount(body, suffix));
+    }
+
+    /**
+     * Retorna a consulta em andamento para o prefixo informado ou dispara uma nova.
+     * A entrada é removida do mapa assim que a resposta chega, para que consultas
+     * futuras voltem a buscar dados atualizados.
+     */
+    private static CompletableFuture<byte[]> fetchRange(String prefix) {
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = IN_FLIGHT.putIfAbsent(prefix, created);
+        if (existing != null) {
+            SHARED_REQUESTS.increment();
+            return existing;
         }
 
-        // 5. Processa a resposta da API, que contém uma lista de sufixos e suas contagens.
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // A resposta vem no formato SUFIXO:CONTAGEM.
-                String[] parts = line.split(":");
-                if (parts.length != 2) continue; // Ignora linhas mal formatadas.
+        HttpRequest request = HttpRequest.newBuilder(URI.create(HIBP_API_ENDPOINT + prefix))
+                .header("User-Agent", "Java-SecurePM-Client") // Boa prática para identificar o cliente.
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+
+        BreachCheckEvent event = new BreachCheckEvent();
+        event.begin();
+        long start = System.nanoTime();
+        HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    REQUEST_LATENCY.recordSince(start);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.statusCode = response == null ? 0 : response.statusCode();
+                        event.responseBytes = response == null ? 0 : response.body().length;
+                        event.error = error == null ? null : error.toString();
+                        event.commit();
+                    }
+                    IN_FLIGHT.remove(prefix, created);
+                    if (error != null) {
+                        REQUEST_ERRORS.increment();
+                        created.completeExceptionally(error);
+                    } else if (response.statusCode() != 200) {
+                        REQUEST_ERRORS.increment();
+                        created.completeExceptionally(new RuntimeException(
+                                "A chamada à API HIBP falhou. Código de resposta: " + response.statusCode()));
+                    } else {
+                        created.complete(response.body());
+                    }
+                });
+        return created;
+    }
 
-                String returnedSuffix = parts[0];
+    /**
+     * Percorre a resposta no formato "SUFIXO:CONTAGEM" linha a linha, comparando os bytes
+     * do sufixo sem criar uma String por linha.
+     *
+     * @param body   O corpo da resposta da API em bytes (ASCII).
+     * @param suffix O sufixo do hash em hexadecimal maiúsculo.
+     * @return A contagem associada ao sufixo, ou 0 se ele não estiver na lista.
+     */
+    static int findCount(byte[] body, byte[] suffix) {
+        int pos = 0;
+        int end = body.length;
+        while (pos < end) {
+            // Localiza o fim da linha atual.
+            int lineEnd = pos;
+            while (lineEnd < end && body[lineEnd] != '\n') {
+                lineEnd++;
+            }
 
-                // 6. Compara (ignorando maiúsculas/minúsculas) o sufixo da nossa senha com cada sufixo da lista.
-                if (returnedSuffix.equalsIgnoreCase(suffix)) {
-                    // Se encontrar, retorna a contagem de vazamentos e encerra o método.
-                    return Integer.parseInt(parts[1]);
+            // Compara o sufixo ignorando maiúsculas/minúsculas e exige o separador ':' logo em seguida.
+            if (lineEnd - pos > SUFFIX_LENGTH && body[pos + SUFFIX_LENGTH] == ':' && matches(body, pos, suffix)) {
+                int count = 0;
+                for (int i = pos + SUFFIX_LENGTH + 1; i < lineEnd; i++) {
+                    byte b = body[i];
+                    if (b < '0' || b > '9') break; // Para no '\r' ou em qualquer caractere inesperado.
+                    count = count * 10 + (b - '0');
                 }
+                return count;
             }
+            pos = lineEnd + 1;
         }
-
-        // 7. Se o loop terminar sem encontrar o sufixo, a senha é considerada segura (neste contexto).
         return 0;
     }
-}
\ No newline at end of file
+
+    // Compara o sufixo com o trecho do corpo iniciado em 'offset', ignorando a caixa das letras.
+    private static boolean matches(byte[] body, int offset, byte[] suffix) {
+        for (int i = 0; i < suffix.length; i++) {
+            byte b = body[offset + i];
+            if (b >= 'a' && b <= 'f') {
+                b -= 'a' - 'A';
+            }
+            if (b != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Converte o digest para hexadecimal maiúsculo em ASCII.
+    private static byte[] toUpperHex(byte[] digest) {
+        byte[] hex = new byte[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+        }
+        return hex;
+    }
+}
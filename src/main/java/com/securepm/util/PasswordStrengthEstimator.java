@@ -0,0 +1,469 @@
+package com.securepm.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Estimador de força de senhas no estilo do zxcvbn. Em vez de contar categorias de
+ * caracteres, procura os padrões que um atacante testaria primeiro (palavras de
+ * dicionário, sequências de teclado, repetições, sequências e datas) e calcula o menor
+ * número de tentativas necessárias para cobrir a senha inteira com esses padrões.
+ *
+ * A classe não guarda estado por chamada e pode ser usada por várias threads ao mesmo tempo.
+ */
+public class PasswordStrengthEstimator {
+
+    // Cardinalidade usada para caracteres não cobertos por nenhum padrão (mesmo valor do zxcvbn).
+    private static final double BRUTEFORCE_LOG10_PER_CHAR = 1.0;
+
+    // Limites (em log10 de tentativas) que separam as notas de 0 a 4.
+    private static final double[] SCORE_THRESHOLDS = {3, 6, 8, 10};
+
+    private static final String[] SCORE_LABELS = {"Muito fraca", "Fraca", "Razoável", "Forte", "Muito forte"};
+
+    // Tipos de padrão reconhecidos, usados para montar o aviso ao usuário.
+    private static final int BRUTEFORCE = 0;
+    private static final int DICTIONARY = 1;
+    private static final int SPATIAL = 2;
+    private static final int REPEAT = 3;
+    private static final int SEQUENCE = 4;
+    private static final int DATE = 5;
+
+    private static final String[] WARNINGS = {
+            "",
+            "Contém uma senha comum ou palavra de dicionário.",
+            "Contém uma sequência de teclas vizinhas no teclado.",
+            "Contém caracteres ou blocos repetidos.",
+            "Contém uma sequência previsível (como abc ou 123).",
+            "Contém uma data, que é fácil de adivinhar."
+    };
+
+    // Substituições "l33t" mais comuns, aplicadas antes da busca no dicionário.
+    private static final char[] LEET = new char[128];
+
+    // Linhas do teclado QWERTY (sem e com Shift), usadas para o grafo de adjacência.
+    private static final String[] KEYBOARD_ROWS = {"`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./"};
+    private static final String[] SHIFTED_ROWS = {"~!@#$%^&*()_+", "QWERTYUIOP{}|", "ASDFGHJKL:\"", "ZXCVBNM<>?"};
+
+    // Posição (linha, coluna) de cada tecla; -1 quando o caractere não está no teclado.
+    private static final int[] KEY_ROW = new int[128];
+    private static final int[] KEY_COL = new int[128];
+
+    static {
+        LEET['4'] = 'a';
+        LEET['@'] = 'a';
+        LEET['8'] = 'b';
+        LEET['3'] = 'e';
+        LEET['6'] = 'g';
+        LEET['1'] = 'i';
+        LEET['!'] = 'i';
+        LEET['0'] = 'o';
+        LEET['$'] = 's';
+        LEET['5'] = 's';
+        LEET['7'] = 't';
+        LEET['2'] = 'z';
+
+        Arrays.fill(KEY_ROW, -1);
+        for (int r = 0; r < KEYBOARD_ROWS.length; r++) {
+            for (int c = 0; c < KEYBOARD_ROWS[r].length(); c++) {
+                KEY_ROW[KEYBOARD_ROWS[r].charAt(c)] = r;
+                KEY_COL[KEYBOARD_ROWS[r].charAt(c)] = c;
+                KEY_ROW[SHIFTED_ROWS[r].charAt(c)] = r;
+                KEY_COL[SHIFTED_ROWS[r].charAt(c)] = c;
+            }
+        }
+    }
+
+    /**
+     * Resultado da estimativa: nota de 0 a 4, ordem de grandeza das tentativas e o
+     * principal motivo de fraqueza encontrado (se houver).
+     */
+    public static final class Strength {
+        private final int score;
+        private final double guessesLog10;
+        private final String warning;
+
+        private Strength(int score, double guessesLog10, String warning) {
+            this.score = score;
+            this.guessesLog10 = guessesLog10;
+            this.warning = warning;
+        }
+
+        // Nota de 0 (muito fraca) a 4 (muito forte).
+        public int getScore() {
+            return score;
+        }
+
+        // Logaritmo na base 10 do número estimado de tentativas para descobrir a senha.
+        public double getGuessesLog10() {
+            return guessesLog10;
+        }
+
+        // Descrição textual da nota.
+        public String getLabel() {
+            return SCORE_LABELS[score];
+        }
+
+        // Principal padrão fraco encontrado, ou uma string vazia.
+        public String getWarning() {
+            return warning;
+        }
+
+        @Override
+        public String toString() {
+            return score + "/4 (" + getLabel() + ", ~10^" + String.format("%.1f", guessesLog10) + " tentativas)";
+        }
+    }
+
+    /**
+     * Estima a força de uma senha.
+     *
+     * @param password A senha em texto claro (String, char[] via CharBuffer.wrap, etc.).
+     * @return O resultado da estimativa.
+     */
+    public static Strength estimate(CharSequence password) {
+        int n = password.length();
+        if (n == 0) {
+            return new Strength(0, 0, "A senha está vazia.");
+        }
+
+        char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            chars[i] = password.charAt(i);
+        }
+
+        int[] kind = new int[n + 1];
+        int[] previous = new int[n + 1];
+        double guesses = minimumGuesses(chars, 0, n, kind, previous);
+
+        int score = SCORE_THRESHOLDS.length;
+        for (int s = 0; s < SCORE_THRESHOLDS.length; s++) {
+            if (guesses < SCORE_THRESHOLDS[s]) {
+                score = s;
+                break;
+            }
+        }
+
+        // O aviso descreve um padrão não aleatório presente na melhor decomposição,
+        // percorrida de trás para frente a partir do fim da senha.
+        String warning = "";
+        for (int end = n; end > 0; end = previous[end]) {
+            if (kind[end] != BRUTEFORCE) {
+                warning = WARNINGS[kind[end]];
+            }
+        }
+        return new Strength(score, guesses, warning);
+    }
+
+    /**
+     * Calcula a nota de várias senhas em paralelo, usando todos os núcleos disponíveis.
+     *
+     * @param passwords As senhas a avaliar (por exemplo, o cofre inteiro descriptografado).
+     * @return Um array com a nota (0 a 4) de cada senha, na mesma ordem da lista.
+     */
+    public static int[] scoreAll(List<? extends CharSequence> passwords) {
+        int[] scores = new int[passwords.size()];
+        IntStream.range(0, scores.length)
+                .parallel()
+                .forEach(i -> scores[i] = estimate(passwords.get(i)).getScore());
+        return scores;
+    }
+
+    /**
+     * Programação dinâmica: best[i] é o menor log10 de tentativas para cobrir chars[from, from + i).
+     * Cada posição é estendida por força bruta (um caractere) ou por qualquer padrão que comece nela.
+     * Em 'kind' e 'previous' (opcionais) registram-se o tipo e o início do padrão escolhido
+     * que termina em cada posição, permitindo reconstruir a decomposição.
+     */
+    private static double minimumGuesses(char[] chars, int from, int to, int[] kind, int[] previous) {
+        int n = to - from;
+        double[] best = new double[n + 1];
+        Arrays.fill(best, Double.MAX_VALUE);
+        best[0] = 0;
+        Relaxer relax = (start, end, log10, type) -> {
+            double candidate = best[start] + Math.max(log10, 1.0);
+            if (candidate < best[end]) {
+                best[end] = candidate;
+                if (kind != null) {
+                    kind[end] = type;
+                    previous[end] = start;
+                }
+            }
+        };
+
+        for (int i = 0; i < n; i++) {
+            relax.apply(i, i + 1, BRUTEFORCE_LOG10_PER_CHAR, BRUTEFORCE);
+            matchDictionary(chars, from, i, n, relax);
+            matchSequence(chars, from, i, n, relax);
+            matchRepeat(chars, from, i, n, relax);
+            matchSpatial(chars, from, i, n, relax);
+            matchDate(chars, from, i, n, relax);
+        }
+        return best[n];
+    }
+
+    // Recebe um padrão [start, end) (relativo ao trecho avaliado) com seu custo em log10.
+    @FunctionalInterface
+    private interface Relaxer {
+        void apply(int start, int end, double log10, int type);
+    }
+
+    /**
+     * Palavras de dicionário, em duas passadas: texto em minúsculas e texto com as
+     * substituições l33t desfeitas. O custo é rank × variações de maiúsculas × variações l33t.
+     */
+    private static void matchDictionary(char[] chars, int from, int i, int n, Relaxer relax) {
+        DictionaryTrie trie = DictionaryTrie.builtIn();
+        for (int pass = 0; pass < 2; pass++) {
+            boolean leet = pass == 1;
+            int node = trie.root();
+            int substitutions = 0;
+            for (int k = i; k < n; k++) {
+                char c = Character.toLowerCase(chars[from + k]);
+                if (leet && c < 128 && LEET[c] != 0) {
+                    c = LEET[c];
+                    substitutions++;
+                }
+                node = trie.next(node, c);
+                if (node < 0) break;
+
+                int rank = trie.rank(node);
+                int length = k - i + 1;
+                if (rank > 0 && length >= 3 && (!leet || substitutions > 0)) {
+                    double log10 = Math.log10(rank)
+                            + uppercaseVariationsLog10(chars, from + i, length)
+                            + (leet ? substitutions * Math.log10(2) : 0);
+                    relax.apply(i, k + 1, log10, DICTIONARY);
+                }
+            }
+        }
+    }
+
+    // log10 do número de formas de capitalizar a palavra que um atacante testaria.
+    private static double uppercaseVariationsLog10(char[] chars, int start, int length) {
+        int upper = 0;
+        int lower = 0;
+        for (int k = start; k < start + length; k++) {
+            if (Character.isUpperCase(chars[k])) upper++;
+            else if (Character.isLowerCase(chars[k])) lower++;
+        }
+        if (upper == 0) return 0;
+        // Primeira letra maiúscula ou tudo em maiúsculas são as variações mais comuns.
+        if (lower == 0 || (upper == 1 && Character.isUpperCase(chars[start]))) return Math.log10(2);
+        double variations = 0;
+        for (int k = 1; k <= Math.min(upper, lower); k++) {
+            variations += binomial(upper + lower, k);
+        }
+        return Math.log10(variations);
+    }
+
+    private static double binomial(int n, int k) {
+        double result = 1;
+        for (int d = 1; d <= k; d++) {
+            result = result * (n - k + d) / d;
+        }
+        return result;
+    }
+
+    /**
+     * Sequências com passo constante de +1 ou -1 (abc, 987, xyz), com pelo menos 3 caracteres.
+     */
+    private static void matchSequence(char[] chars, int from, int i, int n, Relaxer relax) {
+        if (i + 2 >= n) return;
+        int delta = chars[from + i + 1] - chars[from + i];
+        if (delta != 1 && delta != -1) return;
+
+        int end = i + 1;
+        while (end < n && chars[from + end] - chars[from + end - 1] == delta) {
+            end++;
+        }
+        char first = chars[from + i];
+        double base;
+        if ("aAzZ019".indexOf(first) >= 0) {
+            base = 4; // Começos óbvios são testados primeiro.
+        } else if (Character.isDigit(first)) {
+            base = 10;
+        } else {
+            base = 26;
+        }
+        if (delta < 0) base *= 2;
+        for (int e = i + 3; e <= end; e++) {
+            relax.apply(i, e, Math.log10(base * (e - i)), SEQUENCE);
+        }
+    }
+
+    /**
+     * Repetições: o mesmo caractere três ou mais vezes, ou um bloco repetido ("abcabc").
+     * O custo é o do bloco base multiplicado pelo número de repetições.
+     */
+    private static void matchRepeat(char[] chars, int from, int i, int n, Relaxer relax) {
+        int maxBlock = (n - i) / 2;
+        for (int block = 1; block <= maxBlock; block++) {
+            int count = 1;
+            while (i + (count + 1) * block <= n && regionMatches(chars, from + i, from + i + count * block, block)) {
+                count++;
+            }
+            if (count < 2 || (block == 1 && count < 3)) continue;
+
+            double baseLog10 = block == 1
+                    ? Math.log10(cardinality(chars[from + i]))
+                    : minimumGuesses(chars, from + i, from + i + block, null, null);
+            for (int c = 2; c <= count; c++) {
+                if (block == 1 && c < 3) continue;
+                relax.apply(i, i + c * block, baseLog10 + Math.log10(c), REPEAT);
+            }
+        }
+    }
+
+    private static boolean regionMatches(char[] chars, int a, int b, int length) {
+        for (int k = 0; k < length; k++) {
+            if (chars[a + k] != chars[b + k]) return false;
+        }
+        return true;
+    }
+
+    private static int cardinality(char c) {
+        if (Character.isDigit(c)) return 10;
+        if (Character.isLetter(c)) return 26;
+        return 33;
+    }
+
+    /**
+     * Caminhos no teclado QWERTY em que cada tecla é vizinha da anterior (qwer, asdf, 1qaz).
+     */
+    private static void matchSpatial(char[] chars, int from, int i, int n, Relaxer relax) {
+        int end = i + 1;
+        int shifted = isShifted(chars[from + i]) ? 1 : 0;
+        int turns = 0;
+        int lastDirection = 0;
+        while (end < n) {
+            int direction = adjacency(chars[from + end - 1], chars[from + end]);
+            if (direction == 0) break;
+            if (direction != lastDirection) turns++;
+            lastDirection = direction;
+            if (isShifted(chars[from + end])) shifted++;
+            end++;
+
+            int length = end - i;
+            if (length >= 3) {
+                // ~47 teclas iniciais, ~4 vizinhos por tecla e um fator por mudança de direção e por Shift.
+                double log10 = Math.log10(47) + (length - 1) * Math.log10(4)
+                        + turns * Math.log10(2) + (shifted > 0 ? Math.log10(2) : 0);
+                relax.apply(i, end, log10, SPATIAL);
+            }
+        }
+    }
+
+    private static boolean isShifted(char c) {
+        return c < 128 && KEY_ROW[c] >= 0 && SHIFTED_ROWS[KEY_ROW[c]].indexOf(c) >= 0;
+    }
+
+    /**
+     * Indica se 'b' é vizinha de 'a' no teclado (layout escalonado) e em qual direção.
+     *
+     * @return Um código de direção de 1 a 6, ou 0 se as teclas não forem vizinhas.
+     */
+    private static int adjacency(char a, char b) {
+        if (a >= 128 || b >= 128 || KEY_ROW[a] < 0 || KEY_ROW[b] < 0 || a == b) return 0;
+        int dr = KEY_ROW[b] - KEY_ROW[a];
+        int dc = KEY_COL[b] - KEY_COL[a];
+        if (dr == 0 && dc == 1) return 1;
+        if (dr == 0 && dc == -1) return 2;
+        if (dr == 1 && dc == -1) return 3; // Abaixo e à esquerda (ex.: "w" -> "a").
+        if (dr == 1 && dc == 0) return 4;  // Abaixo e à direita (ex.: "w" -> "s").
+        if (dr == -1 && dc == 0) return 5;
+        if (dr == -1 && dc == 1) return 6;
+        return 0;
+    }
+
+    /**
+     * Datas com 4 a 8 dígitos (ddmm, ddmmaa, ddmmaaaa, aaaammdd) ou com separadores
+     * ("12/05/1990"), além de anos isolados entre 1900 e 2039.
+     */
+    private static void matchDate(char[] chars, int from, int i, int n, Relaxer relax) {
+        if (!Character.isDigit(chars[from + i])) return;
+
+        int[] digits = new int[10];
+        int digitCount = 0;
+        char separator = 0;
+        int separators = 0;
+        int[] groupStart = new int[3];
+        for (int k = i; k < n && k - i < 10; k++) {
+            char c = chars[from + k];
+            if (Character.isDigit(c)) {
+                digits[digitCount++] = c - '0';
+            } else if ((c == '/' || c == '-' || c == '.' || c == ' ' || c == '_')
+                    && (separator == 0 || c == separator) && separators < 2) {
+                separator = c;
+                groupStart[++separators] = digitCount;
+                continue;
+            } else {
+                break;
+            }
+
+            int length = k - i + 1;
+            double yearsLog10 = dateLog10(digits, digitCount, separators, groupStart);
+            if (yearsLog10 > 0 && length >= 4) {
+                relax.apply(i, k + 1, yearsLog10, DATE);
+            }
+        }
+    }
+
+    // Retorna o custo em log10 se os dígitos formarem uma data plausível, ou 0 caso contrário.
+    private static double dateLog10(int[] d, int count, int separators, int[] groupStart) {
+        if (separators == 1) return 0;
+        if (separators == 2) {
+            int g1 = groupStart[1];
+            int g2 = groupStart[2];
+            int g3 = count - g2;
+            if (g1 < 1 || g1 > 4 || g2 - g1 < 1 || g2 - g1 > 2 || g3 < 1 || g3 > 4) return 0;
+            int a = number(d, 0, g1);
+            int b = number(d, g1, g2);
+            int c = number(d, g2, count);
+            return g1 == 4 ? dayMonthYear(c, b, a) : Math.max(dayMonthYear(a, b, c), dayMonthYear(b, a, c));
+        }
+        switch (count) {
+            case 4:
+                // Ano isolado ou ddmm/mmdd sem ano.
+                int year = number(d, 0, 4);
+                if (year >= 1900 && year <= 2039) return yearSpaceLog10(year);
+                return validDayMonth(number(d, 0, 2), number(d, 2, 4)) || validDayMonth(number(d, 2, 4), number(d, 0, 2))
+                        ? Math.log10(365) : 0;
+            case 6:
+                return Math.max(dayMonthYear(number(d, 0, 2), number(d, 2, 4), number(d, 4, 6)),
+                        dayMonthYear(number(d, 4, 6), number(d, 2, 4), number(d, 0, 2)));
+            case 8:
+                return Math.max(
+                        Math.max(dayMonthYear(number(d, 0, 2), number(d, 2, 4), number(d, 4, 8)),
+                                dayMonthYear(number(d, 2, 4), number(d, 0, 2), number(d, 4, 8))),
+                        dayMonthYear(number(d, 6, 8), number(d, 4, 6), number(d, 0, 4)));
+            default:
+                return 0;
+        }
+    }
+
+    private static double dayMonthYear(int day, int month, int year) {
+        if (!validDayMonth(day, month)) return 0;
+        if (year < 100) year += year > 39 ? 1900 : 2000;
+        if (year < 1900 || year > 2039) return 0;
+        return Math.log10(365) + yearSpaceLog10(year);
+    }
+
+    private static boolean validDayMonth(int day, int month) {
+        return day >= 1 && day <= 31 && month >= 1 && month <= 12;
+    }
+
+    // Quanto mais distante do ano de referência, mais anos o atacante precisa testar.
+    private static double yearSpaceLog10(int year) {
+        return Math.log10(Math.max(Math.abs(year - 2000), 20));
+    }
+
+    private static int number(int[] d, int start, int end) {
+        int value = 0;
+        for (int k = start; k < end; k++) {
+            value = value * 10 + d[k];
+        }
+        return value;
+    }
+}
@@ -1,9 +1,12 @@
 package com.securepm.util;
 
+import com.securepm.model.PasswordPolicy;
+
+import java.nio.CharBuffer;
 import java.security.SecureRandom;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilitário para a criação de senhas aleatórias que atendem a critérios de complexidade.
@@ -11,14 +14,14 @@ import java.util.List;
  */
 public class RandomPasswordUtil {
 
-    // Definição dos conjuntos de caracteres permitidos para a senha.
-    private static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
-    private static final String NUMERIC_CHARS = "0123456789";
-    private static final String SYMBOL_CHARS = "!@#$%^&*()-_=+<>?";
+    // Política histórica (ao menos um caractere de cada categoria), compilada uma única vez.
+    private static final CompiledPasswordPolicy DEFAULT_POLICY = new CompiledPasswordPolicy(PasswordPolicy.DEFAULT);
+
+    // Cache das políticas já compiladas; cada política distinta é compilada apenas uma vez.
+    private static final Map<PasswordPolicy, CompiledPasswordPolicy> COMPILED_POLICIES = new ConcurrentHashMap<>();
 
-    // Agrupamento de todos os caracteres válidos para a geração da maior parte da senha.
-    private static final String ALL_CHARS_ALLOWED = UPPERCASE_CHARS + LOWERCASE_CHARS + NUMERIC_CHARS + SYMBOL_CHARS;
+    // Quantidade de bytes aleatórios solicitados de uma só vez ao SecureRandom na geração em lote.
+    private static final int BULK_RANDOM_BATCH = 8192;
 
     // Instância única de SecureRandom para geração de números aleatórios de alta qualidade, ideal para criptografia.
     private static final SecureRandom randomGenerator = new SecureRandom();
@@ -34,50 +37,152 @@ public class RandomPasswordUtil {
      * que é o mínimo de segurança estabelecido.
      */
     public static String generate(int length) {
-        // Validação para reforçar uma política de senha com comprimento mínimo.
-        if (length < 8) {
-            throw new IllegalArgumentException("O comprimento mínimo da senha deve ser 8 caracteres.");
+        validateLength(length);
+        char[] password = new char[length];
+        // Para uma única senha, um lote do tamanho aproximado do consumo esperado é suficiente.
+        DEFAULT_POLICY.fillRandom(password, new RandomBytes(length * 2));
+        return new String(password);
+    }
+
+    /**
+     * Gera várias senhas de uma vez, cada uma com as mesmas garantias de complexidade de
+     * {@link #generate(int)}. Como o resultado fica em arrays de char, o chamador pode
+     * apagá-los (Arrays.fill) após o uso, sem deixar segredos no pool de Strings.
+     *
+     * @param length O número de caracteres de cada senha.
+     * @param count  A quantidade de senhas a serem geradas.
+     * @return Um array com 'count' senhas, cada uma em seu próprio char[].
+     * @throws IllegalArgumentException Se 'length' for menor que 8 ou 'count' for negativo.
+     */
+    public static char[][] generate(int length, int count) {
+        validateLength(length);
+        if (count < 0) {
+            throw new IllegalArgumentException("A quantidade de senhas não pode ser negativa.");
         }
 
-        StringBuilder passwordBuilder = new StringBuilder(length);
+        RandomBytes random = new RandomBytes(BULK_RANDOM_BATCH);
+        char[][] passwords = new char[count][];
+        for (int i = 0; i < count; i++) {
+            passwords[i] = new char[length];
+            DEFAULT_POLICY.fillRandom(passwords[i], random);
+        }
+        return passwords;
+    }
+
+    /**
+     * Variante de {@link #generate(int, int)} que escreve as senhas em sequência, sem
+     * separadores, diretamente no CharBuffer informado. A senha 'i' ocupa as posições
+     * [i * length, (i + 1) * length) a partir da posição atual do buffer.
+     *
+     * @param length O número de caracteres de cada senha.
+     * @param count  A quantidade de senhas a serem geradas.
+     * @param out    O buffer de destino; sua posição avança 'length * count' caracteres.
+     * @throws IllegalArgumentException Se 'length' for menor que 8 ou o buffer não tiver espaço suficiente.
+     */
+    public static void generate(int length, int count, CharBuffer out) {
+        validateLength(length);
+        if (count < 0 || out.remaining() < (long) length * count) {
+            throw new IllegalArgumentException("O buffer de destino não comporta " + count + " senhas de " + length + " caracteres.");
+        }
 
-        // 1. Garante a presença de pelo menos um caractere de cada categoria de complexidade.
-        passwordBuilder.append(UPPERCASE_CHARS.charAt(randomGenerator.nextInt(UPPERCASE_CHARS.length())));
-        passwordBuilder.append(LOWERCASE_CHARS.charAt(randomGenerator.nextInt(LOWERCASE_CHARS.length())));
-        passwordBuilder.append(NUMERIC_CHARS.charAt(randomGenerator.nextInt(NUMERIC_CHARS.length())));
-        passwordBuilder.append(SYMBOL_CHARS.charAt(randomGenerator.nextInt(SYMBOL_CHARS.length())));
+        RandomBytes random = new RandomBytes(BULK_RANDOM_BATCH);
+        char[] scratch = new char[length];
+        for (int i = 0; i < count; i++) {
+            DEFAULT_POLICY.fillRandom(scratch, random);
+            out.put(scratch);
+        }
+        // Apaga a cópia temporária da última senha gerada.
+        Arrays.fill(scratch, '\0');
+    }
 
-        // 2. Completa a senha até o tamanho desejado com caracteres aleatórios de todos os conjuntos.
-        for (int i = 4; i < length; i++) {
-            passwordBuilder.append(ALL_CHARS_ALLOWED.charAt(randomGenerator.nextInt(ALL_CHARS_ALLOWED.length())));
+    // Validação para reforçar uma política de senha com comprimento mínimo.
+    private static void validateLength(int length) {
+        if (length < 8) {
+            throw new IllegalArgumentException("O comprimento mínimo da senha deve ser 8 caracteres.");
         }
+    }
 
-        // 3. Embaralha o resultado final para que a posição dos caracteres garantidos seja aleatória.
-        return shuffleString(passwordBuilder.toString());
+    /**
+     * Gera uma senha seguindo a política informada, com o comprimento padrão da própria política.
+     *
+     * @param policy A política do serviço (modo, alfabetos e mínimos por categoria).
+     * @return A senha gerada em um char[], que pode ser apagado pelo chamador após o uso.
+     * @throws IllegalArgumentException Se a política não puder ser satisfeita.
+     */
+    public static char[] generate(PasswordPolicy policy) {
+        return generate(policy, policy.getLength());
     }
 
     /**
-     * Randomiza a ordem dos caracteres de uma string para evitar padrões previsíveis.
-     * Por exemplo, sem isso, a senha sempre começaria com um caractere de cada tipo na mesma ordem.
+     * Gera uma senha seguindo a política informada, com um comprimento específico.
+     * No modo PASSPHRASE o comprimento é determinado pelas palavras sorteadas e o
+     * parâmetro é ignorado.
      *
-     * @param inputString A string a ser embaralhada.
-     * @return Uma nova string com os caracteres da original em ordem aleatória.
+     * @param policy A política do serviço.
+     * @param length O comprimento desejado.
+     * @return A senha gerada em um char[].
+     * @throws IllegalArgumentException Se o comprimento violar a política ou a política não puder ser satisfeita.
      */
-    private static String shuffleString(String inputString) {
-        List<Character> characters = new ArrayList<>();
-        for (char c : inputString.toCharArray()) {
-            characters.add(c);
+    public static char[] generate(PasswordPolicy policy, int length) {
+        return compile(policy).generate(length, new RandomBytes(Math.max(length, 32) * 2));
+    }
+
+    /**
+     * Retorna a forma compilada da política, compilando-a na primeira utilização.
+     */
+    static CompiledPasswordPolicy compile(PasswordPolicy policy) {
+        if (PasswordPolicy.DEFAULT.equals(policy)) {
+            return DEFAULT_POLICY;
         }
+        return COMPILED_POLICIES.computeIfAbsent(policy, CompiledPasswordPolicy::new);
+    }
+
+    /**
+     * Fonte de índices aleatórios que consome bytes do SecureRandom em lotes, em vez de
+     * uma chamada nextInt() por caractere. Os índices são obtidos por amostragem com
+     * rejeição, o que mantém a distribuição uniforme (sem viés de módulo).
+     */
+    static final class RandomBytes {
+        private final byte[] buffer;
+        private int position;
 
-        // Utiliza o método de embaralhamento da classe Collections, que implementa uma
-        // variação eficiente do algoritmo de Fisher-Yates.
-        Collections.shuffle(characters, randomGenerator);
+        RandomBytes(int batchSize) {
+            this.buffer = new byte[Math.max(batchSize, 16)];
+            this.position = buffer.length; // Força o preenchimento na primeira leitura.
+        }
 
-        StringBuilder shuffled = new StringBuilder(characters.size());
-        for (char c : characters) {
-            shuffled.append(c);
+        // Retorna o próximo byte aleatório (0-255), reabastecendo o lote quando necessário.
+        private int nextByte() {
+            if (position == buffer.length) {
+                randomGenerator.nextBytes(buffer);
+                position = 0;
+            }
+            return buffer[position++] & 0xFF;
         }
 
-        return shuffled.toString();
+        /**
+         * Retorna um índice uniforme no intervalo [0, bound).
+         * Valores acima do maior múltiplo de 'bound' são descartados para evitar viés.
+         */
+        int nextIndex(int bound) {
+            if (bound <= 256) {
+                int limit = 256 - (256 % bound);
+                int value;
+                do {
+                    value = nextByte();
+                } while (value >= limit);
+                return value % bound;
+            }
+            if (bound <= 65536) {
+                int limit = 65536 - (65536 % bound);
+                int value;
+                do {
+                    value = (nextByte() << 8) | nextByte();
+                } while (value >= limit);
+                return value % bound;
+            }
+            // Comprimentos extremos (acima de 65536) recorrem diretamente ao SecureRandom.
+            return randomGenerator.nextInt(bound);
+        }
     }
-}
\ No newline at end of file
+}
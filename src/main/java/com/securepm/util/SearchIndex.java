@@ -0,0 +1,570 @@
+package com.securepm.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Índice de busca em memória sobre o nome do serviço e o usuário das credenciais,
+ * mantido de forma incremental (inclusões e remoções não exigem reconstrução). Remover um
+ * documento retira os seus postings na hora; os termos que ficam sem documentos são
+ * descartados quando passam a ser a maioria.
+ *
+ * Os documentos são números escolhidos por quem usa o índice (no VaultService, as linhas da
+ * tabela de credenciais), de modo que o índice não guarda cópias dos IDs; quando esses
+ * números mudam, {@link #renumber(int[])} atualiza os postings.
+ *
+ * Estruturas:
+ * - dicionário de termos (valores normalizados distintos) com a lista de documentos de cada termo;
+ * - array de termos ordenado, para busca por prefixo com pesquisa binária;
+ * - índice de trigramas dos termos, para busca aproximada, confirmada por distância de
+ *   edição limitada (Levenshtein com banda, contando transposições como um erro).
+ *
+ * Os resultados são ordenados por relevância: correspondência exata, prefixo e aproximada.
+ * Buscas simultâneas são seguras; inclusões, remoções e renumerações exigem acesso exclusivo
+ * (no VaultService, a trava de escrita).
+ */
+public class SearchIndex {
+
+    // Campos indexados, gravados no bit menos significativo de cada posting.
+    public static final int FIELD_SERVICE = 0;
+    public static final int FIELD_USERNAME = 1;
+
+    // Tipos de correspondência, em ordem de relevância.
+    public enum MatchType { EXACT, PREFIX, FUZZY }
+
+    /**
+     * Um resultado da busca: o documento, o campo e o tipo de correspondência encontrados.
+     */
+    public static final class Hit {
+        private final int doc;
+        private final int field;
+        private final MatchType matchType;
+        private final int distance;
+        private final double score;
+
+        Hit(int doc, int field, MatchType matchType, int distance, double score) {
+            this.doc = doc;
+            this.field = field;
+            this.matchType = matchType;
+            this.distance = distance;
+            this.score = score;
+        }
+
+        public int getDoc() {
+            return doc;
+        }
+
+        public int getField() {
+            return field;
+        }
+
+        public MatchType getMatchType() {
+            return matchType;
+        }
+
+        // Distância de edição para correspondências aproximadas (0 nas demais).
+        public int getDistance() {
+            return distance;
+        }
+
+        // Pontuação de relevância; quanto maior, mais relevante.
+        public double getScore() {
+            return score;
+        }
+    }
+
+    // Termos vazios tolerados antes de uma compactação do dicionário.
+    private static final int MIN_DEAD_TERMS_TO_COMPACT = 64;
+
+    // Valores de 'docTerms': campo vazio e documento fora do índice.
+    private static final int EMPTY = -1;
+    private static final int ABSENT = -2;
+
+    // Termo de cada campo de cada documento (doc * 2 + campo), EMPTY se o campo estiver vazio
+    // ou ABSENT se o documento não estiver indexado.
+    private int[] docTerms = absentDocs(64);
+    private int liveDocs;
+
+    // Dicionário de termos e, para cada termo, seus postings (doc << 1 | campo). O termo é
+    // localizado por uma tabela hash de endereçamento aberto sobre a própria lista (ID + 1;
+    // 0 indica posição vazia), sem um objeto de entrada por termo.
+    private final List<String> terms = new ArrayList<>();
+    private int[] termSlots = new int[128];
+    private final List<IntList> postings = new ArrayList<>();
+
+    // Termos cuja lista de postings ficou vazia após remoções.
+    private int deadTerms;
+
+    // IDs dos termos ordenados alfabeticamente; termos novos aguardam em 'pendingTerms'
+    // e são intercalados na próxima busca.
+    private int[] sortedTerms = new int[64];
+    private int sortedCount;
+    private IntList pendingTerms = new IntList();
+
+    // Contadores de trigramas em comum, reaproveitados entre buscas (zerados após cada uso);
+    // cada busca em andamento usa o seu.
+    private final ConcurrentLinkedQueue<int[]> gramCounters = new ConcurrentLinkedQueue<>();
+
+    // Trigramas (três chars empacotados e embaralhados em um long) -> IDs dos termos que os contêm.
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+
+    /**
+     * Indexa (ou reindexa) um documento.
+     *
+     * @param doc         O número do documento (não negativo).
+     * @param serviceName O nome do serviço em texto claro.
+     * @param username    O nome de usuário em texto claro.
+     */
+    public void add(int doc, String serviceName, String username) {
+        remove(doc);
+        if (docTerms.length < (doc + 1) * 2) {
+            int length = Math.max(docTerms.length * 2, (doc + 1) * 2);
+            int old = docTerms.length;
+            docTerms = Arrays.copyOf(docTerms, length);
+            Arrays.fill(docTerms, old, length, ABSENT);
+        }
+        liveDocs++;
+        docTerms[doc * 2 + FIELD_SERVICE] = addPosting(BlindIndexUtil.normalize(serviceName), doc, FIELD_SERVICE);
+        docTerms[doc * 2 + FIELD_USERNAME] = addPosting(BlindIndexUtil.normalize(username), doc, FIELD_USERNAME);
+    }
+
+    /**
+     * Remove um documento do índice, retirando os seus postings dos termos em que aparece.
+     *
+     * @return 'true' se o documento estava indexado.
+     */
+    public boolean remove(int doc) {
+        if (!contains(doc)) return false;
+        for (int field = FIELD_SERVICE; field <= FIELD_USERNAME; field++) {
+            int term = docTerms[doc * 2 + field];
+            if (term >= 0) removePosting(term, doc << 1 | field);
+            docTerms[doc * 2 + field] = ABSENT;
+        }
+        liveDocs--;
+        if (deadTerms >= MIN_DEAD_TERMS_TO_COMPACT && deadTerms * 2 > terms.size()) {
+            compactTerms();
+        }
+        return true;
+    }
+
+    // Quantidade de documentos ativos no índice.
+    public int size() {
+        return liveDocs;
+    }
+
+    // Indica se o documento está indexado.
+    public boolean contains(int doc) {
+        return doc >= 0 && doc * 2 < docTerms.length && docTerms[doc * 2] != ABSENT;
+    }
+
+    /**
+     * Renumera os documentos, preservando os postings e a ordem de cada lista.
+     *
+     * @param remap Para cada número atual, o novo número, ou -1 para retirar o documento;
+     *              documentos além do fim do array também são retirados.
+     */
+    public void renumber(int[] remap) {
+        for (int doc = 0; doc * 2 < docTerms.length; doc++) {
+            if (contains(doc) && (doc >= remap.length || remap[doc] < 0)) remove(doc);
+        }
+        int maxDoc = -1;
+        for (int target : remap) maxDoc = Math.max(maxDoc, target);
+        int[] renumbered = absentDocs(Math.max(64, (maxDoc + 1) * 2));
+        for (int doc = 0; doc < remap.length && doc * 2 < docTerms.length; doc++) {
+            if (remap[doc] < 0) continue;
+            renumbered[remap[doc] * 2 + FIELD_SERVICE] = docTerms[doc * 2 + FIELD_SERVICE];
+            renumbered[remap[doc] * 2 + FIELD_USERNAME] = docTerms[doc * 2 + FIELD_USERNAME];
+        }
+        docTerms = renumbered;
+        for (IntList list : postings) {
+            for (int k = 0; k < list.size; k++) {
+                int posting = list.values[k];
+                list.values[k] = remap[posting >>> 1] << 1 | (posting & 1);
+            }
+        }
+    }
+
+    /**
+     * Documentos cujo campo tem exatamente o valor informado, depois de normalizado (sem
+     * diferenciar maiúsculas e acentos), na ordem em que foram indexados.
+     */
+    public int[] docsWithTerm(String value, int field) {
+        int term = termId(BlindIndexUtil.normalize(value));
+        if (term < 0) return new int[0];
+        IntList list = postings.get(term);
+        IntList docs = new IntList();
+        for (int k = 0; k < list.size; k++) {
+            if ((list.values[k] & 1) == field) docs.add(list.values[k] >>> 1);
+        }
+        return Arrays.copyOf(docs.values, docs.size);
+    }
+
+    /**
+     * Busca documentos cujo serviço ou usuário corresponda à consulta, exatamente, por
+     * prefixo ou de forma aproximada (até 1 erro em termos curtos e 2 em termos longos).
+     *
+     * @param query A consulta digitada pelo usuário.
+     * @param limit Quantidade máxima de resultados.
+     * @return Os resultados, do mais relevante para o menos relevante, um por documento.
+     */
+    public List<Hit> search(String query, int limit) {
+        String q = BlindIndexUtil.normalize(query);
+        List<Hit> hits = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) return hits;
+        synchronized (this) {
+            // A primeira busca após as inclusões intercala os termos novos; as demais só esperam.
+            mergePendingTerms();
+        }
+
+        // 1. Prefixo (inclui a correspondência exata): intervalo contíguo no array ordenado.
+        List<TermMatch> matches = new ArrayList<>();
+        int prefixDocs = 0;
+        for (int i = lowerBound(q); i < sortedCount; i++) {
+            int term = sortedTerms[i];
+            String text = terms.get(term);
+            if (!text.startsWith(q)) break;
+            boolean exact = text.length() == q.length();
+            // Termos mais curtos (mais próximos da consulta) ficam à frente.
+            double score = exact ? 3.0 : 2.0 + (double) q.length() / text.length();
+            // Os postings só contêm documentos ativos, então o tamanho da lista já é a contagem.
+            matches.add(new TermMatch(term, exact ? MatchType.EXACT : MatchType.PREFIX, 0, score));
+            prefixDocs += postings.get(term).size;
+        }
+
+        // 2. Aproximada: só é necessária se os prefixos não preencheram o limite, pois sempre
+        //    pontua abaixo deles. Candidatos pelo número de trigramas em comum, confirmados por Levenshtein.
+        if (prefixDocs < limit && q.length() >= 3) {
+            int maxDistance = q.length() <= 4 ? 1 : 2;
+            long[] queryGrams = trigramsOf(q);
+            int[] sharedGrams = gramCounters.poll();
+            if (sharedGrams == null || sharedGrams.length < terms.size()) {
+                sharedGrams = new int[terms.size() + terms.size() / 2];
+            }
+            IntList touched = new IntList();
+            for (long gram : queryGrams) {
+                IntList list = trigrams.get(gram);
+                if (list == null) continue;
+                for (int k = 0; k < list.size; k++) {
+                    int term = list.values[k];
+                    if (sharedGrams[term]++ == 0) touched.add(term);
+                }
+            }
+            // Cada edição altera no máximo 3 trigramas da consulta (4 em uma transposição).
+            int minShared = Math.max(1, queryGrams.length - 4 * maxDistance);
+            for (int k = 0; k < touched.size; k++) {
+                int term = touched.values[k];
+                int shared = sharedGrams[term];
+                sharedGrams[term] = 0;
+                String text = terms.get(term);
+                if (shared < minShared || Math.abs(text.length() - q.length()) > maxDistance) continue;
+                int distance = boundedLevenshtein(q, text, maxDistance);
+                if (distance > 0 && distance <= maxDistance) {
+                    matches.add(new TermMatch(term, MatchType.FUZZY, distance, 1.0 - distance / (double) (maxDistance + 1)));
+                }
+            }
+            gramCounters.offer(sharedGrams);
+        }
+
+        // 3. Percorre os termos do mais relevante para o menos relevante; a primeira ocorrência
+        //    de um documento é sempre a sua melhor, então basta parar ao atingir o limite.
+        matches.sort((a, b) -> Double.compare(b.score, a.score));
+        Set<Integer> seen = new HashSet<>();
+        for (TermMatch match : matches) {
+            IntList list = postings.get(match.term);
+            for (int k = 0; k < list.size && hits.size() < limit; k++) {
+                int posting = list.values[k];
+                int doc = posting >>> 1;
+                if (!seen.add(doc)) continue;
+                hits.add(new Hit(doc, posting & 1, match.type, match.distance, match.score));
+            }
+            if (hits.size() >= limit) break;
+        }
+        return hits;
+    }
+
+    // Um termo que corresponde à consulta, com o tipo e a pontuação da correspondência.
+    private static final class TermMatch {
+        final int term;
+        final MatchType type;
+        final int distance;
+        final double score;
+
+        TermMatch(int term, MatchType type, int distance, double score) {
+            this.term = term;
+            this.type = type;
+            this.distance = distance;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Estima a memória ocupada pelo índice, em bytes, somando o tamanho aproximado de
+     * strings, arrays e entradas de HashMap (cabeçalhos de objeto de 16 bytes e
+     * referências comprimidas de 4 bytes).
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        // Documentos: o termo de cada campo.
+        bytes += 16 + docTerms.length * 4L;
+        // Termos: String (cabeçalho + array de bytes) + referência na lista + postings.
+        bytes += 16 + termSlots.length * 4L;
+        for (int t = 0; t < terms.size(); t++) {
+            bytes += 24 + 16 + terms.get(t).length() + 4;
+            bytes += 16 + 16 + postings.get(t).values.length * 4L;
+        }
+        bytes += 16 + sortedTerms.length * 4L + 16 + pendingTerms.values.length * 4L;
+        for (int[] counters : gramCounters) {
+            bytes += 16 + counters.length * 4L;
+        }
+        for (IntList list : trigrams.values()) {
+            bytes += 32 + 24 + 16 + 16 + list.values.length * 4L;
+        }
+        return bytes;
+    }
+
+    private static int[] absentDocs(int length) {
+        int[] docs = new int[length];
+        Arrays.fill(docs, ABSENT);
+        return docs;
+    }
+
+    // Acrescenta o posting ao termo (criando-o se necessário) e devolve o ID do termo, ou EMPTY se vazio.
+    private int addPosting(String term, int doc, int field) {
+        if (term.isEmpty()) return EMPTY;
+        int found = termId(term);
+        boolean created = found < 0;
+        int id = created ? terms.size() : found;
+        if (created) {
+            terms.add(term);
+            insertTermSlot(id);
+            postings.add(new IntList());
+            pendingTerms.add(id);
+            for (long gram : trigramsOf(term)) {
+                trigrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+            }
+        }
+        IntList list = postings.get(id);
+        if (list.size == 0 && !created) deadTerms--;
+        list.add(doc << 1 | field);
+        return id;
+    }
+
+    // ID do termo, ou -1 se ele não estiver no dicionário.
+    private int termId(String term) {
+        int mask = termSlots.length - 1;
+        for (int slot = spread(term.hashCode()) & mask; termSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = termSlots[slot] - 1;
+            if (terms.get(id).equals(term)) return id;
+        }
+        return -1;
+    }
+
+    // Insere o termo na tabela hash, dobrando-a para manter no máximo 50% de ocupação.
+    private void insertTermSlot(int id) {
+        if (terms.size() * 2 > termSlots.length) {
+            termSlots = new int[termSlots.length * 2];
+            for (int t = 0; t < terms.size(); t++) {
+                if (t != id) placeTermSlot(t);
+            }
+        }
+        placeTermSlot(id);
+    }
+
+    private void placeTermSlot(int id) {
+        int mask = termSlots.length - 1;
+        int slot = spread(terms.get(id).hashCode()) & mask;
+        while (termSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        termSlots[slot] = id + 1;
+    }
+
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    // Retira o posting do termo, preservando a ordem dos demais.
+    private void removePosting(int term, int posting) {
+        IntList list = postings.get(term);
+        for (int k = 0; k < list.size; k++) {
+            if (list.values[k] == posting) {
+                System.arraycopy(list.values, k + 1, list.values, k, list.size - k - 1);
+                list.size--;
+                if (list.size == 0) deadTerms++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Descarta os termos sem documentos: renumera os demais, preservando a ordem alfabética,
+     * e reconstrói o mapa de termos e o índice de trigramas.
+     */
+    private void compactTerms() {
+        mergePendingTerms();
+        int[] remap = new int[terms.size()];
+        List<String> keptTerms = new ArrayList<>(terms.size() - deadTerms);
+        List<IntList> keptPostings = new ArrayList<>(terms.size() - deadTerms);
+        trigrams.clear();
+        for (int t = 0; t < terms.size(); t++) {
+            if (postings.get(t).size == 0) {
+                remap[t] = -1;
+                continue;
+            }
+            int id = keptTerms.size();
+            remap[t] = id;
+            keptTerms.add(terms.get(t));
+            keptPostings.add(postings.get(t));
+            for (long gram : trigramsOf(terms.get(t))) {
+                trigrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+            }
+        }
+        terms.clear();
+        terms.addAll(keptTerms);
+        postings.clear();
+        postings.addAll(keptPostings);
+        Arrays.fill(termSlots, 0);
+        for (int t = 0; t < terms.size(); t++) {
+            insertTermSlot(t);
+        }
+
+        int out = 0;
+        for (int i = 0; i < sortedCount; i++) {
+            int id = remap[sortedTerms[i]];
+            if (id >= 0) sortedTerms[out++] = id;
+        }
+        sortedCount = out;
+        for (int doc = 0; doc * 2 < docTerms.length; doc++) {
+            if (!contains(doc)) continue;
+            for (int field = FIELD_SERVICE; field <= FIELD_USERNAME; field++) {
+                int term = docTerms[doc * 2 + field];
+                if (term >= 0) docTerms[doc * 2 + field] = remap[term];
+            }
+        }
+        deadTerms = 0;
+    }
+
+    /**
+     * Intercala no array ordenado os termos criados desde a última busca. Ordenar apenas os
+     * novos termos e intercalar custa O(n + p log p), em vez de O(n) por termo inserido.
+     */
+    private void mergePendingTerms() {
+        if (pendingTerms.size == 0) return;
+        Integer[] pending = new Integer[pendingTerms.size];
+        for (int k = 0; k < pending.length; k++) {
+            pending[k] = pendingTerms.values[k];
+        }
+        Arrays.sort(pending, (a, b) -> terms.get(a).compareTo(terms.get(b)));
+
+        int[] merged = new int[Math.max(64, (sortedCount + pending.length) * 5 / 4)];
+        int i = 0;
+        int j = 0;
+        int out = 0;
+        while (i < sortedCount || j < pending.length) {
+            if (j == pending.length
+                    || (i < sortedCount && terms.get(sortedTerms[i]).compareTo(terms.get(pending[j])) <= 0)) {
+                merged[out++] = sortedTerms[i++];
+            } else {
+                merged[out++] = pending[j++];
+            }
+        }
+        sortedTerms = merged;
+        sortedCount = out;
+        pendingTerms = new IntList();
+    }
+
+    // Primeira posição do array ordenado cujo termo é maior ou igual a 'key'.
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = sortedCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms.get(sortedTerms[mid]).compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Trigramas distintos do termo, com marcadores de início e fim para valorizar as bordas.
+    private static long[] trigramsOf(String term) {
+        String padded = "\u0002" + term + "\u0003";
+        long[] grams = new long[Math.max(0, padded.length() - 2)];
+        int count = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long packed = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            // Multiplicar por uma constante ímpar é bijetivo e espalha os bits: sem isso,
+            // Long.hashCode() gera muitas colisões entre trigramas no HashMap.
+            long gram = packed * 0x9E3779B97F4A7C15L;
+            boolean seen = false;
+            for (int k = 0; k < count && !seen; k++) {
+                seen = grams[k] == gram;
+            }
+            if (!seen) grams[count++] = gram;
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+    /**
+     * Distância de edição (Levenshtein com transposição de caracteres vizinhos, que conta
+     * como um único erro: "gihtub" -> "github") calculada apenas dentro de uma banda
+     * diagonal de largura 2 * max + 1. Retorna max + 1 assim que o limite é excedido.
+     */
+    static int boundedLevenshtein(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        int big = max + 1;
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) previous[j] = j <= max ? j : big;
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = i <= max ? i : big;
+            if (from > 1) current[from - 1] = big;
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(value, big);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) current[to + 1] = big;
+            if (rowMin > max) return big;
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
+    /**
+     * Lista de inteiros primitivos que cresce sob demanda (evita boxing em Integer).
+     */
+    static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.securepm.util;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversão tipada das coleções lidas com ObjectInputStream. Em vez de um cast sem
+ * verificação para List&lt;T&gt; ou Map&lt;K, V&gt;, cada elemento é conferido contra o tipo
+ * esperado, de modo que um arquivo com conteúdo inesperado falha na leitura (com uma
+ * InvalidObjectException) e não mais tarde, longe da origem do problema.
+ */
+public final class SerializationUtil {
+
+    private SerializationUtil() {
+    }
+
+    /**
+     * Converte o objeto lido em uma lista com elementos do tipo informado.
+     *
+     * @param value       O objeto desserializado.
+     * @param elementType O tipo esperado de cada elemento (elementos nulos são aceitos).
+     * @return Uma nova lista com os mesmos elementos.
+     * @throws InvalidObjectException Se o objeto não for uma lista ou algum elemento tiver outro tipo.
+     */
+    public static <E> ArrayList<E> toList(Object value, Class<E> elementType) throws InvalidObjectException {
+        if (!(value instanceof List)) {
+            throw new InvalidObjectException("Esperava uma lista, mas o arquivo contém " + typeOf(value) + ".");
+        }
+        List<?> source = (List<?>) value;
+        ArrayList<E> result = new ArrayList<>(source.size());
+        for (Object element : source) {
+            result.add(cast(element, elementType));
+        }
+        return result;
+    }
+
+    /**
+     * Converte o objeto lido em um mapa com chaves e valores dos tipos informados.
+     *
+     * @param value     O objeto desserializado.
+     * @param keyType   O tipo esperado das chaves.
+     * @param valueType O tipo esperado dos valores (valores nulos são aceitos).
+     * @return Um novo mapa com as mesmas entradas.
+     * @throws InvalidObjectException Se o objeto não for um mapa ou alguma entrada tiver outro tipo.
+     */
+    public static <K, V> HashMap<K, V> toMap(Object value, Class<K> keyType, Class<V> valueType) throws InvalidObjectException {
+        if (!(value instanceof Map)) {
+            throw new InvalidObjectException("Esperava um mapa, mas o arquivo contém " + typeOf(value) + ".");
+        }
+        Map<?, ?> source = (Map<?, ?>) value;
+        HashMap<K, V> result = new HashMap<>(Math.max(16, source.size() * 4 / 3 + 1));
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            result.put(cast(entry.getKey(), keyType), cast(entry.getValue(), valueType));
+        }
+        return result;
+    }
+
+    private static <T> T cast(Object element, Class<T> type) throws InvalidObjectException {
+        if (element != null && !type.isInstance(element)) {
+            throw new InvalidObjectException("Esperava " + type.getSimpleName() + ", mas o arquivo contém " + typeOf(element) + ".");
+        }
+        return type.cast(element);
+    }
+
+    private static String typeOf(Object value) {
+        return value == null ? "null" : value.getClass().getName();
+    }
+}
@@ -0,0 +1,187 @@
+package com.securepm.util;
+
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+
+/**
+ * Criptografia do compartilhamento de credenciais entre usuários:
+ *
+ * - cada usuário tem um par de chaves X25519 (XDH do próprio JDK);
+ * - o conteúdo compartilhado é cifrado uma única vez com AES-GCM, com uma chave de conteúdo
+ *   aleatória;
+ * - a chave de conteúdo é embrulhada para cada destinatário: um par de chaves efêmero faz o
+ *   acordo X25519 com a chave pública do destinatário, o segredo comum vira a chave de
+ *   embrulho (HMAC-SHA256) e a chave de conteúdo é cifrada com ela em AES-GCM. Só o dono da
+ *   chave privada correspondente refaz o acordo e desembrulha a chave.
+ *
+ * Num grupo, o mesmo par efêmero pode servir a todos os destinatários de uma mesma chave de
+ * conteúdo ({@link #wrap(SecretKey, PublicKey, byte[], KeyPair)}): o segredo comum continua
+ * diferente para cada um, a chave de embrulho inclui a chave pública do destinatário, e o
+ * custo por destinatário cai para um único acordo X25519.
+ *
+ * Os dados autenticados ('aad') amarram cada texto cifrado ao compartilhamento, ao
+ * destinatário e à versão da chave, para que um embrulho não possa ser copiado para outro lugar.
+ */
+public class ShareCryptoUtil {
+
+    private static final String KEY_ALGORITHM = "X25519";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // Finalidade da derivação da chave de embrulho a partir do segredo comum.
+    private static final byte[] WRAP_PURPOSE = "securepm/share-wrap/v1".getBytes(StandardCharsets.UTF_8);
+
+    private static final int IV_LENGTH_BYTES = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int CONTENT_KEY_BYTES = 32;
+
+    // Tamanho da chave pública X25519 codificada (X.509), que abre cada chave embrulhada.
+    private static final int PUBLIC_KEY_LENGTH = 44;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Latência do embrulho da chave de conteúdo para um destinatário (acordo X25519 e AES-GCM).
+    private static final LatencyHistogram WRAP_LATENCY = Metrics.histogram("x25519_wrap", "Embrulho X25519 da chave de conteúdo para um destinatário.");
+
+    /**
+     * Gera um novo par de chaves X25519.
+     */
+    public static KeyPair generateKeyPair() throws GeneralSecurityException {
+        return KeyPairGenerator.getInstance(KEY_ALGORITHM).generateKeyPair();
+    }
+
+    public static PublicKey decodePublicKey(byte[] encoded) throws GeneralSecurityException {
+        return KeyFactory.getInstance(KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    public static PrivateKey decodePrivateKey(byte[] encoded) throws GeneralSecurityException {
+        return KeyFactory.getInstance(KEY_ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(encoded));
+    }
+
+    /**
+     * Gera uma chave de conteúdo AES-256 aleatória.
+     */
+    public static SecretKey generateContentKey() {
+        byte[] key = new byte[CONTENT_KEY_BYTES];
+        RANDOM.nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Cifra os dados com AES-GCM.
+     *
+     * @return O IV seguido do texto cifrado e da etiqueta de autenticação.
+     */
+    public static byte[] seal(byte[] plain, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH_BYTES];
+        RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(aad);
+        byte[] sealed = Arrays.copyOf(iv, IV_LENGTH_BYTES + cipher.getOutputSize(plain.length));
+        cipher.doFinal(plain, 0, plain.length, sealed, IV_LENGTH_BYTES);
+        return sealed;
+    }
+
+    /**
+     * Decifra dados cifrados por {@link #seal(byte[], SecretKey, byte[])}.
+     *
+     * @throws GeneralSecurityException Se a chave ou os dados autenticados não conferirem, ou se
+     *                                  o texto cifrado tiver sido alterado.
+     */
+    public static byte[] open(byte[] sealed, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH_BYTES));
+        cipher.updateAAD(aad);
+        return cipher.doFinal(sealed, IV_LENGTH_BYTES, sealed.length - IV_LENGTH_BYTES);
+    }
+
+    /**
+     * Embrulha a chave de conteúdo para um destinatário.
+     *
+     * @param contentKey A chave de conteúdo.
+     * @param recipient  A chave pública X25519 do destinatário.
+     * @param aad        Os dados autenticados (compartilhamento, destinatário e versão da chave).
+     * @return A chave pública efêmera seguida da chave de conteúdo cifrada.
+     */
+    public static byte[] wrap(SecretKey contentKey, PublicKey recipient, byte[] aad) throws GeneralSecurityException {
+        return wrap(contentKey, recipient, aad, generateKeyPair());
+    }
+
+    /**
+     * Embrulha a chave de conteúdo para um destinatário com um par efêmero já gerado,
+     * compartilhado pelos destinatários da mesma chave de conteúdo.
+     *
+     * @param ephemeral O par efêmero X25519; nunca deve ser reaproveitado para outra chave de conteúdo.
+     */
+    public static byte[] wrap(SecretKey contentKey, PublicKey recipient, byte[] aad, KeyPair ephemeral)
+            throws GeneralSecurityException {
+        long start = System.nanoTime();
+        // 1. Acordo de chaves do par efêmero com o destinatário.
+        byte[] ephemeralPublic = ephemeral.getPublic().getEncoded();
+        SecretKey wrappingKey = wrappingKey(ephemeral.getPrivate(), recipient, ephemeralPublic, recipient.getEncoded());
+
+        // 2. Cifra a chave de conteúdo e a anexa à chave pública efêmera.
+        byte[] sealed = seal(contentKey.getEncoded(), wrappingKey, aad);
+        byte[] wrapped = Arrays.copyOf(ephemeralPublic, ephemeralPublic.length + sealed.length);
+        System.arraycopy(sealed, 0, wrapped, ephemeralPublic.length, sealed.length);
+        WRAP_LATENCY.recordSince(start);
+        return wrapped;
+    }
+
+    /**
+     * Desembrulha a chave de conteúdo com a chave privada do destinatário.
+     *
+     * @param wrapped         O resultado de {@link #wrap(SecretKey, PublicKey, byte[])}.
+     * @param recipientKey    A chave privada X25519 do destinatário.
+     * @param recipientPublic A chave pública do destinatário, codificada.
+     * @param aad             Os mesmos dados autenticados usados no embrulho.
+     */
+    public static SecretKey unwrap(byte[] wrapped, PrivateKey recipientKey, byte[] recipientPublic, byte[] aad)
+            throws GeneralSecurityException {
+        if (wrapped.length <= PUBLIC_KEY_LENGTH) {
+            throw new GeneralSecurityException("Chave embrulhada incompleta.");
+        }
+        byte[] ephemeralPublic = Arrays.copyOf(wrapped, PUBLIC_KEY_LENGTH);
+        SecretKey wrappingKey = wrappingKey(recipientKey, decodePublicKey(ephemeralPublic), ephemeralPublic, recipientPublic);
+        byte[] key = open(Arrays.copyOfRange(wrapped, PUBLIC_KEY_LENGTH, wrapped.length), wrappingKey, aad);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    // Acordo X25519 e derivação da chave de embrulho, amarrada às duas chaves públicas envolvidas.
+    private static SecretKey wrappingKey(PrivateKey privateKey, PublicKey publicKey, byte[] ephemeralPublic,
+                                         byte[] recipientPublic) throws GeneralSecurityException {
+        KeyAgreement agreement = KeyAgreement.getInstance(KEY_ALGORITHM);
+        agreement.init(privateKey);
+        agreement.doPhase(publicKey, true);
+        byte[] secret = agreement.generateSecret();
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            mac.update(WRAP_PURPOSE);
+            mac.update(ephemeralPublic);
+            mac.update(recipientPublic);
+            return new SecretKeySpec(mac.doFinal(), "AES");
+        } finally {
+            Arrays.fill(secret, (byte) 0);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.securepm.util;
 
 import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
+import com.securepm.metrics.Counter;
+import com.securepm.metrics.LatencyHistogram;
+import com.securepm.metrics.Metrics;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -23,6 +26,10 @@ public class TwoFactorCodeUtils {
     // Tamanho da chave secreta em bits, 160 bits é o padrão para SHA-1.
     private static final int SECRET_KEY_BITS = 160;
 
+    // Latência da verificação (até três janelas) e quantidade de códigos recusados.
+    private static final LatencyHistogram VERIFY_LATENCY = Metrics.histogram("totp_verify", "Verificação de um código TOTP.");
+    private static final Counter REJECTED = Metrics.counter("totp_rejected", "Códigos TOTP recusados.");
+
     /**
      * Cria uma nova chave secreta criptográfica e a codifica para o formato Base32.
      * O formato Base32 é usado para permitir que a chave seja facilmente digitada ou
@@ -51,6 +58,17 @@ public class TwoFactorCodeUtils {
      * @throws InvalidKeyException Se a chave secreta fornecida for inválida.
      */
     public static boolean verifyTOTPCode(String base32Secret, String code) throws InvalidKeyException {
+        long start = System.nanoTime();
+        boolean valid = matchesAnyWindow(base32Secret, code);
+        VERIFY_LATENCY.recordSince(start);
+        if (!valid) {
+            REJECTED.increment();
+        }
+        return valid;
+    }
+
+    // Confere o código na janela atual e nas vizinhas.
+    private static boolean matchesAnyWindow(String base32Secret, String code) throws InvalidKeyException {
         byte[] keyBytes = Base32Encoder.decode(base32Secret);
         SecretKeySpec secretKey = new SecretKeySpec(keyBytes, TOTP_ALGORITHM);
         TimeBasedOneTimePasswordGenerator totp = new TimeBasedOneTimePasswordGenerator();
@@ -0,0 +1,120 @@
+package com.securepm.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Lista de palavras usada na geração de frases-senha (modo diceware).
+ * As palavras ficam fora do heap: os caracteres (ASCII) em um único ByteBuffer direto
+ * e os deslocamentos de cada palavra em um IntBuffer direto. Assim, a lista é carregada
+ * uma única vez e não gera milhares de objetos String para o coletor de lixo.
+ */
+final class WordList {
+
+    // Recurso do classpath com uma palavra por linha, em letras minúsculas.
+    private static final String RESOURCE = "/wordlist.txt";
+
+    // Caracteres de todas as palavras, concatenados sem separadores.
+    private final ByteBuffer chars;
+
+    // offsets[i] marca o início da palavra 'i'; offsets[size] marca o fim da última.
+    private final IntBuffer offsets;
+
+    private final int size;
+
+    private WordList(ByteBuffer chars, IntBuffer offsets, int size) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * Retorna a lista embutida na aplicação, carregada de forma preguiçosa na primeira chamada.
+     */
+    static WordList builtIn() {
+        return Holder.INSTANCE;
+    }
+
+    // Idiom "holder": a JVM garante carregamento único e thread-safe na primeira referência.
+    private static final class Holder {
+        private static final WordList INSTANCE = load();
+    }
+
+    private static WordList load() {
+        byte[] raw;
+        try (InputStream in = WordList.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Lista de palavras não encontrada no classpath: " + RESOURCE);
+            }
+            raw = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao carregar a lista de palavras.", e);
+        }
+
+        // 1. Primeira passada: conta as palavras para dimensionar os buffers exatamente.
+        int count = 0;
+        int letters = 0;
+        boolean inWord = false;
+        for (byte b : raw) {
+            if (isWordByte(b)) {
+                letters++;
+                if (!inWord) {
+                    count++;
+                    inWord = true;
+                }
+            } else {
+                inWord = false;
+            }
+        }
+
+        // 2. Segunda passada: copia os caracteres e registra os deslocamentos fora do heap.
+        ByteBuffer chars = ByteBuffer.allocateDirect(letters);
+        IntBuffer offsets = ByteBuffer.allocateDirect((count + 1) * Integer.BYTES).asIntBuffer();
+        inWord = false;
+        for (byte b : raw) {
+            if (isWordByte(b)) {
+                if (!inWord) {
+                    offsets.put(chars.position());
+                    inWord = true;
+                }
+                chars.put(b);
+            } else {
+                inWord = false;
+            }
+        }
+        offsets.put(chars.position());
+        return new WordList(chars, offsets, count);
+    }
+
+    // Considera parte de uma palavra qualquer byte visível que não seja espaço.
+    private static boolean isWordByte(byte b) {
+        return b > ' ' && b < 127;
+    }
+
+    // Quantidade de palavras disponíveis.
+    int size() {
+        return size;
+    }
+
+    // Comprimento, em caracteres, da palavra de índice 'index'.
+    int wordLength(int index) {
+        return offsets.get(index + 1) - offsets.get(index);
+    }
+
+    /**
+     * Copia a palavra de índice 'index' para 'dst' a partir de 'pos'.
+     *
+     * @return A posição imediatamente após o último caractere copiado.
+     */
+    int copyWord(int index, char[] dst, int pos) {
+        int start = offsets.get(index);
+        int end = offsets.get(index + 1);
+        for (int i = start; i < end; i++) {
+            dst[pos++] = (char) chars.get(i);
+        }
+        return pos;
+    }
+}